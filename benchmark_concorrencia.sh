@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+# Mede a vazão de POST /executar_query com 1 a 64 clientes concorrentes.
+#
+# Uso: ./benchmark_concorrencia.sh [URL_BASE] [REQUISICOES_POR_NIVEL]
+#   NIVEIS="1 4 16" ./benchmark_concorrencia.sh http://localhost:8080 5000
+#
+# Cada cliente é um processo curl que faz um lote de requisições em sequência reaproveitando a
+# conexão; o xargs mantém N clientes rodando ao mesmo tempo. A consulta usada é a do Template_1A
+# (preço de fechamento da CSN Mineração em 08/05/2023) e pode ser trocada com CORPO=arquivo.json.
+set -o errexit -o nounset -o pipefail
+
+URL_BASE=${1:-http://localhost:8080}
+REQUISICOES=${2:-2000}
+NIVEIS=${NIVEIS:-"1 2 4 8 16 32 64"}
+LOTE=${LOTE:-50}
+
+DIR_TMP=$(mktemp -d)
+trap 'rm -rf "$DIR_TMP"' EXIT
+
+CORPO=${CORPO:-$DIR_TMP/corpo.json}
+if [ ! -f "$CORPO" ]; then
+    cat > "$CORPO" <<'JSON'
+{"templateId": "Template_1A", "sparqlQuery": "PREFIX b3: <https://dcm.ffclrp.usp.br/lssb/stock-market-ontology#> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#> SELECT DISTINCT ?valor WHERE { ?empresa rdfs:label \"CSN MINERAÇÃO S.A.\"@pt ; b3:temValorMobiliarioNegociado ?vm . ?vm b3:negociado ?negociado . ?negociado b3:negociadoDurante ?pregao . ?pregao b3:ocorreEmData \"2023-05-08\"^^xsd:date . ?negociado b3:precoFechamento ?valor . }"}
+JSON
+fi
+
+# Config do curl com LOTE requisições (blocos separados por "next").
+CONFIG=$DIR_TMP/lote.cfg
+for ((i = 0; i < LOTE; i++)); do
+    [ "$i" -gt 0 ] && echo "next" >> "$CONFIG"
+    cat >> "$CONFIG" <<EOF
+url = "$URL_BASE/executar_query"
+request = "POST"
+header = "Content-Type: application/json"
+data-binary = "@$CORPO"
+output = "/dev/null"
+write-out = "%{http_code}\\n"
+silent
+EOF
+done
+
+# Aquecimento (JIT, caches do Jena).
+seq 1 $((200 / LOTE + 1)) | xargs -P 4 -I{} curl -K "$CONFIG" > /dev/null
+
+printf "%-9s %-12s %-10s %-10s\n" "clientes" "requisições" "segundos" "req/s"
+for clientes in $NIVEIS; do
+    lotes=$(( (REQUISICOES + LOTE - 1) / LOTE ))
+    inicio=$(date +%s.%N)
+    seq 1 "$lotes" | xargs -P "$clientes" -I{} curl -K "$CONFIG" > "$DIR_TMP/codigos"
+    fim=$(date +%s.%N)
+    total=$(wc -l < "$DIR_TMP/codigos")
+    erros=$(grep -vc '^200$' "$DIR_TMP/codigos" || true)
+    awk -v c="$clientes" -v n="$total" -v i="$inicio" -v f="$fim" -v e="$erros" \
+        'BEGIN { d = f - i; printf "%-9d %-12d %-10.2f %-10.1f%s\n", c, n, d, n / d, (e > 0 ? "  (" e " respostas != 200)" : "") }'
+done
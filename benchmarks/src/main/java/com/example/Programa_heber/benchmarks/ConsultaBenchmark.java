@@ -0,0 +1,61 @@
+package com.example.Programa_heber.benchmarks;
+
+import com.example.Programa_heber.nlp.JavaNlpEngine;
+import com.example.Programa_heber.ontology.Ontology;
+import com.example.Programa_heber.service.SparqlTemplateRegistry;
+import org.apache.jena.query.Query;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Ontology.executeQuery} para cada template de {@code Templates/} sobre o grafo real
+ * (ontologiaB3.ttl + planilhas), no grafo compacto, no GraphMem e no dataset TDB2 (em um
+ * diretório temporário, recriado a cada trial).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsultaBenchmark {
+
+    @Param({"Template_1A", "Template_1B", "Template_2A", "Template_3A", "Template_5B", "Template_5C", "Template_6A", "Template_7A", "Template_7E"})
+    public String templateId;
+
+    @Param({"compacto", "memoria", "tdb2"})
+    public String armazenamento;
+
+    private AnnotationConfigApplicationContext contexto;
+    private Ontology ontology;
+    private Query consulta;
+    private String variavel;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void preparar() throws Exception {
+        contexto = Contexto.completo(Map.of("ontologia.grafo.armazenamento", armazenamento,
+                "ontologia.tdb2.dir", Files.createTempDirectory("tdb2-benchmark").toString()));
+        ontology = contexto.getBean(Ontology.class);
+        String pergunta = Contexto.PERGUNTA_POR_TEMPLATE.get(templateId);
+        Map<String, String> placeholders = pergunta == null ? Map.of()
+                : (Map<String, String>) contexto.getBean(JavaNlpEngine.class).processar(pergunta).get("mapeamentos");
+        consulta = contexto.getBean(SparqlTemplateRegistry.class).preencher(templateId, placeholders);
+        variavel = "Template_2A".equals(templateId) || "Template_3A".equals(templateId) || templateId.startsWith("Template_7") ? "ticker" : "valor";
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<String> executeQuery() {
+        return ontology.executeQuery(consulta, variavel);
+    }
+}
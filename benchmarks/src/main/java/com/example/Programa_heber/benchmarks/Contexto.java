@@ -0,0 +1,51 @@
+package com.example.Programa_heber.benchmarks;
+
+import com.example.Programa_heber.nlp.JavaNlpEngine;
+import com.example.Programa_heber.ontology.Ontology;
+import com.example.Programa_heber.service.SparqlTemplateRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sobe só os componentes da aplicação usados pelos benchmarks (ontologia, templates e PLN Java),
+ * com a mesma injeção de {@code @Value} da aplicação, mas sem servidor web nem pool Python.
+ */
+final class Contexto {
+
+    /** Perguntas reais usadas para gerar os placeholders de cada template. */
+    static final Map<String, String> PERGUNTA_POR_TEMPLATE = Map.of(
+            "Template_1A", "Qual foi o preço de fechamento da ação da CSN em 08/05/2023?",
+            "Template_1B", "Qual foi o preço de abertura da CBAV3 em 08/05/2023?",
+            "Template_2A", "Qual o código de negociação da ação da Gerdau?",
+            "Template_3A", "Quais são as ações do setor eletrico?",
+            "Template_5B", "Qual foi o preço mínima da ação preferencial do Itau em 05/05/2023?",
+            "Template_5C", "Qual foi o preço máximo da ação ordinária da Gerdau em 08/05/2023?",
+            "Template_6A", "Qual foi a variação intradiária absoluta da ação da CSN no pregão de 08/05/2023?",
+            "Template_7A", "Qual ação do setor de mineração que teve a maior alta percentual no pregão do dia 08/05/2023?",
+            "Template_7E", "Quais as cinco ações de maior percentual de alta no pregão de 08/05/2023?"
+    );
+
+    private Contexto() {
+    }
+
+    static AnnotationConfigApplicationContext criar(Map<String, Object> propriedades, Class<?>... componentes) {
+        Map<String, Object> todas = new HashMap<>();
+        todas.put("nlp.backend", "java");
+        todas.put("ontologia.snapshot.dir", "");
+        todas.put("nlp.dicionarios.dir", "");
+        todas.putAll(propriedades);
+
+        AnnotationConfigApplicationContext contexto = new AnnotationConfigApplicationContext();
+        contexto.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", todas));
+        contexto.register(componentes);
+        contexto.refresh();
+        return contexto;
+    }
+
+    static AnnotationConfigApplicationContext completo(Map<String, Object> propriedades) {
+        return criar(propriedades, Ontology.class, SparqlTemplateRegistry.class, JavaNlpEngine.class);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.Programa_heber.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do benchmarks.jar. Aceita as mesmas opções do JMH (ex.: {@code ConsultaBenchmark -f 2}),
+ * mas, se nenhum formato for pedido, grava os resultados em JSON em
+ * {@code jmh-resultados.json} para comparar entre versões.
+ */
+public final class Executar {
+
+    private Executar() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linhaDeComando = new CommandLineOptions(args);
+        ChainedOptionsBuilder opcoes = new OptionsBuilder().parent(linhaDeComando);
+        if (!linhaDeComando.getResultFormat().hasValue()) {
+            opcoes.resultFormat(ResultFormatType.JSON);
+        }
+        if (!linhaDeComando.getResult().hasValue()) {
+            opcoes.result("jmh-resultados.json");
+        }
+        new Runner(opcoes.build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.Programa_heber.benchmarks;
+
+import com.example.Programa_heber.model.ProcessamentoDetalhadoResposta;
+import com.example.Programa_heber.nlp.JavaNlpEngine;
+import com.example.Programa_heber.ontology.Ontology;
+import com.example.Programa_heber.service.CacheConsultas;
+import com.example.Programa_heber.service.EscalonadorPerguntas;
+import com.example.Programa_heber.service.LotePerguntas;
+import com.example.Programa_heber.service.QuestionProcessor;
+import com.example.Programa_heber.service.SparqlTemplateRegistry;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QuerySolution;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão (perguntas/s) de um lote de 1.000 perguntas: uma a uma, como no fluxo
+ * /gerar_consulta + /executar_query, contra o {@code LotePerguntas} (PLN em paralelo e uma
+ * consulta com VALUES por template). Os caches ficam desligados para medir o trabalho todo.
+ *
+ * O lote mistura preços de tickers em datas do grafo (Template_1B, 80%) com as perguntas de
+ * exemplo dos templates 1A, 2A e 3A.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoteBenchmark {
+
+    private static final int PERGUNTAS = 1000;
+    private static final String[] CAMPOS = {"preço de fechamento", "preço de abertura", "preço máximo", "preço mínimo"};
+    private static final String PREFIXO = "PREFIX b3: <https://dcm.ffclrp.usp.br/lssb/stock-market-ontology#> ";
+
+    private AnnotationConfigApplicationContext contexto;
+    private QuestionProcessor questionProcessor;
+    private LotePerguntas lotePerguntas;
+    private List<String> perguntas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = Contexto.criar(Map.of("cache.perguntas.tamanho-maximo", "0", "cache.resultados.tamanho-maximo", "0"),
+                Ontology.class, SparqlTemplateRegistry.class, JavaNlpEngine.class, CacheConsultas.class,
+                EscalonadorPerguntas.class, QuestionProcessor.class, LotePerguntas.class);
+        questionProcessor = contexto.getBean(QuestionProcessor.class);
+        lotePerguntas = contexto.getBean(LotePerguntas.class);
+
+        Ontology ontology = contexto.getBean(Ontology.class);
+        List<String> datas = valores(ontology, "SELECT DISTINCT ?v WHERE { ?p b3:ocorreEmData ?v } ORDER BY ?v");
+        List<String> tickers = valores(ontology, "SELECT DISTINCT ?v WHERE { ?c b3:ticker ?v } ORDER BY ?v");
+        List<String> exemplos = List.of(
+                Contexto.PERGUNTA_POR_TEMPLATE.get("Template_1A"),
+                Contexto.PERGUNTA_POR_TEMPLATE.get("Template_2A"),
+                Contexto.PERGUNTA_POR_TEMPLATE.get("Template_3A"));
+
+        Random aleatorio = new Random(42);
+        perguntas = new ArrayList<>(PERGUNTAS);
+        for (int i = 0; i < PERGUNTAS; i++) {
+            if (i % 5 == 4) {
+                perguntas.add(exemplos.get(aleatorio.nextInt(exemplos.size())));
+                continue;
+            }
+            String data = datas.get(aleatorio.nextInt(datas.size()));
+            String dataBr = data.substring(8) + "/" + data.substring(5, 7) + "/" + data.substring(0, 4);
+            perguntas.add("Qual foi o " + CAMPOS[aleatorio.nextInt(CAMPOS.length)] + " da "
+                    + tickers.get(aleatorio.nextInt(tickers.size())) + " em " + dataBr + "?");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PERGUNTAS)
+    public List<ProcessamentoDetalhadoResposta> sequencial() {
+        List<ProcessamentoDetalhadoResposta> respostas = new ArrayList<>(perguntas.size());
+        for (String pergunta : perguntas) {
+            ProcessamentoDetalhadoResposta gerada = questionProcessor.generateSparqlQuery(pergunta);
+            respostas.add(gerada.getErro() != null ? gerada
+                    : questionProcessor.executeSparqlQuery(gerada.getSparqlQuery(), gerada.getTemplateId()));
+        }
+        return respostas;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PERGUNTAS)
+    public List<ProcessamentoDetalhadoResposta> lote() throws Exception {
+        return lotePerguntas.processar(perguntas, "benchmark").get();
+    }
+
+    private static List<String> valores(Ontology ontology, String consulta) {
+        List<String> valores = new ArrayList<>();
+        for (QuerySolution solucao : ontology.executeSelect(QueryFactory.create(PREFIXO + consulta))) {
+            valores.add(solucao.get("v").asLiteral().getLexicalForm());
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.Programa_heber.benchmarks;
+
+import com.example.Programa_heber.ontology.Ontology;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Construção do grafo na subida: a partir das fontes (TTL + planilhas + materialização) ou a
+ * partir do snapshot RDF Thrift. Cada iteração cria uma {@link Ontology} nova.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModeloBenchmark {
+
+    @Param({"fontes", "snapshot"})
+    public String origem;
+
+    private Path diretorioSnapshot;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        if ("snapshot".equals(origem)) {
+            diretorioSnapshot = Files.createTempDirectory("bench-snapshot");
+            // Primeira subida grava o snapshot que as iterações vão ler.
+            construir().close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        if (diretorioSnapshot == null) return;
+        try (Stream<Path> arquivos = Files.walk(diretorioSnapshot)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long construirModelo() {
+        try (AnnotationConfigApplicationContext contexto = construir()) {
+            return contexto.getBean(Ontology.class).getVersao();
+        }
+    }
+
+    private AnnotationConfigApplicationContext construir() {
+        String dir = diretorioSnapshot == null ? "" : diretorioSnapshot.toString();
+        return Contexto.criar(Map.of("ontologia.snapshot.dir", dir), Ontology.class);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.Programa_heber.benchmarks;
+
+import com.example.Programa_heber.nlp.JavaNlpEngine;
+import com.example.Programa_heber.nlp.NlpEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chamada ao PLN (seleção de template + extração de entidades) com o backend Java. O backend
+ * Python depende de spaCy instalado e do pool de processos, e fica fora deste módulo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NlpBenchmark {
+
+    @Param({"Template_1A", "Template_1B", "Template_2A", "Template_3A"})
+    public String templateId;
+
+    private AnnotationConfigApplicationContext contexto;
+    private NlpEngine nlp;
+    private String pergunta;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = Contexto.criar(Map.of(), JavaNlpEngine.class);
+        nlp = contexto.getBean(NlpEngine.class);
+        pergunta = Contexto.PERGUNTA_POR_TEMPLATE.get(templateId);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> processar() throws Exception {
+        return nlp.processar(pergunta);
+    }
+}
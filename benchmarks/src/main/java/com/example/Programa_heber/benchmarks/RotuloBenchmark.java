@@ -0,0 +1,67 @@
+package com.example.Programa_heber.benchmarks;
+
+import com.example.Programa_heber.ontology.Ontology;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QuerySolution;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tickers de uma empresa pelo nome: {@code FILTER regex} sobre todos os rótulos (como os antigos
+ * Templates 4B/5B/5C), {@code rdfs:label} exato e o índice de rótulos normalizados do
+ * {@code b3fn:rotulo}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RotuloBenchmark {
+
+    private static final String PREFIXOS = "PREFIX b3: <https://dcm.ffclrp.usp.br/lssb/stock-market-ontology#> "
+            + "PREFIX b3fn: <https://dcm.ffclrp.usp.br/lssb/stock-market-ontology/funcoes#> "
+            + "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#> ";
+    private static final String TICKERS = " ?empresa b3:temValorMobiliarioNegociado/b3:representadoPor/b3:ticker ?ticker }";
+
+    private AnnotationConfigApplicationContext contexto;
+    private Ontology ontology;
+    private Query regex;
+    private Query label;
+    private Query rotulo;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = Contexto.criar(Map.of(), Ontology.class);
+        ontology = contexto.getBean(Ontology.class);
+        regex = QueryFactory.create(PREFIXOS + "SELECT ?ticker WHERE { ?empresa a b3:Empresa_Capital_Aberto ; rdfs:label ?nome . "
+                + "FILTER regex(str(?nome), \"GERDAU S.A.\", \"i\")" + TICKERS);
+        label = QueryFactory.create(PREFIXOS + "SELECT ?ticker WHERE { ?empresa rdfs:label \"GERDAU S.A.\"@pt ." + TICKERS);
+        rotulo = QueryFactory.create(PREFIXOS + "SELECT ?ticker WHERE { ?empresa b3fn:rotulo \"gerdau sa\" ." + TICKERS);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<QuerySolution> regex() {
+        return ontology.executeSelect(regex);
+    }
+
+    @Benchmark
+    public List<QuerySolution> labelExato() {
+        return ontology.executeSelect(label);
+    }
+
+    @Benchmark
+    public List<QuerySolution> indiceRotulos() {
+        return ontology.executeSelect(rotulo);
+    }
+}
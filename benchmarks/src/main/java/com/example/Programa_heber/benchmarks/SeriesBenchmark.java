@@ -0,0 +1,62 @@
+package com.example.Programa_heber.benchmarks;
+
+import com.example.Programa_heber.ontology.Ontology;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QuerySolution;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Os 10 maiores fechamentos de um pregão: junção sobre as triplas {@code Negociado_*} com
+ * ORDER BY/LIMIT contra a varredura da coluna de fechamento pelo {@code b3fn:ranking}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeriesBenchmark {
+
+    private static final String PREFIXOS = "PREFIX b3: <https://dcm.ffclrp.usp.br/lssb/stock-market-ontology#> "
+            + "PREFIX b3fn: <https://dcm.ffclrp.usp.br/lssb/stock-market-ontology/funcoes#> "
+            + "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> ";
+    private static final String DATA = "\"2023-05-08\"^^xsd:date";
+
+    private AnnotationConfigApplicationContext contexto;
+    private Ontology ontology;
+    private Query triplas;
+    private Query colunas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = Contexto.criar(Map.of(), Ontology.class);
+        ontology = contexto.getBean(Ontology.class);
+        triplas = QueryFactory.create(PREFIXOS + "SELECT ?ticker ?valor WHERE { "
+                + "?c b3:ticker ?ticker . ?vm b3:representadoPor ?c ; b3:negociado ?n . "
+                + "?n b3:negociadoDurante ?p ; b3:precoFechamento ?valor . ?p b3:ocorreEmData " + DATA + " } "
+                + "ORDER BY DESC(?valor) LIMIT 10");
+        colunas = QueryFactory.create(PREFIXOS + "SELECT ?ticker ?valor WHERE { "
+                + "(?ticker ?valor) b3fn:ranking (b3:precoFechamento " + DATA + " 10) }");
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<QuerySolution> rankingTriplas() {
+        return ontology.executeSelect(triplas);
+    }
+
+    @Benchmark
+    public List<QuerySolution> rankingColunas() {
+        return ontology.executeSelect(colunas);
+    }
+}
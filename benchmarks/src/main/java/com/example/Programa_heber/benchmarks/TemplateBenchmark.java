@@ -0,0 +1,62 @@
+package com.example.Programa_heber.benchmarks;
+
+import com.example.Programa_heber.nlp.JavaNlpEngine;
+import com.example.Programa_heber.service.SparqlTemplateRegistry;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem da consulta a partir do template compilado (substituição dos placeholders por nós
+ * tipados) e o parse do texto SPARQL resultante, que é o que o /executar_query recebe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBenchmark {
+
+    @Param({"Template_1A", "Template_1B", "Template_2A", "Template_3A"})
+    public String templateId;
+
+    private AnnotationConfigApplicationContext contexto;
+    private SparqlTemplateRegistry registry;
+    private Map<String, String> placeholders;
+    private String textoConsulta;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void preparar() throws Exception {
+        contexto = Contexto.criar(Map.of(), SparqlTemplateRegistry.class, JavaNlpEngine.class);
+        registry = contexto.getBean(SparqlTemplateRegistry.class);
+        Map<String, Object> nlp = contexto.getBean(JavaNlpEngine.class).processar(Contexto.PERGUNTA_POR_TEMPLATE.get(templateId));
+        placeholders = (Map<String, String>) nlp.get("mapeamentos");
+        textoConsulta = registry.preencher(templateId, placeholders).serialize();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Query preencherTemplate() throws Exception {
+        return registry.preencher(templateId, placeholders);
+    }
+
+    @Benchmark
+    public String preencherESerializar() throws Exception {
+        return registry.preencher(templateId, placeholders).serialize();
+    }
+
+    @Benchmark
+    public Query parseSparql() {
+        return QueryFactory.create(textoConsulta);
+    }
+}
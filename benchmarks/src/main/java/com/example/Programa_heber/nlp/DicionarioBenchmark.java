@@ -0,0 +1,68 @@
+package com.example.Programa_heber.nlp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da busca de entidades em função do tamanho do dicionário: o autômato Aho-Corasick
+ * ({@link DicionarioEntidades}) contra a varredura por substring em ordem de tamanho que o
+ * pln_processor.py fazia antes de usar o mesmo autômato. As chaves reais são completadas com nomes sintéticos até {@code chaves}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DicionarioBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int chaves;
+
+    private DicionarioEntidades dicionario;
+    private List<Map.Entry<String, String>> ordenadasPorTamanho;
+    private String pergunta;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Map<String, String> empresas = new LinkedHashMap<>();
+        Random aleatorio = new Random(42);
+        empresas.put("csn", "CSN MINERAÇÃO S.A.");
+        empresas.put("gerdau", "GERDAU S.A.");
+        while (empresas.size() < chaves) {
+            StringBuilder nome = new StringBuilder();
+            int palavras = 1 + aleatorio.nextInt(3);
+            for (int p = 0; p < palavras; p++) {
+                if (p > 0) nome.append(' ');
+                for (int i = 0, n = 4 + aleatorio.nextInt(6); i < n; i++) {
+                    nome.append((char) ('a' + aleatorio.nextInt(26)));
+                }
+            }
+            empresas.put(nome.toString(), nome.toString().toUpperCase(Locale.ROOT));
+        }
+        Map<String, String> setores = Map.of("eletrico", "Energia Elétrica");
+        Map<String, String> metricas = Map.of("preco de fechamento", "precoFechamento", "fechamento", "precoFechamento");
+
+        dicionario = DicionarioEntidades.construir(empresas, setores, metricas);
+        ordenadasPorTamanho = new ArrayList<>();
+        ordenadasPorTamanho.addAll(empresas.entrySet());
+        ordenadasPorTamanho.sort(Comparator.comparingInt((Map.Entry<String, String> e) -> e.getKey().length()).reversed());
+        pergunta = JavaNlpEngine.normalizarTexto("Qual foi o preço de fechamento da ação da CSN em 08/05/2023?");
+    }
+
+    @Benchmark
+    public Map<DicionarioEntidades.Categoria, String> ahoCorasick() {
+        return dicionario.maisLongaPorCategoria(pergunta);
+    }
+
+    /** Equivalente ao antigo laço do pln_processor.py para empresas: primeira chave (mais longa) contida no texto. */
+    @Benchmark
+    public String varreduraPorSubstring() {
+        for (Map.Entry<String, String> e : ordenadasPorTamanho) {
+            if (pergunta.contains(e.getKey())) return e.getValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.Programa_heber.nlp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da seleção de template em função do número de perguntas de exemplo: o índice TF-IDF de
+ * trigramas ({@link IndiceTemplates}) contra o get_close_matches do difflib ({@link SequenceMatcher}),
+ * que compara a pergunta com todos os exemplos. As perguntas reais de perguntas_de_interesse.txt são
+ * completadas com paráfrases sintéticas (prefixos, outras empresas e datas) até {@code exemplos}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelecaoTemplateBenchmark {
+
+    private static final String[] PREFIXOS = { "", "me diga ", "por favor, ", "gostaria de saber ", "você sabe ", "consulta: " };
+    private static final String[] PERGUNTAS = {
+            "Qual foi o preço de fechamento da ação da Gerdau em 05/05/2023?",
+            "quais são as ações do setor de mineração?",
+            "Quais as cinco ações de maior percentual de baixa no pregão de 05/05/2023?",
+            "qual o ticker da vale",
+    };
+
+    @Param({"18", "1000", "10000"})
+    public int exemplos;
+
+    private Map<String, String> perguntasBase;
+    private IndiceTemplates indice;
+    private String[] perguntas;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        Map<String, String> reais = new LinkedHashMap<>();
+        try (BufferedReader leitor = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream("/perguntas_de_interesse.txt"), StandardCharsets.UTF_8))) {
+            leitor.lines().map(l -> l.replace("\uFEFF", "")).filter(l -> !l.isBlank()).forEach(l -> {
+                String[] partes = l.strip().split(";", 2);
+                reais.put(JavaNlpEngine.normalizarTexto(partes[1].replaceAll("<[^>]+>", "")), partes[0].strip());
+            });
+        }
+
+        perguntasBase = new LinkedHashMap<>(reais);
+        List<Map.Entry<String, String>> modelos = new ArrayList<>(reais.entrySet());
+        Random aleatorio = new Random(42);
+        while (perguntasBase.size() < exemplos) {
+            Map.Entry<String, String> modelo = modelos.get(aleatorio.nextInt(modelos.size()));
+            StringBuilder empresa = new StringBuilder();
+            for (int i = 0, n = 4 + aleatorio.nextInt(6); i < n; i++) empresa.append((char) ('a' + aleatorio.nextInt(26)));
+            String data = String.format("%02d/%02d/20%02d", 1 + aleatorio.nextInt(28), 1 + aleatorio.nextInt(12), 10 + aleatorio.nextInt(14));
+            String parafrase = PREFIXOS[aleatorio.nextInt(PREFIXOS.length)] + modelo.getKey()
+                    .replaceAll("\\b(csn|gerdau|itau|cbav3)\\b", empresa.toString())
+                    .replaceAll("\\d{2}/\\d{2}/\\d{4}", data);
+            perguntasBase.putIfAbsent(JavaNlpEngine.normalizarTexto(parafrase), modelo.getValue());
+        }
+        indice = IndiceTemplates.construir(perguntasBase);
+        perguntas = Arrays.stream(PERGUNTAS).map(JavaNlpEngine::normalizarTexto).toArray(String[]::new);
+    }
+
+    private String proximaPergunta() {
+        proxima = (proxima + 1) % perguntas.length;
+        return perguntas[proxima];
+    }
+
+    @Benchmark
+    public List<IndiceTemplates.Candidato> indiceTrigramas() {
+        return indice.buscar(proximaPergunta(), 1);
+    }
+
+    @Benchmark
+    public Optional<String> difflib() {
+        return SequenceMatcher.melhorCorrespondencia(proximaPergunta(), perguntasBase.keySet(), 0.6);
+    }
+}
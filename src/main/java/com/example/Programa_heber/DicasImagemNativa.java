@@ -0,0 +1,40 @@
+package com.example.Programa_heber;
+
+import com.example.Programa_heber.ontology.Ontology;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Dicas para a imagem nativa (perfil Maven {@code native}). O processamento AOT do Spring já cobre
+ * beans, controladores e os DTOs dos endpoints; aqui entram os recursos lidos por
+ * {@code ClassPathResource} ou por padrão {@code classpath*:} (templates, mapas do PLN, ontologia
+ * base), os arquivos de versão e configuração que o Jena lê na inicialização e as classes que o
+ * Jackson serializa sem passar por um endpoint.
+ *
+ * A leitura das planilhas pelo POI não está coberta: na imagem nativa o grafo vem de um snapshot
+ * pré-construído ({@code ontologia.snapshot.dir}). Para cobrir outros caminhos, rode a aplicação
+ * na JVM com {@code -agentlib:native-image-agent=config-output-dir=...} durante o aquecimento.
+ */
+class DicasImagemNativa implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources()
+                .registerPattern("Templates/*")
+                .registerPattern("Datasets/*")
+                .registerPattern("*.ttl")
+                .registerPattern("*.json")
+                .registerPattern("*.txt")
+                .registerPattern("*.xlsx")
+                .registerPattern("static/**")
+                .registerPattern("org/apache/jena/*.properties")
+                .registerPattern("org/apache/jena/**/*.properties")
+                .registerPattern("org/apache/jena/**/*.xml")
+                .registerPattern("META-INF/services/org.apache.jena.*");
+
+        hints.reflection()
+                .registerType(Ontology.ResultadoIngestao.class,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
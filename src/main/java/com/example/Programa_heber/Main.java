@@ -1,23 +1,29 @@
 package com.example.Programa_heber;
 
+import com.example.Programa_heber.controller.QuestionController;
 import com.example.Programa_heber.model.ExecucaoRequest;
 import com.example.Programa_heber.model.PerguntaRequest;
 import com.example.Programa_heber.model.ProcessamentoDetalhadoResposta;
 import com.example.Programa_heber.service.QuestionProcessor;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Classe principal da aplicação Spring Boot.
  * Esta classe serve como o ponto de entrada para a aplicação e também como o
  * controlador REST que expõe os endpoints da API para a interface web.
  */
 @SpringBootApplication
+@ImportRuntimeHints(DicasImagemNativa.class)
 @RestController
 @CrossOrigin(origins = "*") // Permite requisições de qualquer frontend.
 public class Main {
@@ -45,59 +51,66 @@ public class Main {
 
     /**
      * Endpoint para gerar a consulta SPARQL a partir de uma pergunta em linguagem natural.
-     * Este é o primeiro passo do fluxo da interface.
+     * Este é o primeiro passo do fluxo da interface. O PLN passa pela etapa de tradução do controle
+     * de admissão: com a etapa saturada a resposta é 429 ou 503, com Retry-After.
      * 
      * @param request Um objeto JSON com a chave "pergunta". Ex: {"pergunta": "Qual o preço da PETR4?"}
      * @return Um ResponseEntity contendo a query gerada e o ID do template, ou um erro.
      */
     @PostMapping("/gerar_consulta")
-    public ResponseEntity<ProcessamentoDetalhadoResposta> gerarConsulta(@RequestBody PerguntaRequest request) {
+    public CompletableFuture<ResponseEntity<ProcessamentoDetalhadoResposta>> gerarConsulta(@RequestBody PerguntaRequest request,
+                                                                                          HttpServletRequest requisicao) {
         logger.info("Recebida requisição para /gerar_consulta: '{}'", request.getPergunta());
         
         if (request.getPergunta() == null || request.getPergunta().isBlank()) {
             ProcessamentoDetalhadoResposta erro = new ProcessamentoDetalhadoResposta();
             erro.setErro("A pergunta não pode ser vazia.");
-            return ResponseEntity.badRequest().body(erro);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(erro));
         }
 
         // Chama o método específico para gerar a query no serviço
-        ProcessamentoDetalhadoResposta resposta = questionProcessor.generateSparqlQuery(request.getPergunta());
-        
-        if (resposta.getErro() != null) {
-            logger.error("Erro ao gerar consulta: {}", resposta.getErro());
-            return ResponseEntity.internalServerError().body(resposta);
-        }
-        
-        logger.info("Consulta gerada com sucesso para o template: {}", resposta.getTemplateId());
-        return ResponseEntity.ok(resposta);
+        return questionProcessor.generateSparqlQueryAsync(request.getPergunta(), requisicao.getRemoteAddr())
+                .thenApply(resposta -> {
+                    if (resposta.getErro() != null) {
+                        logger.error("Erro ao gerar consulta: {}", resposta.getErro());
+                        return ResponseEntity.internalServerError().body(resposta);
+                    }
+                    logger.info("Consulta gerada com sucesso para o template: {}", resposta.getTemplateId());
+                    return ResponseEntity.ok(resposta);
+                })
+                .exceptionally(QuestionController::falha);
     }
 
     /**
      * Endpoint para executar uma consulta SPARQL que já foi gerada.
-     * Este é o segundo passo do fluxo da interface, acionado pelo botão "Executar".
+     * Este é o segundo passo do fluxo da interface, acionado pelo botão "Executar". A consulta
+     * devolvida pelo /gerar_consulta roda com prioridade alta; SPARQL escrito ou alterado pelo
+     * cliente, com prioridade baixa, e é o primeiro a ser recusado quando a etapa enche.
      * 
      * @param request Um objeto JSON com a query e o ID do template. Ex: {"sparqlQuery": "SELECT...", "templateId": "Template_1A"}
      * @return Um ResponseEntity contendo o resultado da consulta, ou um erro.
      */
     @PostMapping("/executar_query")
-    public ResponseEntity<ProcessamentoDetalhadoResposta> executarConsulta(@RequestBody ExecucaoRequest request) {
+    public CompletableFuture<ResponseEntity<ProcessamentoDetalhadoResposta>> executarConsulta(@RequestBody ExecucaoRequest request,
+                                                                                             HttpServletRequest requisicao) {
         logger.info("Recebida requisição para /executar_query com templateId: {}", request.getTemplateId());
 
         if (request.getSparqlQuery() == null || request.getSparqlQuery().isBlank() || request.getTemplateId() == null) {
             ProcessamentoDetalhadoResposta erro = new ProcessamentoDetalhadoResposta();
             erro.setErro("A query SPARQL ou o ID do template não foram fornecidos.");
-            return ResponseEntity.badRequest().body(erro);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(erro));
         }
         
         // Chama o método específico para executar a query no serviço
-        ProcessamentoDetalhadoResposta resposta = questionProcessor.executeSparqlQuery(request.getSparqlQuery(), request.getTemplateId());
-        
-         if (resposta.getErro() != null) {
-            logger.error("Erro ao executar consulta: {}", resposta.getErro());
-            return ResponseEntity.internalServerError().body(resposta);
-        }
-
-        logger.info("Consulta executada com sucesso. Resultado: {}", resposta.getResposta());
-        return ResponseEntity.ok(resposta);
+        return questionProcessor.executeSparqlQueryAsync(request.getSparqlQuery(), request.getTemplateId(), requisicao.getRemoteAddr())
+                .thenApply(resposta -> {
+                    if (resposta.getErro() != null) {
+                        logger.error("Erro ao executar consulta: {}", resposta.getErro());
+                        return ResponseEntity.internalServerError().body(resposta);
+                    }
+                    logger.info("Consulta executada com sucesso. Resultado: {}", resposta.getResposta());
+                    return ResponseEntity.ok(resposta);
+                })
+                .exceptionally(QuestionController::falha);
     }
-}
\ No newline at end of file
+}
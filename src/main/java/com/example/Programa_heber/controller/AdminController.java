@@ -0,0 +1,73 @@
+package com.example.Programa_heber.controller;
+
+import com.example.Programa_heber.ontology.Ontology;
+import com.example.Programa_heber.service.CacheConsultas;
+import com.example.Programa_heber.service.EscalonadorPerguntas;
+import com.example.Programa_heber.service.IngestaoPregoes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Operações de administração: carga incremental de pregões, inspeção dos caches e da fila de admissão.
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    @Autowired
+    private IngestaoPregoes ingestaoPregoes;
+
+    @Autowired
+    private CacheConsultas cacheConsultas;
+
+    @Autowired
+    private EscalonadorPerguntas escalonador;
+
+    /** Recebe um arquivo de pregão (.xlsx ou .csv, campo "arquivo") e o acrescenta ao grafo. */
+    @PostMapping(value = "/pregoes", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> ingerirPregao(@RequestParam("arquivo") MultipartFile arquivo) {
+        if (arquivo == null || arquivo.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("erro", "Arquivo de pregão vazio."));
+        }
+        try (InputStream in = arquivo.getInputStream()) {
+            Ontology.ResultadoIngestao resultado = ingestaoPregoes.ingerir(arquivo.getOriginalFilename(), in);
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("erro", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("erro", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Falha na ingestão do pregão '{}'", arquivo.getOriginalFilename(), e);
+            return ResponseEntity.internalServerError().body(Map.of("erro", "Falha na ingestão: " + e.getMessage()));
+        }
+    }
+
+    /** Tamanho, acertos, faltas, taxa de acerto e remoções de cada nível do cache. */
+    @GetMapping("/cache")
+    public Map<String, Object> estatisticasCache() {
+        return cacheConsultas.estatisticas();
+    }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> limparCache() {
+        cacheConsultas.invalidar();
+        return ResponseEntity.noContent().build();
+    }
+
+    /** Vagas, tarefas em execução e na fila de cada etapa do pipeline de perguntas. */
+    @GetMapping("/admissao")
+    public Map<String, Object> estadoAdmissao() {
+        return escalonador.estado();
+    }
+}
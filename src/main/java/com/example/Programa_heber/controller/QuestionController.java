@@ -1,29 +1,160 @@
 package com.example.Programa_heber.controller;
 
+import com.example.Programa_heber.model.ConsultaPaginadaRequest;
+import com.example.Programa_heber.model.LotePerguntasRequest;
 import com.example.Programa_heber.model.PerguntaRequest;
 import com.example.Programa_heber.model.ProcessamentoDetalhadoResposta;
+import com.example.Programa_heber.service.AdmissaoRecusadaException;
+import com.example.Programa_heber.service.LotePerguntas;
 import com.example.Programa_heber.service.QuestionProcessor;
+import com.example.Programa_heber.service.ResultadosPaginados;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*") // Permite requisições de qualquer origem
 public class QuestionController {
 
+    private static final Logger logger = LoggerFactory.getLogger(QuestionController.class);
+
     @Autowired
     private QuestionProcessor questionProcessor;
 
+    @Autowired
+    private LotePerguntas lotePerguntas;
+
+    @Autowired
+    private ResultadosPaginados resultadosPaginados;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType SPARQL_JSON = MediaType.parseMediaType("application/sparql-results+json");
+
+    /**
+     * Traduz e executa a pergunta em uma única chamada. O processamento é assíncrono: a thread do
+     * Tomcat é liberada enquanto o PLN e a consulta rodam no pipeline do QuestionProcessor.
+     * Responde 504 se uma etapa estourar o tempo, 429 se o cliente tiver perguntas demais pendentes e
+     * 503 se o pipeline estiver saturado (os dois com Retry-After).
+     */
     @PostMapping("/question")
-    public ResponseEntity<ProcessamentoDetalhadoResposta> processQuestion(@RequestBody PerguntaRequest request) {
+    public CompletableFuture<ResponseEntity<ProcessamentoDetalhadoResposta>> processQuestion(@RequestBody PerguntaRequest request,
+                                                                                            HttpServletRequest requisicao) {
         if (request == null || request.getPergunta() == null || request.getPergunta().isBlank()) {
-            ProcessamentoDetalhadoResposta erro = new ProcessamentoDetalhadoResposta();
-            erro.setErro("A pergunta não pode ser vazia.");
-            return ResponseEntity.badRequest().body(erro);
+            return CompletableFuture.completedFuture(erro(HttpStatus.BAD_REQUEST, "A pergunta não pode ser vazia."));
+        }
+
+        return questionProcessor.processQuestion(request.getPergunta(), requisicao.getRemoteAddr())
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(QuestionController::falha);
+    }
+
+    /**
+     * Responde um lote de perguntas, na mesma ordem em que vieram. Perguntas do mesmo template são
+     * executadas juntas; erros de uma pergunta aparecem só na resposta dela.
+     */
+    @PostMapping("/questions")
+    public CompletableFuture<ResponseEntity<?>> processQuestions(@RequestBody LotePerguntasRequest request, HttpServletRequest requisicao) {
+        List<String> perguntas = request == null ? null : request.getPerguntas();
+        if (perguntas == null || perguntas.isEmpty() || perguntas.stream().anyMatch(p -> p == null || p.isBlank())) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("erro", "O lote deve ter ao menos uma pergunta e nenhuma pergunta vazia.")));
+        }
+        try {
+            return lotePerguntas.processar(perguntas, requisicao.getRemoteAddr())
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(QuestionController::falha);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("erro", e.getMessage())));
+        }
+    }
+
+    /**
+     * Executa um SELECT e transmite as linhas, com todas as variáveis, à medida que são lidas do
+     * grafo. O formato segue o cabeçalho Accept: NDJSON (padrão) ou application/sparql-results+json.
+     * Cada página traz o cursor da seguinte; 410 indica que o grafo mudou desde a primeira página.
+     * A página passa pela etapa de execução do controle de admissão com prioridade baixa: com a
+     * etapa saturada a resposta é 429 ou 503, com Retry-After, antes de a transmissão começar.
+     */
+    @PostMapping("/results")
+    public ResponseEntity<StreamingResponseBody> streamResults(@RequestBody ConsultaPaginadaRequest request,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                           HttpServletRequest requisicao) {
+        if (request == null || request.getSparqlQuery() == null || request.getSparqlQuery().isBlank()) {
+            return erroJson(HttpStatus.BAD_REQUEST, "A query SPARQL não foi fornecida.");
         }
+        ResultadosPaginados.Pagina pagina;
+        try {
+            pagina = resultadosPaginados.preparar(request.getSparqlQuery(), request.getCursor(), request.getTamanhoPagina());
+        } catch (IllegalArgumentException e) {
+            return erroJson(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return erroJson(HttpStatus.GONE, e.getMessage());
+        }
+
+        boolean sparqlJson = accept != null && accept.contains(SPARQL_JSON.getSubtype());
+        ResultadosPaginados.Formato formato = sparqlJson ? ResultadosPaginados.Formato.SPARQL_JSON : ResultadosPaginados.Formato.NDJSON;
+        ResultadosPaginados.Transmissao transmissao;
+        try {
+            transmissao = resultadosPaginados.admitir(pagina, formato, requisicao.getRemoteAddr());
+        } catch (AdmissaoRecusadaException recusa) {
+            return ResponseEntity.status(recusa.isPorCliente() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(recusa.getRetryAfterSegundos()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(saida -> JSON.writeValue(saida, Map.of("erro", recusa.getMessage())));
+        }
+        StreamingResponseBody corpo = transmissao::escrever;
+        return ResponseEntity.ok().contentType(sparqlJson ? SPARQL_JSON : NDJSON).body(corpo);
+    }
+
+    /** Erro antes de a transmissão começar, no mesmo formato {"erro": ...} dos outros endpoints. */
+    private static ResponseEntity<StreamingResponseBody> erroJson(HttpStatus status, String mensagem) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON)
+                .body(saida -> JSON.writeValue(saida, Map.of("erro", mensagem)));
+    }
+
+    /**
+     * Resposta de um pipeline que terminou com exceção: 504 por tempo esgotado, 429 ou 503 com
+     * Retry-After quando o controle de admissão recusou a pergunta, 500 nos demais casos.
+     */
+    public static ResponseEntity<ProcessamentoDetalhadoResposta> falha(Throwable e) {
+        Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (causa instanceof TimeoutException) {
+            logger.warn("Pergunta abandonada por tempo esgotado.");
+            return erro(HttpStatus.GATEWAY_TIMEOUT, "O processamento da pergunta excedeu o tempo limite.");
+        }
+        if (causa instanceof AdmissaoRecusadaException recusa) {
+            ProcessamentoDetalhadoResposta resposta = new ProcessamentoDetalhadoResposta();
+            resposta.setErro(recusa.getMessage());
+            return ResponseEntity.status(recusa.isPorCliente() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(recusa.getRetryAfterSegundos()))
+                    .body(resposta);
+        }
+        if (causa instanceof RejectedExecutionException) {
+            return erro(HttpStatus.SERVICE_UNAVAILABLE, "Servidor ocupado; tente novamente em instantes.");
+        }
+        logger.error("Erro inesperado ao processar a pergunta: {}", causa.getMessage(), causa);
+        return erro(HttpStatus.INTERNAL_SERVER_ERROR, "Erro interno ao processar a pergunta.");
+    }
 
-        ProcessamentoDetalhadoResposta resposta = questionProcessor.processQuestion(request.getPergunta());
-        return ResponseEntity.ok(resposta);
+    private static ResponseEntity<ProcessamentoDetalhadoResposta> erro(HttpStatus status, String mensagem) {
+        ProcessamentoDetalhadoResposta resposta = new ProcessamentoDetalhadoResposta();
+        resposta.setErro(mensagem);
+        return ResponseEntity.status(status).body(resposta);
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.example.Programa_heber.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * Protege as rotas de {@link AdminController} ({@code /admin/**}), que gravam arquivos no diretório
+ * de ingestão, publicam versões do grafo e esvaziam os caches. A requisição precisa trazer
+ * {@code Authorization: Bearer <admin.token>}; sem o cabeçalho certo a resposta é 401.
+ *
+ * Sem {@code admin.token} configurado (variável de ambiente {@code ADMIN_TOKEN}, por exemplo), as
+ * rotas ficam desativadas e respondem 403: o serviço público nunca sobe com a administração aberta.
+ */
+@Component
+public class TokenAdministracao implements HandlerInterceptor, WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenAdministracao.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String PREFIXO = "Bearer ";
+
+    @Value("${admin.token:}")
+    private String token;
+
+    @PostConstruct
+    public void initialize() {
+        if (token == null || token.isBlank()) {
+            logger.warn("admin.token não configurado: as rotas /admin/** ficam desativadas.");
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/admin/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (token == null || token.isBlank()) {
+            recusar(response, HttpStatus.FORBIDDEN, "Administração desativada: defina admin.token.");
+            return false;
+        }
+        String cabecalho = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (cabecalho == null || !cabecalho.startsWith(PREFIXO) || !iguais(cabecalho.substring(PREFIXO.length()).strip(), token)) {
+            logger.warn("Acesso negado a {} {} vindo de {}.", request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            recusar(response, HttpStatus.UNAUTHORIZED, "Token de administração ausente ou inválido.");
+            return false;
+        }
+        return true;
+    }
+
+    /** Comparação em tempo constante, para o tempo de resposta não revelar o prefixo certo do token. */
+    private static boolean iguais(String recebido, String esperado) {
+        return MessageDigest.isEqual(recebido.getBytes(StandardCharsets.UTF_8), esperado.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void recusar(HttpServletResponse response, HttpStatus status, String mensagem) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        JSON.writeValue(response.getOutputStream(), Map.of("erro", mensagem));
+    }
+}
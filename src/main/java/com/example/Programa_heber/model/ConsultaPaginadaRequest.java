@@ -0,0 +1,15 @@
+package com.example.Programa_heber.model;
+
+public class ConsultaPaginadaRequest {
+    private String sparqlQuery;
+    private String cursor;          // vazio na primeira página; depois, o "proximoCursor" da página anterior
+    private Integer tamanhoPagina;  // opcional
+
+    // Getters e Setters
+    public String getSparqlQuery() { return sparqlQuery; }
+    public void setSparqlQuery(String sparqlQuery) { this.sparqlQuery = sparqlQuery; }
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    public Integer getTamanhoPagina() { return tamanhoPagina; }
+    public void setTamanhoPagina(Integer tamanhoPagina) { this.tamanhoPagina = tamanhoPagina; }
+}
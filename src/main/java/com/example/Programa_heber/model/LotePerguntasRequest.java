@@ -0,0 +1,11 @@
+package com.example.Programa_heber.model;
+
+import java.util.List;
+
+public class LotePerguntasRequest {
+    private List<String> perguntas;
+
+    // Getters e Setters
+    public List<String> getPerguntas() { return perguntas; }
+    public void setPerguntas(List<String> perguntas) { this.perguntas = perguntas; }
+}
@@ -0,0 +1,205 @@
+package com.example.Programa_heber.nlp;
+
+import java.util.*;
+
+/**
+ * Autômato Aho-Corasick único construído a partir dos mapas de empresas, setores e sinônimos de
+ * métricas. Uma só passada sobre a pergunta normalizada encontra todas as ocorrências de todas as
+ * chaves, de modo que o custo depende do tamanho da pergunta e do número de ocorrências, e não do
+ * tamanho dos dicionários.
+ *
+ * A instância é imutável; recarregar os mapas significa construir outra e trocar a referência.
+ */
+final class DicionarioEntidades {
+
+    enum Categoria { EMPRESA, SETOR, METRICA }
+
+    /** Ocorrência de uma chave na pergunta: intervalo [inicio, fim) e valor canônico. */
+    record Ocorrencia(int inicio, int fim, Categoria categoria, String chave, String valor) {
+        int tamanho() {
+            return fim - inicio;
+        }
+    }
+
+    // Dados de cada padrão, indexados pelo id do padrão.
+    private final String[] chaves;
+    private final String[] valores;
+    private final Categoria[] categorias;
+
+    // Trie compactada: filhos de cada nó em arrays ordenados por caractere (busca binária).
+    private final char[][] rotulosFilhos;
+    private final int[][] filhos;
+    private final int[] falha;
+    private final int[][] saidas;
+    private final int[] ligacaoSaida;
+
+    private DicionarioEntidades(Construtor c) {
+        this.chaves = c.chaves.toArray(String[]::new);
+        this.valores = c.valores.toArray(String[]::new);
+        this.categorias = c.categorias.toArray(Categoria[]::new);
+
+        int n = c.trie.size();
+        this.rotulosFilhos = new char[n][];
+        this.filhos = new int[n][];
+        this.saidas = new int[n][];
+        for (int i = 0; i < n; i++) {
+            TreeMap<Character, Integer> ordenados = new TreeMap<>(c.trie.get(i));
+            rotulosFilhos[i] = new char[ordenados.size()];
+            filhos[i] = new int[ordenados.size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> e : ordenados.entrySet()) {
+                rotulosFilhos[i][k] = e.getKey();
+                filhos[i][k++] = e.getValue();
+            }
+            saidas[i] = c.saidas.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Links de falha e de saída calculados em largura (BFS) a partir da raiz.
+        this.falha = new int[n];
+        this.ligacaoSaida = new int[n];
+        Arrays.fill(ligacaoSaida, -1);
+        Deque<Integer> fila = new ArrayDeque<>();
+        for (int filho : filhos[0]) {
+            fila.add(filho);
+        }
+        while (!fila.isEmpty()) {
+            int no = fila.poll();
+            for (int k = 0; k < filhos[no].length; k++) {
+                char rotulo = rotulosFilhos[no][k];
+                int filho = filhos[no][k];
+                int f = falha[no];
+                while (f != 0 && transicao(f, rotulo) < 0) f = falha[f];
+                int destino = transicao(f, rotulo);
+                falha[filho] = destino >= 0 && destino != filho ? destino : 0;
+                ligacaoSaida[filho] = saidas[falha[filho]].length > 0 ? falha[filho] : ligacaoSaida[falha[filho]];
+                fila.add(filho);
+            }
+        }
+    }
+
+    static DicionarioEntidades construir(Map<String, String> empresas, Map<String, String> setores, Map<String, String> sinonimos) {
+        Construtor c = new Construtor();
+        c.adicionarTodos(empresas, Categoria.EMPRESA);
+        c.adicionarTodos(setores, Categoria.SETOR);
+        c.adicionarTodos(sinonimos, Categoria.METRICA);
+        return new DicionarioEntidades(c);
+    }
+
+    int tamanho() {
+        return chaves.length;
+    }
+
+    /** Todas as ocorrências (inclusive sobrepostas), na ordem em que terminam no texto. */
+    List<Ocorrencia> ocorrencias(String texto) {
+        List<Ocorrencia> encontradas = new ArrayList<>();
+        int estado = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char ch = texto.charAt(i);
+            int proximo;
+            while ((proximo = transicao(estado, ch)) < 0 && estado != 0) {
+                estado = falha[estado];
+            }
+            estado = Math.max(proximo, 0);
+            for (int no = estado; no > 0; no = ligacaoSaida[no]) {
+                for (int id : saidas[no]) {
+                    encontradas.add(new Ocorrencia(i + 1 - chaves[id].length(), i + 1, categorias[id], chaves[id], valores[id]));
+                }
+            }
+        }
+        return encontradas;
+    }
+
+    /** Ocorrências mais longas e sem sobreposição, escolhidas da esquerda para a direita. */
+    List<Ocorrencia> ocorrenciasMaisLongasSemSobreposicao(String texto) {
+        List<Ocorrencia> todas = new ArrayList<>(ocorrencias(texto));
+        todas.sort(Comparator.comparingInt(Ocorrencia::inicio).thenComparing(Comparator.comparingInt(Ocorrencia::tamanho).reversed()));
+        List<Ocorrencia> escolhidas = new ArrayList<>();
+        int fimAnterior = 0;
+        for (Ocorrencia o : todas) {
+            if (o.inicio() >= fimAnterior) {
+                escolhidas.add(o);
+                fimAnterior = o.fim();
+            }
+        }
+        return escolhidas;
+    }
+
+    /**
+     * Para cada categoria, o valor da chave mais longa contida no texto; em empate de tamanho vence a
+     * chave que aparece primeiro no mapa de origem. É o mesmo resultado da varredura das chaves
+     * ordenadas por tamanho, obtido em uma só passada (o pln_processor.py usa o mesmo autômato).
+     */
+    Map<Categoria, String> maisLongaPorCategoria(String texto) {
+        Map<Categoria, Integer> melhor = new EnumMap<>(Categoria.class);
+        int estado = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char ch = texto.charAt(i);
+            int proximo;
+            while ((proximo = transicao(estado, ch)) < 0 && estado != 0) {
+                estado = falha[estado];
+            }
+            estado = Math.max(proximo, 0);
+            for (int no = estado; no > 0; no = ligacaoSaida[no]) {
+                for (int id : saidas[no]) {
+                    melhor.merge(categorias[id], id, (atual, novo) -> preferir(novo, atual) ? novo : atual);
+                }
+            }
+        }
+        Map<Categoria, String> resultado = new EnumMap<>(Categoria.class);
+        melhor.forEach((categoria, id) -> resultado.put(categoria, valores[id]));
+        return resultado;
+    }
+
+    private boolean preferir(int candidato, int atual) {
+        int tc = chaves[candidato].length();
+        int ta = chaves[atual].length();
+        return tc > ta || (tc == ta && candidato < atual);
+    }
+
+    private int transicao(int no, char ch) {
+        int k = Arrays.binarySearch(rotulosFilhos[no], ch);
+        return k >= 0 ? filhos[no][k] : -1;
+    }
+
+    private static final class Construtor {
+        private final List<Map<Character, Integer>> trie = new ArrayList<>();
+        private final List<List<Integer>> saidas = new ArrayList<>();
+        private final List<String> chaves = new ArrayList<>();
+        private final List<String> valores = new ArrayList<>();
+        private final List<Categoria> categorias = new ArrayList<>();
+
+        Construtor() {
+            novoNo();
+        }
+
+        void adicionarTodos(Map<String, String> mapa, Categoria categoria) {
+            mapa.forEach((chave, valor) -> {
+                if (!chave.isEmpty()) adicionar(chave, valor, categoria);
+            });
+        }
+
+        private void adicionar(String chave, String valor, Categoria categoria) {
+            int no = 0;
+            for (int i = 0; i < chave.length(); i++) {
+                char ch = chave.charAt(i);
+                Integer filho = trie.get(no).get(ch);
+                if (filho == null) {
+                    filho = novoNo();
+                    trie.get(no).put(ch, filho);
+                }
+                no = filho;
+            }
+            int id = chaves.size();
+            chaves.add(chave);
+            valores.add(valor);
+            categorias.add(categoria);
+            saidas.get(no).add(id);
+        }
+
+        private int novoNo() {
+            trie.add(new HashMap<>());
+            saidas.add(new ArrayList<>());
+            return trie.size() - 1;
+        }
+    }
+}
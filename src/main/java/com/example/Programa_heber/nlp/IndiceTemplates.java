@@ -0,0 +1,320 @@
+package com.example.Programa_heber.nlp;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Índice de intenções sobre as perguntas de exemplo de cada template (perguntas_de_interesse.txt):
+ * cada pergunta vira um vetor TF-IDF de trigramas de caracteres, e a seleção é a busca pelos
+ * vetores de maior cosseno com o da pergunta do usuário.
+ *
+ * A busca não compara a pergunta com todos os exemplos. O índice invertido guarda, para cada
+ * trigrama e cada template, só os {@value #LIMITE_POR_TEMPLATE} exemplos em que o trigrama pesa
+ * mais; os escores parciais acumulados nessas listas escolhem os {@value #CANDIDATOS_POR_TEMPLATE}
+ * melhores candidatos de cada template, cujo cosseno exato é então calculado. O custo depende do
+ * tamanho da pergunta e do número de templates, e não do número de exemplos, e com poucos exemplos
+ * por template (o caso de hoje) as listas estão completas e o resultado é exato. O corte é por
+ * template para que as paráfrases de um template com muitos exemplos não tirem os dos outros das
+ * listas.
+ *
+ * Antes de extrair os trigramas o texto perde acentos e pontuação e todo dígito vira 0, para que
+ * "preco"/"preço" e datas diferentes não pesem como palavras diferentes.
+ *
+ * A instância é imutável; recarregar o arquivo significa construir outra e trocar a referência.
+ */
+final class IndiceTemplates {
+
+    /** Template sugerido, com a pergunta de exemplo mais próxima e o cosseno com ela (0 a 1). */
+    record Candidato(String template, String exemplo, double confianca) {}
+
+    static final int LIMITE_POR_TEMPLATE = 16;
+    static final int CANDIDATOS_POR_TEMPLATE = 4;
+
+    private final String[] exemplos;
+    private final int[] templateDoExemplo;
+    private final String[] templates;
+
+    /** trigrama -> id; idf e listas invertidas indexados pelo id. */
+    private final Map<Long, Integer> vocabulario;
+    private final float[] idf;
+    private final float idfDesconhecido;
+    private final int[][] postingsExemplos;
+    private final float[][] postingsPesos;
+
+    /** Vetor normalizado de cada exemplo, com os ids em ordem crescente. */
+    private final int[][] idsExemplo;
+    private final float[][] pesosExemplo;
+
+    private final ThreadLocal<Acumulador> acumuladores;
+
+    private IndiceTemplates(Map<String, String> templatePorPergunta) {
+        int n = templatePorPergunta.size();
+        exemplos = new String[n];
+        templateDoExemplo = new int[n];
+        Map<String, Integer> idsTemplate = new LinkedHashMap<>();
+        vocabulario = new HashMap<>();
+        List<Map<Integer, Integer>> frequencias = new ArrayList<>(n);
+        List<Integer> df = new ArrayList<>();
+
+        int e = 0;
+        for (Map.Entry<String, String> entrada : templatePorPergunta.entrySet()) {
+            exemplos[e] = entrada.getKey();
+            templateDoExemplo[e] = idsTemplate.computeIfAbsent(entrada.getValue(), t -> idsTemplate.size());
+            Map<Integer, Integer> tf = new HashMap<>();
+            for (long trigrama : trigramas(entrada.getKey())) {
+                Integer id = vocabulario.get(trigrama);
+                if (id == null) {
+                    id = vocabulario.size();
+                    vocabulario.put(trigrama, id);
+                    df.add(0);
+                }
+                if (tf.merge(id, 1, Integer::sum) == 1) df.set(id, df.get(id) + 1);
+            }
+            frequencias.add(tf);
+            e++;
+        }
+        templates = idsTemplate.keySet().toArray(String[]::new);
+
+        idf = new float[df.size()];
+        for (int id = 0; id < idf.length; id++) idf[id] = idfSuavizado(n, df.get(id));
+        idfDesconhecido = idfSuavizado(n, 0);
+
+        idsExemplo = new int[n][];
+        pesosExemplo = new float[n][];
+        List<List<long[]>> listas = new ArrayList<>();
+        for (int id = 0; id < idf.length; id++) listas.add(new ArrayList<>());
+        for (int ex = 0; ex < n; ex++) {
+            int[] ids = frequencias.get(ex).keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            float[] pesos = new float[ids.length];
+            for (int i = 0; i < ids.length; i++) pesos[i] = pesoTf(frequencias.get(ex).get(ids[i])) * idf[ids[i]];
+            normalizar(pesos);
+            idsExemplo[ex] = ids;
+            pesosExemplo[ex] = pesos;
+            for (int i = 0; i < ids.length; i++) {
+                listas.get(ids[i]).add(new long[] {ex, Float.floatToIntBits(pesos[i])});
+            }
+        }
+
+        postingsExemplos = new int[idf.length][];
+        postingsPesos = new float[idf.length][];
+        for (int id = 0; id < idf.length; id++) {
+            List<long[]> lista = listas.get(id);
+            lista.sort((a, b) -> Float.compare(Float.intBitsToFloat((int) b[1]), Float.intBitsToFloat((int) a[1])));
+            int[] porTemplate = new int[templates.length];
+            int[] docs = new int[lista.size()];
+            float[] pesos = new float[lista.size()];
+            int tamanho = 0;
+            for (long[] posting : lista) {
+                int ex = (int) posting[0];
+                if (porTemplate[templateDoExemplo[ex]]++ < LIMITE_POR_TEMPLATE) {
+                    docs[tamanho] = ex;
+                    pesos[tamanho++] = Float.intBitsToFloat((int) posting[1]);
+                }
+            }
+            postingsExemplos[id] = Arrays.copyOf(docs, tamanho);
+            postingsPesos[id] = Arrays.copyOf(pesos, tamanho);
+        }
+        acumuladores = ThreadLocal.withInitial(() -> new Acumulador(templateDoExemplo, templates.length));
+    }
+
+    /** @param templatePorPergunta pergunta de exemplo (normalizada) -> nome do template. */
+    static IndiceTemplates construir(Map<String, String> templatePorPergunta) {
+        return new IndiceTemplates(templatePorPergunta);
+    }
+
+    int tamanho() {
+        return exemplos.length;
+    }
+
+    /**
+     * Os {@code k} templates mais próximos da pergunta, do mais para o menos provável; cada template
+     * aparece uma vez, com o escore do seu melhor exemplo. Vazio se nenhum trigrama for comum.
+     */
+    List<Candidato> buscar(String pergunta, int k) {
+        // Vetor da pergunta: trigramas desconhecidos não pontuam, mas contam na norma.
+        Map<Long, Integer> tf = new HashMap<>();
+        for (long trigrama : trigramas(pergunta)) tf.merge(trigrama, 1, Integer::sum);
+        int[] ids = new int[tf.size()];
+        float[] pesos = new float[tf.size()];
+        double norma = 0;
+        int conhecidos = 0;
+        for (Map.Entry<Long, Integer> entrada : tf.entrySet()) {
+            Integer id = vocabulario.get(entrada.getKey());
+            float peso = pesoTf(entrada.getValue()) * (id == null ? idfDesconhecido : idf[id]);
+            norma += (double) peso * peso;
+            if (id != null) {
+                ids[conhecidos] = id;
+                pesos[conhecidos++] = peso;
+            }
+        }
+        if (conhecidos == 0) return List.of();
+        float inverso = (float) (1 / Math.sqrt(norma));
+
+        Acumulador acumulador = acumuladores.get();
+        try {
+            for (int q = 0; q < conhecidos; q++) {
+                int[] docs = postingsExemplos[ids[q]];
+                float[] pesosDocs = postingsPesos[ids[q]];
+                for (int i = 0; i < docs.length; i++) acumulador.somar(docs[i], pesos[q] * pesosDocs[i]);
+            }
+
+            // Cosseno exato dos melhores candidatos parciais, com os ids da pergunta ordenados.
+            int[] candidatos = acumulador.melhores(CANDIDATOS_POR_TEMPLATE);
+            long[] ordenados = new long[conhecidos];
+            for (int q = 0; q < conhecidos; q++) ordenados[q] = ((long) ids[q] << 32) | (Float.floatToIntBits(pesos[q]) & 0xFFFFFFFFL);
+            Arrays.sort(ordenados);
+
+            double[] melhorPorTemplate = new double[templates.length];
+            int[] exemploPorTemplate = new int[templates.length];
+            Arrays.fill(exemploPorTemplate, -1);
+            for (int ex : candidatos) {
+                if (ex < 0) continue;
+                double cosseno = produtoInterno(ordenados, ex) * inverso;
+                int t = templateDoExemplo[ex];
+                if (exemploPorTemplate[t] < 0 || cosseno > melhorPorTemplate[t]) {
+                    melhorPorTemplate[t] = cosseno;
+                    exemploPorTemplate[t] = ex;
+                }
+            }
+            List<Candidato> resultado = new ArrayList<>();
+            for (int t = 0; t < templates.length; t++) {
+                if (exemploPorTemplate[t] >= 0) {
+                    resultado.add(new Candidato(templates[t], exemplos[exemploPorTemplate[t]], Math.min(1.0, melhorPorTemplate[t])));
+                }
+            }
+            resultado.sort(Comparator.comparingDouble(Candidato::confianca).reversed());
+            return resultado.size() > k ? List.copyOf(resultado.subList(0, k)) : resultado;
+        } finally {
+            acumulador.limpar();
+        }
+    }
+
+    private double produtoInterno(long[] pergunta, int exemplo) {
+        int[] ids = idsExemplo[exemplo];
+        float[] pesos = pesosExemplo[exemplo];
+        double soma = 0;
+        int i = 0, j = 0;
+        while (i < pergunta.length && j < ids.length) {
+            int id = (int) (pergunta[i] >>> 32);
+            if (id < ids[j]) {
+                i++;
+            } else if (id > ids[j]) {
+                j++;
+            } else {
+                soma += Float.intBitsToFloat((int) pergunta[i]) * pesos[j];
+                i++;
+                j++;
+            }
+        }
+        return soma;
+    }
+
+    /**
+     * Trigramas do texto preparado (sem acentos e pontuação, dígitos como 0, espaços simples e um
+     * espaço em cada ponta), cada um codificado em um long com 16 bits por caractere.
+     */
+    static long[] trigramas(String texto) {
+        String semAcentos = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder preparado = new StringBuilder(semAcentos.length() + 2).append(' ');
+        for (int i = 0; i < semAcentos.length(); i++) {
+            char c = semAcentos.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            char normal = Character.isDigit(c) ? '0' : Character.isLetter(c) ? c : ' ';
+            if (normal == ' ' && preparado.charAt(preparado.length() - 1) == ' ') continue;
+            preparado.append(normal);
+        }
+        if (preparado.charAt(preparado.length() - 1) != ' ') preparado.append(' ');
+        if (preparado.length() < 3) return new long[0];
+        long[] trigramas = new long[preparado.length() - 2];
+        for (int i = 0; i < trigramas.length; i++) {
+            trigramas[i] = ((long) preparado.charAt(i) << 32) | ((long) preparado.charAt(i + 1) << 16) | preparado.charAt(i + 2);
+        }
+        return trigramas;
+    }
+
+    private static float idfSuavizado(int documentos, int df) {
+        return (float) (Math.log((documentos + 1.0) / (df + 1.0)) + 1);
+    }
+
+    private static float pesoTf(int tf) {
+        return (float) (1 + Math.log(tf));
+    }
+
+    private static void normalizar(float[] pesos) {
+        double norma = 0;
+        for (float p : pesos) norma += (double) p * p;
+        if (norma == 0) return;
+        float inverso = (float) (1 / Math.sqrt(norma));
+        for (int i = 0; i < pesos.length; i++) pesos[i] *= inverso;
+    }
+
+    /**
+     * Escores parciais de uma busca, reaproveitados entre as buscas da mesma thread: só as posições
+     * tocadas são zeradas no fim, para não custar O(exemplos) por pergunta.
+     */
+    private static final class Acumulador {
+        private final float[] escores;
+        private final int[] tocados;
+        private final int[] templateDoExemplo;
+        private final int templates;
+        private int quantidade;
+
+        Acumulador(int[] templateDoExemplo, int templates) {
+            this.templateDoExemplo = templateDoExemplo;
+            this.templates = templates;
+            escores = new float[templateDoExemplo.length];
+            tocados = new int[templateDoExemplo.length];
+        }
+
+        /** Os pesos são positivos, então escore 0 quer dizer "ainda não tocado". */
+        void somar(int exemplo, float valor) {
+            if (escores[exemplo] == 0) tocados[quantidade++] = exemplo;
+            escores[exemplo] += valor;
+        }
+
+        /**
+         * Até {@code limite} exemplos de maior escore parcial por template, com um heap de mínimo por
+         * template sobre um único int[] (fatias de {@code limite}); posições não usadas ficam -1.
+         */
+        int[] melhores(int limite) {
+            int[] heaps = new int[templates * limite];
+            int[] tamanhos = new int[templates];
+            Arrays.fill(heaps, -1);
+            for (int i = 0; i < quantidade; i++) {
+                int exemplo = tocados[i];
+                int t = templateDoExemplo[exemplo];
+                int base = t * limite;
+                int tamanho = tamanhos[t];
+                if (tamanho < limite) {
+                    int pos = tamanhos[t]++;
+                    while (pos > 0 && pior(exemplo, heaps[base + (pos - 1) / 2])) {
+                        heaps[base + pos] = heaps[base + (pos - 1) / 2];
+                        pos = (pos - 1) / 2;
+                    }
+                    heaps[base + pos] = exemplo;
+                } else if (pior(heaps[base], exemplo)) {
+                    int pos = 0;
+                    while (2 * pos + 1 < tamanho) {
+                        int filho = 2 * pos + 1;
+                        if (filho + 1 < tamanho && pior(heaps[base + filho + 1], heaps[base + filho])) filho++;
+                        if (!pior(heaps[base + filho], exemplo)) break;
+                        heaps[base + pos] = heaps[base + filho];
+                        pos = filho;
+                    }
+                    heaps[base + pos] = exemplo;
+                }
+            }
+            return heaps;
+        }
+
+        /** Menor escore parcial; no empate, o exemplo que vem depois no arquivo. */
+        private boolean pior(int a, int b) {
+            return escores[a] < escores[b] || (escores[a] == escores[b] && a > b);
+        }
+
+        void limpar() {
+            for (int i = 0; i < quantidade; i++) escores[tocados[i]] = 0;
+            quantidade = 0;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.Programa_heber.nlp;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Backend de PLN em Java puro, sem runtime Python nem spaCy (o pln_processor.py carrega o spaCy,
+ * mas não usa o documento gerado). Reproduz {@code selecionar_template} e {@code mapear_entidades}:
+ * busca no índice TF-IDF de trigramas das perguntas de perguntas_de_interesse.txt
+ * ({@link IndiceTemplates}), regex de data/ticker e busca da chave mais longa contida na pergunta
+ * nos mapas de empresas, setores e sinônimos. Com {@code nlp.templates.selecao=difflib} a seleção
+ * volta a ser a do difflib ({@link SequenceMatcher}), que compara a pergunta com todos os exemplos.
+ *
+ * Os três mapas ficam em um único autômato ({@link DicionarioEntidades}), construído uma vez, assim
+ * como o índice de templates. Se {@code nlp.dicionarios.dir} apontar para um diretório com versões
+ * externas dos JSON/TXT, as alterações nesses arquivos são detectadas periodicamente e o autômato e
+ * o índice são reconstruídos e trocados atomicamente, sem reiniciar a aplicação. O pln_processor.py
+ * faz o mesmo com o diretório que recebe em PLN_DICIONARIOS_DIR.
+ *
+ * Diferença intencional: o BOM UTF-8 do início de perguntas_de_interesse.txt é descartado, enquanto
+ * o script Python o mantém no nome do primeiro template.
+ */
+@Component
+@ConditionalOnProperty(name = "nlp.backend", havingValue = "java")
+public class JavaNlpEngine implements NlpEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(JavaNlpEngine.class);
+
+    private static final Pattern DATA_PATTERN = Pattern.compile("\\b(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})\\b", Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Pattern TICKER_PATTERN = Pattern.compile("\\b([A-Z]{4}\\d{1,2})\\b", Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Pattern PLACEHOLDER_PERGUNTA = Pattern.compile("<[^>]+>");
+    private static final Pattern TICKER_NORMALIZADO = Pattern.compile("\\b[a-z]{4}\\d{1,2}\\b");
+    private static final double CUTOFF_SIMILARIDADE = 0.6;
+
+    private static final Map<String, List<String>> PLACEHOLDERS_ESSENCIAIS = Map.ofEntries(
+            Map.entry("Template_1A", List.of("#ENTIDADE_NOME#", "#DATA#", "#VALOR_DESEJADO#")),
+            Map.entry("Template_1B", List.of("#ENTIDADE_NOME#", "#DATA#", "#VALOR_DESEJADO#")),
+            Map.entry("Template_2A", List.of("#ENTIDADE_NOME#")),
+            Map.entry("Template_3A", List.of("#SETOR#")),
+            Map.entry("Template_6A", List.of("#ENTIDADE_NOME#", "#DATA#")),
+            Map.entry("Template_7A", List.of("#SETOR#", "#DATA#")),
+            Map.entry("Template_7B", List.of("#SETOR#", "#DATA#")),
+            Map.entry("Template_7C", List.of("#SETOR#", "#DATA#")),
+            Map.entry("Template_7D", List.of("#DATA#")),
+            Map.entry("Template_7E", List.of("#DATA#")),
+            Map.entry("Template_7F", List.of("#DATA#"))
+    );
+
+    /** Templates que recebem o setor da pergunta (#SETOR#). */
+    private static final Set<String> TEMPLATES_COM_SETOR = Set.of("Template_3A", "Template_7A", "Template_7B", "Template_7C");
+
+    private static final String[] ARQUIVOS_DICIONARIO = {
+            "empresa_nome_map.json", "setor_map.json", "resultado_similaridade.txt", "perguntas_de_interesse.txt" };
+
+    @Value("${nlp.dicionarios.dir:}")
+    private String diretorioDicionarios;
+
+    @Value("${nlp.dicionarios.verificacao-segundos:30}")
+    private long verificacaoSegundos;
+
+    /** "indice" (padrão): TF-IDF de trigramas; "difflib": o get_close_matches original, linear nos exemplos. */
+    @Value("${nlp.templates.selecao:indice}")
+    private String modoSelecao;
+
+    /** Cosseno mínimo entre a pergunta e o exemplo mais próximo para aceitar o template (modo "indice"). */
+    @Value("${nlp.templates.confianca-minima:0.35}")
+    private double confiancaMinima;
+
+    private volatile Map<String, String> perguntasBase;
+    private volatile IndiceTemplates indiceTemplates;
+    private volatile DicionarioEntidades dicionario;
+    private long assinaturaDicionarios;
+    private ScheduledExecutorService recarregador;
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        carregarDicionario();
+        logger.info("Backend PLN Java pronto: {} perguntas-base (seleção por {}), {} chaves no dicionário de entidades.",
+                perguntasBase.size(), modoSelecao, dicionario.tamanho());
+
+        if (diretorioDicionarios != null && !diretorioDicionarios.isBlank()) {
+            recarregador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "pln-dicionarios-reload");
+                t.setDaemon(true);
+                return t;
+            });
+            recarregador.scheduleWithFixedDelay(this::recarregarSeAlterado, verificacaoSegundos, verificacaoSegundos, TimeUnit.SECONDS);
+            logger.info("Recarga automática dos dicionários ativa para o diretório {} (a cada {}s).", diretorioDicionarios, verificacaoSegundos);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (recarregador != null) recarregador.shutdownNow();
+    }
+
+    @Override
+    public Map<String, Object> processar(String pergunta) {
+        String templateId = selecionarTemplate(pergunta);
+        if (templateId == null) {
+            return Map.of("erro", "Não foi possível determinar a intenção da pergunta (nenhum template compatível encontrado).");
+        }
+
+        Map<String, String> placeholders = mapearEntidades(pergunta, templateId);
+
+        List<String> faltando = PLACEHOLDERS_ESSENCIAIS.getOrDefault(templateId, List.of()).stream()
+                .filter(ph -> !placeholders.containsKey(ph))
+                .toList();
+        if (!faltando.isEmpty()) {
+            return Map.of("erro", "Não foi possível extrair todas as informações necessárias. Faltando: " + String.join(", ", faltando));
+        }
+
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        resposta.put("template_nome", templateId);
+        resposta.put("mapeamentos", placeholders);
+        return resposta;
+    }
+
+    String selecionarTemplate(String pergunta) {
+        if ("difflib".equalsIgnoreCase(modoSelecao)) {
+            Map<String, String> perguntas = perguntasBase;
+            Optional<String> melhor = SequenceMatcher.melhorCorrespondencia(normalizarTexto(pergunta), perguntas.keySet(), CUTOFF_SIMILARIDADE);
+            if (melhor.isEmpty()) {
+                logger.warn("Nenhum template encontrado para a pergunta: '{}'", pergunta);
+                return null;
+            }
+            String templateNome = perguntas.get(melhor.get()).replace(" ", "_");
+            logger.debug("Template selecionado: '{}' para a pergunta: '{}'", templateNome, pergunta);
+            return templateNome;
+        }
+
+        List<IndiceTemplates.Candidato> candidatos = indiceTemplates.buscar(semEntidades(normalizarTexto(pergunta), dicionario), 2);
+        if (candidatos.isEmpty() || candidatos.get(0).confianca() < confiancaMinima) {
+            logger.warn("Nenhum template encontrado para a pergunta: '{}' (melhor: {})", pergunta, candidatos.isEmpty() ? "nenhum" : candidatos.get(0));
+            return null;
+        }
+        String templateNome = candidatos.get(0).template().replace(" ", "_");
+        logger.debug("Template selecionado: '{}' (confiança {}, alternativas {}) para a pergunta: '{}'",
+                templateNome, candidatos.get(0).confianca(), candidatos.subList(1, candidatos.size()), pergunta);
+        return templateNome;
+    }
+
+    /**
+     * Texto comparado com os exemplos na seleção por índice: sem as empresas, setores e tickers
+     * citados (palavras inteiras), para que a intenção não dependa de qual entidade aparece na
+     * pergunta ou no exemplo. Sem isso um nome raro, como "gerdau" em um único exemplo, pesa mais
+     * no TF-IDF do que as palavras que distinguem os templates.
+     */
+    static String semEntidades(String textoNorm, DicionarioEntidades dicionario) {
+        List<DicionarioEntidades.Ocorrencia> entidades = new ArrayList<>();
+        for (DicionarioEntidades.Ocorrencia o : dicionario.ocorrencias(textoNorm)) {
+            if (o.categoria() != DicionarioEntidades.Categoria.METRICA && palavraInteira(textoNorm, o.inicio(), o.fim())) {
+                entidades.add(o);
+            }
+        }
+        entidades.sort(Comparator.comparingInt(DicionarioEntidades.Ocorrencia::inicio)
+                .thenComparing(Comparator.comparingInt(DicionarioEntidades.Ocorrencia::tamanho).reversed()));
+        StringBuilder resultado = new StringBuilder(textoNorm.length());
+        int fimAnterior = 0;
+        for (DicionarioEntidades.Ocorrencia o : entidades) {
+            if (o.inicio() < fimAnterior) continue;
+            resultado.append(textoNorm, fimAnterior, o.inicio()).append(' ');
+            fimAnterior = o.fim();
+        }
+        resultado.append(textoNorm, fimAnterior, textoNorm.length());
+        return TICKER_NORMALIZADO.matcher(resultado).replaceAll(" ");
+    }
+
+    private static boolean palavraInteira(String texto, int inicio, int fim) {
+        return (inicio == 0 || !Character.isLetterOrDigit(texto.charAt(inicio - 1)))
+                && (fim == texto.length() || !Character.isLetterOrDigit(texto.charAt(fim)));
+    }
+
+    Map<String, String> mapearEntidades(String pergunta, String templateId) {
+        Map<String, String> placeholders = new LinkedHashMap<>();
+        String textoNorm = normalizarTexto(pergunta);
+
+        // 1. Data (dd/mm/aaaa, dd-mm-aaaa, dd/mm/aa, dd-mm-aa)
+        Matcher matchData = DATA_PATTERN.matcher(pergunta);
+        if (matchData.find()) {
+            LocalDate data = parseData(matchData.group(1));
+            if (data != null) {
+                placeholders.put("#DATA#", "\"" + data + "\"^^xsd:date");
+            }
+        }
+
+        // Uma única passada do autômato resolve empresa, setor e métrica.
+        Map<DicionarioEntidades.Categoria, String> encontrados = dicionario.maisLongaPorCategoria(textoNorm);
+
+        // 2. Valor desejado (métrica de preço)
+        String propriedade = encontrados.get(DicionarioEntidades.Categoria.METRICA);
+        if (propriedade != null) {
+            placeholders.put("#VALOR_DESEJADO#", "b3:" + propriedade);
+        }
+
+        // 3. Entidade: ticker explícito tem prioridade sobre o nome no mapa
+        String entidade = null;
+        Matcher tickerMatch = TICKER_PATTERN.matcher(pergunta.toUpperCase(Locale.ROOT));
+        if (tickerMatch.find()) {
+            entidade = tickerMatch.group(1);
+        } else {
+            entidade = encontrados.get(DicionarioEntidades.Categoria.EMPRESA);
+        }
+        if (entidade != null) {
+            placeholders.put("#ENTIDADE_NOME#", "\"" + entidade.replace("\"", "\\\"") + "\"");
+        }
+
+        // 4. Setor
+        if (TEMPLATES_COM_SETOR.contains(templateId)) {
+            String setor = encontrados.get(DicionarioEntidades.Categoria.SETOR);
+            if (setor != null) {
+                placeholders.put("#SETOR#", "\"" + setor + "\"");
+            }
+        }
+        return placeholders;
+    }
+
+    /** Mesmas regras do strptime com '%d/%m/%Y', '%d-%m-%Y', '%d/%m/%y' e '%d-%m-%y'. */
+    private static LocalDate parseData(String texto) {
+        // Cada formato usa um único separador; "08/05-2023" não casa com nenhum deles.
+        boolean separadorUnico = texto.replaceAll("[^/-]", "").chars().distinct().count() == 1;
+        String[] partes = texto.split("[/-]");
+        if (partes.length != 3 || !separadorUnico) return null;
+        int ano = Integer.parseInt(partes[2]);
+        if (partes[2].length() == 2) {
+            ano += ano < 69 ? 2000 : 1900;
+        } else if (partes[2].length() != 4) {
+            return null;
+        }
+        try {
+            return LocalDate.of(ano, Integer.parseInt(partes[1]), Integer.parseInt(partes[0]));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    static String normalizarTexto(String texto) {
+        return texto == null ? "" : texto.toLowerCase(Locale.ROOT).strip();
+    }
+
+    private void carregarDicionario() throws IOException {
+        long assinatura = assinaturaArquivosExternos();
+        DicionarioEntidades novoDicionario = DicionarioEntidades.construir(
+                carregarMapaJson("empresa_nome_map.json"),
+                carregarMapaJson("setor_map.json"),
+                carregarSinonimos("resultado_similaridade.txt"));
+        Map<String, String> perguntas = carregarPerguntasBase("perguntas_de_interesse.txt");
+        Map<String, String> exemplos = new LinkedHashMap<>();
+        perguntas.forEach((pergunta, template) -> exemplos.putIfAbsent(semEntidades(pergunta, novoDicionario), template));
+        this.dicionario = novoDicionario;
+        this.indiceTemplates = IndiceTemplates.construir(exemplos);
+        this.perguntasBase = perguntas;
+        this.assinaturaDicionarios = assinatura;
+    }
+
+    private void recarregarSeAlterado() {
+        try {
+            if (assinaturaArquivosExternos() == assinaturaDicionarios) return;
+            long inicio = System.nanoTime();
+            carregarDicionario();
+            logger.info("Dicionários de entidades e índice de templates recarregados: {} chaves e {} perguntas-base em {} ms.",
+                    dicionario.tamanho(), indiceTemplates.tamanho(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        } catch (Exception e) {
+            logger.error("Falha ao recarregar dicionários de entidades; mantendo a versão anterior: {}", e.getMessage());
+        }
+    }
+
+    /** Combina data de modificação e tamanho dos arquivos externos; 0 quando não há diretório externo. */
+    private long assinaturaArquivosExternos() throws IOException {
+        long assinatura = 0;
+        for (String nome : ARQUIVOS_DICIONARIO) {
+            Path arquivo = arquivoExterno(nome);
+            if (arquivo != null) {
+                assinatura = 31 * assinatura + Files.getLastModifiedTime(arquivo).toMillis() + Files.size(arquivo);
+            }
+        }
+        return assinatura;
+    }
+
+    private Path arquivoExterno(String nome) {
+        if (diretorioDicionarios == null || diretorioDicionarios.isBlank()) return null;
+        Path arquivo = Paths.get(diretorioDicionarios).resolve(nome);
+        return Files.isRegularFile(arquivo) ? arquivo : null;
+    }
+
+    private Map<String, String> carregarPerguntasBase(String recurso) throws IOException {
+        Map<String, String> perguntas = new LinkedHashMap<>();
+        for (String linha : lerLinhas(recurso)) {
+            if (linha.isBlank() || linha.startsWith("#")) continue;
+            String[] partes = linha.strip().split(";", 2);
+            if (partes.length == 2) {
+                String semPlaceholders = PLACEHOLDER_PERGUNTA.matcher(partes[1]).replaceAll("");
+                perguntas.put(normalizarTexto(semPlaceholders), partes[0].strip());
+            }
+        }
+        return perguntas;
+    }
+
+    private Map<String, String> carregarSinonimos(String recurso) throws IOException {
+        Map<String, String> sinonimos = new LinkedHashMap<>();
+        for (String linha : lerLinhas(recurso)) {
+            if (linha.isBlank() || linha.startsWith("#")) continue;
+            String[] partes = linha.split(";", -1);
+            if (partes.length == 2) {
+                sinonimos.put(normalizarTexto(partes[0].strip()), partes[1].strip());
+            }
+        }
+        return sinonimos;
+    }
+
+    private Map<String, String> carregarMapaJson(String recurso) throws IOException {
+        try (InputStream in = abrirRecurso(recurso)) {
+            Map<String, String> bruto = new ObjectMapper().readValue(in, new TypeReference<LinkedHashMap<String, String>>() {});
+            Map<String, String> normalizado = new LinkedHashMap<>();
+            bruto.forEach((k, v) -> normalizado.put(normalizarTexto(k), v));
+            return normalizado;
+        }
+    }
+
+    private List<String> lerLinhas(String recurso) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(abrirRecurso(recurso), StandardCharsets.UTF_8))) {
+            List<String> linhas = new ArrayList<>(reader.lines().toList());
+            if (!linhas.isEmpty() && linhas.get(0).startsWith("\uFEFF")) {
+                linhas.set(0, linhas.get(0).substring(1));
+            }
+            return linhas;
+        }
+    }
+
+    private InputStream abrirRecurso(String recurso) throws IOException {
+        Path externo = arquivoExterno(recurso);
+        if (externo != null) {
+            return Files.newInputStream(externo);
+        }
+        ClassPathResource resource = new ClassPathResource(recurso);
+        if (!resource.exists()) {
+            throw new FileNotFoundException("Recurso de PLN essencial '" + recurso + "' não encontrado no classpath.");
+        }
+        return resource.getInputStream();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.Programa_heber.nlp;
+
+import java.util.Map;
+
+/**
+ * Backend de PLN que transforma uma pergunta em linguagem natural no template SPARQL e nos
+ * valores dos placeholders. O contrato é o mesmo do JSON produzido pelo pln_processor.py:
+ * <ul>
+ *     <li>sucesso: {@code {"template_nome": "Template_1A", "mapeamentos": {"#DATA#": ..., ...}}}</li>
+ *     <li>erro lógico: {@code {"erro": "mensagem"}}</li>
+ * </ul>
+ * A implementação é escolhida por deployment através da propriedade {@code nlp.backend}
+ * ({@code python} ou {@code java}).
+ */
+public interface NlpEngine {
+
+    Map<String, Object> processar(String pergunta) throws Exception;
+}
@@ -0,0 +1,90 @@
+package com.example.Programa_heber.nlp;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Backend de PLN original: extrai o pln_processor.py e seus recursos para um diretório temporário
+ * e delega as perguntas ao {@link PythonWorkerPool}.
+ */
+@Component
+@ConditionalOnProperty(name = "nlp.backend", havingValue = "python", matchIfMissing = true)
+public class PythonNlpEngine implements NlpEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PythonNlpEngine.class);
+
+    @Autowired
+    private PythonWorkerPool workerPool;
+
+    private Path pythonScriptPath;
+    private Path pythonResourcesDir;
+
+    @PostConstruct
+    public void initialize() {
+        logger.info("Inicializando backend PLN Python e preparando ambiente...");
+        try {
+            // Cria um diretório temporário para todos os recursos do Python
+            this.pythonResourcesDir = Files.createTempDirectory("pyscripts_");
+            this.pythonResourcesDir.toFile().deleteOnExit();
+
+            // Lista de todos os arquivos que o pln_processor.py precisa
+            String[] resourcesToCopy = {
+                "pln_processor.py",
+                "empresa_nome_map.json",
+                "setor_map.json",
+                "resultado_similaridade.txt",
+                "perguntas_de_interesse.txt"
+            };
+
+            // Copia cada recurso para o diretório temporário
+            for (String resourceName : resourcesToCopy) {
+                copyResourceToTempDir(resourceName, this.pythonResourcesDir);
+            }
+
+            // Define o caminho para o script principal e o torna executável
+            this.pythonScriptPath = this.pythonResourcesDir.resolve("pln_processor.py");
+            boolean executable = this.pythonScriptPath.toFile().setExecutable(true, false);
+
+            logger.info("Recursos Python extraídos para o diretório temporário: {} (Script executável: {})", this.pythonResourcesDir, executable);
+
+            // Sobe os workers persistentes; cada um carrega spaCy e os mapas uma única vez.
+            workerPool.iniciar(this.pythonScriptPath, this.pythonResourcesDir);
+
+        } catch (IOException e) {
+            logger.error("FALHA CRÍTICA na inicialização do backend PLN Python. O processamento de perguntas estará indisponível.", e);
+            this.pythonScriptPath = null;
+        }
+    }
+
+    @Override
+    public Map<String, Object> processar(String pergunta) throws Exception {
+        if (this.pythonScriptPath == null) {
+            return Map.of("erro", "Serviço de processamento de linguagem não está inicializado.");
+        }
+        return workerPool.processar(pergunta);
+    }
+
+    private void copyResourceToTempDir(String resourceName, Path targetDir) throws IOException {
+        Resource resource = new ClassPathResource(resourceName);
+        if (!resource.exists()) {
+            throw new FileNotFoundException("Recurso Python essencial '" + resourceName + "' não encontrado no classpath.");
+        }
+        Path targetFile = targetDir.resolve(resourceName);
+        try (InputStream in = resource.getInputStream()) {
+            Files.copy(in, targetFile);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.Programa_heber.nlp;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de processos Python de longa duração que executam o pln_processor.py em modo "--servidor".
+ * Cada worker carrega o spaCy e os mapas uma única vez e depois atende perguntas através de um
+ * protocolo de uma linha JSON por requisição/resposta em stdin/stdout.
+ *
+ * O pool tem tamanho fixo, faz health check periódico dos workers ociosos, recria workers que
+ * morreram ou estouraram o timeout e aplica backpressure: quando todos estão ocupados, a requisição
+ * espera no máximo {@code nlp.pool.espera-segundos} e é rejeitada em seguida.
+ */
+@Component
+@ConditionalOnProperty(name = "nlp.backend", havingValue = "python", matchIfMissing = true)
+public class PythonWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(PythonWorkerPool.class);
+    private static final String FIM_DO_STREAM = "\u0000EOF";
+
+    @Value("${nlp.pool.tamanho:2}")
+    private int tamanho;
+
+    @Value("${nlp.pool.timeout-segundos:60}")
+    private long timeoutSegundos;
+
+    @Value("${nlp.pool.espera-segundos:10}")
+    private long esperaSegundos;
+
+    @Value("${nlp.pool.inicializacao-segundos:120}")
+    private long inicializacaoSegundos;
+
+    @Value("${nlp.pool.health-check-segundos:30}")
+    private long healthCheckSegundos;
+
+    @Value("${nlp.python.comando:python3}")
+    private String comandoPython;
+
+    /** Repassado ao worker como PLN_DICIONARIOS_DIR; os arquivos de lá são recarregados sem reinício. */
+    @Value("${nlp.dicionarios.dir:}")
+    private String diretorioDicionarios;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<PythonWorker> disponiveis = new LinkedBlockingQueue<>();
+    private final Set<PythonWorker> todos = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequenciaRequisicoes = new AtomicLong();
+
+    private ScheduledExecutorService monitor;
+    private Path scriptPath;
+    private Path diretorioTrabalho;
+    private volatile boolean ativo;
+
+    /**
+     * Sobe os workers em segundo plano. As requisições que chegarem antes de algum worker ficar
+     * pronto simplesmente aguardam na fila de disponíveis (até o limite de espera).
+     */
+    public synchronized void iniciar(Path scriptPath, Path diretorioTrabalho) {
+        if (ativo) return;
+        this.scriptPath = scriptPath;
+        this.diretorioTrabalho = diretorioTrabalho;
+        this.ativo = true;
+        this.monitor = Executors.newScheduledThreadPool(Math.max(2, tamanho), r -> {
+            Thread t = new Thread(r, "pln-pool-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        logger.info("Iniciando pool de workers PLN: tamanho={}, timeout={}s, espera máxima={}s", tamanho, timeoutSegundos, esperaSegundos);
+        for (int i = 0; i < tamanho; i++) {
+            agendarReposicao(0);
+        }
+        monitor.scheduleWithFixedDelay(this::verificarSaude, healthCheckSegundos, healthCheckSegundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Envia uma pergunta a um worker livre e devolve o JSON de resposta já desserializado.
+     *
+     * @throws RejectedExecutionException se nenhum worker ficar livre dentro do tempo de espera.
+     * @throws TimeoutException se o worker não responder a tempo (ele é descartado e recriado).
+     */
+    public Map<String, Object> processar(String pergunta) throws IOException, InterruptedException, TimeoutException {
+        if (!ativo) {
+            throw new IllegalStateException("Pool de workers PLN não foi iniciado.");
+        }
+        PythonWorker worker = disponiveis.poll(esperaSegundos, TimeUnit.SECONDS);
+        if (worker == null) {
+            throw new RejectedExecutionException("Todos os workers PLN estão ocupados (ou indisponíveis); tente novamente em instantes.");
+        }
+
+        boolean saudavel = false;
+        try {
+            Map<String, Object> requisicao = new LinkedHashMap<>();
+            requisicao.put("pergunta", pergunta);
+            Map<String, Object> resposta = worker.enviar(requisicao, TimeUnit.SECONDS.toMillis(timeoutSegundos));
+            saudavel = true;
+            return resposta;
+        } finally {
+            if (saudavel) {
+                disponiveis.offer(worker);
+            } else {
+                descartar(worker, "falha ou timeout durante o processamento");
+            }
+        }
+    }
+
+    /** Número de workers prontos neste momento (útil para diagnóstico). */
+    public int getWorkersDisponiveis() {
+        return disponiveis.size();
+    }
+
+    @PreDestroy
+    public synchronized void encerrar() {
+        ativo = false;
+        if (monitor != null) monitor.shutdownNow();
+        for (PythonWorker worker : todos) {
+            worker.destruir();
+        }
+        todos.clear();
+        disponiveis.clear();
+        logger.info("Pool de workers PLN encerrado.");
+    }
+
+    private void verificarSaude() {
+        int ociosos = disponiveis.size();
+        for (int i = 0; i < ociosos && ativo; i++) {
+            PythonWorker worker = disponiveis.poll();
+            if (worker == null) break;
+            try {
+                Map<String, Object> ping = new LinkedHashMap<>();
+                ping.put("comando", "ping");
+                Map<String, Object> resposta = worker.enviar(ping, TimeUnit.SECONDS.toMillis(5));
+                if (!"ok".equals(resposta.get("status"))) {
+                    throw new IOException("Resposta inesperada ao ping: " + resposta);
+                }
+                disponiveis.offer(worker);
+            } catch (InterruptedException e) {
+                disponiveis.offer(worker);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                descartar(worker, "health check falhou: " + e.getMessage());
+            }
+        }
+    }
+
+    private void descartar(PythonWorker worker, String motivo) {
+        logger.warn("Descartando worker PLN pid={} ({}). Um novo worker será criado.", worker.pid(), motivo);
+        worker.destruir();
+        todos.remove(worker);
+        if (ativo) agendarReposicao(0);
+    }
+
+    private void agendarReposicao(long atrasoSegundos) {
+        monitor.schedule(this::criarWorker, atrasoSegundos, TimeUnit.SECONDS);
+    }
+
+    private void criarWorker() {
+        if (!ativo) return;
+        PythonWorker worker = null;
+        try {
+            worker = new PythonWorker();
+            todos.add(worker);
+            worker.aguardarPronto(TimeUnit.SECONDS.toMillis(inicializacaoSegundos));
+            disponiveis.offer(worker);
+            logger.info("Worker PLN pid={} pronto ({} disponíveis).", worker.pid(), disponiveis.size());
+        } catch (Exception e) {
+            logger.error("Falha ao iniciar worker PLN: {}. Nova tentativa em 30s.", e.getMessage());
+            if (worker != null) {
+                worker.destruir();
+                todos.remove(worker);
+            }
+            if (ativo) agendarReposicao(30);
+        }
+    }
+
+    /**
+     * Um processo Python em modo servidor. As linhas de stdout são lidas por uma thread dedicada e
+     * entregues por fila, o que permite aplicar timeout na espera pela resposta.
+     */
+    private final class PythonWorker {
+        private final Process process;
+        private final BufferedWriter stdin;
+        private final BlockingQueue<String> linhas = new LinkedBlockingQueue<>();
+
+        PythonWorker() throws IOException {
+            ProcessBuilder pb = new ProcessBuilder(comandoPython, scriptPath.toAbsolutePath().toString(), "--servidor");
+            pb.directory(diretorioTrabalho.toFile());
+            if (diretorioDicionarios != null && !diretorioDicionarios.isBlank()) {
+                pb.environment().put("PLN_DICIONARIOS_DIR", Path.of(diretorioDicionarios).toAbsolutePath().toString());
+            }
+            this.process = pb.start();
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            iniciarLeitor(process.getInputStream(), true);
+            iniciarLeitor(process.getErrorStream(), false);
+        }
+
+        long pid() {
+            return process.pid();
+        }
+
+        void aguardarPronto(long timeoutMs) throws IOException, InterruptedException, TimeoutException {
+            String linha = linhas.poll(timeoutMs, TimeUnit.MILLISECONDS);
+            if (linha == null) {
+                throw new TimeoutException("Worker PLN não ficou pronto em " + timeoutMs + " ms.");
+            }
+            Map<String, Object> status = lerJson(linha);
+            if (!"pronto".equals(status.get("status"))) {
+                throw new IOException("Worker PLN não inicializou: " + status.getOrDefault("erro", linha));
+            }
+        }
+
+        Map<String, Object> enviar(Map<String, Object> requisicao, long timeoutMs) throws IOException, InterruptedException, TimeoutException {
+            long id = sequenciaRequisicoes.incrementAndGet();
+            requisicao.put("id", id);
+            synchronized (stdin) {
+                stdin.write(objectMapper.writeValueAsString(requisicao));
+                stdin.newLine();
+                stdin.flush();
+            }
+
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (true) {
+                long restante = limite - System.nanoTime();
+                String linha = restante > 0 ? linhas.poll(restante, TimeUnit.NANOSECONDS) : null;
+                if (linha == null) {
+                    throw new TimeoutException("Worker PLN pid=" + pid() + " não respondeu em " + timeoutMs + " ms.");
+                }
+                if (FIM_DO_STREAM.equals(linha)) {
+                    throw new IOException("Worker PLN pid=" + pid() + " encerrou inesperadamente.");
+                }
+                Map<String, Object> resposta = lerJson(linha);
+                Object idResposta = resposta.remove("id");
+                if (idResposta instanceof Number n && n.longValue() == id) {
+                    return resposta;
+                }
+                logger.debug("Descartando resposta fora de ordem do worker pid={}: {}", pid(), linha);
+            }
+        }
+
+        void destruir() {
+            try {
+                stdin.close();
+            } catch (IOException ignored) {
+            }
+            process.destroyForcibly();
+        }
+
+        private Map<String, Object> lerJson(String linha) throws IOException {
+            return objectMapper.readValue(linha, new TypeReference<>() {});
+        }
+
+        private void iniciarLeitor(InputStream stream, boolean saidaPadrao) {
+            Thread leitor = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                    String linha;
+                    while ((linha = reader.readLine()) != null) {
+                        if (saidaPadrao) {
+                            linhas.offer(linha);
+                        } else {
+                            logger.debug("[pln pid={}] {}", pid(), linha);
+                        }
+                    }
+                } catch (IOException ignored) {
+                    // O processo foi destruído; o fim do stream é sinalizado abaixo.
+                } finally {
+                    if (saidaPadrao) linhas.offer(FIM_DO_STREAM);
+                }
+            }, (saidaPadrao ? "pln-stdout-" : "pln-stderr-") + process.pid());
+            leitor.setDaemon(true);
+            leitor.start();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.Programa_heber.nlp;
+
+import java.util.*;
+
+/**
+ * Porte do {@code difflib.SequenceMatcher} (Ratcliff/Obershelp) e do {@code difflib.get_close_matches}
+ * do Python, usado pelo backend Java para selecionar templates exatamente como o pln_processor.py.
+ * As sequências são tratadas como code points, como nas strings do Python; a heurística "autojunk"
+ * (b com 200 ou mais elementos) também é reproduzida.
+ */
+final class SequenceMatcher {
+
+    private final int[] b;
+    private final Map<Integer, int[]> b2j;
+    private final Map<Integer, Integer> contagemB;
+
+    SequenceMatcher(String seqB) {
+        this.b = seqB.codePoints().toArray();
+        this.contagemB = new HashMap<>();
+        for (int c : b) contagemB.merge(c, 1, Integer::sum);
+
+        Map<Integer, List<Integer>> indices = new HashMap<>();
+        for (int j = 0; j < b.length; j++) {
+            indices.computeIfAbsent(b[j], k -> new ArrayList<>()).add(j);
+        }
+        if (b.length >= 200) {
+            int ntest = b.length / 100 + 1;
+            indices.values().removeIf(l -> l.size() > ntest);
+        }
+        this.b2j = new HashMap<>();
+        indices.forEach((c, l) -> b2j.put(c, l.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * Equivalente a {@code get_close_matches(word, possibilities, n=1, cutoff)}: devolve a possibilidade
+     * de maior razão acima do corte; empates são resolvidos pela maior string, como no heapq do Python.
+     */
+    static Optional<String> melhorCorrespondencia(String word, Collection<String> possibilidades, double cutoff) {
+        SequenceMatcher matcher = new SequenceMatcher(word);
+        String melhor = null;
+        double melhorRazao = -1;
+        for (String x : possibilidades) {
+            int[] a = x.codePoints().toArray();
+            if (matcher.realQuickRatio(a) < cutoff || matcher.quickRatio(a) < cutoff) continue;
+            double razao = matcher.ratio(a);
+            if (razao < cutoff) continue;
+            if (razao > melhorRazao || (razao == melhorRazao && x.compareTo(melhor) > 0)) {
+                melhor = x;
+                melhorRazao = razao;
+            }
+        }
+        return Optional.ofNullable(melhor);
+    }
+
+    double ratio(int[] a) {
+        int total = a.length + b.length;
+        return total == 0 ? 1.0 : 2.0 * matchingCharacters(a) / total;
+    }
+
+    double quickRatio(int[] a) {
+        Map<Integer, Integer> disponiveis = new HashMap<>(contagemB);
+        int matches = 0;
+        for (int c : a) {
+            Integer n = disponiveis.get(c);
+            if (n != null && n > 0) {
+                disponiveis.put(c, n - 1);
+                matches++;
+            }
+        }
+        int total = a.length + b.length;
+        return total == 0 ? 1.0 : 2.0 * matches / total;
+    }
+
+    double realQuickRatio(int[] a) {
+        int total = a.length + b.length;
+        return total == 0 ? 1.0 : 2.0 * Math.min(a.length, b.length) / total;
+    }
+
+    /** Soma dos tamanhos dos blocos de {@code get_matching_blocks()}. */
+    private int matchingCharacters(int[] a) {
+        int soma = 0;
+        Deque<int[]> fila = new ArrayDeque<>();
+        fila.push(new int[]{0, a.length, 0, b.length});
+        while (!fila.isEmpty()) {
+            int[] r = fila.pop();
+            int alo = r[0], ahi = r[1], blo = r[2], bhi = r[3];
+            int[] m = findLongestMatch(a, alo, ahi, blo, bhi);
+            int i = m[0], j = m[1], k = m[2];
+            if (k > 0) {
+                soma += k;
+                if (alo < i && blo < j) fila.push(new int[]{alo, i, blo, j});
+                if (i + k < ahi && j + k < bhi) fila.push(new int[]{i + k, ahi, j + k, bhi});
+            }
+        }
+        return soma;
+    }
+
+    private int[] findLongestMatch(int[] a, int alo, int ahi, int blo, int bhi) {
+        int besti = alo, bestj = blo, bestsize = 0;
+        Map<Integer, Integer> j2len = new HashMap<>();
+        for (int i = alo; i < ahi; i++) {
+            Map<Integer, Integer> novoJ2len = new HashMap<>();
+            int[] js = b2j.get(a[i]);
+            if (js != null) {
+                for (int j : js) {
+                    if (j < blo) continue;
+                    if (j >= bhi) break;
+                    int k = j2len.getOrDefault(j - 1, 0) + 1;
+                    novoJ2len.put(j, k);
+                    if (k > bestsize) {
+                        besti = i - k + 1;
+                        bestj = j - k + 1;
+                        bestsize = k;
+                    }
+                }
+            }
+            j2len = novoJ2len;
+        }
+        // Sem função isjunk só há elementos "populares" (autojunk); eles podem estender o bloco.
+        while (besti > alo && bestj > blo && a[besti - 1] == b[bestj - 1]) {
+            besti--;
+            bestj--;
+            bestsize++;
+        }
+        while (besti + bestsize < ahi && bestj + bestsize < bhi && a[besti + bestsize] == b[bestj + bestsize]) {
+            bestsize++;
+        }
+        return new int[]{besti, bestj, bestsize};
+    }
+}
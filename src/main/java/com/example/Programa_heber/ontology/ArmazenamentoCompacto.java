@@ -0,0 +1,38 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Armazenamento "compacto" (padrão): cada versão guarda uma cópia somente leitura da base em um
+ * {@link GrafoCompacto}, com termos em dicionário e índices ordenados fora do heap; o GraphMem
+ * montado pela carga ou pela ingestão fica para o coletor. A ingestão é a mesma da memória: a
+ * cópia parte do grafo compacto da versão atual.
+ */
+final class ArmazenamentoCompacto extends ArmazenamentoMemoria {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArmazenamentoCompacto.class);
+
+    private final Path diretorioMapeado;
+
+    /** @param diretorioMapeado onde mapear os índices em arquivo; {@code null} para memória direta. */
+    ArmazenamentoCompacto(Path diretorioMapeado) {
+        this.diretorioMapeado = diretorioMapeado;
+    }
+
+    @Override
+    public Model guardar(Model base, long numero) throws IOException {
+        long inicio = System.nanoTime();
+        GrafoCompacto grafo = GrafoCompacto.construir(base.getGraph(), diretorioMapeado);
+        logger.info("--- Grafo da versão {} compactado em {} ms: {} triplas, {} termos no dicionário, {} MB de índices {} ---",
+                numero, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), grafo.size(), grafo.quantidadeTermos(),
+                grafo.tamanhoBytes() / (1024 * 1024), diretorioMapeado == null ? "fora do heap" : "em arquivo mapeado");
+        return ModelFactory.createModelForGraph(grafo);
+    }
+}
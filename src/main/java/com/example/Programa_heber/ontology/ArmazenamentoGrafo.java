@@ -0,0 +1,56 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Onde ficam as triplas das versões publicadas pela {@link Ontology} ({@code ontologia.grafo.armazenamento}):
+ * o {@link Model} em memória que a ingestão usa como ponto de partida e o que as consultas leem.
+ * A {@link Ontology} só monta a base, materializa as inferências e publica; copiar, compactar ou
+ * gravar em disco fica com a implementação.
+ */
+interface ArmazenamentoGrafo {
+
+    /**
+     * Guarda a base da versão {@code numero}, que não será mais alterada.
+     *
+     * @return a base que a versão mantém (e da qual parte a próxima ingestão): {@code base} ou uma cópia dela.
+     */
+    Model guardar(Model base, long numero) throws IOException;
+
+    /** Modelo consultado pela versão cuja base é {@code base}, já guardada. */
+    Model consulta(Model base);
+
+    /**
+     * Acrescenta os deltas de uma ingestão, sem alterar {@code atual}, que continua sendo lido
+     * pelas consultas até a próxima publicação. Onde os deltas não ficam em uma cópia (o dataset
+     * do TDB2), eles só passam a ser vistos em {@link #confirmar()}, chamado pela {@link Ontology}
+     * junto com a troca da versão publicada, ou são jogados fora em {@link #descartar()}.
+     *
+     * @param triplasNovas recebe as triplas que cada delta acrescentou.
+     * @param totais       recebe o total de triplas depois de cada delta.
+     * @return a base da próxima versão.
+     */
+    Model ingerir(Model atual, List<Graph> deltas, long[] triplasNovas, long[] totais);
+
+    /** Torna visíveis os deltas do último {@link #ingerir}; sem nada pendente, não faz nada. */
+    default void confirmar() {
+    }
+
+    /** Desfaz os deltas do último {@link #ingerir} se a versão nova não chegou a ser publicada. */
+    default void descartar() {
+    }
+
+    /** Dataset que as consultas usam, em transação de leitura; {@code null} quando leem direto o modelo. */
+    default Dataset dataset() {
+        return null;
+    }
+
+    /** Libera o que ficou aberto (arquivos, locks) quando o contexto é encerrado. */
+    default void encerrar() {
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.graph.GraphReadOnly;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Armazenamento "memoria": a base de cada versão é o próprio GraphMem do Jena, consultado por uma
+ * visão somente leitura. Cada ingestão copia a base atual e acrescenta os deltas na cópia.
+ */
+class ArmazenamentoMemoria implements ArmazenamentoGrafo {
+
+    @Override
+    public Model guardar(Model base, long numero) throws IOException {
+        return base;
+    }
+
+    @Override
+    public Model consulta(Model base) {
+        return ModelFactory.createModelForGraph(new GraphReadOnly(base.getGraph()));
+    }
+
+    @Override
+    public Model ingerir(Model atual, List<Graph> deltas, long[] triplasNovas, long[] totais) {
+        Model novo = ModelFactory.createDefaultModel();
+        novo.setNsPrefixes(atual.getNsPrefixMap());
+        GraphUtil.addInto(novo.getGraph(), atual.getGraph());
+        for (int i = 0; i < deltas.size(); i++) {
+            long antes = novo.size();
+            GraphUtil.addInto(novo.getGraph(), deltas.get(i));
+            triplasNovas[i] = novo.size() - antes;
+            totais[i] = novo.size();
+        }
+        return novo;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Armazenamento "tdb2": as triplas ficam em um dataset TDB2 em disco, lido por arquivos mapeados
+ * em memória, e as consultas rodam em transações de leitura. A base de cada versão é só a
+ * referência em memória (esquema e empresas): a ingestão confere os tickers e os rankings buscam
+ * os setores nela, sem abrir transação no dataset. Os deltas vão direto para o dataset, em uma
+ * transação de escrita que só é confirmada junto com a publicação da versão que os descreve.
+ *
+ * O dataset é reaproveitado quando a referência e as séries de preços gravadas ao lado dele (pelo
+ * {@link SnapshotStore}, só depois que a carga do dataset terminou) têm o checksum das fontes atuais.
+ */
+final class ArmazenamentoTdb2 implements ArmazenamentoGrafo {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArmazenamentoTdb2.class);
+
+    private final SnapshotStore marca;
+    private final Path diretorioDataset;
+    private Dataset dataset;
+
+    /** Triplas no dataset, contadas uma vez na abertura e somadas a cada ingestão confirmada. */
+    private long triplas;
+
+    /** Total de triplas se a ingestão em andamento for confirmada. */
+    private long triplasPendentes;
+
+    /** @param fontes as fontes da carga, na ordem do checksum da marca. */
+    ArmazenamentoTdb2(Path diretorio, List<String> fontes) throws IOException {
+        this.marca = new SnapshotStore(diretorio, fontes, "tdb2");
+        this.diretorioDataset = diretorio.resolve("dataset");
+    }
+
+    /**
+     * Abre o dataset. Se a marca confere com as fontes, a referência é relida para {@code referencia}
+     * com os mesmos blank nodes do dataset (para que as inferências das próximas ingestões caiam
+     * sobre as triplas já gravadas) e as séries gravadas são devolvidas. Senão o dataset é apagado
+     * e fica vazio, à espera de {@link #gravar}.
+     */
+    Optional<SeriesPrecos> abrir(Model referencia) throws IOException {
+        Optional<SeriesPrecos> series = marca.carregarSeries();
+        boolean reaproveitar = series.isPresent() && marca.carregar(referencia).isPresent();
+        if (!reaproveitar) {
+            apagarRecursivamente(diretorioDataset);
+        }
+        dataset = TDB2Factory.connectDataset(diretorioDataset.toString());
+        if (!reaproveitar) {
+            return Optional.empty();
+        }
+        triplas = Txn.calculateRead(dataset, () -> dataset.asDatasetGraph().getDefaultGraph().size());
+        logger.info("--- Dataset TDB2 reaproveitado de {}: {} triplas ---", diretorioDataset, triplas);
+        return series;
+    }
+
+    /**
+     * Carga completa do dataset aberto vazio: a referência e os grafos dos pregões (já materializados)
+     * em uma única transação de escrita. A marca só é gravada depois, para que um dataset pela
+     * metade nunca seja reaproveitado.
+     */
+    void gravar(Model referencia, List<Graph> pregoes, SeriesPrecos series) {
+        long inicio = System.nanoTime();
+        Txn.executeWrite(dataset, () -> {
+            Graph destino = dataset.asDatasetGraph().getDefaultGraph();
+            GraphUtil.addInto(destino, referencia.getGraph());
+            for (Graph pregao : pregoes) GraphUtil.addInto(destino, pregao);
+            triplas = destino.size();
+        });
+        logger.info("--- Dataset TDB2 gravado em {} em {} ms: {} triplas ---", diretorioDataset,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), triplas);
+        marca.salvarSeries(series);
+        marca.salvar(referencia.getGraph());
+    }
+
+    @Override
+    public Model guardar(Model base, long numero) {
+        return base;
+    }
+
+    @Override
+    public Model consulta(Model base) {
+        return dataset.getDefaultModel();
+    }
+
+    /**
+     * Os deltas vão para o dataset em uma transação de escrita que fica aberta nesta thread até
+     * {@link #confirmar()} ou {@link #descartar()}; a referência em memória não muda. Até o commit,
+     * as consultas continuam vendo o dataset de antes, junto com as séries e rankings da versão
+     * que ainda está publicada.
+     */
+    @Override
+    public Model ingerir(Model atual, List<Graph> deltas, long[] triplasNovas, long[] totais) {
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            Graph destino = dataset.asDatasetGraph().getDefaultGraph();
+            long total = triplas;
+            for (int i = 0; i < deltas.size(); i++) {
+                long novas = 0;
+                for (Iterator<Triple> it = deltas.get(i).find(); it.hasNext(); ) {
+                    Triple tripla = it.next();
+                    if (!destino.contains(tripla)) {
+                        destino.add(tripla);
+                        novas++;
+                    }
+                }
+                triplasNovas[i] = novas;
+                totais[i] = total += novas;
+            }
+            triplasPendentes = total;
+        } catch (RuntimeException e) {
+            descartar();
+            throw e;
+        }
+        return atual;
+    }
+
+    /** Commit da ingestão; o contador só muda depois que o commit volta. */
+    @Override
+    public void confirmar() {
+        if (dataset == null || !dataset.isInTransaction()) return;
+        try {
+            dataset.commit();
+            triplas = triplasPendentes;
+        } finally {
+            dataset.end();
+        }
+    }
+
+    @Override
+    public void descartar() {
+        if (dataset == null || !dataset.isInTransaction()) return;
+        try {
+            dataset.abort();
+        } finally {
+            dataset.end();
+        }
+    }
+
+    @Override
+    public Dataset dataset() {
+        return dataset;
+    }
+
+    /** Libera o dataset e o lock do diretório. */
+    @Override
+    public void encerrar() {
+        if (dataset != null) {
+            TDBInternal.expel(dataset.asDatasetGraph());
+        }
+    }
+
+    private static void apagarRecursivamente(Path diretorio) throws IOException {
+        if (!Files.exists(diretorio)) return;
+        try (Stream<Path> caminhos = Files.walk(diretorio)) {
+            for (Path caminho : caminhos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(caminho);
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.QueryBuildException;
+import org.apache.jena.query.QueryExecException;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.pfunction.PFuncListAndList;
+import org.apache.jena.sparql.pfunction.PFuncSimple;
+import org.apache.jena.sparql.pfunction.PropFuncArg;
+import org.apache.jena.sparql.pfunction.PropertyFunctionRegistry;
+import org.apache.jena.sparql.util.Symbol;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Funções de propriedade SPARQL que respondem direto da {@link SeriesPrecos}, sem percorrer as
+ * triplas {@code Negociado_*}. Prefixo {@code b3fn:} = {@value #NS}.
+ *
+ * <pre>
+ * # uma métrica: todas as cotações, as de um ticker ou as de um pregão (qualquer termo pode vir ligado)
+ * (?ticker ?data ?valor) b3fn:serie (b3:precoFechamento)
+ *
+ * # os N maiores ("desc", padrão) ou menores ("asc") valores de um pregão, opcionalmente só entre as
+ * # ações de um setor (rótulo, como em rdfs:label); ?data livre = um ranking por pregão
+ * (?ticker ?valor [?posicao]) b3fn:ranking (b3:variacaoIntradiariaPercentual ?data 5 ["asc"|"desc" ["Bancos"@pt]])
+ *
+ * # empresa, setor ou código pelo rótulo (rdfs:label ou b3:ticker), sem diferença de caixa, acento ou pontuação
+ * ?empresa b3fn:rotulo "Gerdau S.A."
+ * </pre>
+ *
+ * A métrica é uma das propriedades numéricas de pregão da ontologia ({@link SeriesPrecos.Coluna},
+ * incluindo as derivadas), {@code b3fn:variacaoPercentual}, a variação do fechamento sobre o
+ * pregão anterior, ou {@code b3fn:variacaoIntradiariaModulo}, |fechamento - abertura|, para
+ * ordenar pelo tamanho da variação do dia sem o sinal. Os tickers saem como literais simples (como em {@code b3:ticker}) e as datas
+ * como {@code xsd:date}. O ranking lê os índices já ordenados de {@link RankingsPregao}.
+ *
+ * O {@code b3fn:rotulo} consulta o {@link IndiceRotulos}; com o rótulo livre, enumera os pares
+ * recurso/rótulo como estão no grafo (é o que acontece quando o rótulo vem de um bloco VALUES que
+ * o ARQ junta depois).
+ *
+ * A série e os índices consultados são os da mesma versão do grafo, passados pelo contexto da
+ * execução em {@link #SERIES}, {@link #RANKINGS} e {@link #ROTULOS}.
+ */
+final class FuncoesSeries {
+
+    static final String NS = "https://dcm.ffclrp.usp.br/lssb/stock-market-ontology/funcoes#";
+    static final String SERIE = NS + "serie";
+    static final String RANKING = NS + "ranking";
+    static final String ROTULO = NS + "rotulo";
+    static final String VARIACAO_PERCENTUAL = NS + "variacaoPercentual";
+    static final String VARIACAO_INTRADIARIA_MODULO = NS + "variacaoIntradiariaModulo";
+
+    /** Chave do contexto de execução com a {@link SeriesPrecos} da versão consultada. */
+    static final Symbol SERIES = Symbol.create(NS + "series");
+
+    /** Chave do contexto de execução com os {@link RankingsPregao} da versão consultada. */
+    static final Symbol RANKINGS = Symbol.create(NS + "rankings");
+
+    /** Chave do contexto de execução com o {@link IndiceRotulos} da versão consultada. */
+    static final Symbol ROTULOS = Symbol.create(NS + "rotulos");
+
+    private FuncoesSeries() {}
+
+    static void registrar() {
+        PropertyFunctionRegistry registro = PropertyFunctionRegistry.get();
+        registro.put(SERIE, uri -> new Serie());
+        registro.put(RANKING, uri -> new Ranking());
+        registro.put(ROTULO, uri -> new Rotulo());
+    }
+
+    private static SeriesPrecos series(ExecutionContext contexto) {
+        SeriesPrecos series = contexto.getContext().get(SERIES);
+        return series == null ? SeriesPrecos.vazia() : series;
+    }
+
+    /** Índice de métrica pedido, no espaço do {@link RankingsPregao}: o ordinal da coluna ou uma das métricas extras. */
+    private static int metrica(Node no) {
+        if (!no.isURI()) throw new QueryExecException("b3fn: a métrica precisa ser uma URI, veio " + no);
+        if (VARIACAO_PERCENTUAL.equals(no.getURI())) return RankingsPregao.VARIACAO_PERCENTUAL;
+        if (VARIACAO_INTRADIARIA_MODULO.equals(no.getURI())) return RankingsPregao.VARIACAO_INTRADIARIA_MODULO;
+        return SeriesPrecos.Coluna.porUri(no.getURI()).map(Enum::ordinal)
+                .orElseThrow(() -> new QueryExecException("b3fn: métrica desconhecida " + no.getURI()));
+    }
+
+    private static RankingsPregao rankings(ExecutionContext contexto) {
+        RankingsPregao rankings = contexto.getContext().get(RANKINGS);
+        return rankings == null ? RankingsPregao.vazio() : rankings;
+    }
+
+    private static IndiceRotulos rotulos(ExecutionContext contexto) {
+        IndiceRotulos rotulos = contexto.getContext().get(ROTULOS);
+        return rotulos == null ? IndiceRotulos.vazio() : rotulos;
+    }
+
+    /** Índices de datas a percorrer: todas, se o termo for variável, ou a data pedida (se existir). */
+    private static int[] datas(SeriesPrecos series, Node no) {
+        if (no.isVariable()) {
+            int[] todas = new int[series.quantidadeDatas()];
+            Arrays.setAll(todas, i -> i);
+            return todas;
+        }
+        if (!no.isLiteral()) return new int[0];
+        try {
+            int indice = series.indiceData(LocalDate.parse(no.getLiteralLexicalForm()));
+            return indice < 0 ? new int[0] : new int[] {indice};
+        } catch (DateTimeParseException e) {
+            return new int[0];
+        }
+    }
+
+    private static Node literalData(SeriesPrecos series, int data) {
+        return NodeFactory.createLiteral(series.data(data).toString(), XSDDatatype.XSDdate);
+    }
+
+    private static Node literalValor(int metrica, double valor) {
+        if (RankingsPregao.inteira(metrica)) {
+            return NodeFactory.createLiteral(Long.toString((long) valor), XSDDatatype.XSDlong);
+        }
+        return NodeFactory.createLiteral(Double.toString(valor), XSDDatatype.XSDdouble);
+    }
+
+    /**
+     * Liga {@code termo} a {@code valor} se for variável; se já for um valor (constante ou variável
+     * ligada antes), só confere se é o mesmo.
+     */
+    private static boolean ligar(BindingBuilder linha, Node termo, Node valor) {
+        if (termo.isVariable()) {
+            linha.add(Var.alloc(termo), valor);
+            return true;
+        }
+        return termo.sameValueAs(valor);
+    }
+
+    private static void exigirTamanho(PropFuncArg arg, int minimo, int maximo, String lado, String uso) {
+        if (!arg.isList() || arg.getArgListSize() < minimo || arg.getArgListSize() > maximo) {
+            throw new QueryBuildException("b3fn: " + lado + " inválido; uso: " + uso);
+        }
+    }
+
+    private static final class Serie extends PFuncListAndList {
+
+        private static final String USO = "(?ticker ?data ?valor) b3fn:serie (<métrica>)";
+
+        @Override
+        public void build(PropFuncArg sujeito, Node predicado, PropFuncArg objeto, ExecutionContext contexto) {
+            super.build(sujeito, predicado, objeto, contexto);
+            exigirTamanho(sujeito, 3, 3, "sujeito", USO);
+            exigirTamanho(objeto, 1, 1, "objeto", USO);
+        }
+
+        @Override
+        public QueryIterator execEvaluated(Binding binding, PropFuncArg sujeito, Node predicado, PropFuncArg objeto, ExecutionContext contexto) {
+            SeriesPrecos series = series(contexto);
+            int metrica = metrica(objeto.getArg(0));
+            Node termoTicker = sujeito.getArg(0);
+            Node termoData = sujeito.getArg(1);
+            Node termoValor = sujeito.getArg(2);
+
+            int[] tickers;
+            if (termoTicker.isVariable()) {
+                tickers = null;
+            } else {
+                int indice = termoTicker.isLiteral() ? series.indiceTicker(termoTicker.getLiteralLexicalForm()) : -1;
+                tickers = indice < 0 ? new int[0] : new int[] {indice};
+            }
+
+            List<Binding> linhas = new ArrayList<>();
+            double[] valores = new double[series.quantidadeTickers()];
+            for (int data : datas(series, termoData)) {
+                RankingsPregao.pregao(series, metrica, data, valores);
+                Node noData = literalData(series, data);
+                int quantidade = tickers == null ? valores.length : tickers.length;
+                for (int i = 0; i < quantidade; i++) {
+                    int t = tickers == null ? i : tickers[i];
+                    if (Double.isNaN(valores[t])) continue;
+                    BindingBuilder linha = BindingBuilder.create(binding);
+                    if (ligar(linha, termoTicker, NodeFactory.createLiteral(series.ticker(t)))
+                            && ligar(linha, termoData, noData)
+                            && ligar(linha, termoValor, literalValor(metrica, valores[t]))) {
+                        linhas.add(linha.build());
+                    }
+                }
+            }
+            return QueryIterPlainWrapper.create(linhas.iterator(), contexto);
+        }
+    }
+
+    private static final class Ranking extends PFuncListAndList {
+
+        private static final String USO = "(?ticker ?valor [?posicao]) b3fn:ranking (<métrica> ?data N [\"asc\"|\"desc\" [setor]])";
+
+        @Override
+        public void build(PropFuncArg sujeito, Node predicado, PropFuncArg objeto, ExecutionContext contexto) {
+            super.build(sujeito, predicado, objeto, contexto);
+            exigirTamanho(sujeito, 2, 3, "sujeito", USO);
+            exigirTamanho(objeto, 3, 5, "objeto", USO);
+        }
+
+        @Override
+        public QueryIterator execEvaluated(Binding binding, PropFuncArg sujeito, Node predicado, PropFuncArg objeto, ExecutionContext contexto) {
+            RankingsPregao rankings = rankings(contexto);
+            SeriesPrecos series = rankings.series();
+            int metrica = metrica(objeto.getArg(0));
+            Node termoData = objeto.getArg(1);
+            int limite = inteiro(objeto.getArg(2));
+            boolean crescente = objeto.getArgListSize() > 3 && crescente(objeto.getArg(3));
+            String setor = objeto.getArgListSize() > 4 ? texto(objeto.getArg(4)) : null;
+
+            List<Binding> linhas = new ArrayList<>();
+            for (int data : datas(series, termoData)) {
+                int[] ordem = rankings.ordem(metrica, data, setor);
+                Node noData = literalData(series, data);
+                int quantidade = Math.min(limite, ordem.length);
+                for (int posicao = 0; posicao < quantidade; posicao++) {
+                    int t = ordem[crescente ? ordem.length - 1 - posicao : posicao];
+                    double valor = RankingsPregao.valor(series, metrica, data, t);
+                    BindingBuilder linha = BindingBuilder.create(binding);
+                    boolean confere = ligar(linha, termoData, noData)
+                            && ligar(linha, sujeito.getArg(0), NodeFactory.createLiteral(series.ticker(t)))
+                            && ligar(linha, sujeito.getArg(1), literalValor(metrica, valor));
+                    if (confere && sujeito.getArgListSize() > 2) {
+                        confere = ligar(linha, sujeito.getArg(2),
+                                NodeFactory.createLiteral(Integer.toString(posicao + 1), XSDDatatype.XSDinteger));
+                    }
+                    if (confere) linhas.add(linha.build());
+                }
+            }
+            return QueryIterPlainWrapper.create(linhas.iterator(), contexto);
+        }
+
+        private static int inteiro(Node no) {
+            if (no.isLiteral()) {
+                try {
+                    int valor = Integer.parseInt(no.getLiteralLexicalForm());
+                    if (valor > 0) return valor;
+                } catch (NumberFormatException ignored) {}
+            }
+            throw new QueryExecException("b3fn:ranking: o tamanho do ranking precisa ser um inteiro positivo, veio " + no);
+        }
+
+        private static boolean crescente(Node no) {
+            String ordem = texto(no);
+            if ("asc".equalsIgnoreCase(ordem)) return true;
+            if ("desc".equalsIgnoreCase(ordem)) return false;
+            throw new QueryExecException("b3fn:ranking: a ordem precisa ser \"asc\" ou \"desc\", veio " + no);
+        }
+
+        private static String texto(Node no) {
+            if (!no.isLiteral()) throw new QueryExecException("b3fn:ranking: esperado um literal, veio " + no);
+            return no.getLiteralLexicalForm();
+        }
+    }
+
+    private static final class Rotulo extends PFuncSimple {
+
+        @Override
+        public QueryIterator execEvaluated(Binding binding, Node sujeito, Node predicado, Node objeto, ExecutionContext contexto) {
+            IndiceRotulos rotulos = rotulos(contexto);
+            List<IndiceRotulos.Entrada> entradas;
+            if (objeto.isVariable()) entradas = rotulos.todas();
+            else if (objeto.isLiteral()) entradas = rotulos.buscar(objeto.getLiteralLexicalForm());
+            else throw new QueryExecException("b3fn:rotulo: o rótulo precisa ser um literal, veio " + objeto);
+
+            List<Binding> linhas = new ArrayList<>(Math.min(entradas.size(), 16));
+            for (IndiceRotulos.Entrada entrada : entradas) {
+                BindingBuilder linha = BindingBuilder.create(binding);
+                if (ligar(linha, sujeito, entrada.recurso())
+                        && (!objeto.isVariable() || ligar(linha, objeto, entrada.rotulo()))) {
+                    linhas.add(linha.build());
+                }
+            }
+            return QueryIterPlainWrapper.create(linhas.iterator(), contexto);
+        }
+    }
+}
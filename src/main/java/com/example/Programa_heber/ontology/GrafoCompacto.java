@@ -0,0 +1,359 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Capabilities;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Grafo somente leitura para uma versão publicada: cada termo (URI, literal, nó em branco) vira um
+ * id inteiro de um dicionário, e as triplas ficam em três índices ordenados (SPO, POS e OSP) de
+ * colunas primitivas fora do heap, em {@link ByteBuffer}s diretos ou em um arquivo mapeado.
+ *
+ * O {@code find} escolhe o índice cujo prefixo são os termos fixos do padrão e acha a faixa por
+ * busca binária; só as triplas devolvidas viram objetos {@link Triple}. Cada tripla ocupa 16 bytes
+ * por índice fora do heap (sujeito e predicado int, objeto long), contra as entradas de hash dos
+ * três índices do {@code GraphMem}; no heap fica só o dicionário, com um {@link Node} por termo.
+ *
+ * Os literais xsd:double (preços e métricas derivadas, a maior parte dos termos) nem entram no
+ * dicionário de nós: ficam em uma tabela ordenada de valores fora do heap, o id do objeto aponta
+ * para ela e o nó é recriado quando a tripla é lida. A comparação de literais é por termo (forma
+ * léxica, tipo e idioma), e não por valor como no {@code GraphMem}.
+ */
+final class GrafoCompacto extends GraphBase {
+
+    /** Ids de objeto com este bit são posições na tabela de valores xsd:double. */
+    private static final long MARCA_DOUBLE = 1L << 62;
+
+    private static final int S = 0, P = 1, O = 2;
+
+    private static final Capabilities CAPACIDADES = new Capabilities() {
+        @Override public boolean sizeAccurate() { return true; }
+        @Override public boolean addAllowed() { return false; }
+        @Override public boolean deleteAllowed() { return false; }
+        @Override public boolean handlesLiteralTyping() { return false; }
+    };
+
+    private final Node[] termos;
+    /** Hash aberto de termo para id: cada posição guarda id + 1 (0 = vazia). */
+    private final int[] tabela;
+    /** Bits (Double.doubleToRawLongBits) de cada literal xsd:double, em ordem crescente e sem repetição. */
+    private final LongBuffer doubles;
+    private final int tamanho;
+    private final Indice spo;
+    private final Indice pos;
+    private final Indice osp;
+    private final PrefixMapping prefixos;
+
+    private GrafoCompacto(Graph origem, Path diretorioMapeado) throws IOException {
+        int n = origem.size();
+        int[] sujeitos = new int[n];
+        int[] predicados = new int[n];
+        long[] objetos = new long[n];
+        // Os doubles entram primeiro com os próprios bits; os ids saem depois de ordenar a tabela.
+        BitSet objetoDouble = new BitSet(n);
+        Map<Node, Integer> ids = new HashMap<>();
+        int t = 0;
+        for (Iterator<Triple> it = origem.find(); it.hasNext(); t++) {
+            Triple tripla = it.next();
+            sujeitos[t] = ids.computeIfAbsent(tripla.getSubject(), k -> ids.size());
+            predicados[t] = ids.computeIfAbsent(tripla.getPredicate(), k -> ids.size());
+            if (doubleCanonico(tripla.getObject())) {
+                objetos[t] = Double.doubleToRawLongBits(((Number) tripla.getObject().getLiteralValue()).doubleValue());
+                objetoDouble.set(t);
+            } else {
+                objetos[t] = ids.computeIfAbsent(tripla.getObject(), k -> ids.size());
+            }
+        }
+        tamanho = t;
+        long[] valores = new long[objetoDouble.cardinality()];
+        int v = 0;
+        for (int i = objetoDouble.nextSetBit(0); i >= 0; i = objetoDouble.nextSetBit(i + 1)) valores[v++] = objetos[i];
+        Arrays.sort(valores);
+        int distintos = 0;
+        for (int i = 0; i < valores.length; i++) {
+            if (i == 0 || valores[i] != valores[distintos - 1]) valores[distintos++] = valores[i];
+        }
+        for (int i = objetoDouble.nextSetBit(0); i >= 0; i = objetoDouble.nextSetBit(i + 1)) {
+            objetos[i] = MARCA_DOUBLE | Arrays.binarySearch(valores, 0, distintos, objetos[i]);
+        }
+
+        termos = new Node[ids.size()];
+        ids.forEach((no, id) -> termos[id] = no);
+        tabela = new int[Integer.highestOneBit(Math.max(1, termos.length) * 2) * 2];
+        for (int id = 0; id < termos.length; id++) {
+            int h = posicao(termos[id]);
+            while (tabela[h] != 0) h = (h + 1) & (tabela.length - 1);
+            tabela[h] = id + 1;
+        }
+
+        try (Alocador alocador = new Alocador(diretorioMapeado)) {
+            doubles = alocador.alocar((long) distintos * Long.BYTES).asLongBuffer().put(valores, 0, distintos).flip();
+            spo = new Indice(new int[] {S, P, O}, sujeitos, predicados, objetos, tamanho, alocador);
+            pos = new Indice(new int[] {P, O, S}, sujeitos, predicados, objetos, tamanho, alocador);
+            osp = new Indice(new int[] {O, S, P}, sujeitos, predicados, objetos, tamanho, alocador);
+        }
+
+        prefixos = new PrefixMappingImpl().setNsPrefixes(origem.getPrefixMapping()).lock();
+    }
+
+    /**
+     * Copia {@code origem}, que não deve mudar durante a cópia.
+     *
+     * @param diretorioMapeado onde criar o arquivo mapeado dos índices; {@code null} para memória direta.
+     */
+    static GrafoCompacto construir(Graph origem, Path diretorioMapeado) throws IOException {
+        return new GrafoCompacto(origem, diretorioMapeado);
+    }
+
+    /** Memória fora do heap (ou do arquivo mapeado) ocupada pelos índices e pela tabela de doubles. */
+    long tamanhoBytes() {
+        return 3L * tamanho * (2 * Integer.BYTES + Long.BYTES) + (long) doubles.capacity() * Long.BYTES;
+    }
+
+    int quantidadeTermos() {
+        return termos.length;
+    }
+
+    /**
+     * Colunas em memória direta ou, com um diretório, em regiões de um arquivo mapeado: as páginas
+     * ficam no cache do sistema de arquivos e podem voltar ao disco sob pressão. O arquivo é apagado
+     * ao fim da construção; os mapeamentos continuam válidos até os buffers serem coletados.
+     */
+    private static final class Alocador implements AutoCloseable {
+        private final Path arquivo;
+        private final FileChannel canal;
+        private long posicao;
+
+        Alocador(Path diretorioMapeado) throws IOException {
+            if (diretorioMapeado == null) {
+                arquivo = null;
+                canal = null;
+            } else {
+                Files.createDirectories(diretorioMapeado);
+                arquivo = Files.createTempFile(diretorioMapeado, "grafo-", ".idx");
+                canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        }
+
+        ByteBuffer alocar(long bytes) throws IOException {
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IOException("Coluna grande demais para o grafo compacto: " + bytes + " bytes.");
+            }
+            if (canal == null) {
+                return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer regiao = canal.map(FileChannel.MapMode.READ_WRITE, posicao, bytes).order(ByteOrder.LITTLE_ENDIAN);
+            posicao += bytes;
+            return regiao;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (canal != null) {
+                canal.close();
+                Files.deleteIfExists(arquivo);
+            }
+        }
+    }
+
+    /**
+     * Literal xsd:double na forma canônica do Jena, que é a que o nó recriado a partir do valor
+     * terá; os outros (como "1.50E0") ficam no dicionário para não mudar a forma léxica.
+     */
+    private static boolean doubleCanonico(Node no) {
+        if (!no.isLiteral() || !XSDDatatype.XSDdouble.equals(no.getLiteralDatatype()) || !no.getLiteralLanguage().isEmpty()) {
+            return false;
+        }
+        try {
+            return literalDouble(((Number) no.getLiteralValue()).doubleValue()).equals(no);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static Node literalDouble(double valor) {
+        return NodeFactory.createLiteralByValue(valor, XSDDatatype.XSDdouble);
+    }
+
+    private int posicao(Node no) {
+        int h = no.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (tabela.length - 1);
+    }
+
+    /** Id do termo, ou -1 se ele não aparece no grafo. */
+    private long id(Node no) {
+        if (doubleCanonico(no)) {
+            long bits = Double.doubleToRawLongBits(((Number) no.getLiteralValue()).doubleValue());
+            int baixo = 0, alto = doubles.limit() - 1;
+            while (baixo <= alto) {
+                int meio = (baixo + alto) >>> 1;
+                long valor = doubles.get(meio);
+                if (valor < bits) baixo = meio + 1;
+                else if (valor > bits) alto = meio - 1;
+                else return MARCA_DOUBLE | meio;
+            }
+            return -1;
+        }
+        for (int h = posicao(no); tabela[h] != 0; h = (h + 1) & (tabela.length - 1)) {
+            if (termos[tabela[h] - 1].equals(no)) return tabela[h] - 1;
+        }
+        return -1;
+    }
+
+    private Node termo(long id) {
+        if ((id & MARCA_DOUBLE) != 0) {
+            return literalDouble(Double.longBitsToDouble(doubles.get((int) (id & ~MARCA_DOUBLE))));
+        }
+        return termos[(int) id];
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple padrao) {
+        long[] fixos = {-1, -1, -1};
+        Node[] nos = {padrao.getSubject(), padrao.getPredicate(), padrao.getObject()};
+        for (int papel = S; papel <= O; papel++) {
+            if (nos[papel] == null || !nos[papel].isConcrete()) continue;
+            fixos[papel] = id(nos[papel]);
+            if (fixos[papel] < 0) return NiceIterator.emptyIterator();
+            // Só o objeto pode ser um literal; um literal no sujeito ou predicado nunca casa.
+            if (papel != O && fixos[papel] > Integer.MAX_VALUE) return NiceIterator.emptyIterator();
+        }
+        boolean s = fixos[S] >= 0, p = fixos[P] >= 0, o = fixos[O] >= 0;
+        Indice indice = s && !p && o ? osp : s ? spo : p ? pos : o ? osp : spo;
+        return indice.buscar(fixos);
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return tamanho;
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        return CAPACIDADES;
+    }
+
+    @Override
+    protected PrefixMapping createPrefixMapping() {
+        return prefixos;
+    }
+
+    /** Uma ordenação das triplas; as três colunas ficam na ordem das linhas do índice. */
+    private final class Indice {
+        private final int[] ordem;
+        private final IntBuffer sujeitos;
+        private final IntBuffer predicados;
+        private final LongBuffer objetos;
+
+        Indice(int[] ordem, int[] s, int[] p, long[] o, int n, Alocador alocador) throws IOException {
+            this.ordem = ordem;
+            int[] linhas = new int[n];
+            for (int i = 0; i < n; i++) linhas[i] = i;
+            ordenar(linhas, (a, b) -> {
+                for (int papel : ordem) {
+                    int c = Long.compare(valor(papel, s, p, o, a), valor(papel, s, p, o, b));
+                    if (c != 0) return c;
+                }
+                return 0;
+            });
+            sujeitos = alocador.alocar((long) n * Integer.BYTES).asIntBuffer();
+            predicados = alocador.alocar((long) n * Integer.BYTES).asIntBuffer();
+            objetos = alocador.alocar((long) n * Long.BYTES).asLongBuffer();
+            for (int i = 0; i < n; i++) {
+                sujeitos.put(i, s[linhas[i]]);
+                predicados.put(i, p[linhas[i]]);
+                objetos.put(i, o[linhas[i]]);
+            }
+        }
+
+        private static long valor(int papel, int[] s, int[] p, long[] o, int linha) {
+            return papel == S ? s[linha] : papel == P ? p[linha] : o[linha];
+        }
+
+        private long valor(int papel, int linha) {
+            return papel == S ? sujeitos.get(linha) : papel == P ? predicados.get(linha) : objetos.get(linha);
+        }
+
+        /** Triplas cujos termos fixos ({@code >= 0}) casam, percorrendo a faixa do prefixo fixo. */
+        ExtendedIterator<Triple> buscar(long[] fixos) {
+            int prefixo = 0;
+            while (prefixo < 3 && fixos[ordem[prefixo]] >= 0) prefixo++;
+            int inicio = limite(fixos, prefixo, false);
+            int fim = limite(fixos, prefixo, true);
+            return new NiceIterator<>() {
+                private int linha = inicio;
+
+                @Override
+                public boolean hasNext() {
+                    return linha < fim;
+                }
+
+                @Override
+                public Triple next() {
+                    if (linha >= fim) throw new NoSuchElementException();
+                    int i = linha++;
+                    return Triple.create(termo(sujeitos.get(i)), termo(predicados.get(i)), termo(objetos.get(i)));
+                }
+            };
+        }
+
+        /** Primeira linha cujo prefixo é maior ({@code depois}) ou maior ou igual ao procurado. */
+        private int limite(long[] fixos, int prefixo, boolean depois) {
+            int baixo = 0, alto = tamanho;
+            while (baixo < alto) {
+                int meio = (baixo + alto) >>> 1;
+                int c = 0;
+                for (int k = 0; k < prefixo && c == 0; k++) {
+                    c = Long.compare(valor(ordem[k], meio), fixos[ordem[k]]);
+                }
+                if (c < 0 || (depois && c == 0)) baixo = meio + 1;
+                else alto = meio;
+            }
+            return baixo;
+        }
+    }
+
+    /** Merge sort de baixo para cima sobre int[], sem encaixotar os índices. */
+    private static void ordenar(int[] v, IntBinaryOperator comparador) {
+        int n = v.length;
+        int[] de = v, para = new int[n];
+        for (int largura = 1; largura < n; largura *= 2) {
+            for (int inicio = 0; inicio < n; inicio += 2 * largura) {
+                int meio = Math.min(inicio + largura, n), fim = Math.min(inicio + 2 * largura, n);
+                int i = inicio, j = meio, k = inicio;
+                while (i < meio && j < fim) para[k++] = comparador.applyAsInt(de[j], de[i]) < 0 ? de[j++] : de[i++];
+                while (i < meio) para[k++] = de[i++];
+                while (j < fim) para[k++] = de[j++];
+            }
+            int[] troca = de;
+            de = para;
+            para = troca;
+        }
+        if (de != v) System.arraycopy(de, 0, v, 0, n);
+    }
+}
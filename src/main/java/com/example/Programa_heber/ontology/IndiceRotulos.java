@@ -0,0 +1,90 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.util.*;
+
+/**
+ * Empresas, setores e códigos de negociação pelo rótulo normalizado, calculado uma vez por versão
+ * do grafo. A chave é a do {@link Ontology#normalizarTextoJava(String)} (minúsculas, sem acentos
+ * nem pontuação), a mesma que dá nome às URIs {@code Empresa_*} e {@code Setor_*} na carga; então
+ * "Gerdau S.A.", "GERDAU SA" e "gerdau s.a" resolvem para a mesma empresa com uma consulta ao mapa,
+ * em vez de um {@code FILTER regex} sobre todos os rótulos.
+ *
+ * Entram os {@code rdfs:label} dos recursos tipados como {@code b3:Empresa_Capital_Aberto} ou
+ * {@code b3:Setor_Atuacao} e os {@code b3:ticker} (que resolvem para o nó do código, como no
+ * Template_1B). Consultado pela função {@code b3fn:rotulo} de {@link FuncoesSeries}.
+ */
+final class IndiceRotulos {
+
+    /** Um recurso e o rótulo com que aparece no grafo (literal original, com idioma). */
+    record Entrada(Node recurso, Node rotulo) {}
+
+    private static final IndiceRotulos VAZIO = new IndiceRotulos(Map.of(), List.of());
+
+    private final Map<String, List<Entrada>> porChave;
+    private final List<Entrada> todas;
+
+    private IndiceRotulos(Map<String, List<Entrada>> porChave, List<Entrada> todas) {
+        this.porChave = porChave;
+        this.todas = todas;
+    }
+
+    static IndiceRotulos vazio() {
+        return VAZIO;
+    }
+
+    static IndiceRotulos doGrafo(Graph grafo) {
+        Map<String, List<Entrada>> porChave = new HashMap<>();
+        List<Entrada> todas = new ArrayList<>();
+        ExtendedIterator<Triple> rotulos = grafo.find(Node.ANY, VocabularioB3.LABEL, Node.ANY);
+        try {
+            while (rotulos.hasNext()) {
+                Triple t = rotulos.next();
+                if (t.getObject().isLiteral()
+                        && (grafo.contains(t.getSubject(), VocabularioB3.TYPE, VocabularioB3.EMPRESA_CAPITAL_ABERTO)
+                        || grafo.contains(t.getSubject(), VocabularioB3.TYPE, VocabularioB3.SETOR_ATUACAO))) {
+                    adicionar(porChave, todas, t);
+                }
+            }
+        } finally {
+            rotulos.close();
+        }
+        ExtendedIterator<Triple> tickers = grafo.find(Node.ANY, VocabularioB3.TICKER, Node.ANY);
+        try {
+            while (tickers.hasNext()) {
+                Triple t = tickers.next();
+                if (t.getObject().isLiteral()) adicionar(porChave, todas, t);
+            }
+        } finally {
+            tickers.close();
+        }
+        porChave.replaceAll((chave, entradas) -> List.copyOf(entradas));
+        return new IndiceRotulos(porChave, List.copyOf(todas));
+    }
+
+    private static void adicionar(Map<String, List<Entrada>> porChave, List<Entrada> todas, Triple t) {
+        String chave = Ontology.normalizarTextoJava(t.getObject().getLiteralLexicalForm());
+        if (chave.isEmpty()) return;
+        Entrada entrada = new Entrada(t.getSubject(), t.getObject());
+        porChave.computeIfAbsent(chave, c -> new ArrayList<>(1)).add(entrada);
+        todas.add(entrada);
+    }
+
+    /** Recursos cujo rótulo normalizado é igual ao de {@code texto}. */
+    List<Entrada> buscar(String texto) {
+        return porChave.getOrDefault(Ontology.normalizarTextoJava(texto), List.of());
+    }
+
+    /** Todos os pares recurso/rótulo, para quando o rótulo não vem ligado na consulta. */
+    List<Entrada> todas() {
+        return todas;
+    }
+
+    int quantidadeChaves() {
+        return porChave.size();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+
+import java.util.*;
+
+/**
+ * Materialização antecipada (forward chaining) do subconjunto de RDFS que os templates usam:
+ * subClassOf, subPropertyOf (ambos transitivos), domain e range.
+ *
+ * As hierarquias de classes e propriedades são fechadas uma vez; depois cada tripla do grafo é
+ * visitada uma única vez, e tudo o que ela implica é emitido direto com os fechamentos já
+ * calculados. As inferências vão para o próprio grafo em memória (indexado), que passa a ser
+ * consultado diretamente, sem o estado interno do motor de regras do {@code InfModel}.
+ *
+ * O resultado é o fechamento do {@code InfModel} RDFS do Jena menos as triplas axiomáticas, que
+ * nenhuma consulta usa: {@code ?x rdf:type rdfs:Resource}, {@code ?c rdfs:subClassOf rdfs:Resource}
+ * e os {@code rdfs:subClassOf}/{@code rdfs:subPropertyOf} reflexivos.
+ */
+final class MaterializadorRdfs {
+
+    private static final Node TYPE = RDF.type.asNode();
+    private static final Node SUB_CLASS_OF = RDFS.subClassOf.asNode();
+    private static final Node SUB_PROPERTY_OF = RDFS.subPropertyOf.asNode();
+    private static final Node DOMAIN = RDFS.domain.asNode();
+    private static final Node RANGE = RDFS.range.asNode();
+
+    private final Map<Node, Set<Node>> superClasses;
+    private final Map<Node, Set<Node>> superPropriedades;
+    private final Map<Node, Set<Node>> dominios = new HashMap<>();
+    private final Map<Node, Set<Node>> imagens = new HashMap<>();
+
+    private MaterializadorRdfs(Graph base) {
+        this.superClasses = fechamentoTransitivo(base, SUB_CLASS_OF);
+        this.superPropriedades = fechamentoTransitivo(base, SUB_PROPERTY_OF);
+        indexar(base, DOMAIN, dominios);
+        indexar(base, RANGE, imagens);
+    }
+
+    static MaterializadorRdfs doEsquema(Graph esquema) {
+        return new MaterializadorRdfs(esquema);
+    }
+
+    /**
+     * Acrescenta a {@code grafo} todas as triplas que ele implica segundo as regras acima.
+     *
+     * @return quantas triplas novas foram adicionadas.
+     */
+    int materializar(Graph grafo) {
+        // Conjunto, e não lista: o mesmo rdf:type sai de muitas triplas (domain/range repetidos).
+        Set<Triple> inferidas = new HashSet<>();
+        superClasses.forEach((classe, supers) -> supers.forEach(s -> inferidas.add(Triple.create(classe, SUB_CLASS_OF, s))));
+        superPropriedades.forEach((prop, supers) -> supers.forEach(s -> inferidas.add(Triple.create(prop, SUB_PROPERTY_OF, s))));
+
+        ExtendedIterator<Triple> it = grafo.find();
+        try {
+            while (it.hasNext()) {
+                inferir(it.next(), inferidas);
+            }
+        } finally {
+            it.close();
+        }
+        int antes = grafo.size();
+        GraphUtil.add(grafo, inferidas.iterator());
+        return grafo.size() - antes;
+    }
+
+    private void inferir(Triple t, Set<Triple> inferidas) {
+        Node s = t.getSubject(), p = t.getPredicate(), o = t.getObject();
+        for (Node q : comSuperiores(p, superPropriedades)) {
+            if (!q.equals(p)) inferidas.add(Triple.create(s, q, o));
+            if (q.equals(TYPE)) {
+                tipar(inferidas, s, o);
+            }
+            for (Node classe : dominios.getOrDefault(q, Set.of())) {
+                tipar(inferidas, s, classe);
+            }
+            if (!o.isLiteral()) {
+                for (Node classe : imagens.getOrDefault(q, Set.of())) {
+                    tipar(inferidas, o, classe);
+                }
+            }
+        }
+    }
+
+    /** {@code recurso rdf:type classe} e o mesmo para todas as superclasses de {@code classe}. */
+    private void tipar(Set<Triple> inferidas, Node recurso, Node classe) {
+        inferidas.add(Triple.create(recurso, TYPE, classe));
+        for (Node superClasse : superClasses.getOrDefault(classe, Set.of())) {
+            inferidas.add(Triple.create(recurso, TYPE, superClasse));
+        }
+    }
+
+    private static Iterable<Node> comSuperiores(Node no, Map<Node, Set<Node>> fechamento) {
+        Set<Node> superiores = fechamento.get(no);
+        if (superiores == null) return List.of(no);
+        List<Node> todos = new ArrayList<>(superiores.size() + 1);
+        todos.add(no);
+        todos.addAll(superiores);
+        return todos;
+    }
+
+    private static void indexar(Graph base, Node predicado, Map<Node, Set<Node>> destino) {
+        base.find(Node.ANY, predicado, Node.ANY)
+                .forEachRemaining(t -> destino.computeIfAbsent(t.getSubject(), k -> new LinkedHashSet<>()).add(t.getObject()));
+    }
+
+    /** Para cada nó, o conjunto de todos os nós alcançáveis por {@code predicado} (sem ele mesmo). */
+    private static Map<Node, Set<Node>> fechamentoTransitivo(Graph base, Node predicado) {
+        Map<Node, Set<Node>> diretos = new HashMap<>();
+        indexar(base, predicado, diretos);
+        Map<Node, Set<Node>> fechamento = new HashMap<>();
+        for (Node inicio : diretos.keySet()) {
+            Set<Node> alcancados = new LinkedHashSet<>();
+            Deque<Node> pendentes = new ArrayDeque<>(diretos.get(inicio));
+            while (!pendentes.isEmpty()) {
+                Node n = pendentes.pop();
+                if (alcancados.add(n)) {
+                    pendentes.addAll(diretos.getOrDefault(n, Set.of()));
+                }
+            }
+            alcancados.remove(inicio);
+            fechamento.put(inicio, alcancados);
+        }
+        return fechamento;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.Programa_heber.ontology;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.jena.query.Query;
+import org.apache.jena.rdf.model.InfModel;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.reasoner.rulesys.BasicForwardRuleInfGraph;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.optimize.Optimize;
+import org.apache.jena.sparql.algebra.optimize.Rewrite;
+import org.apache.jena.sparql.algebra.optimize.RewriteFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentação das consultas SPARQL do {@link Ontology}: tempo de parse, de otimização e de
+ * execução, linhas produzidas e, no modo "reasoner", regras disparadas pelo InfModel, em métricas
+ * do Micrometer com a tag {@code template}.
+ *
+ * O plano é a álgebra que o próprio ARQ executou: o otimizador padrão é embrulhado e registrado no
+ * contexto da execução, então não há uma segunda compilação só para medir. Consultas acima de
+ * {@code ontologia.consulta.lenta-ms} vão para o logger {@value #LOGGER_LENTAS} com o plano.
+ */
+final class MetricasConsultas {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricasConsultas.class);
+
+    /** Logger próprio, para que o log de consultas lentas possa ir para outro arquivo ou nível. */
+    static final String LOGGER_LENTAS = "sparql.consultas-lentas";
+    private static final Logger lentas = LoggerFactory.getLogger(LOGGER_LENTAS);
+
+    /**
+     * Tag das consultas que não vieram de um template: SPARQL escrito ou alterado pelo cliente, ou
+     * com um id de template que o registro não conhece. O id nunca vem direto da requisição, para
+     * que o número de medidores fique limitado ao de templates.
+     */
+    static final String SEM_TEMPLATE = "livre";
+
+    private final MeterRegistry registro;
+    private final long limiteLentaNanos;
+
+    MetricasConsultas(MeterRegistry registro, long limiteLentaMs) {
+        this.registro = registro;
+        this.limiteLentaNanos = limiteLentaMs > 0 ? TimeUnit.MILLISECONDS.toNanos(limiteLentaMs) : Long.MAX_VALUE;
+    }
+
+    private Timer timer(String nome, String descricao, String template, String... tags) {
+        return Timer.builder(nome)
+                .description(descricao)
+                .tag("template", template)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registro);
+    }
+
+    void registrarParse(String template, long nanos) {
+        timer("sparql.consulta.parse", "Parse do texto SPARQL", template).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    Medicao iniciar(String template, Query query, Model consulta) {
+        return new Medicao(template == null ? SEM_TEMPLATE : template, query, consulta);
+    }
+
+    /** Medição de uma execução; o {@link #otimizador()} vai no contexto dela. */
+    final class Medicao {
+        private final String template;
+        private final Query query;
+        private final BasicForwardRuleInfGraph regras;
+        private final long regrasAntes;
+        private final long inicio = System.nanoTime();
+        private long otimizacaoNanos;
+        private Op plano;
+
+        private Medicao(String template, Query query, Model consulta) {
+            this.template = template;
+            this.query = query;
+            // Só o InfModel RDFS do modo "reasoner" tem motor de regras; na ontologia materializada não há o que contar.
+            this.regras = consulta instanceof InfModel inf && inf.getGraph() instanceof BasicForwardRuleInfGraph g ? g : null;
+            this.regrasAntes = regras == null ? 0 : regras.getNRulesFired();
+        }
+
+        /** Otimizador padrão do ARQ, medindo o tempo gasto e guardando a álgebra resultante. */
+        RewriteFactory otimizador() {
+            RewriteFactory padrao = Optimize.getFactory();
+            return contexto -> {
+                Rewrite rewrite = padrao.create(contexto);
+                return op -> {
+                    long t = System.nanoTime();
+                    Op otimizado = rewrite.rewrite(op);
+                    otimizacaoNanos += System.nanoTime() - t;
+                    plano = otimizado;
+                    return otimizado;
+                };
+            };
+        }
+
+        /** @param resultado "ok", "erro" ou "timeout" (tag da métrica de execução). */
+        void fim(String resultado, long linhas) {
+            long totalNanos = System.nanoTime() - inicio;
+            long execucaoNanos = totalNanos - otimizacaoNanos;
+            long disparadas = regras == null ? -1 : regras.getNRulesFired() - regrasAntes;
+
+            timer("sparql.consulta.otimizacao", "Otimização da álgebra pelo ARQ", template)
+                    .record(otimizacaoNanos, TimeUnit.NANOSECONDS);
+            timer("sparql.consulta.execucao", "Execução da consulta, sem a otimização", template, "resultado", resultado)
+                    .record(execucaoNanos, TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("sparql.consulta.linhas")
+                    .description("Linhas produzidas pela consulta")
+                    .tag("template", template)
+                    .register(registro)
+                    .record(linhas);
+            if (disparadas > 0) {
+                Counter.builder("sparql.consulta.regras.disparadas")
+                        .description("Regras do reasoner RDFS disparadas durante a consulta")
+                        .tag("template", template)
+                        .register(registro)
+                        .increment(disparadas);
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Consulta [{}] {}: otimização {} µs, execução {} µs, {} linhas{}.", template, resultado,
+                        TimeUnit.NANOSECONDS.toMicros(otimizacaoNanos), TimeUnit.NANOSECONDS.toMicros(execucaoNanos), linhas,
+                        disparadas < 0 ? "" : ", " + disparadas + " regras disparadas");
+            }
+            if (totalNanos >= limiteLentaNanos) {
+                Counter.builder("sparql.consulta.lentas")
+                        .description("Consultas acima de ontologia.consulta.lenta-ms")
+                        .tag("template", template)
+                        .register(registro)
+                        .increment();
+                lentas.warn("Consulta lenta [{}] {} em {} ms (otimização {} ms, execução {} ms), {} linhas{}.\nConsulta:\n{}Plano:\n{}",
+                        template, resultado, TimeUnit.NANOSECONDS.toMillis(totalNanos),
+                        TimeUnit.NANOSECONDS.toMillis(otimizacaoNanos), TimeUnit.NANOSECONDS.toMillis(execucaoNanos), linhas,
+                        disparadas < 0 ? "" : ", " + disparadas + " regras disparadas",
+                        query, plano == null ? "(não otimizado)\n" : plano);
+            }
+        }
+    }
+}
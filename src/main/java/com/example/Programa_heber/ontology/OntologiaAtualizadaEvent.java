@@ -0,0 +1,7 @@
+package com.example.Programa_heber.ontology;
+
+/**
+ * Publicado sempre que uma nova versão do grafo passa a responder às consultas (carga inicial ou
+ * ingestão de pregão). Quem guarda algo derivado do grafo deve descartar o que tem.
+ */
+public record OntologiaAtualizadaEvent(long versao) {}
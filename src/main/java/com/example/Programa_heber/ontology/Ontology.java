@@ -1,29 +1,53 @@
 package com.example.Programa_heber.ontology;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.reasoner.Reasoner;
 import org.apache.jena.reasoner.ReasonerRegistry;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.ARQConstants;
+import org.apache.jena.sparql.graph.GraphFactory;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.Normalizer;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import org.apache.jena.vocabulary.RDF;
@@ -34,214 +58,988 @@ import org.apache.jena.vocabulary.RDFS;
 public class Ontology {
 
     private static final Logger logger = LoggerFactory.getLogger(Ontology.class);
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     
-    private static final String ONT_PREFIX = "https://dcm.ffclrp.usp.br/lssb/stock-market-ontology#";
+    public static final String ONT_PREFIX = "https://dcm.ffclrp.usp.br/lssb/stock-market-ontology#";
     private static final String[] PREGAO_FILES = { "Datasets/dados_novos_anterior.xlsx", "Datasets/dados_novos_atual.xlsx" };
     private static final String INFO_EMPRESAS_FILE = "Templates/Informacoes_Empresas.xlsx";
     private static final String ONTOLOGY_FILE = "ontologiaB3.ttl";
-    private static final String INFERENCE_OUTPUT_FILE = "ontologiaB3_com_inferencia.ttl";
+    private static final Pattern TICKER = Pattern.compile("^[A-Z]{4}\\d{1,2}$");
+    private static final Pattern SEPARADOR_TICKERS = Pattern.compile("[,;\\s]+");
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+    private static final Pattern NAO_ALFANUMERICO = Pattern.compile("[^a-z0-9\\s-]");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final int TAMANHO_LOTE = 10_000;
+    private static final String PREFIXO_NEGOCIADO = ONT_PREFIX + "Negociado_";
 
-    private Model baseModel;
-    private InfModel infModel;
+    /** Métricas de cada negociação gravadas como triplas: abertura, fechamento e as derivadas. */
+    private static final List<SeriesPrecos.Coluna> COLUNAS_EM_TRIPLAS = Arrays.stream(SeriesPrecos.Coluna.values())
+            .filter(c -> c == SeriesPrecos.Coluna.ABERTURA || c == SeriesPrecos.Coluna.FECHAMENTO || c.derivada())
+            .toList();
+
+    private static final String MODO_REASONER = "reasoner";
+    private static final String ARMAZENAMENTO_TDB2 = "tdb2";
+
+    /**
+     * "materializada" (padrão): as inferências RDFS são calculadas uma vez e gravadas no próprio grafo.
+     * "reasoner": consulta através do InfModel RDFS do Jena, mantido para comparação.
+     */
+    @Value("${ontologia.inferencia:materializada}")
+    private String modoInferencia;
+
+    /** Diretório dos snapshots binários do grafo; vazio desativa o modo snapshot. */
+    @Value("${ontologia.snapshot.dir:}")
+    private String snapshotDir;
+
+    /** Tempo máximo de execução de uma consulta SPARQL; 0 desativa o limite. */
+    @Value("${ontologia.consulta.timeout-segundos:30}")
+    private long timeoutConsultaSegundos;
+
+    /**
+     * Timeouts da resposta de uma pergunta ({@link #executeQuery(Query, String, String)}) por
+     * template, como "Template_1A=5,Template_7A=5"; os ausentes, lotes e páginas usam o padrão.
+     */
+    @Value("${ontologia.consulta.timeout-por-template:}")
+    private String timeoutPorTemplate;
+
+    /** Valores lidos do resultado de uma pergunta; o restante é descartado (0 desativa o limite). */
+    @Value("${ontologia.consulta.linhas-maximas:10000}")
+    private long linhasMaximas;
+
+    /** Limite de valores por template, no mesmo formato de {@code timeout-por-template}. */
+    @Value("${ontologia.consulta.linhas-por-template:}")
+    private String linhasPorTemplate;
+
+    private Map<String, Long> timeoutsTemplate;
+    private Map<String, Long> linhasTemplate;
+
+    /** Threads que leem as fontes em paralelo, na carga e na ingestão de vários arquivos; 0 = uma por núcleo. */
+    @Value("${ontologia.carga.threads:0}")
+    private int threadsCarga;
+
+    /**
+     * "compacto" (padrão, {@link ArmazenamentoCompacto}), "memoria" ({@link ArmazenamentoMemoria}) ou
+     * "tdb2" ({@link ArmazenamentoTdb2}, em {@code ontologia.tdb2.dir}). O modo "reasoner" sempre
+     * usa o GraphMem.
+     */
+    @Value("${ontologia.grafo.armazenamento:compacto}")
+    private String armazenamentoGrafo;
+
+    /** Diretório para mapear os índices do grafo compacto em arquivo; vazio = memória direta. */
+    @Value("${ontologia.grafo.mapeado-dir:}")
+    private String diretorioMapeado;
+
+    /** Diretório do dataset TDB2 do armazenamento "tdb2" e das séries de preços gravadas com ele. */
+    @Value("${ontologia.tdb2.dir:dados/tdb2}")
+    private String diretorioTdb2;
+
+    /** Consultas que passam deste tempo vão para o log de consultas lentas, com o plano (0 desliga). */
+    @Value("${ontologia.consulta.lenta-ms:1000}")
+    private long limiteConsultaLentaMs;
+
+    /**
+     * Versão publicada do grafo. Depois de publicada nunca é alterada: uma ingestão constrói outra
+     * versão e troca a referência, e as consultas leem a versão corrente sem nenhum lock.
+     *
+     * @param base     grafo com as triplas (já materializadas, no modo padrão), usado como ponto de partida da próxima versão.
+     * @param consulta modelo consultado pelo executeQuery: visão somente leitura de {@code base} ou, no modo "reasoner", o InfModel RDFS.
+     * @param series   as mesmas cotações em colunas, consultadas pelas funções {@code b3fn:} ({@link FuncoesSeries}).
+     * @param rankings índices ordenados das métricas de {@code series} por pregão e por setor.
+     * @param rotulos  empresas, setores e códigos pelo rótulo normalizado, para o {@code b3fn:rotulo}.
+     * @param dataset  no armazenamento "tdb2", o dataset em disco consultado (em transação de leitura);
+     *                 {@code base} fica só com esquema e empresas, para a ingestão. Nos outros modos, {@code null}.
+     */
+    private record VersaoGrafo(long numero, Model base, Model consulta, boolean reasoner, SeriesPrecos series,
+                               RankingsPregao rankings, IndiceRotulos rotulos, Dataset dataset) {}
+
+    private final AtomicReference<VersaoGrafo> publicada = new AtomicReference<>();
+
+    /**
+     * No TDB2 as triplas não estão na {@link VersaoGrafo}, e sim no dataset compartilhado. A escrita
+     * cobre o commit da ingestão e a troca de {@link #publicada}; a leitura cobre a leitura da versão
+     * e o início da transação de leitura, para que uma consulta nunca junte as triplas novas com as
+     * séries, rankings e rótulos da versão anterior (ou o contrário).
+     */
+    private final ReentrantReadWriteLock trocaVersao = new ReentrantReadWriteLock();
+
+    private ArmazenamentoGrafo armazenamento;
+
+    @Autowired(required = false)
+    private ApplicationEventPublisher eventos;
+
+    /** Registro do actuator; sem ele (contextos mínimos, como os benchmarks), o registro global do Micrometer. */
+    @Autowired(required = false)
+    private MeterRegistry registroMetricas;
+
+    private MetricasConsultas metricas;
+
+    /** Fechamentos do esquema, reaproveitados para materializar só o delta de cada ingestão. */
+    private volatile MaterializadorRdfs materializador;
+
+    /** Resultado de uma ingestão incremental de pregão. */
+    public record ResultadoIngestao(String arquivo, int linhas, long triplasNovas, long totalTriplas, long duracaoMs) {}
 
     @PostConstruct
-    public void init() {
+    public synchronized void init() {
         logger.info(">>> INICIANDO Inicialização da Ontologia (@PostConstruct)...");
-        lock.writeLock().lock();
+        long inicio = System.nanoTime();
+        FuncoesSeries.registrar();
+        metricas = new MetricasConsultas(registroMetricas != null ? registroMetricas : Metrics.globalRegistry, limiteConsultaLentaMs);
+        timeoutsTemplate = limitesPorTemplate(timeoutPorTemplate, "ontologia.consulta.timeout-por-template");
+        linhasTemplate = limitesPorTemplate(linhasPorTemplate, "ontologia.consulta.linhas-por-template");
         try {
-            baseModel = ModelFactory.createDefaultModel();
+            Model baseModel = ModelFactory.createDefaultModel();
             baseModel.setNsPrefix("b3", ONT_PREFIX);
             baseModel.setNsPrefix("rdfs", RDFS.getURI());
             baseModel.setNsPrefix("rdf", RDF.getURI());
             baseModel.setNsPrefix("xsd", XSDDatatype.XSD + "#");
 
-            loadRdfData(ONTOLOGY_FILE, Lang.TURTLE, "Esquema base da Ontologia");
-            loadInformacoesEmpresas(INFO_EMPRESAS_FILE);
-            
-            for (String filePath : PREGAO_FILES) {
-                loadDadosPregaoExcel(filePath);
+            boolean modoReasoner = MODO_REASONER.equalsIgnoreCase(modoInferencia);
+            if (ARMAZENAMENTO_TDB2.equalsIgnoreCase(armazenamentoGrafo)) {
+                if (!modoReasoner) {
+                    iniciarTdb2(baseModel, inicio);
+                    return;
+                }
+                logger.warn("! Armazenamento tdb2 ignorado no modo reasoner; o grafo fica em memória.");
+            }
+            armazenamento = !modoReasoner && "compacto".equalsIgnoreCase(armazenamentoGrafo)
+                    ? new ArmazenamentoCompacto(diretorioMapeado.isBlank() ? null : Paths.get(diretorioMapeado))
+                    : new ArmazenamentoMemoria();
+
+            SnapshotStore snapshots = criarSnapshotStore();
+            Optional<SeriesPrecos> seriesSalva = snapshots == null ? Optional.empty() : snapshots.carregarSeries();
+            if (seriesSalva.isPresent() && snapshots.carregar(baseModel).isPresent()) {
+                materializador = MaterializadorRdfs.doEsquema(baseModel.getGraph());
+                publicar(baseModel, null, seriesSalva.get());
+                logger.info("<<< ONTOLOGIA CARREGADA DO SNAPSHOT em {} ms ({} triplas materializadas) >>>",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), baseModel.size());
+                return;
             }
 
+            // Cada fonte é lida em paralelo no seu próprio grafo, e os grafos são juntados na base na
+            // ordem das fontes. Esquema e empresas vêm primeiro porque os pregões só aceitam tickers
+            // que já estão na base; a partir daí a base só é lida até a junção dos pregões.
+            SeriesPrecos.Construtor construtorSeries = new SeriesPrecos.Construtor();
+            ExecutorService leitores = criarLeitores(Math.max(2, PREGAO_FILES.length));
+            try {
+                carregarEsquemaEmpresas(leitores, baseModel);
+
+                List<FontePregao> fontes = Arrays.stream(PREGAO_FILES).map(FontePregao::doClasspath).toList();
+                for (ArquivoLido lido : lerPregoes(leitores, fontes, baseModel.getGraph(), null)) {
+                    GraphUtil.addInto(baseModel.getGraph(), lido.grafo());
+                    construtorSeries.adicionar(lido.series());
+                }
+            } finally {
+                leitores.shutdownNow();
+            }
+            SeriesPrecos series = construtorSeries.construir();
+            logger.info("--- Séries de preços em colunas: {} tickers x {} pregões, {} KB fora do heap ---",
+                    series.quantidadeTickers(), series.quantidadeDatas(), series.tamanhoBytes() / 1024);
+
             logger.info("Total de triplas no modelo base antes da inferência: {}", baseModel.size());
             
-            logger.info("--- Configurando Reasoner e criando modelo de inferência ---");
-            Reasoner reasoner = ReasonerRegistry.getRDFSReasoner();
-            infModel = ModelFactory.createInfModel(reasoner, baseModel);
-            logger.info("--- Modelo de inferência criado. Total de triplas (base + inferidas): {} ---", infModel.size());
-
-            // =========================================================================
-            // CORREÇÃO: A linha abaixo foi comentada para evitar OutOfMemoryError no Render.
-            // A aplicação funcionará com o modelo em memória (infModel).
-            // saveInferredModel(); 
-            // =========================================================================
-            
-            logger.info("<<< ONTOLOGIA INICIALIZADA COM SUCESSO >>>");
+            Model queryModel;
+            InfModel inferencia = null;
+            if (modoReasoner) {
+                logger.info("--- Configurando Reasoner e criando modelo de inferência ---");
+                Reasoner reasoner = ReasonerRegistry.getRDFSReasoner();
+                inferencia = ModelFactory.createInfModel(reasoner, baseModel);
+                queryModel = inferencia;
+                logger.info("--- Modelo de inferência criado. Total de triplas (base + inferidas): {} ---", queryModel.size());
+            } else {
+                long inicioMaterializacao = System.nanoTime();
+                materializador = MaterializadorRdfs.doEsquema(baseModel.getGraph());
+                int inferidas = materializador.materializar(baseModel.getGraph());
+                queryModel = baseModel;
+                logger.info("--- Inferências RDFS materializadas em {} ms: {} triplas novas, {} no total ---",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioMaterializacao), inferidas, queryModel.size());
+            }
+
+            // O snapshot em RDF Thrift é escrito em streaming, ao contrário do antigo dump em Turtle
+            // (que estourava a memória no Render).
+            if (snapshots != null) {
+                snapshots.salvarSeries(series);
+                snapshots.salvar(queryModel.getGraph());
+            }
+            publicar(baseModel, inferencia, series);
+
+            logger.info("<<< ONTOLOGIA CONSTRUÍDA A PARTIR DAS FONTES em {} ms >>>",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
 
         } catch (Exception e) {
             logger.error("!!!!!!!! FALHA GRAVE NA INICIALIZAÇÃO DA ONTOLOGY !!!!!!!!", e);
-            baseModel = null; infModel = null;
+            publicada.set(null);
+            materializador = null;
+        }
+    }
+
+    /** Esquema e empresas, lidos em paralelo e juntados em {@code base} nessa ordem. */
+    private void carregarEsquemaEmpresas(ExecutorService leitores, Model base) throws IOException {
+        Future<Model> esquema = leitores.submit(() -> loadRdfData(ONTOLOGY_FILE, Lang.TURTLE, "Esquema base da Ontologia"));
+        Future<Graph> empresas = leitores.submit(() -> loadInformacoesEmpresas(INFO_EMPRESAS_FILE));
+        Model esquemaModel = aguardar(esquema);
+        base.setNsPrefixes(esquemaModel.getNsPrefixMap());
+        GraphUtil.addInto(base.getGraph(), esquemaModel.getGraph());
+        GraphUtil.addInto(base.getGraph(), aguardar(empresas));
+    }
+
+    /**
+     * Carga do armazenamento "tdb2". Esquema e empresas ficam também em memória, em
+     * {@code referencia}, que é a base das versões publicadas. Se o {@link ArmazenamentoTdb2} não
+     * puder reaproveitar o dataset, ele é recarregado com as inferências de cada pregão
+     * materializadas como na ingestão.
+     */
+    private void iniciarTdb2(Model referencia, long inicio) throws IOException {
+        ArmazenamentoTdb2 tdb2 = new ArmazenamentoTdb2(Paths.get(diretorioTdb2), fontesCarga());
+        armazenamento = tdb2;
+        Optional<SeriesPrecos> seriesSalva = tdb2.abrir(referencia);
+
+        SeriesPrecos series;
+        if (seriesSalva.isPresent()) {
+            materializador = MaterializadorRdfs.doEsquema(referencia.getGraph());
+            series = seriesSalva.get();
+        } else {
+            ExecutorService leitores = criarLeitores(Math.max(2, PREGAO_FILES.length));
+            try {
+                carregarEsquemaEmpresas(leitores, referencia);
+                materializador = MaterializadorRdfs.doEsquema(referencia.getGraph());
+                materializador.materializar(referencia.getGraph());
+
+                List<FontePregao> fontes = Arrays.stream(PREGAO_FILES).map(FontePregao::doClasspath).toList();
+                List<ArquivoLido> lidos = lerPregoes(leitores, fontes, referencia.getGraph(), materializador);
+                SeriesPrecos.Construtor construtor = new SeriesPrecos.Construtor();
+                lidos.forEach(lido -> construtor.adicionar(lido.series()));
+                series = construtor.construir();
+                tdb2.gravar(referencia, lidos.stream().map(ArquivoLido::grafo).toList(), series);
+            } finally {
+                leitores.shutdownNow();
+            }
+        }
+        publicar(referencia, null, series);
+        logger.info("<<< ONTOLOGIA EM TDB2 PRONTA em {} ms >>>", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+    }
+
+    /** Libera o armazenamento (no "tdb2", o dataset e o lock do diretório) quando o contexto é encerrado. */
+    @PreDestroy
+    public void encerrar() {
+        if (armazenamento != null) {
+            armazenamento.encerrar();
+        }
+    }
+
+    /**
+     * Publica uma nova versão. A partir daqui {@code base} não pode mais ser alterado: o
+     * {@link ArmazenamentoGrafo} guarda a base (ou uma cópia dela) e dá o modelo que as consultas
+     * leem, exceto no modo "reasoner", em que elas passam por {@code inferencia}. Os rankings por
+     * pregão e setor e o índice de rótulos são calculados aqui, antes da troca, junto com a versão
+     * que descrevem. Os deltas pendentes no armazenamento (TDB2) são confirmados na mesma seção de
+     * {@link #trocaVersao} em que a versão é trocada.
+     */
+    private void publicar(Model base, InfModel inferencia, SeriesPrecos series) throws IOException {
+        VersaoGrafo anterior = publicada.get();
+        long numero = anterior == null ? 1 : anterior.numero() + 1;
+        base = armazenamento.guardar(base, numero);
+        Model consulta = inferencia != null ? inferencia : armazenamento.consulta(base);
+        long inicioRankings = System.nanoTime();
+        RankingsPregao rankings = new RankingsPregao(series, setoresPorTicker(base));
+        IndiceRotulos rotulos = IndiceRotulos.doGrafo(base.getGraph());
+        logger.info("--- Rankings por pregão e setor e índice de {} rótulos da versão {} calculados em {} ms ---",
+                rotulos.quantidadeChaves(), numero, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioRankings));
+        VersaoGrafo nova = new VersaoGrafo(numero, base, consulta, inferencia != null, series, rankings, rotulos, armazenamento.dataset());
+        trocaVersao.writeLock().lock();
+        try {
+            armazenamento.confirmar();
+            publicada.set(nova);
         } finally {
-            lock.writeLock().unlock();
+            trocaVersao.writeLock().unlock();
+        }
+        if (eventos != null) {
+            eventos.publishEvent(new OntologiaAtualizadaEvent(numero));
         }
     }
 
-    private void loadInformacoesEmpresas(String resourcePath) throws IOException {
+    /** Rótulos dos setores de cada ticker, pelo mesmo caminho que o Template_3A percorre. */
+    private static Map<String, Set<String>> setoresPorTicker(Model base) {
+        Query query = QueryFactory.create("PREFIX rdfs: <" + RDFS.getURI() + "> PREFIX b3: <" + ONT_PREFIX + "> "
+                + "SELECT ?ticker ?setor WHERE { ?empresa b3:atuaEm ?s . ?s rdfs:label ?setor . "
+                + "?empresa b3:temValorMobiliarioNegociado ?vm . ?vm b3:representadoPor ?codigo . ?codigo b3:ticker ?ticker }");
+        Map<String, Set<String>> setores = new HashMap<>();
+        try (QueryExecution qexec = QueryExecution.model(base).query(query).build()) {
+            qexec.execSelect().forEachRemaining(s -> setores
+                    .computeIfAbsent(texto(s.get("ticker")), t -> new HashSet<>())
+                    .add(texto(s.get("setor"))));
+        }
+        return setores;
+    }
+
+    /** Número da versão publicada do grafo (0 se a ontologia não foi carregada); muda a cada ingestão. */
+    public long getVersao() {
+        VersaoGrafo versao = publicada.get();
+        return versao == null ? 0 : versao.numero();
+    }
+
+    private Graph loadInformacoesEmpresas(String resourcePath) throws IOException {
         logger.info(">> Carregando Informações de Empresas de: {}", resourcePath);
-        int rowsProcessed = 0;
-        
         var resourceFile = new ClassPathResource(resourcePath);
         if (!resourceFile.exists()) throw new FileNotFoundException("Arquivo de empresas não encontrado: " + resourcePath);
 
-        try (InputStream excelFile = resourceFile.getInputStream(); Workbook workbook = new XSSFWorkbook(excelFile)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0) continue; 
-                String nomeEmpresa = getStringCellValue(row.getCell(0));
-                String tickersStr = getStringCellValue(row.getCell(1));
-                String setor = getStringCellValue(row.getCell(5));
-                if (nomeEmpresa == null || nomeEmpresa.isBlank() || tickersStr == null || tickersStr.isBlank()) continue;
-                
-                Resource empresaResource = baseModel.createResource(ONT_PREFIX + "Empresa_" + normalizarTextoJava(nomeEmpresa));
-                add(empresaResource, RDFS.label, baseModel.createLiteral(nomeEmpresa.trim(), "pt"));
-                add(empresaResource, RDF.type, getResource("Empresa_Capital_Aberto"));
-
-                if (setor != null && !setor.isBlank()) {
-                    Resource setorResource = baseModel.createResource(ONT_PREFIX + "Setor_" + normalizarTextoJava(setor));
-                    add(setorResource, RDFS.label, baseModel.createLiteral(setor.trim(), "pt"));
-                    add(setorResource, RDF.type, getResource("Setor_Atuacao"));
-                    add(empresaResource, getProperty("atuaEm"), setorResource);
+        Graph destino = GraphFactory.createDefaultGraph();
+        LoteTriplas lote = new LoteTriplas(destino);
+        int[] rowsProcessed = {0};
+        MedicaoCarga medicao = MedicaoCarga.iniciar();
+        try (InputStream in = resourceFile.getInputStream()) {
+            PlanilhaReader.ler(in, resourcePath, (numero, celulas) -> {
+                if (numero == 0) return;
+                String nomeEmpresa = celula(celulas, 0);
+                String tickersStr = celula(celulas, 1);
+                String setor = celula(celulas, 5);
+                if (nomeEmpresa == null || tickersStr == null) return;
+
+                Node empresa = VocabularioB3.no("Empresa_" + normalizarTextoJava(nomeEmpresa));
+                lote.add(empresa, VocabularioB3.LABEL, NodeFactory.createLiteral(nomeEmpresa, "pt"));
+                lote.add(empresa, VocabularioB3.TYPE, VocabularioB3.EMPRESA_CAPITAL_ABERTO);
+
+                if (setor != null) {
+                    Node setorNo = VocabularioB3.no("Setor_" + normalizarTextoJava(setor));
+                    lote.add(setorNo, VocabularioB3.LABEL, NodeFactory.createLiteral(setor, "pt"));
+                    lote.add(setorNo, VocabularioB3.TYPE, VocabularioB3.SETOR_ATUACAO);
+                    lote.add(empresa, VocabularioB3.ATUA_EM, setorNo);
                 }
 
-                for (String ticker : tickersStr.split("[,;\\s]+")) {
-                    ticker = ticker.trim().toUpperCase();
-                    if (ticker.matches("^[A-Z]{4}\\d{1,2}$")) {
-                        Resource vmResource = baseModel.createResource(ONT_PREFIX + ticker);
-                        Resource codigoResource = baseModel.createResource(ONT_PREFIX + "Codigo_" + ticker);
-                        add(vmResource, RDF.type, getResource("Valor_Mobiliario_Negociado"));
-                        add(codigoResource, getProperty("ticker"), baseModel.createLiteral(ticker));
-                        add(empresaResource, getProperty("temValorMobiliarioNegociado"), vmResource);
-                        add(vmResource, getProperty("representadoPor"), codigoResource);
+                for (String ticker : SEPARADOR_TICKERS.split(tickersStr)) {
+                    ticker = ticker.trim().toUpperCase(Locale.ROOT);
+                    if (TICKER.matcher(ticker).matches()) {
+                        Node vm = VocabularioB3.no(ticker);
+                        Node codigo = VocabularioB3.no("Codigo_" + ticker);
+                        lote.add(vm, VocabularioB3.TYPE, VocabularioB3.VALOR_MOBILIARIO_NEGOCIADO);
+                        lote.add(codigo, VocabularioB3.TICKER, NodeFactory.createLiteral(ticker));
+                        lote.add(empresa, VocabularioB3.TEM_VALOR_MOBILIARIO_NEGOCIADO, vm);
+                        lote.add(vm, VocabularioB3.REPRESENTADO_POR, codigo);
                     }
                 }
-                rowsProcessed++;
+                rowsProcessed[0]++;
+            });
+        }
+        lote.descarregar();
+        logger.info("<< Informações de Empresas carregado. {} linhas processadas.", rowsProcessed[0]);
+        medicao.registrar(resourcePath, rowsProcessed[0]);
+        return destino;
+    }
+
+    /**
+     * Lê cada fonte em uma thread de {@code leitores}, no seu próprio grafo e na sua própria série,
+     * resolvendo os tickers contra {@code referencia} (que ninguém pode alterar enquanto isso). Com
+     * {@code materializador}, as inferências de cada arquivo são calculadas junto, na mesma thread.
+     *
+     * @return os arquivos lidos, na ordem de {@code fontes}; a primeira falha interrompe a leitura.
+     */
+    private List<ArquivoLido> lerPregoes(ExecutorService leitores, List<FontePregao> fontes, Graph referencia,
+                                        MaterializadorRdfs materializador) throws IOException {
+        List<Future<ArquivoLido>> tarefas = new ArrayList<>();
+        for (FontePregao fonte : fontes) {
+            tarefas.add(leitores.submit(() -> lerPregao(fonte, referencia, materializador)));
+        }
+        List<ArquivoLido> lidos = new ArrayList<>();
+        try {
+            for (Future<ArquivoLido> tarefa : tarefas) lidos.add(aguardar(tarefa));
+        } finally {
+            tarefas.forEach(t -> t.cancel(true));
+        }
+        return lidos;
+    }
+
+    private ArquivoLido lerPregao(FontePregao fonte, Graph referencia, MaterializadorRdfs materializador) throws IOException {
+        logger.info(">> Carregando Dados de Pregão de: {}", fonte.nome());
+        MedicaoCarga medicao = MedicaoCarga.iniciar();
+        Graph grafo = GraphFactory.createDefaultGraph();
+        SeriesPrecos.Construtor series = new SeriesPrecos.Construtor();
+        int rowsProcessed;
+        try (InputStream in = fonte.abertura().abrir()) {
+            rowsProcessed = lerPregao(in, fonte.nome(), grafo, referencia, series);
+        }
+        if (materializador != null) {
+            materializador.materializar(grafo);
+        }
+        logger.info("<< Pregão {} carregado. {} linhas processadas.", fonte.nome(), rowsProcessed);
+        medicao.registrar(fonte.nome(), rowsProcessed);
+        return new ArquivoLido(fonte.nome(), grafo, series, rowsProcessed);
+    }
+
+    /**
+     * Lê um arquivo de pregão (.xlsx ou .csv no layout da B3) em streaming e adiciona as triplas a
+     * {@code destino} em lotes. Linhas cujo ticker não existe em {@code referencia} são ignoradas.
+     * Todas as métricas da linha (não só as que viram triplas) vão também para {@code series}; as
+     * derivadas ({@link SeriesPrecos.Coluna#derivada()}) são gravadas também como triplas.
+     *
+     * As triplas são montadas direto com {@link Node}s: propriedades e classes vêm de
+     * {@link VocabularioB3}, e os nós de cada ticker e de cada pregão são criados na primeira linha
+     * em que aparecem e reaproveitados no resto do arquivo. Por linha só são criados a URI da
+     * negociação e os literais de valores ainda não vistos, estes a partir dos números já lidos para
+     * a série.
+     *
+     * @return número de linhas aproveitadas.
+     */
+    private int lerPregao(InputStream in, String nomeArquivo, Graph destino, Graph referencia, SeriesPrecos.Construtor series) throws IOException {
+        // ticker -> nó do valor mobiliário (vazio se o ticker é inválido ou não está em referencia)
+        Map<String, Optional<Node>> valoresMobiliarios = new HashMap<>();
+        // texto da célula de data -> pregão (null se a data é inválida)
+        Map<String, DiaPregao> dias = new HashMap<>();
+        // cotações se repetem muito (entre tickers e entre dias): um literal por valor distinto
+        Map<Double, Node> literais = new HashMap<>();
+        StringBuilder uriNegociado = new StringBuilder(PREFIXO_NEGOCIADO);
+
+        LoteTriplas lote = new LoteTriplas(destino);
+        int[] rowsProcessed = {0};
+        PlanilhaReader.ler(in, nomeArquivo, (numero, celulas) -> {
+            if (numero == 0) return;
+            String ticker = celula(celulas, 4); // Coluna E
+            if (ticker == null) return;
+            Optional<Node> vm = valoresMobiliarios.computeIfAbsent(ticker, t -> valorMobiliario(t, referencia));
+            if (vm.isEmpty()) return;
+
+            String textoData = celula(celulas, 2); // Coluna C
+            if (textoData == null) return;
+            DiaPregao pregao = dias.get(textoData);
+            if (pregao == null && !dias.containsKey(textoData)) {
+                pregao = DiaPregao.de(parseData(textoData), lote);
+                dias.put(textoData, pregao);
+            }
+            if (pregao == null) return;
+
+            uriNegociado.setLength(PREFIXO_NEGOCIADO.length());
+            Node negociado = NodeFactory.createURI(uriNegociado.append(ticker).append(pregao.sufixo()).toString());
+            lote.add(vm.get(), VocabularioB3.NEGOCIADO, negociado);
+            lote.add(negociado, VocabularioB3.TYPE, VocabularioB3.NEGOCIADO_EM_PREGAO);
+            lote.add(negociado, VocabularioB3.NEGOCIADO_DURANTE, pregao.no());
+
+            // Abertura e fechamento, como sempre, mais as métricas derivadas (variação e intervalo
+            // intradiários) já calculadas, em vez de expressões avaliadas sobre cada Negociado_* a
+            // cada consulta.
+            double[] valores = SeriesPrecos.valores(celulas);
+            for (SeriesPrecos.Coluna coluna : COLUNAS_EM_TRIPLAS) {
+                double valor = valores[coluna.ordinal()];
+                if (!Double.isNaN(valor)) {
+                    lote.add(negociado, coluna.no(), literais.computeIfAbsent(valor, v -> NodeFactory.createLiteralByValue(v, XSDDatatype.XSDdouble)));
+                }
             }
+            series.adicionar(ticker, pregao.data(), valores);
+            rowsProcessed[0]++;
+        });
+        lote.descarregar();
+        return rowsProcessed[0];
+    }
+
+    private static Optional<Node> valorMobiliario(String ticker, Graph referencia) {
+        if (!TICKER.matcher(ticker).matches()) return Optional.empty();
+        Node vm = VocabularioB3.no(ticker);
+        return GraphUtil.containsNode(referencia, vm) ? Optional.of(vm) : Optional.empty();
+    }
+
+    /** Um pregão já visto no arquivo: a data, o sufixo das URIs {@code Negociado_*} e o nó {@code Pregao_*}. */
+    private record DiaPregao(LocalDate data, String sufixo, Node no) {
+
+        /** Cria o pregão e acrescenta as suas triplas ao lote; {@code null} se a data é inválida. */
+        static DiaPregao de(LocalDate data, LoteTriplas lote) {
+            if (data == null) return null;
+            String dataCompacta = data.format(DateTimeFormatter.BASIC_ISO_DATE);
+            Node no = VocabularioB3.no("Pregao_" + dataCompacta);
+            lote.add(no, VocabularioB3.TYPE, VocabularioB3.PREGAO);
+            lote.add(no, VocabularioB3.OCORRE_EM_DATA, NodeFactory.createLiteral(data.toString(), XSDDatatype.XSDdate));
+            return new DiaPregao(data, "_" + dataCompacta, no);
         }
-        logger.info("<< Informações de Empresas carregado. {} linhas processadas.", rowsProcessed);
     }
-    
-    private void loadDadosPregaoExcel(String resourcePath) throws IOException {
-        logger.info(">> Carregando Dados de Pregão de: {}", resourcePath);
-        int rowsProcessed = 0;
-        var resourceFile = new ClassPathResource(resourcePath);
-        if (!resourceFile.exists()) throw new FileNotFoundException("Arquivo de pregão não encontrado: " + resourcePath);
-        
-        try (InputStream excelFile = resourceFile.getInputStream(); Workbook workbook = new XSSFWorkbook(excelFile)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0) continue;
-                String ticker = getStringCellValue(row.getCell(4)); // Coluna E
-                if (ticker == null || !ticker.matches("^[A-Z]{4}\\d{1,2}$")) continue;
-                
-                Date dataPregao = parseDateFromCell(row.getCell(2)); // Coluna C
-                if (dataPregao == null) continue;
-                String dataFmt = new SimpleDateFormat("yyyy-MM-dd").format(dataPregao);
-
-                Resource vmResource = baseModel.getResource(ONT_PREFIX + ticker);
-                if (!baseModel.containsResource(vmResource)) continue;
-                
-                Resource negociadoResource = baseModel.createResource(ONT_PREFIX + "Negociado_" + ticker + "_" + dataFmt.replace("-", ""));
-                Resource pregaoResource = baseModel.createResource(ONT_PREFIX + "Pregao_" + dataFmt.replace("-", ""), getResource("Pregao"));
-                
-                add(vmResource, getProperty("negociado"), negociadoResource);
-                add(negociadoResource, RDF.type, getResource("Negociado_Em_Pregao"));
-                add(negociadoResource, getProperty("negociadoDurante"), pregaoResource);
-                add(pregaoResource, getProperty("ocorreEmData"), ResourceFactory.createTypedLiteral(dataFmt, XSDDatatype.XSDdate));
-                
-                addNumericPropertyIfValid(negociadoResource, getProperty("precoAbertura"), getNumericCellValue(row.getCell(8)));
-                addNumericPropertyIfValid(negociadoResource, getProperty("precoFechamento"), getNumericCellValue(row.getCell(12)));
-                rowsProcessed++;
-            }
-        }
-        logger.info("<< Pregão {} carregado. {} linhas processadas.", resourcePath, rowsProcessed);
+
+    /**
+     * Acrescenta um arquivo de pregão (tipicamente um dia) ao grafo sem reconstruir a ontologia.
+     *
+     * O delta e as suas inferências são calculados à parte e aplicados sobre uma cópia do grafo
+     * atual; enquanto isso as consultas continuam sendo respondidas pela versão anterior. A nova
+     * versão só é publicada no fim, com a troca de uma única referência.
+     */
+    public synchronized ResultadoIngestao ingerirPregao(InputStream in, String nomeArquivo) throws IOException {
+        return ingerir(List.of(new FontePregao(nomeArquivo, () -> in))).get(0);
+    }
+
+    /**
+     * Como {@link #ingerirPregao}, para vários arquivos de uma vez: cada um é lido (e materializado)
+     * em paralelo no seu próprio delta, e todos entram em uma única cópia do grafo e uma única
+     * versão nova, em vez de uma cópia e uma publicação por arquivo. Se algum arquivo falhar, nada é
+     * publicado.
+     *
+     * @return um resultado por arquivo, na ordem recebida; a duração é a do lote todo.
+     */
+    public synchronized List<ResultadoIngestao> ingerirPregoes(List<Path> arquivos) throws IOException {
+        return ingerir(arquivos.stream()
+                .map(a -> new FontePregao(a.getFileName().toString(), () -> Files.newInputStream(a)))
+                .toList());
+    }
+
+    private List<ResultadoIngestao> ingerir(List<FontePregao> fontes) throws IOException {
+        long inicio = System.nanoTime();
+        VersaoGrafo versao = publicada.get();
+        if (versao == null) {
+            throw new IllegalStateException("Ontologia não inicializada; ingestão de "
+                    + fontes.stream().map(FontePregao::nome).toList() + " recusada.");
+        }
+        Model atual = versao.base();
+
+        List<ArquivoLido> lidos;
+        if (fontes.size() == 1) {
+            lidos = List.of(lerPregao(fontes.get(0), atual.getGraph(), materializador));
+        } else {
+            ExecutorService leitores = criarLeitores(fontes.size());
+            try {
+                lidos = lerPregoes(leitores, fontes, atual.getGraph(), materializador);
+            } finally {
+                leitores.shutdownNow();
+            }
+        }
+
+        SeriesPrecos.Construtor series = new SeriesPrecos.Construtor(versao.series());
+        lidos.forEach(lido -> series.adicionar(lido.series()));
+        long[] triplasNovas = new long[lidos.size()];
+        long[] totais = new long[lidos.size()];
+        Model novo = armazenamento.ingerir(atual, lidos.stream().map(ArquivoLido::grafo).toList(), triplasNovas, totais);
+        try {
+            publicar(novo, versao.reasoner() ? ModelFactory.createInfModel(ReasonerRegistry.getRDFSReasoner(), novo) : null,
+                    series.construir());
+        } catch (IOException | RuntimeException e) {
+            armazenamento.descartar();
+            throw e;
+        }
+        return resultadosIngestao(lidos, triplasNovas, totais, inicio);
+    }
+
+    private List<ResultadoIngestao> resultadosIngestao(List<ArquivoLido> lidos, long[] triplasNovas, long[] totais, long inicio) {
+        long duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        List<ResultadoIngestao> resultados = new ArrayList<>();
+        for (int i = 0; i < lidos.size(); i++) {
+            ArquivoLido lido = lidos.get(i);
+            resultados.add(new ResultadoIngestao(lido.nome(), lido.linhas(), triplasNovas[i], totais[i], duracaoMs));
+            logger.info("✓ Pregão '{}' ingerido: {} linhas, {} triplas novas, {} no total, {} ms.",
+                    lido.nome(), lido.linhas(), triplasNovas[i], totais[i], duracaoMs);
+        }
+        return resultados;
+    }
+
+    /**
+     * Parse do texto SPARQL, com o tempo registrado na métrica {@code sparql.consulta.parse} do
+     * template ({@code null} para SPARQL enviado direto).
+     *
+     * @throws QueryException em erro de sintaxe.
+     */
+    public Query parsear(String sparqlQuery, String templateId) {
+        long inicio = System.nanoTime();
+        Query query = QueryFactory.create(sparqlQuery);
+        metricas.registrarParse(templateId == null ? MetricasConsultas.SEM_TEMPLATE : templateId, System.nanoTime() - inicio);
+        return query;
     }
 
     public List<String> executeQuery(String sparqlQuery, String targetVariable) {
-        lock.readLock().lock();
+        Query query;
+        try {
+            query = parsear(sparqlQuery, null);
+        } catch (Exception e) {
+            logger.error("Erro de sintaxe na query SPARQL: {}", e.getMessage());
+            return null;
+        }
+        return executeQuery(query, targetVariable);
+    }
+
+    public List<String> executeQuery(Query query, String targetVariable) {
+        return executeQuery(query, targetVariable, null);
+    }
+
+    /**
+     * Executa uma query já parseada (por exemplo, um template compilado e preenchido), evitando
+     * um novo parse do texto. {@code templateId} identifica a consulta nas métricas e no log de
+     * consultas lentas e escolhe o timeout e o máximo de valores lidos
+     * ({@code ontologia.consulta.timeout-por-template} e {@code linhas-por-template}). Deve ser o
+     * template que de fato gerou a consulta, nunca o id informado pelo cliente junto com o SPARQL;
+     * com {@code null} valem os limites padrão.
+     */
+    public List<String> executeQuery(Query query, String targetVariable, String templateId) {
+        long timeout = timeoutsTemplate.getOrDefault(templateId, timeoutConsultaSegundos);
+        long maximo = linhasTemplate.getOrDefault(templateId, linhasMaximas);
         try {
-            if (infModel == null) return Collections.emptyList();
-            List<String> results = new ArrayList<>();
-            Query query = QueryFactory.create(sparqlQuery);
-            try (QueryExecution qexec = QueryExecutionFactory.create(query, infModel)) {
-                ResultSet rs = qexec.execSelect();
+            List<String> results = selecionar(query, templateId, timeout, rs -> {
+                List<String> valores = new ArrayList<>();
                 while (rs.hasNext()) {
-                    QuerySolution soln = rs.nextSolution();
-                    RDFNode node = soln.get(targetVariable);
-                    if (node != null) {
-                        results.add(node.isLiteral() ? node.asLiteral().getLexicalForm() : node.asResource().getURI());
+                    if (maximo > 0 && valores.size() >= maximo) {
+                        logger.warn("Resultado de '{}' truncado em {} valores.", templateId == null ? "consulta livre" : templateId, maximo);
+                        break;
                     }
+                    RDFNode node = rs.nextSolution().get(targetVariable);
+                    if (node != null) valores.add(texto(node));
                 }
-            }
+                return valores;
+            }, Collections.emptyList());
             logger.info("Query executada, {} resultados para '{}'.", results.size(), targetVariable);
             return results;
+        } catch (QueryCancelledException e) {
+            logger.warn("Query SPARQL cancelada após {} s sem terminar.", timeout);
+            return null;
+        } catch (Exception e) {
+            logger.error("Erro na execução da query SPARQL: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Executa um SELECT e devolve as soluções completas, com todas as variáveis projetadas.
+     * Como no {@link #executeQuery(Query, String)}, devolve {@code null} em caso de erro ou timeout.
+     * Os termos são copiados durante a leitura: no TDB2 as soluções do Jena só guardam os ids da
+     * tabela de nós e não podem ser lidas depois que a transação de leitura termina.
+     */
+    public List<QuerySolution> executeSelect(Query query) {
+        return executeSelect(query, null);
+    }
+
+    public List<QuerySolution> executeSelect(Query query, String templateId) {
+        try {
+            return selecionar(query, templateId, timeoutConsultaSegundos, rs -> {
+                List<String> variaveis = rs.getResultVars();
+                List<QuerySolution> solucoes = new ArrayList<>();
+                while (rs.hasNext()) {
+                    QuerySolution solucao = rs.next();
+                    QuerySolutionMap copia = new QuerySolutionMap();
+                    for (String variavel : variaveis) {
+                        RDFNode valor = solucao.get(variavel);
+                        if (valor != null) copia.add(variavel, valor);
+                    }
+                    solucoes.add(copia);
+                }
+                return solucoes;
+            }, Collections.emptyList());
+        } catch (QueryCancelledException e) {
+            logger.warn("Query SPARQL cancelada após {} s sem terminar.", timeoutConsultaSegundos);
+            return null;
         } catch (Exception e) {
             logger.error("Erro na execução da query SPARQL: {}", e.getMessage());
             return null;
+        }
+    }
+
+    /** Recebe as linhas de um SELECT à medida que o Jena as produz, sem acumulá-las. */
+    public interface LeitorLinhas {
+
+        /** Chamado antes da primeira linha, com a versão do grafo consultada e as variáveis projetadas. */
+        void inicio(long versao, List<String> variaveis) throws IOException;
+
+        /** @return {@code false} para encerrar a leitura antes do fim. */
+        boolean linha(QuerySolution solucao) throws IOException;
+    }
+
+    /**
+     * Executa um SELECT entregando cada solução ao leitor enquanto o {@link ResultSet} é percorrido,
+     * então a memória usada não depende do tamanho do resultado (exceto por ORDER BY e DISTINCT,
+     * que o Jena precisa materializar). Erros de execução e timeout são propagados.
+     *
+     * @throws IllegalStateException se a ontologia ainda não foi carregada.
+     */
+    public void percorrer(Query query, LeitorLinhas leitor) throws IOException {
+        VersaoGrafo versao = publicada.get();
+        if (versao == null) {
+            throw new IllegalStateException("Ontologia não inicializada.");
+        }
+        if (versao.reasoner()) {
+            synchronized (versao.consulta()) {
+                percorrer(query, versao, leitor);
+            }
+        } else if (versao.dataset() != null && !versao.dataset().isInTransaction()) {
+            Dataset dataset = versao.dataset();
+            VersaoGrafo lida = iniciarLeitura(dataset);
+            try {
+                percorrer(query, lida, leitor);
+            } finally {
+                dataset.end();
+            }
+        } else {
+            percorrer(query, versao, leitor);
+        }
+    }
+
+    private void percorrer(Query query, VersaoGrafo versao, LeitorLinhas leitor) throws IOException {
+        try (QueryExecution qexec = execucao(query, versao, null, timeoutConsultaSegundos)) {
+            ResultSet rs = qexec.execSelect();
+            leitor.inicio(versao.numero(), rs.getResultVars());
+            while (rs.hasNext()) {
+                if (!leitor.linha(rs.next())) break;
+            }
+        }
+    }
+
+    /**
+     * Valor textual devolvido ao usuário: forma léxica dos literais e URI dos recursos. Os
+     * xsd:double saem como {@link Double#toString(double)}, a forma com que são gravados; o TDB2
+     * guarda só o valor e devolveria a forma canônica ("0.09e0").
+     */
+    public static String texto(RDFNode node) {
+        if (!node.isLiteral()) return node.asResource().getURI();
+        Literal literal = node.asLiteral();
+        if (XSDDatatype.XSDdouble.equals(literal.getDatatype()) && literal.getValue() instanceof Double valor) {
+            return Double.toString(valor);
+        }
+        return literal.getLexicalForm();
+    }
+
+    private <T> T selecionar(Query query, String templateId, long timeoutSegundos, Function<ResultSet, T> leitor, T semGrafo) {
+        VersaoGrafo versao = publicada.get();
+        if (versao == null) return semGrafo;
+        if (versao.reasoner()) {
+            // O motor de regras do InfModel guarda estado durante a consulta e não aceita leitores concorrentes.
+            synchronized (versao.consulta()) {
+                return selecionar(query, templateId, timeoutSegundos, versao, leitor);
+            }
+        }
+        if (versao.dataset() != null) {
+            Dataset dataset = versao.dataset();
+            VersaoGrafo lida = iniciarLeitura(dataset);
+            try {
+                return selecionar(query, templateId, timeoutSegundos, lida, leitor);
+            } finally {
+                dataset.end();
+            }
+        }
+        return selecionar(query, templateId, timeoutSegundos, versao, leitor);
+    }
+
+    /** Abre a transação de leitura no dataset e devolve a versão publicada que corresponde a ela. */
+    private VersaoGrafo iniciarLeitura(Dataset dataset) {
+        trocaVersao.readLock().lock();
+        try {
+            dataset.begin(ReadWrite.READ);
+            return publicada.get();
+        } finally {
+            trocaVersao.readLock().unlock();
+        }
+    }
+
+    private <T> T selecionar(Query query, String templateId, long timeoutSegundos, VersaoGrafo versao, Function<ResultSet, T> leitor) {
+        MetricasConsultas.Medicao medicao = metricas.iniciar(templateId, query, versao.consulta());
+        ResultSet rs = null;
+        String resultado = "erro";
+        try (QueryExecution qexec = execucao(query, versao, medicao, timeoutSegundos)) {
+            rs = qexec.execSelect();
+            T lido = leitor.apply(rs);
+            resultado = "ok";
+            return lido;
+        } catch (QueryCancelledException e) {
+            resultado = "timeout";
+            throw e;
         } finally {
-            lock.readLock().unlock();
+            medicao.fim(resultado, rs == null ? 0 : rs.getRowNumber());
         }
     }
 
-    private String normalizarTextoJava(String texto) {
+    /**
+     * @param medicao         recebe o tempo de otimização e o plano da execução; {@code null} para não medir.
+     * @param timeoutSegundos 0 desativa o limite.
+     */
+    private QueryExecution execucao(Query query, VersaoGrafo versao, MetricasConsultas.Medicao medicao, long timeoutSegundos) {
+        // No TDB2 a execução passa pelo dataset, para usar o motor de consulta do próprio TDB2.
+        QueryExecutionDatasetBuilder builder = (versao.dataset() != null
+                ? QueryExecution.dataset(versao.dataset()) : QueryExecution.model(versao.consulta())).query(query)
+                .set(FuncoesSeries.SERIES, versao.series())
+                .set(FuncoesSeries.RANKINGS, versao.rankings())
+                .set(FuncoesSeries.ROTULOS, versao.rotulos());
+        if (medicao != null) {
+            builder.set(ARQConstants.sysOptimizerFactory, medicao.otimizador());
+        }
+        if (timeoutSegundos > 0) {
+            builder.timeout(timeoutSegundos, TimeUnit.SECONDS);
+        }
+        return builder.build();
+    }
+
+    /** "Template_1A=5,Template_7A=10" em um mapa; uma entrada malformada impede a subida. */
+    private static Map<String, Long> limitesPorTemplate(String config, String propriedade) {
+        Map<String, Long> limites = new HashMap<>();
+        if (config == null || config.isBlank()) return limites;
+        for (String entrada : config.split(",")) {
+            String[] partes = entrada.split("=");
+            try {
+                if (partes.length != 2) throw new NumberFormatException();
+                limites.put(partes[0].strip(), Long.parseLong(partes[1].strip()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Entrada inválida em " + propriedade + ": '" + entrada.strip() + "' (esperado Template_X=número).");
+            }
+        }
+        return limites;
+    }
+
+    /**
+     * Minúsculas, sem acentos nem pontuação e com "_" no lugar dos espaços: o nome local das URIs
+     * de empresa e setor e a chave do {@link IndiceRotulos}.
+     */
+    static String normalizarTextoJava(String texto) {
         if (texto == null) return "";
         String nfd = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
-        return Pattern.compile("\\p{InCombiningDiacriticalMarks}+").matcher(nfd)
-                .replaceAll("").replaceAll("[^a-z0-9\\s-]", "").trim().replaceAll("\\s+", "_");
+        String semAcentos = DIACRITICOS.matcher(nfd).replaceAll("");
+        return ESPACOS.matcher(NAO_ALFANUMERICO.matcher(semAcentos).replaceAll("").trim()).replaceAll("_");
     }
 
-    private void loadRdfData(String path, Lang lang, String desc) throws IOException {
+    private Model loadRdfData(String path, Lang lang, String desc) throws IOException {
+        Model modelo = ModelFactory.createDefaultModel();
         try (InputStream in = new ClassPathResource(path).getInputStream()) {
-            RDFDataMgr.read(baseModel, in, lang);
+            RDFDataMgr.read(modelo, in, lang);
             logger.info("✓ {} '{}' carregado.", desc, path);
         }
+        return modelo;
     }
 
-    private void saveInferredModel() {
+    /** Pool das leituras paralelas: {@code ontologia.carga.threads} threads, sem passar de uma por tarefa. */
+    private ExecutorService criarLeitores(int tarefas) {
+        int threads = threadsCarga > 0 ? threadsCarga : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tarefas)), r -> {
+            Thread t = new Thread(r, "carga-ontologia-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Resultado de uma leitura paralela, com a exceção original da tarefa em vez do ExecutionException. */
+    private static <T> T aguardar(Future<T> tarefa) throws IOException {
         try {
-            Path outputPath = Paths.get(INFERENCE_OUTPUT_FILE);
-            logger.info("Tentando salvar modelo RDF inferido em: {}", outputPath.toAbsolutePath());
-            try (OutputStream out = Files.newOutputStream(outputPath)) {
-                RDFDataMgr.write(out, infModel, Lang.TURTLE);
-                logger.info("✓ Modelo RDF inferido salvo com sucesso.");
-            }
-        } catch (Exception e) {
-            logger.warn("! Não foi possível salvar modelo inferido: {}", e.getMessage());
+            return tarefa.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Leitura das fontes interrompida.");
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException io) throw io;
+            if (causa instanceof RuntimeException re) throw re;
+            if (causa instanceof Error erro) throw erro;
+            throw new IOException(causa);
         }
     }
 
-    private String getStringCellValue(Cell cell) {
-        if (cell == null) return null;
-        return new DataFormatter().formatCellValue(cell).trim();
+    /** Fontes da carga, na ordem em que entram no checksum dos snapshots. */
+    private static List<String> fontesCarga() {
+        List<String> fontes = new ArrayList<>(List.of(ONTOLOGY_FILE, INFO_EMPRESAS_FILE));
+        fontes.addAll(Arrays.asList(PREGAO_FILES));
+        return fontes;
     }
-    private double getNumericCellValue(Cell cell) {
-        if (cell == null || cell.getCellType() != CellType.NUMERIC) return Double.NaN;
-        return cell.getNumericCellValue();
+
+    private SnapshotStore criarSnapshotStore() {
+        if (snapshotDir == null || snapshotDir.isBlank()) return null;
+        try {
+            return new SnapshotStore(Paths.get(snapshotDir), fontesCarga(), modoInferencia.toLowerCase(Locale.ROOT));
+        } catch (IOException e) {
+            logger.warn("! Modo snapshot desativado: não foi possível calcular o checksum das fontes ({}).", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String celula(String[] celulas, int coluna) {
+        return coluna < celulas.length ? celulas[coluna] : null;
     }
-    private Date parseDateFromCell(Cell cell) {
-        if (cell == null) return null;
+
+    /** Aceita "20230505" (texto ou número, como vem da B3) e "2023-05-05" (célula formatada como data ou CSV). */
+    private static LocalDate parseData(String valor) {
+        if (valor == null) return null;
         try {
-            if (cell.getCellType() == CellType.NUMERIC) {
-                if (DateUtil.isCellDateFormatted(cell)) return cell.getDateCellValue();
-                return new SimpleDateFormat("yyyyMMdd").parse(String.valueOf((long)cell.getNumericCellValue()));
+            return valor.length() == 8 ? LocalDate.parse(valor, DateTimeFormatter.BASIC_ISO_DATE) : LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /** Um arquivo de pregão a ler: o nome (que também indica o formato, .xlsx ou .csv) e como abri-lo. */
+    private record FontePregao(String nome, Abertura abertura) {
+
+        static FontePregao doClasspath(String caminho) {
+            return new FontePregao(caminho, () -> {
+                var recurso = new ClassPathResource(caminho);
+                if (!recurso.exists()) throw new FileNotFoundException("Arquivo de pregão não encontrado: " + caminho);
+                return recurso.getInputStream();
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface Abertura {
+        InputStream abrir() throws IOException;
+    }
+
+    /** Um arquivo lido por {@link #lerPregao(FontePregao, Graph, MaterializadorRdfs)}, ainda fora da base. */
+    private record ArquivoLido(String nome, Graph grafo, SeriesPrecos.Construtor series, int linhas) {}
+
+    /**
+     * Custo de uma carga: linhas por segundo, bytes alocados pela thread que lê (e a taxa de
+     * alocação), tempo e número de coletas de lixo no período e pico de heap.
+     */
+    private static final class MedicaoCarga {
+        private final long inicioNanos = System.nanoTime();
+        private final long alocadosInicio = alocadosPelaThread();
+        private final long gcMsInicio;
+        private final long coletasInicio;
+
+        private MedicaoCarga() {
+            long ms = 0, coletas = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ms += Math.max(0, gc.getCollectionTime());
+                coletas += Math.max(0, gc.getCollectionCount());
+            }
+            gcMsInicio = ms;
+            coletasInicio = coletas;
+        }
+
+        static MedicaoCarga iniciar() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+            }
+            return new MedicaoCarga();
+        }
+
+        void registrar(String arquivo, int linhas) {
+            long ms = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos));
+            long mbAlocados = (alocadosPelaThread() - alocadosInicio) / (1024 * 1024);
+            long gcMs = -gcMsInicio, coletas = -coletasInicio;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcMs += Math.max(0, gc.getCollectionTime());
+                coletas += Math.max(0, gc.getCollectionCount());
             }
-            if (cell.getCellType() == CellType.STRING) {
-                return new SimpleDateFormat("yyyyMMdd").parse(cell.getStringCellValue());
+            long picoHeap = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) picoHeap += pool.getPeakUsage().getUsed();
             }
-        } catch (Exception ignored) {}
-        return null;
+            logger.info("   {}: {} linhas em {} ms ({} linhas/s), {} MB alocados ({} MB/s), GC {} ms em {} coletas, pico de heap {} MB.",
+                    arquivo, linhas, ms, linhas * 1000L / ms, mbAlocados, mbAlocados * 1000 / ms,
+                    gcMs, coletas, picoHeap / (1024 * 1024));
+        }
+
+        /** Bytes alocados até agora pela thread atual (0 se a JVM não expõe essa medida). */
+        private static long alocadosPelaThread() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getCurrentThreadAllocatedBytes();
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Acumula triplas e as envia ao modelo em blocos de {@link #TAMANHO_LOTE}. O grafo já descarta
+     * triplas repetidas, então não há {@code contains} antes de cada inserção.
+     */
+    private static final class LoteTriplas {
+        private final Graph destino;
+        private final List<Triple> pendentes = new ArrayList<>(TAMANHO_LOTE);
+
+        LoteTriplas(Graph destino) {
+            this.destino = destino;
+        }
+
+        void add(Node s, Node p, Node o) {
+            pendentes.add(Triple.create(s, p, o));
+            if (pendentes.size() >= TAMANHO_LOTE) descarregar();
+        }
+
+        void descarregar() {
+            if (pendentes.isEmpty()) return;
+            GraphUtil.add(destino, pendentes);
+            pendentes.clear();
+        }
     }
-    private Property getProperty(String name) { return baseModel.createProperty(ONT_PREFIX + name); }
-    private Resource getResource(String name) { return baseModel.createResource(ONT_PREFIX + name); }
-    private void add(Resource s, Property p, RDFNode o) { if (s != null && p != null && o != null && !baseModel.contains(s, p, o)) baseModel.add(s, p, o); }
-    private void addNumericPropertyIfValid(Resource s, Property p, double val) { if (!Double.isNaN(val)) add(s, p, ResourceFactory.createTypedLiteral(val)); }
 }
\ No newline at end of file
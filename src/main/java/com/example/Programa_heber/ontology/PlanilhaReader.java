@@ -0,0 +1,190 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Leitura em streaming da primeira aba de uma planilha (.xlsx) ou de um CSV com o mesmo layout.
+ *
+ * O XLSX é lido pela API de eventos (SAX) do POI, linha a linha, sem montar o DOM da planilha em
+ * heap. Cada linha chega ao {@link LinhaHandler} como um array de strings indexado pela coluna;
+ * números vêm em forma canônica ("9.15", "20230505") e células com formato de data vêm como
+ * ISO-8601 ("2023-05-08"). Células vazias ficam {@code null}.
+ */
+final class PlanilhaReader {
+
+    private static final Pattern NUMERO_VIRGULA_DECIMAL = Pattern.compile("-?\\d+,\\d+");
+
+    @FunctionalInterface
+    interface LinhaHandler {
+        /** @param numero número da linha (0 = cabeçalho), como em {@code Row.getRowNum()}. */
+        void linha(int numero, String[] celulas) throws IOException;
+    }
+
+    private PlanilhaReader() {
+    }
+
+    static void ler(InputStream in, String nomeArquivo, LinhaHandler handler) throws IOException {
+        if (nomeArquivo.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            lerCsv(in, handler);
+        } else {
+            lerXlsx(in, handler);
+        }
+    }
+
+    private static void lerXlsx(InputStream in, LinhaHandler handler) throws IOException {
+        try (OPCPackage pacote = OPCPackage.open(in)) {
+            XSSFReader reader = new XSSFReader(pacote);
+            reader.setUseReadOnlySharedStringsTable(true);
+            ColetorLinhas coletor = new ColetorLinhas(handler);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), reader.getSharedStringsTable(), coletor, new FormatadorCanonico(), false));
+            Iterator<InputStream> abas = reader.getSheetsData();
+            if (!abas.hasNext()) return;
+            try (InputStream primeiraAba = abas.next()) {
+                parser.parse(new InputSource(primeiraAba));
+            }
+            if (coletor.erro != null) throw coletor.erro;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Falha ao ler planilha em streaming: " + e.getMessage(), e);
+        }
+    }
+
+    /** CSV separado por ';' ou ','; com ';' assume-se vírgula decimal, como nas exportações da B3. */
+    private static void lerCsv(InputStream in, LinhaHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        String linha = reader.readLine();
+        if (linha == null) return;
+        if (linha.startsWith("\uFEFF")) linha = linha.substring(1);
+        char separador = linha.indexOf(';') >= 0 ? ';' : ',';
+        int numero = 0;
+        while (linha != null) {
+            if (!linha.isBlank()) {
+                String[] celulas = dividirCsv(linha, separador);
+                if (separador == ';') {
+                    for (int i = 0; i < celulas.length; i++) {
+                        String c = celulas[i];
+                        if (c != null && c.indexOf(',') >= 0 && NUMERO_VIRGULA_DECIMAL.matcher(c).matches()) {
+                            celulas[i] = c.replace(',', '.');
+                        }
+                    }
+                }
+                handler.linha(numero, celulas);
+            }
+            numero++;
+            linha = reader.readLine();
+        }
+    }
+
+    private static String[] dividirCsv(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (c == '"') {
+                if (entreAspas && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else {
+                    entreAspas = !entreAspas;
+                }
+            } else if (c == separador && !entreAspas) {
+                campos.add(normalizar(atual.toString()));
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        campos.add(normalizar(atual.toString()));
+        return campos.toArray(String[]::new);
+    }
+
+    private static String normalizar(String valor) {
+        String v = valor.trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    /** Recebe as células de cada linha do SAX handler do POI e entrega arrays por coluna. */
+    private static final class ColetorLinhas implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final LinhaHandler handler;
+        private String[] celulas = new String[32];
+        private int maiorColuna = -1;
+        private IOException erro;
+
+        ColetorLinhas(LinhaHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(celulas, 0, maiorColuna + 1, null);
+            maiorColuna = -1;
+        }
+
+        @Override
+        public void cell(String referencia, String valor, XSSFComment comentario) {
+            int coluna = coluna(referencia);
+            if (coluna >= celulas.length) celulas = Arrays.copyOf(celulas, coluna * 2);
+            celulas[coluna] = valor == null ? null : normalizar(valor);
+            maiorColuna = Math.max(maiorColuna, coluna);
+        }
+
+        /** Índice da coluna de uma referência como "AB12" (mais barato que {@code new CellReference}). */
+        private static int coluna(String referencia) {
+            int coluna = 0;
+            for (int i = 0; i < referencia.length(); i++) {
+                char c = referencia.charAt(i);
+                if (c < 'A' || c > 'Z') break;
+                coluna = coluna * 26 + (c - 'A' + 1);
+            }
+            return coluna - 1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (erro != null) return;
+            try {
+                handler.linha(rowNum, Arrays.copyOf(celulas, maiorColuna + 1));
+            } catch (IOException e) {
+                erro = e;
+            }
+        }
+    }
+
+    /** Devolve números sem formatação de exibição e datas em ISO-8601. */
+    private static final class FormatadorCanonico extends DataFormatter {
+        // isADateFormat só guarda o último formato consultado; colunas alternadas o fariam reavaliar a regex a cada célula.
+        private final Map<String, Boolean> formatoEhData = new HashMap<>();
+
+        @Override
+        public String formatRawCellContents(double valor, int indiceFormato, String formato) {
+            boolean ehData = formatoEhData.computeIfAbsent(indiceFormato + ":" + formato, k -> DateUtil.isADateFormat(indiceFormato, formato));
+            if (ehData && DateUtil.isValidExcelDate(valor)) {
+                return DateUtil.getLocalDateTime(valor).toLocalDate().toString();
+            }
+            return BigDecimal.valueOf(valor).stripTrailingZeros().toPlainString();
+        }
+    }
+}
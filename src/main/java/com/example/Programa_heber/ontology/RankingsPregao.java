@@ -0,0 +1,130 @@
+package com.example.Programa_heber.ontology;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Índices ordenados de cada métrica por pregão, no mercado todo e por setor, calculados uma vez por
+ * versão do grafo. Um ranking (maiores altas do dia, maior baixa do setor, ...) vira a leitura do
+ * começo ou do fim de um vetor, sem varrer nem ordenar nada na consulta.
+ *
+ * Cada vetor guarda os índices de ticker da {@link SeriesPrecos} em ordem decrescente de valor
+ * (empates pela ordem do ticker), só com os tickers que têm a métrica no pregão. O vetor inteiro é
+ * mantido, e não só um top-K: com algumas centenas de tickers por pregão ele custa o mesmo que a
+ * própria coluna e atende qualquer N e os dois sentidos.
+ *
+ * As métricas são as colunas da série mais a variação percentual sobre o pregão anterior
+ * ({@link SeriesPrecos#variacaoPercentual(int, double[])}), no índice {@link #VARIACAO_PERCENTUAL},
+ * e o módulo da variação intradiária, no índice {@link #VARIACAO_INTRADIARIA_MODULO}.
+ */
+final class RankingsPregao {
+
+    private static final SeriesPrecos.Coluna[] COLUNAS = SeriesPrecos.Coluna.values();
+
+    /** Índice de métrica da variação percentual entre pregões (as colunas usam o ordinal). */
+    static final int VARIACAO_PERCENTUAL = COLUNAS.length;
+
+    /**
+     * Índice de métrica de |fechamento - abertura|. A variação intradiária absoluta tem sinal, e o
+     * "asc" dela é a maior baixa do dia; a menor variação é o "asc" deste módulo.
+     */
+    static final int VARIACAO_INTRADIARIA_MODULO = COLUNAS.length + 1;
+
+    private static final int METRICAS = COLUNAS.length + 2;
+
+    private static final RankingsPregao VAZIO = new RankingsPregao(SeriesPrecos.vazia(), Map.of());
+
+    private final SeriesPrecos series;
+    /** [métrica][pregão] -> tickers em ordem decrescente. */
+    private final int[][][] mercado;
+    /** rótulo do setor -> [métrica][pregão] -> tickers do setor em ordem decrescente. */
+    private final Map<String, int[][][]> setores;
+
+    /** @param setoresPorTicker rótulos dos setores de cada ticker (um ticker pode estar em mais de um). */
+    RankingsPregao(SeriesPrecos series, Map<String, Set<String>> setoresPorTicker) {
+        this.series = series;
+        int datas = series.quantidadeDatas();
+        int tickers = series.quantidadeTickers();
+
+        Map<String, BitSet> membros = new HashMap<>();
+        setoresPorTicker.forEach((ticker, rotulos) -> {
+            int t = series.indiceTicker(ticker);
+            if (t < 0) return;
+            for (String rotulo : rotulos) membros.computeIfAbsent(rotulo, r -> new BitSet(tickers)).set(t);
+        });
+
+        this.mercado = new int[METRICAS][datas][];
+        Map<String, int[][][]> porSetor = new HashMap<>();
+        membros.keySet().forEach(rotulo -> porSetor.put(rotulo, new int[METRICAS][datas][]));
+
+        double[] valores = new double[tickers];
+        for (int m = 0; m < METRICAS; m++) {
+            for (int d = 0; d < datas; d++) {
+                pregao(series, m, d, valores);
+                int[] ordem = ordenar(valores);
+                mercado[m][d] = ordem;
+                for (Map.Entry<String, BitSet> setor : membros.entrySet()) {
+                    BitSet bits = setor.getValue();
+                    porSetor.get(setor.getKey())[m][d] = Arrays.stream(ordem).filter(bits::get).toArray();
+                }
+            }
+        }
+        this.setores = porSetor;
+    }
+
+    static RankingsPregao vazio() {
+        return VAZIO;
+    }
+
+    SeriesPrecos series() {
+        return series;
+    }
+
+    /**
+     * Tickers do pregão em ordem decrescente da métrica; com {@code setor} não nulo, só os daquele
+     * setor (vazio se o setor não existe). O vetor é compartilhado e não deve ser alterado.
+     */
+    int[] ordem(int metrica, int data, String setor) {
+        if (setor == null) return mercado[metrica][data];
+        int[][][] doSetor = setores.get(setor);
+        return doSetor == null ? new int[0] : doSetor[metrica][data];
+    }
+
+    /** Como {@link SeriesPrecos#pregao}, para qualquer índice de métrica (colunas e as de ranking). */
+    static void pregao(SeriesPrecos series, int metrica, int data, double[] destino) {
+        if (metrica == VARIACAO_PERCENTUAL) {
+            series.variacaoPercentual(data, destino);
+        } else if (metrica == VARIACAO_INTRADIARIA_MODULO) {
+            series.pregao(SeriesPrecos.Coluna.VARIACAO_INTRADIARIA_ABSOLUTA, data, destino);
+            for (int t = 0; t < destino.length; t++) destino[t] = Math.abs(destino[t]);
+        } else {
+            series.pregao(COLUNAS[metrica], data, destino);
+        }
+    }
+
+    /** Como {@link SeriesPrecos#valor}, para qualquer índice de métrica. */
+    static double valor(SeriesPrecos series, int metrica, int data, int ticker) {
+        if (metrica == VARIACAO_PERCENTUAL) return series.variacaoPercentual(data, ticker);
+        if (metrica == VARIACAO_INTRADIARIA_MODULO) {
+            return Math.abs(series.valor(SeriesPrecos.Coluna.VARIACAO_INTRADIARIA_ABSOLUTA, data, ticker));
+        }
+        return series.valor(COLUNAS[metrica], data, ticker);
+    }
+
+    /** Se a métrica é uma coluna de contagem ({@link SeriesPrecos.Coluna#inteira()}). */
+    static boolean inteira(int metrica) {
+        return metrica < COLUNAS.length && COLUNAS[metrica].inteira();
+    }
+
+    private static int[] ordenar(double[] valores) {
+        return IntStream.range(0, valores.length)
+                .filter(t -> !Double.isNaN(valores[t]))
+                .boxed()
+                .sorted((a, b) -> {
+                    int porValor = Double.compare(valores[b], valores[a]);
+                    return porValor != 0 ? porValor : Integer.compare(a, b);
+                })
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
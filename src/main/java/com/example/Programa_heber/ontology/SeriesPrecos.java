@@ -0,0 +1,375 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Dados diários de pregão em colunas primitivas (ticker x data), fora do heap.
+ *
+ * Cada métrica é um {@link ByteBuffer} direto com uma célula por par (data, ticker), em ordem de
+ * data: as cotações de todos os tickers em um pregão ficam contíguas, que é o que os rankings por
+ * pregão percorrem. Células sem valor ficam com NaN (ou {@link Long#MIN_VALUE} nas colunas
+ * inteiras). Tickers e datas são ordenados, então os índices são estáveis dentro de uma versão.
+ *
+ * Além das métricas da planilha, as colunas derivadas da ontologia (variação e intervalo
+ * intradiários) são calculadas na construção, uma vez por célula, para que rankings e consultas
+ * sobre elas não precisem recalcular nada.
+ *
+ * A instância é imutável depois de construída; uma ingestão cria outra a partir desta com o
+ * {@link Construtor}, como acontece com o grafo.
+ */
+public final class SeriesPrecos {
+
+    /**
+     * Métricas guardadas, com a propriedade correspondente na ontologia e a coluna na planilha da
+     * B3 (-1 nas derivadas, calculadas por {@link #derivar(double[])}).
+     */
+    public enum Coluna {
+        ABERTURA("precoAbertura", 8, false),
+        MAXIMO("precoMaximo", 9, false),
+        MINIMO("precoMinimo", 10, false),
+        MEDIO("precoMedio", 11, false),
+        FECHAMENTO("precoFechamento", 12, false),
+        NEGOCIOS("totalNegocios", 13, true),
+        VOLUME("volumeNegociacao", 15, false),
+        /** fechamento - abertura */
+        VARIACAO_INTRADIARIA_ABSOLUTA("variacaoIntradiariaAbsoluta", -1, false),
+        /** (fechamento / abertura - 1) * 100 */
+        VARIACAO_INTRADIARIA_PERCENTUAL("variacaoIntradiariaPercentual", -1, false),
+        /** máximo - mínimo */
+        INTERVALO_INTRADIARIO_ABSOLUTO("intervaloIntradiarioAbsoluto", -1, false),
+        /** (máximo / mínimo - 1) * 100 */
+        INTERVALO_INTRADIARIO_PERCENTUAL("intervaloIntradiarioPercentual", -1, false);
+
+        private final String propriedade;
+        private final int indicePlanilha;
+        private final boolean inteira;
+        private final Node no;
+
+        Coluna(String propriedade, int indicePlanilha, boolean inteira) {
+            this.propriedade = propriedade;
+            this.indicePlanilha = indicePlanilha;
+            this.inteira = inteira;
+            this.no = NodeFactory.createURI(Ontology.ONT_PREFIX + propriedade);
+        }
+
+        public String uri() {
+            return Ontology.ONT_PREFIX + propriedade;
+        }
+
+        /** A propriedade como nó do grafo, criado uma vez só. */
+        Node no() {
+            return no;
+        }
+
+        public boolean inteira() {
+            return inteira;
+        }
+
+        public boolean derivada() {
+            return indicePlanilha < 0;
+        }
+
+        public static Optional<Coluna> porUri(String uri) {
+            for (Coluna coluna : values()) {
+                if (coluna.uri().equals(uri)) return Optional.of(coluna);
+            }
+            return Optional.empty();
+        }
+    }
+
+    private static final int MAGICO = 0x42335350; // "B3SP"
+    private static final long AUSENTE = Long.MIN_VALUE;
+    private static final Coluna[] COLUNAS = Coluna.values();
+
+    private static final SeriesPrecos VAZIA = new Construtor().construir();
+
+    /**
+     * Lê as métricas de uma linha da planilha de pregões da B3 (mesmo layout lido pelo
+     * {@link Ontology}) e calcula as derivadas. Índice = {@link Coluna#ordinal()}, NaN = ausente.
+     */
+    public static double[] valores(String[] celulas) {
+        double[] valores = new double[COLUNAS.length];
+        Arrays.fill(valores, Double.NaN);
+        for (Coluna coluna : COLUNAS) {
+            String texto = !coluna.derivada() && coluna.indicePlanilha < celulas.length ? celulas[coluna.indicePlanilha] : null;
+            if (texto == null) continue;
+            try {
+                valores[coluna.ordinal()] = Double.parseDouble(texto);
+            } catch (NumberFormatException ignored) {}
+        }
+        derivar(valores);
+        return valores;
+    }
+
+    /**
+     * Preenche as colunas derivadas a partir das métricas da planilha (NaN se faltar algum termo),
+     * arredondadas em 6 casas para não devolver ao usuário resíduos como 0.08999999999999986.
+     */
+    static void derivar(double[] valores) {
+        double abertura = valores[Coluna.ABERTURA.ordinal()];
+        double fechamento = valores[Coluna.FECHAMENTO.ordinal()];
+        double maximo = valores[Coluna.MAXIMO.ordinal()];
+        double minimo = valores[Coluna.MINIMO.ordinal()];
+        valores[Coluna.VARIACAO_INTRADIARIA_ABSOLUTA.ordinal()] = arredondar(fechamento - abertura);
+        valores[Coluna.VARIACAO_INTRADIARIA_PERCENTUAL.ordinal()] = abertura == 0 ? Double.NaN : arredondar((fechamento / abertura - 1) * 100);
+        valores[Coluna.INTERVALO_INTRADIARIO_ABSOLUTO.ordinal()] = arredondar(maximo - minimo);
+        valores[Coluna.INTERVALO_INTRADIARIO_PERCENTUAL.ordinal()] = minimo == 0 ? Double.NaN : arredondar((maximo / minimo - 1) * 100);
+    }
+
+    private static double arredondar(double valor) {
+        return Double.isNaN(valor) ? valor : Math.round(valor * 1e6) / 1e6;
+    }
+
+    private final String[] tickers;
+    private final Map<String, Integer> indiceTickers;
+    private final long[] datas; // epoch day
+    private final DoubleBuffer[] reais;
+    private final LongBuffer[] inteiras;
+
+    private SeriesPrecos(String[] tickers, long[] datas, DoubleBuffer[] reais, LongBuffer[] inteiras) {
+        this.tickers = tickers;
+        this.datas = datas;
+        this.reais = reais;
+        this.inteiras = inteiras;
+        this.indiceTickers = new HashMap<>(tickers.length * 2);
+        for (int i = 0; i < tickers.length; i++) {
+            indiceTickers.put(tickers[i], i);
+        }
+    }
+
+    public static SeriesPrecos vazia() {
+        return VAZIA;
+    }
+
+    public int quantidadeTickers() {
+        return tickers.length;
+    }
+
+    public int quantidadeDatas() {
+        return datas.length;
+    }
+
+    public String ticker(int indice) {
+        return tickers[indice];
+    }
+
+    public LocalDate data(int indice) {
+        return LocalDate.ofEpochDay(datas[indice]);
+    }
+
+    /** @return índice do ticker, ou -1 se ele não tem nenhuma cotação. */
+    public int indiceTicker(String ticker) {
+        Integer indice = indiceTickers.get(ticker);
+        return indice == null ? -1 : indice;
+    }
+
+    /** @return índice do pregão, ou -1 se não há cotações nessa data. */
+    public int indiceData(LocalDate data) {
+        int indice = Arrays.binarySearch(datas, data.toEpochDay());
+        return indice < 0 ? -1 : indice;
+    }
+
+    /** Valor de uma célula; NaN quando o ticker não tem essa métrica no pregão. */
+    public double valor(Coluna coluna, int data, int ticker) {
+        int posicao = data * tickers.length + ticker;
+        if (coluna.inteira) {
+            long valor = inteiras[coluna.ordinal()].get(posicao);
+            return valor == AUSENTE ? Double.NaN : valor;
+        }
+        return reais[coluna.ordinal()].get(posicao);
+    }
+
+    /**
+     * Copia para {@code destino} os valores de todos os tickers em um pregão (índice = ticker),
+     * com NaN nas células vazias. É a leitura de um trecho contíguo da coluna.
+     */
+    public void pregao(Coluna coluna, int data, double[] destino) {
+        int inicio = data * tickers.length;
+        if (coluna.inteira) {
+            LongBuffer origem = inteiras[coluna.ordinal()];
+            for (int t = 0; t < tickers.length; t++) {
+                long valor = origem.get(inicio + t);
+                destino[t] = valor == AUSENTE ? Double.NaN : valor;
+            }
+        } else {
+            reais[coluna.ordinal()].get(inicio, destino, 0, tickers.length);
+        }
+    }
+
+    /**
+     * Variação percentual do fechamento de cada ticker em relação ao pregão anterior em que ele
+     * foi negociado. NaN quando não há fechamento no pregão ou nenhum antes dele.
+     */
+    public void variacaoPercentual(int data, double[] destino) {
+        for (int t = 0; t < tickers.length; t++) {
+            destino[t] = variacaoPercentual(data, t);
+        }
+    }
+
+    /** {@link #variacaoPercentual(int, double[])} de um único ticker. */
+    public double variacaoPercentual(int data, int ticker) {
+        DoubleBuffer fechamento = reais[Coluna.FECHAMENTO.ordinal()];
+        double atual = fechamento.get(data * tickers.length + ticker);
+        double anterior = Double.NaN;
+        for (int d = data - 1; d >= 0 && Double.isNaN(anterior); d--) {
+            anterior = fechamento.get(d * tickers.length + ticker);
+        }
+        return Double.isNaN(atual) || Double.isNaN(anterior) || anterior == 0 ? Double.NaN : (atual / anterior - 1) * 100;
+    }
+
+    /** Memória fora do heap ocupada pelas colunas. */
+    public long tamanhoBytes() {
+        return (long) COLUNAS.length * tickers.length * datas.length * Double.BYTES;
+    }
+
+    /** Formato binário próprio: cabeçalho com tickers e datas, depois cada coluna em bloco. */
+    void gravar(OutputStream destino) throws IOException {
+        DataOutputStream out = new DataOutputStream(destino);
+        out.writeInt(MAGICO);
+        out.writeInt(tickers.length);
+        for (String ticker : tickers) out.writeUTF(ticker);
+        out.writeInt(datas.length);
+        for (long data : datas) out.writeLong(data);
+        out.flush();
+        WritableByteChannel canal = Channels.newChannel(destino);
+        for (Coluna coluna : COLUNAS) {
+            ByteBuffer bytes = bytes(coluna);
+            while (bytes.hasRemaining()) canal.write(bytes);
+        }
+    }
+
+    static SeriesPrecos ler(InputStream origem) throws IOException {
+        DataInputStream in = new DataInputStream(origem);
+        if (in.readInt() != MAGICO) throw new IOException("arquivo não é uma série de preços");
+        String[] tickers = new String[in.readInt()];
+        for (int i = 0; i < tickers.length; i++) tickers[i] = in.readUTF();
+        long[] datas = new long[in.readInt()];
+        for (int i = 0; i < datas.length; i++) datas[i] = in.readLong();
+
+        int celulas = tickers.length * datas.length;
+        DoubleBuffer[] reais = new DoubleBuffer[COLUNAS.length];
+        LongBuffer[] inteiras = new LongBuffer[COLUNAS.length];
+        ReadableByteChannel canal = Channels.newChannel(in);
+        for (Coluna coluna : COLUNAS) {
+            ByteBuffer bytes = alocar(celulas);
+            while (bytes.hasRemaining()) {
+                if (canal.read(bytes) < 0) throw new EOFException("série de preços truncada");
+            }
+            bytes.flip();
+            if (coluna.inteira) inteiras[coluna.ordinal()] = bytes.asLongBuffer();
+            else reais[coluna.ordinal()] = bytes.asDoubleBuffer();
+        }
+        return new SeriesPrecos(tickers, datas, reais, inteiras);
+    }
+
+    private ByteBuffer bytes(Coluna coluna) {
+        int celulas = tickers.length * datas.length;
+        ByteBuffer bytes = alocar(celulas);
+        if (coluna.inteira) bytes.asLongBuffer().put(inteiras[coluna.ordinal()].duplicate().clear());
+        else bytes.asDoubleBuffer().put(reais[coluna.ordinal()].duplicate().clear());
+        return bytes;
+    }
+
+    private static ByteBuffer alocar(int celulas) {
+        return ByteBuffer.allocateDirect(celulas * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Acumula linhas de pregão e monta as colunas. Uma linha repetida (mesmo ticker e data)
+     * sobrescreve as métricas que trouxer preenchidas, como a ingestão de um arquivo corrigido.
+     */
+    public static final class Construtor {
+
+        private final Map<String, Map<Long, double[]>> linhas = new HashMap<>();
+
+        public Construtor() {}
+
+        /** Começa com todas as cotações de uma série existente. */
+        public Construtor(SeriesPrecos base) {
+            for (int d = 0; d < base.datas.length; d++) {
+                for (int t = 0; t < base.tickers.length; t++) {
+                    double[] valores = new double[COLUNAS.length];
+                    boolean algum = false;
+                    for (Coluna coluna : COLUNAS) {
+                        valores[coluna.ordinal()] = base.valor(coluna, d, t);
+                        algum |= !Double.isNaN(valores[coluna.ordinal()]);
+                    }
+                    if (algum) linhas.computeIfAbsent(base.tickers[t], k -> new HashMap<>()).put(base.datas[d], valores);
+                }
+            }
+        }
+
+        /**
+         * Acrescenta as linhas de outro construtor (de um arquivo lido em paralelo), como se tivessem
+         * sido adicionadas aqui depois das atuais.
+         */
+        public void adicionar(Construtor outro) {
+            outro.linhas.forEach((ticker, porData) -> porData.forEach(
+                    (dia, valores) -> adicionar(ticker, LocalDate.ofEpochDay(dia), valores)));
+        }
+
+        /** Adiciona uma linha, com os valores no formato de {@link SeriesPrecos#valores(String[])}. */
+        public void adicionar(String ticker, LocalDate data, double[] novos) {
+            double[] valores = linhas.computeIfAbsent(ticker, k -> new HashMap<>())
+                    .computeIfAbsent(data.toEpochDay(), k -> {
+                        double[] vazio = new double[COLUNAS.length];
+                        Arrays.fill(vazio, Double.NaN);
+                        return vazio;
+                    });
+            for (Coluna coluna : COLUNAS) {
+                double valor = novos[coluna.ordinal()];
+                if (!coluna.derivada() && !Double.isNaN(valor)) valores[coluna.ordinal()] = valor;
+            }
+            derivar(valores);
+        }
+
+        public SeriesPrecos construir() {
+            String[] tickers = linhas.keySet().toArray(new String[0]);
+            Arrays.sort(tickers);
+            long[] datas = linhas.values().stream().flatMap(m -> m.keySet().stream())
+                    .mapToLong(Long::longValue).distinct().sorted().toArray();
+
+            int celulas = tickers.length * datas.length;
+            DoubleBuffer[] reais = new DoubleBuffer[COLUNAS.length];
+            LongBuffer[] inteiras = new LongBuffer[COLUNAS.length];
+            for (Coluna coluna : COLUNAS) {
+                ByteBuffer bytes = alocar(celulas);
+                if (coluna.inteira) {
+                    LongBuffer buffer = bytes.asLongBuffer();
+                    while (buffer.hasRemaining()) buffer.put(AUSENTE);
+                    inteiras[coluna.ordinal()] = buffer.clear();
+                } else {
+                    DoubleBuffer buffer = bytes.asDoubleBuffer();
+                    while (buffer.hasRemaining()) buffer.put(Double.NaN);
+                    reais[coluna.ordinal()] = buffer.clear();
+                }
+            }
+
+            for (int t = 0; t < tickers.length; t++) {
+                for (Map.Entry<Long, double[]> linha : linhas.get(tickers[t]).entrySet()) {
+                    int posicao = Arrays.binarySearch(datas, linha.getKey()) * tickers.length + t;
+                    double[] valores = linha.getValue();
+                    for (Coluna coluna : COLUNAS) {
+                        double valor = valores[coluna.ordinal()];
+                        if (Double.isNaN(valor)) continue;
+                        if (coluna.inteira) inteiras[coluna.ordinal()].put(posicao, (long) valor);
+                        else reais[coluna.ordinal()].put(posicao, valor);
+                    }
+                }
+            }
+            return new SeriesPrecos(tickers, datas, reais, inteiras);
+        }
+    }
+}
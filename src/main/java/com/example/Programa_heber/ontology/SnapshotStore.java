@@ -0,0 +1,164 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot em disco do grafo já materializado (base + inferências), em RDF Thrift binário.
+ *
+ * O nome do arquivo carrega um SHA-256 do conteúdo de todas as fontes (TTL e planilhas) e da versão
+ * do formato; se qualquer fonte mudar, o snapshot antigo simplesmente deixa de ser encontrado e o
+ * grafo é reconstruído. A escrita é feita por streaming em um arquivo temporário seguido de
+ * {@code move} atômico, então nunca existe um snapshot pela metade com o nome definitivo.
+ *
+ * Ao lado do grafo fica a {@link SeriesPrecos} no formato binário próprio, com o mesmo checksum
+ * no nome; o snapshot só é usado quando os dois arquivos existem. O armazenamento "tdb2" guarda
+ * da mesma forma, ao lado do dataset, a referência em memória (esquema e empresas) e as séries.
+ */
+class SnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    /** Incrementar quando a forma de construir o grafo mudar sem que as fontes mudem. */
+    static final int VERSAO_FORMATO = 4;
+
+    private static final String PREFIXO_ARQUIVO = "ontologia-";
+    private static final String EXTENSAO = ".rt";
+    private static final String EXTENSAO_SERIES = ".colunas";
+
+    private final Path diretorio;
+    private final String checksum;
+
+    /** @param variante como o grafo foi construído (ex.: o modo de inferência); entra no checksum. */
+    SnapshotStore(Path diretorio, List<String> fontes, String variante) throws IOException {
+        this.diretorio = diretorio;
+        this.checksum = calcularChecksum(fontes, variante);
+    }
+
+    String getChecksum() {
+        return checksum;
+    }
+
+    Path arquivo() {
+        return diretorio.resolve(PREFIXO_ARQUIVO + checksum + EXTENSAO);
+    }
+
+    Path arquivoSeries() {
+        return diretorio.resolve(PREFIXO_ARQUIVO + checksum + EXTENSAO_SERIES);
+    }
+
+    /**
+     * Lê o snapshot correspondente às fontes atuais para dentro de {@code destino}, se existir. Os
+     * blank nodes mantêm os rótulos gravados, como no grafo que foi salvo.
+     */
+    Optional<Model> carregar(Model destino) {
+        Path arquivo = arquivo();
+        if (!Files.isRegularFile(arquivo)) {
+            logger.info("Nenhum snapshot para o checksum {} em {}.", checksum.substring(0, 12), diretorio);
+            return Optional.empty();
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(arquivo), 1 << 16)) {
+            RDFParser.source(in).lang(Lang.RDFTHRIFT).labelToNode(LabelToNode.createUseLabelAsGiven()).parse(destino);
+            return Optional.of(destino);
+        } catch (Exception e) {
+            logger.warn("Snapshot {} ilegível ({}); o grafo será reconstruído a partir das fontes.", arquivo, e.getMessage());
+            destino.removeAll();
+            return Optional.empty();
+        }
+    }
+
+    Optional<SeriesPrecos> carregarSeries() {
+        Path arquivo = arquivoSeries();
+        if (!Files.isRegularFile(arquivo)) return Optional.empty();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(arquivo), 1 << 16)) {
+            return Optional.of(SeriesPrecos.ler(in));
+        } catch (Exception e) {
+            logger.warn("Séries de preços {} ilegíveis ({}); o grafo será reconstruído a partir das fontes.", arquivo, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Grava o grafo em streaming e remove snapshots de checksums antigos. */
+    void salvar(Graph grafo) {
+        try {
+            gravar(arquivo(), out -> RDFDataMgr.write(out, grafo, Lang.RDFTHRIFT));
+            logger.info("✓ Snapshot do grafo salvo em {} ({} KB).", arquivo(), Files.size(arquivo()) / 1024);
+            removerAntigos();
+        } catch (Exception e) {
+            logger.warn("! Não foi possível salvar o snapshot do grafo: {}", e.getMessage());
+        }
+    }
+
+    /** Grava as séries de preços; deve vir antes de {@link #salvar(Graph)}, que limpa os arquivos antigos. */
+    void salvarSeries(SeriesPrecos series) {
+        try {
+            gravar(arquivoSeries(), series::gravar);
+        } catch (Exception e) {
+            logger.warn("! Não foi possível salvar as séries de preços: {}", e.getMessage());
+        }
+    }
+
+    private interface Escrita {
+        void escrever(OutputStream out) throws IOException;
+    }
+
+    private void gravar(Path destino, Escrita escrita) throws IOException {
+        Files.createDirectories(diretorio);
+        Path temporario = Files.createTempFile(diretorio, PREFIXO_ARQUIVO, ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporario), 1 << 16)) {
+            escrita.escrever(out);
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void removerAntigos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.filter(p -> p.getFileName().toString().startsWith(PREFIXO_ARQUIVO))
+                    .filter(p -> !p.equals(arquivo()) && !p.equals(arquivoSeries()))
+                    .forEach(p -> {
+                        try {
+                            Files.deleteIfExists(p);
+                        } catch (IOException e) {
+                            logger.debug("Não foi possível remover snapshot antigo {}: {}", p, e.getMessage());
+                        }
+                    });
+        }
+    }
+
+    private static String calcularChecksum(List<String> fontes, String variante) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(("v" + VERSAO_FORMATO + "/" + variante).getBytes());
+        byte[] buffer = new byte[1 << 16];
+        for (String fonte : fontes) {
+            digest.update(fonte.getBytes());
+            try (InputStream in = new ClassPathResource(fonte).getInputStream()) {
+                int lidos;
+                while ((lidos = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, lidos);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+
+/**
+ * Nós das classes e propriedades da ontologia usados na carga, criados uma vez só. A ingestão monta
+ * as triplas direto com eles, em vez de criar um Resource/Property (e concatenar a URI) por linha.
+ */
+final class VocabularioB3 {
+
+    static final Node TYPE = RDF.type.asNode();
+    static final Node LABEL = RDFS.label.asNode();
+
+    // Classes
+    static final Node EMPRESA_CAPITAL_ABERTO = no("Empresa_Capital_Aberto");
+    static final Node SETOR_ATUACAO = no("Setor_Atuacao");
+    static final Node VALOR_MOBILIARIO_NEGOCIADO = no("Valor_Mobiliario_Negociado");
+    static final Node NEGOCIADO_EM_PREGAO = no("Negociado_Em_Pregao");
+    static final Node PREGAO = no("Pregao");
+
+    // Propriedades
+    static final Node ATUA_EM = no("atuaEm");
+    static final Node TICKER = no("ticker");
+    static final Node TEM_VALOR_MOBILIARIO_NEGOCIADO = no("temValorMobiliarioNegociado");
+    static final Node REPRESENTADO_POR = no("representadoPor");
+    static final Node NEGOCIADO = no("negociado");
+    static final Node NEGOCIADO_DURANTE = no("negociadoDurante");
+    static final Node OCORRE_EM_DATA = no("ocorreEmData");
+
+    private VocabularioB3() {}
+
+    /** Nó de um recurso da ontologia pelo nome local. */
+    static Node no(String nomeLocal) {
+        return NodeFactory.createURI(Ontology.ONT_PREFIX + nomeLocal);
+    }
+}
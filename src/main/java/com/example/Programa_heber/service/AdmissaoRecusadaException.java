@@ -0,0 +1,31 @@
+package com.example.Programa_heber.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Tarefa recusada pelo {@link EscalonadorPerguntas} sem entrar na fila. Estende
+ * {@link RejectedExecutionException}, então quem já tratava o pipeline saturado continua tratando.
+ *
+ * {@link #isPorCliente()} distingue o cliente que passou da sua cota de tarefas pendentes (429) da
+ * etapa inteira saturada (503); {@link #getRetryAfterSegundos()} estima quando a fila deve ter
+ * andado o suficiente para uma nova tentativa.
+ */
+public class AdmissaoRecusadaException extends RejectedExecutionException {
+
+    private final boolean porCliente;
+    private final long retryAfterSegundos;
+
+    public AdmissaoRecusadaException(String mensagem, boolean porCliente, long retryAfterSegundos) {
+        super(mensagem);
+        this.porCliente = porCliente;
+        this.retryAfterSegundos = retryAfterSegundos;
+    }
+
+    public boolean isPorCliente() {
+        return porCliente;
+    }
+
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+}
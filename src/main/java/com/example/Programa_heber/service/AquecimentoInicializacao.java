@@ -0,0 +1,94 @@
+package com.example.Programa_heber.service;
+
+import com.example.Programa_heber.model.ProcessamentoDetalhadoResposta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Responde perguntas de exemplo assim que a aplicação sobe, antes do primeiro usuário: carrega
+ * as classes e aquece os caminhos do PLN, dos templates e do Jena. Registra quanto tempo, desde o
+ * início da JVM, a aplicação levou para subir e para dar a primeira resposta.
+ *
+ * Com {@code inicializacao.aquecimento.sair=true} a aplicação encerra depois das perguntas: é
+ * assim que o perfil Maven {@code cds} e o Dockerfile treinam o arquivo AppCDS
+ * ({@code -XX:ArchiveClassesAtExit}) e medem o tempo até a primeira resposta de cada build.
+ */
+@Component
+public class AquecimentoInicializacao {
+
+    private static final Logger logger = LoggerFactory.getLogger(AquecimentoInicializacao.class);
+
+    /** Recurso do classpath com uma pergunta por linha; vazio desativa o aquecimento. */
+    @Value("${inicializacao.aquecimento.perguntas:}")
+    private String arquivoPerguntas;
+
+    @Value("${inicializacao.aquecimento.sair:false}")
+    private boolean sair;
+
+    @Autowired
+    private QuestionProcessor questionProcessor;
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @EventListener
+    public void aoSubir(ApplicationReadyEvent evento) {
+        if (arquivoPerguntas == null || arquivoPerguntas.isBlank()) return;
+        long subidaMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        try {
+            List<String> perguntas = lerPerguntas();
+            long primeiraMs = -1;
+            int respondidas = 0;
+            for (String pergunta : perguntas) {
+                ProcessamentoDetalhadoResposta resposta;
+                try {
+                    resposta = questionProcessor.processQuestion(pergunta, "aquecimento").get();
+                } catch (ExecutionException e) {
+                    // Timeout ou recusa de uma pergunta não impede que as outras aqueçam seus caminhos.
+                    logger.warn("Aquecimento: '{}' falhou ({}).", pergunta, e.getCause().toString());
+                    continue;
+                }
+                if (primeiraMs < 0) primeiraMs = ManagementFactory.getRuntimeMXBean().getUptime();
+                if (resposta.getErro() == null) respondidas++;
+                else logger.warn("Aquecimento: '{}' sem resposta ({}).", pergunta, resposta.getErro());
+            }
+            logger.info("Aquecimento: subida em {} ms, primeira resposta em {} ms e {} de {} perguntas respondidas em {} ms (desde o início da JVM).",
+                    subidaMs, primeiraMs, respondidas, perguntas.size(), ManagementFactory.getRuntimeMXBean().getUptime());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Falha no aquecimento com '{}': {}", arquivoPerguntas, e.getMessage(), e);
+        }
+        if (sair) {
+            encerrar();
+        }
+    }
+
+    void encerrar() {
+        System.exit(SpringApplication.exit(contexto));
+    }
+
+    private List<String> lerPerguntas() throws IOException {
+        try (InputStream in = new ClassPathResource(arquivoPerguntas).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .map(String::strip)
+                    .filter(linha -> !linha.isEmpty() && !linha.startsWith("#"))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.Programa_heber.service;
+
+import com.example.Programa_heber.ontology.OntologiaAtualizadaEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cache em dois níveis (Caffeine, política W-TinyLFU, limitado por tamanho e por tempo):
+ * <ul>
+ *   <li>pergunta normalizada -> resultado do PLN (template e placeholders);</li>
+ *   <li>texto SPARQL canônico + variável alvo + versão do grafo -> lista de resultados.</li>
+ * </ul>
+ * Os dois níveis são esvaziados quando a ontologia publica uma nova versão. A versão também faz
+ * parte da chave dos resultados, então uma consulta que termine depois da troca não deixa no cache
+ * um resultado da versão antiga que possa ser servido de novo.
+ *
+ * Guarda também os textos SPARQL gerados pelos templates, para o controle de admissão distinguir a
+ * consulta que o /gerar_consulta devolveu de uma escrita pelo cliente.
+ */
+@Component
+public class CacheConsultas {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConsultas.class);
+
+    record ChaveResultado(long versao, String sparql, String variavel) {}
+
+    @Value("${cache.perguntas.tamanho-maximo:10000}")
+    private long tamanhoPerguntas;
+
+    @Value("${cache.perguntas.ttl-minutos:60}")
+    private long ttlPerguntasMinutos;
+
+    @Value("${cache.resultados.tamanho-maximo:10000}")
+    private long tamanhoResultados;
+
+    @Value("${cache.resultados.ttl-minutos:30}")
+    private long ttlResultadosMinutos;
+
+    private Cache<String, Map<String, Object>> perguntas;
+    private Cache<ChaveResultado, List<String>> resultados;
+    /** Não depende da versão do grafo: o texto gerado continua sendo de um template. */
+    private Cache<String, Boolean> consultasGeradas;
+
+    @PostConstruct
+    public void initialize() {
+        perguntas = Caffeine.newBuilder()
+                .maximumSize(tamanhoPerguntas)
+                .expireAfterWrite(Duration.ofMinutes(ttlPerguntasMinutos))
+                .recordStats()
+                .build();
+        resultados = Caffeine.newBuilder()
+                .maximumSize(tamanhoResultados)
+                .expireAfterWrite(Duration.ofMinutes(ttlResultadosMinutos))
+                .recordStats()
+                .build();
+        consultasGeradas = Caffeine.newBuilder()
+                .maximumSize(tamanhoResultados)
+                .expireAfterWrite(Duration.ofMinutes(ttlPerguntasMinutos))
+                .build();
+    }
+
+    /** Mesma normalização que o PLN aplica antes de qualquer análise (minúsculas e strip). */
+    static String normalizarPergunta(String pergunta) {
+        return pergunta.toLowerCase(Locale.ROOT).strip();
+    }
+
+    public Map<String, Object> getResultadoNlp(String pergunta) {
+        return perguntas.getIfPresent(normalizarPergunta(pergunta));
+    }
+
+    /** Se a pergunta já está no cache, sem contar como acerto nas estatísticas. */
+    public boolean contemResultadoNlp(String pergunta) {
+        return perguntas.asMap().containsKey(normalizarPergunta(pergunta));
+    }
+
+    /** Só resultados bem-sucedidos são guardados; mensagens de erro sempre passam pelo PLN de novo. */
+    public void putResultadoNlp(String pergunta, Map<String, Object> resultado) {
+        if (resultado != null && !resultado.containsKey("erro")) {
+            perguntas.put(normalizarPergunta(pergunta), Collections.unmodifiableMap(new LinkedHashMap<>(resultado)));
+        }
+    }
+
+    public List<String> getResultados(long versao, String sparql, String variavel) {
+        return resultados.getIfPresent(new ChaveResultado(versao, sparql, variavel));
+    }
+
+    public void putResultados(long versao, String sparql, String variavel, List<String> valores) {
+        if (valores != null) {
+            resultados.put(new ChaveResultado(versao, sparql, variavel), List.copyOf(valores));
+        }
+    }
+
+    /** Se a consulta já está no cache, sem contar como acerto nas estatísticas. */
+    public boolean contemResultados(long versao, String sparql, String variavel) {
+        return resultados.asMap().containsKey(new ChaveResultado(versao, sparql, variavel));
+    }
+
+    public void registrarConsultaGerada(String sparql) {
+        consultasGeradas.put(sparql, Boolean.TRUE);
+    }
+
+    public boolean isConsultaGerada(String sparql) {
+        return consultasGeradas.getIfPresent(sparql) != null;
+    }
+
+    @EventListener
+    public void onOntologiaAtualizada(OntologiaAtualizadaEvent evento) {
+        invalidar();
+        logger.info("Caches de perguntas e resultados esvaziados (grafo na versão {}).", evento.versao());
+    }
+
+    public void invalidar() {
+        perguntas.invalidateAll();
+        resultados.invalidateAll();
+    }
+
+    /** Estatísticas dos dois níveis, no formato exposto em /admin/cache. */
+    public Map<String, Object> estatisticas() {
+        Map<String, Object> estatisticas = new LinkedHashMap<>();
+        estatisticas.put("perguntas", resumo(perguntas.stats(), perguntas.estimatedSize()));
+        estatisticas.put("resultados", resumo(resultados.stats(), resultados.estimatedSize()));
+        return estatisticas;
+    }
+
+    private static Map<String, Object> resumo(CacheStats stats, long tamanho) {
+        Map<String, Object> resumo = new LinkedHashMap<>();
+        resumo.put("tamanho", tamanho);
+        resumo.put("acertos", stats.hitCount());
+        resumo.put("faltas", stats.missCount());
+        resumo.put("taxaAcerto", stats.hitRate());
+        resumo.put("remocoes", stats.evictionCount());
+        return resumo;
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.Programa_heber.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Controle de admissão das duas etapas do pipeline de perguntas: tradução (PLN) e execução
+ * (SPARQL). Cada etapa tem um limite de tarefas simultâneas e uma fila limitada; acima disso a
+ * tarefa é recusada na hora com {@link AdmissaoRecusadaException}, em vez de esperar até estourar o
+ * tempo ou de abrir mais processos Python.
+ *
+ * A fila é justa por cliente: cada cliente tem a sua, atendidas em rodízio, e nenhum pode ter mais
+ * que {@code pergunta.admissao.fila-por-cliente} tarefas pendentes em uma etapa (429). Dentro da
+ * etapa, as tarefas de prioridade {@link Prioridade#ALTA} (perguntas e consultas geradas pelos
+ * templates) saem antes das de {@link Prioridade#BAIXA} (SPARQL enviado pelo cliente, lotes). As de
+ * prioridade baixa nunca ocupam todas as vagas (um quarto, no mínimo uma, fica reservado para as de
+ * prioridade alta, já que uma consulta rodando não é preemptada) e só entram na fila enquanto ela
+ * estiver abaixo da metade; o resto fica para as perguntas comuns com a etapa sobrecarregada (503).
+ */
+@Service
+public class EscalonadorPerguntas {
+
+    private static final Logger logger = LoggerFactory.getLogger(EscalonadorPerguntas.class);
+
+    public enum Etapa { TRADUCAO, EXECUCAO }
+
+    public enum Prioridade { ALTA, BAIXA }
+
+    /** Traduções simultâneas; 0 = o tamanho do pool Python (backend python) ou uma por núcleo (java, mínimo 2). */
+    @Value("${pergunta.admissao.traducao.concorrencia:0}")
+    private int concorrenciaTraducao;
+
+    @Value("${pergunta.admissao.traducao.fila:256}")
+    private int filaTraducao;
+
+    /** Consultas SPARQL simultâneas; 0 = uma por núcleo (mínimo 2, para sobrar vaga à prioridade alta). */
+    @Value("${pergunta.admissao.execucao.concorrencia:0}")
+    private int concorrenciaExecucao;
+
+    @Value("${pergunta.admissao.execucao.fila:256}")
+    private int filaExecucao;
+
+    /** Tarefas de um mesmo cliente, em execução ou na fila, em cada etapa. */
+    @Value("${pergunta.admissao.fila-por-cliente:32}")
+    private int filaPorCliente;
+
+    @Value("${nlp.backend:python}")
+    private String backendNlp;
+
+    @Value("${nlp.pool.tamanho:2}")
+    private int tamanhoPoolNlp;
+
+    @Autowired(required = false)
+    private MeterRegistry registroMetricas;
+
+    private final Map<Etapa, Fila> filas = new EnumMap<>(Etapa.class);
+
+    private MeterRegistry registro;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void initialize() {
+        int nucleos = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int traducao = concorrenciaTraducao > 0 ? concorrenciaTraducao
+                : "python".equalsIgnoreCase(backendNlp) ? Math.max(1, tamanhoPoolNlp) : nucleos;
+        int execucao = concorrenciaExecucao > 0 ? concorrenciaExecucao : nucleos;
+        registro = registroMetricas != null ? registroMetricas : Metrics.globalRegistry;
+        filas.put(Etapa.TRADUCAO, new Fila(Etapa.TRADUCAO, traducao, filaTraducao));
+        filas.put(Etapa.EXECUCAO, new Fila(Etapa.EXECUCAO, execucao, filaExecucao));
+
+        // Uma thread por vaga das duas etapas: a fila do executor nunca cresce, quem espera é a fila justa.
+        AtomicInteger contador = new AtomicInteger();
+        executor = new ThreadPoolExecutor(traducao + execucao, traducao + execucao, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "pergunta-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        logger.info("Admissão de perguntas: tradução com {} simultâneas e fila de {}, execução com {} e fila de {}, até {} pendentes por cliente.",
+                traducao, filaTraducao, execucao, filaExecucao, filaPorCliente);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * Enfileira uma tarefa na etapa e devolve o future com o resultado dela. O limite de tempo conta
+     * desde a admissão, espera na fila incluída; quando ele estoura (ou o future é cancelado), a
+     * tarefa sai da fila ou, se já estiver rodando, tem a thread interrompida.
+     *
+     * @param cliente         identificação do cliente para a fila justa (endereço remoto).
+     * @param timeoutSegundos 0 para não limitar.
+     * @return future já terminado com {@link AdmissaoRecusadaException} se a etapa ou a cota do cliente estiverem cheias.
+     */
+    public <T> CompletableFuture<T> executar(Etapa etapa, String cliente, Prioridade prioridade, long timeoutSegundos, Supplier<T> tarefa) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Tarefa admitida = new Tarefa(filas.get(etapa), cliente == null ? "" : cliente, prioridade, () -> {
+            try {
+                resultado.complete(tarefa.get());
+            } catch (Throwable t) {
+                resultado.completeExceptionally(t);
+            }
+        });
+        try {
+            admitida.fila.admitir(admitida);
+        } catch (AdmissaoRecusadaException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (timeoutSegundos > 0) {
+            resultado.orTimeout(timeoutSegundos, TimeUnit.SECONDS);
+        }
+        resultado.whenComplete((r, e) -> {
+            if (e != null) admitida.cancelar();
+        });
+        return resultado;
+    }
+
+    /** Ocupação das etapas, no formato exposto em /admin/admissao. */
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        for (Fila fila : filas.values()) {
+            estado.put(fila.etapa.name().toLowerCase(Locale.ROOT), fila.resumo());
+        }
+        return estado;
+    }
+
+    private void despachar(Tarefa tarefa) {
+        try {
+            executor.execute(tarefa);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Executor do pipeline encerrado; tarefa descartada.");
+        }
+    }
+
+    /** Fila de uma etapa: uma fila por cliente em cada prioridade, atendidas em rodízio. */
+    private final class Fila {
+
+        private final Etapa etapa;
+        private final int concorrencia;
+        /** Vagas que as tarefas de prioridade baixa podem ocupar; as demais ficam para a alta. */
+        private final int concorrenciaBaixa;
+        private final int capacidade;
+        /** Clientes com tarefas na fila, na ordem em que serão atendidos. */
+        private final Map<Prioridade, LinkedHashMap<String, ArrayDeque<Tarefa>>> vez = new EnumMap<>(Prioridade.class);
+        private final Map<String, Integer> pendentes = new HashMap<>();
+        private final Map<Prioridade, Timer> espera = new EnumMap<>(Prioridade.class);
+        private int emExecucao;
+        private int baixaEmExecucao;
+        private int enfileiradas;
+        /** Média móvel da duração das tarefas, para estimar o Retry-After. */
+        private double mediaNanos = TimeUnit.SECONDS.toNanos(1);
+
+        Fila(Etapa etapa, int concorrencia, int capacidade) {
+            this.etapa = etapa;
+            this.concorrencia = concorrencia;
+            this.concorrenciaBaixa = Math.max(1, concorrencia - Math.max(1, concorrencia / 4));
+            this.capacidade = capacidade;
+            String tag = etapa.name().toLowerCase(Locale.ROOT);
+            for (Prioridade prioridade : Prioridade.values()) {
+                vez.put(prioridade, new LinkedHashMap<>());
+                espera.put(prioridade, Timer.builder("pergunta.admissao.espera")
+                        .description("Tempo na fila de admissão até começar a rodar")
+                        .tag("etapa", tag)
+                        .tag("prioridade", prioridade.name().toLowerCase(Locale.ROOT))
+                        .publishPercentileHistogram()
+                        .register(registro));
+            }
+            Gauge.builder("pergunta.admissao.fila", this, f -> f.tamanho())
+                    .description("Tarefas aguardando vaga na etapa")
+                    .tag("etapa", tag)
+                    .register(registro);
+        }
+
+        void admitir(Tarefa tarefa) {
+            List<Tarefa> iniciar;
+            synchronized (this) {
+                int doCliente = pendentes.getOrDefault(tarefa.cliente, 0);
+                if (doCliente >= filaPorCliente) {
+                    throw recusa(tarefa, true);
+                }
+                if (enfileiradas >= (tarefa.prioridade == Prioridade.ALTA ? capacidade : capacidade / 2)) {
+                    throw recusa(tarefa, false);
+                }
+                pendentes.put(tarefa.cliente, doCliente + 1);
+                vez.get(tarefa.prioridade).computeIfAbsent(tarefa.cliente, c -> new ArrayDeque<>()).add(tarefa);
+                enfileiradas++;
+                iniciar = ocuparVagas();
+            }
+            iniciar.forEach(EscalonadorPerguntas.this::despachar);
+        }
+
+        /** Tira da fila as tarefas que cabem nas vagas livres; o despacho fica para fora do lock. */
+        private List<Tarefa> ocuparVagas() {
+            List<Tarefa> iniciar = new ArrayList<>(1);
+            Tarefa tarefa;
+            while (emExecucao < concorrencia && (tarefa = proxima()) != null) {
+                emExecucao++;
+                if (tarefa.prioridade == Prioridade.BAIXA) baixaEmExecucao++;
+                iniciar.add(tarefa);
+            }
+            return iniciar;
+        }
+
+        /** Próxima da fila: a prioridade mais alta com tarefas (e vaga) e, nela, o cliente da vez. */
+        private Tarefa proxima() {
+            for (Map.Entry<Prioridade, LinkedHashMap<String, ArrayDeque<Tarefa>>> nivel : vez.entrySet()) {
+                if (nivel.getKey() == Prioridade.BAIXA && baixaEmExecucao >= concorrenciaBaixa) continue;
+                LinkedHashMap<String, ArrayDeque<Tarefa>> clientes = nivel.getValue();
+                Iterator<Map.Entry<String, ArrayDeque<Tarefa>>> it = clientes.entrySet().iterator();
+                if (!it.hasNext()) continue;
+                Map.Entry<String, ArrayDeque<Tarefa>> daVez = it.next();
+                Tarefa tarefa = daVez.getValue().poll();
+                it.remove();
+                if (!daVez.getValue().isEmpty()) {
+                    clientes.put(daVez.getKey(), daVez.getValue()); // volta para o fim do rodízio
+                }
+                enfileiradas--;
+                return tarefa;
+            }
+            return null;
+        }
+
+        /** Fim de uma tarefa despachada: libera a vaga para a próxima da fila. */
+        void concluir(Tarefa tarefa, long nanos) {
+            List<Tarefa> iniciar;
+            synchronized (this) {
+                liberar(tarefa.cliente);
+                if (nanos >= 0) mediaNanos += 0.2 * (nanos - mediaNanos);
+                emExecucao--;
+                if (tarefa.prioridade == Prioridade.BAIXA) baixaEmExecucao--;
+                iniciar = ocuparVagas();
+            }
+            iniciar.forEach(EscalonadorPerguntas.this::despachar);
+        }
+
+        /** Tira da fila uma tarefa cancelada antes de ser despachada. */
+        synchronized void remover(Tarefa tarefa) {
+            ArrayDeque<Tarefa> doCliente = vez.get(tarefa.prioridade).get(tarefa.cliente);
+            if (doCliente != null && doCliente.remove(tarefa)) {
+                if (doCliente.isEmpty()) vez.get(tarefa.prioridade).remove(tarefa.cliente);
+                enfileiradas--;
+                liberar(tarefa.cliente);
+            }
+        }
+
+        void esperou(Tarefa tarefa) {
+            espera.get(tarefa.prioridade).record(System.nanoTime() - tarefa.admitidaEm, TimeUnit.NANOSECONDS);
+        }
+
+        private void liberar(String cliente) {
+            pendentes.computeIfPresent(cliente, (c, n) -> n > 1 ? n - 1 : null);
+        }
+
+        private AdmissaoRecusadaException recusa(Tarefa tarefa, boolean porCliente) {
+            // Tempo até a fila atual (e esta tarefa) passar pelas vagas da etapa, no ritmo recente.
+            long retryAfter = Math.max(1, (long) Math.ceil((enfileiradas + 1) * mediaNanos / concorrencia / 1e9));
+            Counter.builder("pergunta.admissao.recusadas")
+                    .description("Tarefas recusadas pelo controle de admissão")
+                    .tag("etapa", etapa.name().toLowerCase(Locale.ROOT))
+                    .tag("motivo", porCliente ? "cliente" : "saturada")
+                    .tag("prioridade", tarefa.prioridade.name().toLowerCase(Locale.ROOT))
+                    .register(registro)
+                    .increment();
+            if (porCliente) {
+                logger.debug("Cliente {} com {} tarefas pendentes na {}; recusada.", tarefa.cliente, filaPorCliente, etapa);
+                return new AdmissaoRecusadaException("Muitas perguntas pendentes deste cliente; tente novamente em instantes.", true, retryAfter);
+            }
+            logger.warn("Etapa {} saturada ({} em execução, {} na fila); tarefa de prioridade {} recusada.",
+                    etapa, emExecucao, enfileiradas, tarefa.prioridade);
+            return new AdmissaoRecusadaException("Servidor ocupado; tente novamente em instantes.", false, retryAfter);
+        }
+
+        synchronized int tamanho() {
+            return enfileiradas;
+        }
+
+        synchronized Map<String, Object> resumo() {
+            Map<String, Object> resumo = new LinkedHashMap<>();
+            resumo.put("concorrencia", concorrencia);
+            resumo.put("concorrenciaPrioridadeBaixa", concorrenciaBaixa);
+            resumo.put("emExecucao", emExecucao);
+            resumo.put("prioridadeBaixaEmExecucao", baixaEmExecucao);
+            resumo.put("capacidadeFila", capacidade);
+            resumo.put("naFila", enfileiradas);
+            resumo.put("clientes", pendentes.size());
+            resumo.put("duracaoMediaMs", Math.round(mediaNanos / 1e6));
+            return resumo;
+        }
+    }
+
+    /**
+     * Uma tarefa admitida. O estado (na fila, rodando, terminada) decide o que o cancelamento faz:
+     * tirar da fila ou interromper a thread, e nunca interromper uma thread que já passou para a
+     * tarefa seguinte.
+     */
+    private static final class Tarefa implements Runnable {
+
+        private static final int NA_FILA = 0, RODANDO = 1, TERMINADA = 2;
+
+        private final Fila fila;
+        private final String cliente;
+        private final Prioridade prioridade;
+        private final Runnable corpo;
+        private final long admitidaEm = System.nanoTime();
+        private int estado = NA_FILA;
+        private Thread thread;
+
+        Tarefa(Fila fila, String cliente, Prioridade prioridade, Runnable corpo) {
+            this.fila = fila;
+            this.cliente = cliente;
+            this.prioridade = prioridade;
+            this.corpo = corpo;
+        }
+
+        @Override
+        public void run() {
+            if (!iniciar()) {
+                // Cancelada entre sair da fila e começar: só devolve a vaga.
+                fila.concluir(this, -1);
+                return;
+            }
+            fila.esperou(this);
+            long inicio = System.nanoTime();
+            try {
+                corpo.run();
+            } finally {
+                terminar();
+                fila.concluir(this, System.nanoTime() - inicio);
+            }
+        }
+
+        private synchronized boolean iniciar() {
+            if (estado != NA_FILA) return false;
+            estado = RODANDO;
+            thread = Thread.currentThread();
+            return true;
+        }
+
+        private synchronized void terminar() {
+            estado = TERMINADA;
+            thread = null;
+            Thread.interrupted(); // um cancelamento tardio não pode vazar para a próxima tarefa da thread
+        }
+
+        void cancelar() {
+            synchronized (this) {
+                if (estado == RODANDO) {
+                    thread.interrupt();
+                    return;
+                }
+                if (estado == TERMINADA) return;
+                estado = TERMINADA;
+            }
+            fila.remover(this);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.Programa_heber.service;
+
+import com.example.Programa_heber.ontology.Ontology;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Ingestão incremental de arquivos de pregão (.xlsx ou .csv no layout da B3), um dia por arquivo.
+ *
+ * Os arquivos chegam pelo endpoint de administração ou são deixados no diretório
+ * {@code ontologia.ingestao.dir}, verificado periodicamente. Como o snapshot e as fontes do
+ * classpath não incluem esses dias, todo o diretório é reingerido na subida; por isso os uploads
+ * também são gravados nele.
+ */
+@Component
+public class IngestaoPregoes {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestaoPregoes.class);
+
+    @Autowired
+    private Ontology ontology;
+
+    @Value("${ontologia.ingestao.dir:}")
+    private String diretorioIngestao;
+
+    @Value("${ontologia.ingestao.verificacao-segundos:30}")
+    private long verificacaoSegundos;
+
+    /** Arquivo já ingerido -> assinatura (data de modificação e tamanho) no momento da ingestão. */
+    private final Map<Path, String> ingeridos = new ConcurrentHashMap<>();
+    private ScheduledExecutorService observador;
+
+    @PostConstruct
+    public void initialize() {
+        if (diretorioIngestao == null || diretorioIngestao.isBlank()) return;
+        try {
+            Files.createDirectories(Paths.get(diretorioIngestao));
+        } catch (IOException e) {
+            logger.error("Diretório de ingestão {} inacessível; ingestão automática desativada: {}", diretorioIngestao, e.getMessage());
+            return;
+        }
+        verificarDiretorio();
+        observador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ingestao-pregoes");
+            t.setDaemon(true);
+            return t;
+        });
+        observador.scheduleWithFixedDelay(this::verificarDiretorio, verificacaoSegundos, verificacaoSegundos, TimeUnit.SECONDS);
+        logger.info("Ingestão automática de pregões ativa para o diretório {} (a cada {}s).", diretorioIngestao, verificacaoSegundos);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (observador != null) observador.shutdownNow();
+    }
+
+    /**
+     * Ingere um arquivo enviado pelo endpoint de administração. Com o diretório de ingestão
+     * configurado, o arquivo é gravado nele antes, para ser reaplicado nas próximas subidas.
+     */
+    public synchronized Ontology.ResultadoIngestao ingerir(String nomeArquivo, InputStream conteudo) throws IOException {
+        String nome = validarNome(nomeArquivo);
+        if (diretorioIngestao == null || diretorioIngestao.isBlank()) {
+            return ontology.ingerirPregao(conteudo, nome);
+        }
+        Path destino = Paths.get(diretorioIngestao).resolve(nome);
+        Path temporario = Files.createTempFile(destino.getParent(), ".upload-", ".tmp");
+        try {
+            Files.copy(conteudo, temporario, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+        return ingerirArquivo(destino);
+    }
+
+    /**
+     * Ingere os arquivos novos ou alterados do diretório, em ordem de nome (normalmente a data).
+     * Vários pendentes (como na subida, que reingere o diretório todo) vão em um lote só, lido em
+     * paralelo e publicado de uma vez; se o lote falhar, os arquivos são tentados um a um, para que
+     * só o defeituoso fique de fora.
+     */
+    private synchronized void verificarDiretorio() {
+        try (Stream<Path> arquivos = Files.list(Paths.get(diretorioIngestao))) {
+            List<Path> pendentes = arquivos
+                    .filter(p -> ehArquivoDePregao(p.getFileName().toString()))
+                    .filter(p -> !Objects.equals(ingeridos.get(p), assinatura(p)))
+                    .sorted()
+                    .toList();
+            if (pendentes.size() > 1 && ingerirLote(pendentes)) return;
+            for (Path arquivo : pendentes) {
+                try {
+                    ingerirArquivo(arquivo);
+                } catch (Exception e) {
+                    // Marca mesmo assim: o arquivo só é tentado de novo se for substituído.
+                    ingeridos.put(arquivo, assinatura(arquivo));
+                    logger.error("Falha ao ingerir o pregão {}: {}", arquivo, e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Não foi possível verificar o diretório de ingestão {}: {}", diretorioIngestao, e.getMessage());
+        }
+    }
+
+    private synchronized boolean ingerirLote(List<Path> arquivos) {
+        Map<Path, String> assinaturas = new HashMap<>();
+        arquivos.forEach(a -> assinaturas.put(a, assinatura(a)));
+        try {
+            ontology.ingerirPregoes(arquivos);
+            ingeridos.putAll(assinaturas);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Falha na ingestão em lote de {} pregões ({}); tentando um a um.", arquivos.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized Ontology.ResultadoIngestao ingerirArquivo(Path arquivo) throws IOException {
+        String assinatura = assinatura(arquivo);
+        try (InputStream in = Files.newInputStream(arquivo)) {
+            Ontology.ResultadoIngestao resultado = ontology.ingerirPregao(in, arquivo.getFileName().toString());
+            ingeridos.put(arquivo, assinatura);
+            return resultado;
+        }
+    }
+
+    private static String validarNome(String nomeArquivo) {
+        String nome = nomeArquivo == null ? "" : Paths.get(nomeArquivo).getFileName().toString();
+        if (!ehArquivoDePregao(nome)) {
+            throw new IllegalArgumentException("Arquivo de pregão deve ser .xlsx ou .csv: " + nomeArquivo);
+        }
+        return nome;
+    }
+
+    private static boolean ehArquivoDePregao(String nome) {
+        String n = nome.toLowerCase(Locale.ROOT);
+        return !n.startsWith(".") && (n.endsWith(".xlsx") || n.endsWith(".csv"));
+    }
+
+    private static String assinatura(Path arquivo) {
+        try {
+            return Files.getLastModifiedTime(arquivo).toMillis() + ":" + Files.size(arquivo);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.Programa_heber.service;
+
+import com.example.Programa_heber.model.ProcessamentoDetalhadoResposta;
+import com.example.Programa_heber.ontology.Ontology;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementData;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Responde um lote de perguntas (conjuntos de avaliação, relatórios) em uma única chamada.
+ *
+ * As perguntas são traduzidas em paralelo no pipeline do {@link QuestionProcessor}. As que caem no
+ * mesmo template e só diferem nos placeholders são respondidas por uma única consulta: o template
+ * recebe um bloco VALUES com os valores de todas elas e passa a projetar também as variáveis
+ * {@code ?ph_*}, que dizem a qual pergunta cada linha pertence. O LIMIT do template vale por
+ * pergunta e por isso é aplicado depois, na separação das linhas.
+ */
+@Service
+public class LotePerguntas {
+
+    private static final Logger logger = LoggerFactory.getLogger(LotePerguntas.class);
+
+    /** Linhas por bloco VALUES; grupos maiores são divididos em várias consultas. */
+    private static final int LINHAS_POR_CONSULTA = 500;
+
+    @Autowired
+    private QuestionProcessor questionProcessor;
+
+    @Autowired
+    private SparqlTemplateRegistry templateRegistry;
+
+    @Autowired
+    private Ontology ontology;
+
+    @Autowired
+    private CacheConsultas cache;
+
+    @Autowired
+    private EscalonadorPerguntas escalonador;
+
+    @Value("${pergunta.lote.tamanho-maximo:1000}")
+    private int tamanhoMaximo;
+
+    /** Perguntas do lote em tradução ao mesmo tempo, para um lote não ocupar todo o pipeline. */
+    @Value("${pergunta.lote.paralelismo:16}")
+    private int paralelismo;
+
+    /** Limite de cada consulta do lote na etapa de execução, espera na fila incluída. */
+    @Value("${pergunta.timeout.consulta-segundos:30}")
+    private long timeoutConsultaSegundos;
+
+    /** Perguntas que caíram no mesmo template, indexadas pelos valores dos placeholders. */
+    private record Grupo(SparqlTemplateRegistry.TemplateCompilado template, String variavelAlvo,
+                         Map<List<Node>, List<Integer>> perguntas, Map<List<Node>, String> textos) {
+
+        Grupo(SparqlTemplateRegistry.TemplateCompilado template, String variavelAlvo) {
+            this(template, variavelAlvo, new LinkedHashMap<>(), new HashMap<>());
+        }
+    }
+
+    /** Uma consulta do lote: as combinações de placeholders de um grupo respondidas juntas. */
+    private record Consulta(Grupo grupo, List<List<Node>> chaves) {}
+
+    /**
+     * Devolve uma resposta por pergunta, na mesma ordem do lote. A tradução e as consultas passam
+     * pelo {@link EscalonadorPerguntas} com prioridade baixa, em nome de {@code cliente}. Cada
+     * consulta do lote (um bloco VALUES, ou uma pergunta nos templates que não podem ser agrupados)
+     * é uma tarefa própria na etapa de execução, com o limite {@code pergunta.timeout.consulta-segundos},
+     * e elas rodam uma de cada vez: o lote nunca ocupa mais que uma vaga, nem por mais que uma consulta.
+     * Consultas recusadas pela admissão ou que estouram o tempo viram erro só nas perguntas delas.
+     *
+     * @throws IllegalArgumentException se o lote for maior que {@code pergunta.lote.tamanho-maximo}.
+     */
+    public CompletableFuture<List<ProcessamentoDetalhadoResposta>> processar(List<String> perguntas, String cliente) {
+        if (perguntas.size() > tamanhoMaximo) {
+            throw new IllegalArgumentException("O lote tem " + perguntas.size() + " perguntas; o máximo é " + tamanhoMaximo + ".");
+        }
+        long inicio = System.nanoTime();
+        return traduzirTodas(perguntas, cliente).thenCompose(traducoes -> {
+            long versao = ontology.getVersao();
+            List<ProcessamentoDetalhadoResposta> respostas = new ArrayList<>(traducoes.size());
+            List<Consulta> consultas = agrupar(traducoes, versao, respostas);
+            return executarTodas(consultas, 0, versao, cliente, respostas).thenApply(v -> respostas);
+        }).thenApply(respostas -> {
+            logger.info("Lote de {} perguntas respondido em {} ms.", perguntas.size(), (System.nanoTime() - inicio) / 1_000_000);
+            return respostas;
+        });
+    }
+
+    private CompletableFuture<List<QuestionProcessor.Traducao>> traduzirTodas(List<String> perguntas, String cliente) {
+        QuestionProcessor.Traducao[] traducoes = new QuestionProcessor.Traducao[perguntas.size()];
+        AtomicInteger proxima = new AtomicInteger();
+        CompletableFuture<?>[] trilhas = new CompletableFuture<?>[Math.max(1, Math.min(paralelismo, perguntas.size()))];
+        for (int i = 0; i < trilhas.length; i++) {
+            trilhas[i] = trilha(perguntas, cliente, traducoes, proxima);
+        }
+        return CompletableFuture.allOf(trilhas).thenApply(v -> Arrays.asList(traducoes));
+    }
+
+    /** Traduz uma pergunta por vez, sempre pegando a próxima ainda não iniciada do lote. */
+    private CompletableFuture<Void> trilha(List<String> perguntas, String cliente, QuestionProcessor.Traducao[] traducoes, AtomicInteger proxima) {
+        int i = proxima.getAndIncrement();
+        if (i >= perguntas.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return questionProcessor.traduzirAsync(perguntas.get(i), cliente)
+                .exceptionally(LotePerguntas::falhaNaTraducao)
+                .thenCompose(traducao -> {
+                    traducoes[i] = traducao;
+                    return trilha(perguntas, cliente, traducoes, proxima);
+                });
+    }
+
+    private static QuestionProcessor.Traducao falhaNaTraducao(Throwable e) {
+        if (!(causa(e) instanceof TimeoutException) && !(causa(e) instanceof RejectedExecutionException)) {
+            logger.error("Erro inesperado ao traduzir pergunta do lote: {}", causa(e).getMessage(), causa(e));
+            return QuestionProcessor.Traducao.falha("Erro interno ao gerar a consulta SPARQL.");
+        }
+        return QuestionProcessor.Traducao.falha(mensagemDeFalha(e));
+    }
+
+    /** Mensagem por pergunta para uma etapa que estourou o tempo ou foi recusada pela admissão. */
+    private static String mensagemDeFalha(Throwable e) {
+        Throwable causa = causa(e);
+        if (causa instanceof TimeoutException) {
+            return "O processamento da pergunta excedeu o tempo limite.";
+        }
+        if (causa instanceof RejectedExecutionException) {
+            return "Servidor ocupado; tente novamente em instantes.";
+        }
+        logger.error("Erro inesperado ao executar consulta do lote: {}", causa.getMessage(), causa);
+        return "Erro na execução da consulta.";
+    }
+
+    private static Throwable causa(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * Monta uma resposta por tradução, já preenchida quando houver erro ou resultado no cache, e
+     * agrupa as demais nas consultas que vão respondê-las.
+     */
+    private List<Consulta> agrupar(List<QuestionProcessor.Traducao> traducoes, long versao, List<ProcessamentoDetalhadoResposta> respostas) {
+        Map<String, Grupo> grupos = new LinkedHashMap<>();
+
+        for (int i = 0; i < traducoes.size(); i++) {
+            QuestionProcessor.Traducao traducao = traducoes.get(i);
+            ProcessamentoDetalhadoResposta resposta = new ProcessamentoDetalhadoResposta();
+            respostas.add(resposta);
+            if (traducao.erro() != null) {
+                resposta.setErro(traducao.erro());
+                continue;
+            }
+            resposta.setTemplateId(traducao.templateId());
+            Optional<SparqlTemplateRegistry.TemplateCompilado> template = templateRegistry.get(traducao.templateId());
+            if (template.isEmpty()) {
+                logger.error("Template SPARQL não encontrado: Templates/{}.txt", traducao.templateId());
+                resposta.setErro("Erro interno ao gerar a consulta SPARQL.");
+                continue;
+            }
+            Map<Var, Node> vinculos;
+            try {
+                vinculos = templateRegistry.vincular(template.get(), traducao.placeholders());
+            } catch (IllegalArgumentException e) {
+                resposta.setErro("Não foi possível montar a consulta: " + e.getMessage());
+                continue;
+            }
+
+            // Mesma consulta que o /gerar_consulta devolveria, para o cliente e para o cache de resultados.
+            String texto = QueryTransformOps.transform(template.get().query(), vinculos).serialize();
+            resposta.setSparqlQuery(texto);
+            String variavelAlvo = QuestionProcessor.variavelAlvo(traducao.templateId());
+            List<String> emCache = cache.getResultados(versao, texto, variavelAlvo);
+            if (emCache != null) {
+                preencher(resposta, emCache);
+                continue;
+            }
+
+            List<Node> chave = List.copyOf(vinculos.values());
+            Grupo grupo = grupos.computeIfAbsent(traducao.templateId(), id -> new Grupo(template.get(), variavelAlvo));
+            grupo.perguntas().computeIfAbsent(chave, k -> new ArrayList<>()).add(i);
+            grupo.textos().put(chave, texto);
+        }
+
+        List<Consulta> consultas = new ArrayList<>();
+        for (Grupo grupo : grupos.values()) {
+            List<List<Node>> chaves = new ArrayList<>(grupo.perguntas().keySet());
+            // Sem agrupamento possível, cada combinação é uma consulta, com o seu próprio limite de tempo.
+            int porConsulta = agrupavel(grupo) ? LINHAS_POR_CONSULTA : 1;
+            for (int inicio = 0; inicio < chaves.size(); inicio += porConsulta) {
+                consultas.add(new Consulta(grupo, chaves.subList(inicio, Math.min(chaves.size(), inicio + porConsulta))));
+            }
+        }
+        return consultas;
+    }
+
+    /**
+     * Admite as consultas do lote na etapa de execução, uma depois da outra. Depois de uma recusa
+     * a etapa está cheia, então as consultas restantes são recusadas sem voltar a tentar.
+     */
+    private CompletableFuture<Void> executarTodas(List<Consulta> consultas, int indice, long versao, String cliente,
+                                                  List<ProcessamentoDetalhadoResposta> respostas) {
+        if (indice >= consultas.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Consulta consulta = consultas.get(indice);
+        return escalonador.executar(EscalonadorPerguntas.Etapa.EXECUCAO, cliente, EscalonadorPerguntas.Prioridade.BAIXA,
+                        timeoutConsultaSegundos, () -> executar(consulta.grupo(), consulta.chaves()))
+                .handle((resultados, erro) -> {
+                    if (erro == null) {
+                        distribuir(consulta, resultados, versao, respostas);
+                        return true;
+                    }
+                    String mensagem = mensagemDeFalha(erro);
+                    if (!(causa(erro) instanceof RejectedExecutionException)) {
+                        falhar(consulta, mensagem, respostas);
+                        return true;
+                    }
+                    consultas.subList(indice, consultas.size()).forEach(restante -> falhar(restante, mensagem, respostas));
+                    return false;
+                })
+                .thenCompose(continuar -> continuar
+                        ? executarTodas(consultas, indice + 1, versao, cliente, respostas)
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    private void distribuir(Consulta consulta, Map<List<Node>, List<String>> resultados, long versao,
+                            List<ProcessamentoDetalhadoResposta> respostas) {
+        Grupo grupo = consulta.grupo();
+        for (List<Node> chave : consulta.chaves()) {
+            List<String> valores = resultados == null ? null : resultados.getOrDefault(chave, List.of());
+            cache.putResultados(versao, grupo.textos().get(chave), grupo.variavelAlvo(), valores);
+            for (int i : grupo.perguntas().get(chave)) {
+                preencher(respostas.get(i), valores);
+            }
+        }
+    }
+
+    private static void falhar(Consulta consulta, String mensagem, List<ProcessamentoDetalhadoResposta> respostas) {
+        for (List<Node> chave : consulta.chaves()) {
+            for (int i : consulta.grupo().perguntas().get(chave)) {
+                respostas.get(i).setErro(mensagem);
+            }
+        }
+    }
+
+    /** Executa o template para uma ou mais combinações de placeholders; {@code null} em caso de erro. */
+    private Map<List<Node>, List<String>> executar(Grupo grupo, List<List<Node>> chaves) {
+        Query template = grupo.template().query();
+        List<Var> variaveis = grupo.template().slots().stream().map(SparqlTemplateRegistry.Slot::variavel).toList();
+        Map<List<Node>, List<String>> resultados = new HashMap<>();
+
+        if (!agrupavel(grupo)) {
+            for (List<Node> chave : chaves) {
+                Map<Var, Node> vinculos = new HashMap<>();
+                for (int j = 0; j < variaveis.size(); j++) vinculos.put(variaveis.get(j), chave.get(j));
+                List<String> valores = ontology.executeQuery(QueryTransformOps.transform(template, vinculos), grupo.variavelAlvo(), grupo.template().id());
+                if (valores == null) return null;
+                resultados.put(chave, valores);
+            }
+            return resultados;
+        }
+
+        List<QuerySolution> solucoes = ontology.executeSelect(comValores(template, variaveis, chaves), grupo.template().id());
+        if (solucoes == null) return null;
+        long limite = template.getLimit();
+        for (QuerySolution solucao : solucoes) {
+            RDFNode valor = solucao.get(grupo.variavelAlvo());
+            if (valor == null) continue;
+            List<Node> chave = new ArrayList<>(variaveis.size());
+            for (Var variavel : variaveis) chave.add(solucao.get(variavel.getVarName()).asNode());
+            List<String> valores = resultados.computeIfAbsent(chave, k -> new ArrayList<>());
+            if (limite == Query.NOLIMIT || valores.size() < limite) {
+                valores.add(Ontology.texto(valor));
+            }
+        }
+        logger.debug("Template {}: {} perguntas respondidas por uma consulta com VALUES ({} linhas).",
+                grupo.template().id(), chaves.size(), solucoes.size());
+        return resultados;
+    }
+
+    private static boolean agrupavel(Grupo grupo) {
+        return !grupo.template().slots().isEmpty() && agrupavel(grupo.template().query());
+    }
+
+    /** Só SELECTs sem agregação nem OFFSET dão o mesmo resultado por pergunta quando agrupados. */
+    private static boolean agrupavel(Query query) {
+        return query.isSelectType() && !query.hasAggregators() && !query.hasGroupBy() && !query.hasHaving()
+                && !query.hasOffset() && query.getValuesData() == null;
+    }
+
+    /**
+     * Cópia do template sem LIMIT, projetando as variáveis dos placeholders e com um bloco VALUES
+     * no início do WHERE, para o Jena começar a junção pelos valores conhecidos.
+     */
+    private static Query comValores(Query template, List<Var> variaveis, List<List<Node>> chaves) {
+        List<Binding> linhas = new ArrayList<>(chaves.size());
+        for (List<Node> chave : chaves) {
+            BindingBuilder linha = Binding.builder();
+            for (int j = 0; j < variaveis.size(); j++) linha.add(variaveis.get(j), chave.get(j));
+            linhas.add(linha.build());
+        }
+
+        Query query = template.cloneQuery();
+        query.setLimit(Query.NOLIMIT);
+        if (!query.isQueryResultStar()) {
+            variaveis.forEach(query::addResultVar);
+        }
+        ElementGroup padrao = new ElementGroup();
+        padrao.addElement(new ElementData(variaveis, linhas));
+        Element original = query.getQueryPattern();
+        if (original instanceof ElementGroup grupo) {
+            grupo.getElements().forEach(padrao::addElement);
+        } else {
+            padrao.addElement(original);
+        }
+        query.setQueryPattern(padrao);
+        return query;
+    }
+
+    private static void preencher(ProcessamentoDetalhadoResposta resposta, List<String> valores) {
+        if (valores == null) {
+            resposta.setErro("Erro na execução da consulta.");
+        } else if (valores.isEmpty()) {
+            resposta.setResposta("Nenhum resultado encontrado.");
+        } else {
+            resposta.setResposta(String.join("\n", valores));
+        }
+    }
+}
@@ -1,25 +1,21 @@
 package com.example.Programa_heber.service;
 
 import com.example.Programa_heber.model.ProcessamentoDetalhadoResposta;
+import com.example.Programa_heber.nlp.NlpEngine;
 import com.example.Programa_heber.ontology.Ontology;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.annotation.PostConstruct;
+import org.apache.jena.query.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class QuestionProcessor {
@@ -29,41 +25,80 @@ public class QuestionProcessor {
     @Autowired
     private Ontology ontology;
 
-    private Path pythonScriptPath;
-    private Path pythonResourcesDir;
+    @Autowired
+    private NlpEngine nlpEngine;
 
-    @PostConstruct
-    public void initialize() {
-        logger.info("Inicializando QuestionProcessor e preparando ambiente Python...");
-        try {
-            // Cria um diretório temporário para todos os recursos do Python
-            this.pythonResourcesDir = Files.createTempDirectory("pyscripts_");
-            this.pythonResourcesDir.toFile().deleteOnExit();
-
-            // Lista de todos os arquivos que o pln_processor.py precisa
-            String[] resourcesToCopy = {
-                "pln_processor.py",
-                "empresa_nome_map.json",
-                "setor_map.json",
-                "resultado_similaridade.txt",
-                "perguntas_de_interesse.txt"
-            };
-
-            // Copia cada recurso para o diretório temporário
-            for (String resourceName : resourcesToCopy) {
-                copyResourceToTempDir(resourceName, this.pythonResourcesDir);
+    @Autowired
+    private SparqlTemplateRegistry templateRegistry;
+
+    @Autowired
+    private CacheConsultas cache;
+
+    @Autowired
+    private EscalonadorPerguntas escalonador;
+
+    @Value("${pergunta.timeout.nlp-segundos:30}")
+    private long timeoutNlpSegundos;
+
+    @Value("${pergunta.timeout.consulta-segundos:30}")
+    private long timeoutConsultaSegundos;
+
+    /**
+     * Traduz e executa uma pergunta em uma única chamada, sem prender a thread da requisição: o PLN
+     * e a consulta SPARQL passam pelas etapas do {@link EscalonadorPerguntas}, com prioridade alta e
+     * cada uma com seu limite de tempo. Quando uma etapa estoura o limite (ou o future devolvido é
+     * cancelado), a thread dela é interrompida; no backend Python isso descarta e mata o worker que
+     * estava atendendo a pergunta. Perguntas e consultas já no cache não entram na fila.
+     *
+     * O future termina com {@link TimeoutException} se alguma etapa estourar o tempo e com
+     * {@link AdmissaoRecusadaException} se a etapa ou a cota do cliente estiverem cheias. Os demais
+     * erros vêm no campo {@code erro} da resposta, como nos outros métodos.
+     */
+    public CompletableFuture<ProcessamentoDetalhadoResposta> processQuestion(String question, String cliente) {
+        CompletableFuture<ProcessamentoDetalhadoResposta> traducao = generateSparqlQueryAsync(question, cliente);
+        CompletableFuture<ProcessamentoDetalhadoResposta> resposta = traducao.thenCompose(gerada -> {
+            if (gerada.getErro() != null) {
+                return CompletableFuture.completedFuture(gerada);
             }
+            return executar(gerada.getSparqlQuery(), gerada.getTemplateId(), cliente, EscalonadorPerguntas.Prioridade.ALTA)
+                    .thenApply(executada -> {
+                        executada.setTemplateId(gerada.getTemplateId());
+                        return executada;
+                    });
+        });
+        resposta.whenComplete((r, e) -> {
+            if (resposta.isCancelled()) traducao.cancel(true);
+        });
+        return resposta;
+    }
 
-            // Define o caminho para o script principal e o torna executável
-            this.pythonScriptPath = this.pythonResourcesDir.resolve("pln_processor.py");
-            boolean executable = this.pythonScriptPath.toFile().setExecutable(true, false);
-            
-            logger.info("Recursos Python extraídos para o diretório temporário: {} (Script executável: {})", this.pythonResourcesDir, executable);
+    /** {@link #generateSparqlQuery(String)} na etapa de tradução, com prioridade alta. */
+    public CompletableFuture<ProcessamentoDetalhadoResposta> generateSparqlQueryAsync(String question, String cliente) {
+        if (cache.contemResultadoNlp(question)) {
+            return CompletableFuture.completedFuture(generateSparqlQuery(question));
+        }
+        return escalonador.executar(EscalonadorPerguntas.Etapa.TRADUCAO, cliente, EscalonadorPerguntas.Prioridade.ALTA,
+                timeoutNlpSegundos, () -> generateSparqlQuery(question));
+    }
 
-        } catch (IOException e) {
-            logger.error("FALHA CRÍTICA na inicialização do QuestionProcessor. O processamento de perguntas estará indisponível.", e);
-            this.pythonScriptPath = null;
+    /**
+     * {@link #executeSparqlQuery(String, String)} na etapa de execução. Consultas geradas por um
+     * template têm prioridade alta e os limites de tempo e de linhas dele; SPARQL escrito ou
+     * alterado pelo cliente, prioridade baixa e os limites padrão, mesmo com o id de um template.
+     */
+    public CompletableFuture<ProcessamentoDetalhadoResposta> executeSparqlQueryAsync(String sparqlQuery, String templateId, String cliente) {
+        EscalonadorPerguntas.Prioridade prioridade = templateDeOrigem(sparqlQuery, templateId) != null
+                ? EscalonadorPerguntas.Prioridade.ALTA : EscalonadorPerguntas.Prioridade.BAIXA;
+        return executar(sparqlQuery, templateId, cliente, prioridade);
+    }
+
+    private CompletableFuture<ProcessamentoDetalhadoResposta> executar(String sparqlQuery, String templateId, String cliente,
+                                                                      EscalonadorPerguntas.Prioridade prioridade) {
+        if (cache.contemResultados(ontology.getVersao(), sparqlQuery, variavelAlvo(templateId))) {
+            return CompletableFuture.completedFuture(executeSparqlQuery(sparqlQuery, templateId));
         }
+        return escalonador.executar(EscalonadorPerguntas.Etapa.EXECUCAO, cliente, prioridade,
+                timeoutConsultaSegundos, () -> executeSparqlQuery(sparqlQuery, templateId));
     }
 
     /**
@@ -73,33 +108,85 @@ public class QuestionProcessor {
      */
     public ProcessamentoDetalhadoResposta generateSparqlQuery(String question) {
         ProcessamentoDetalhadoResposta resposta = new ProcessamentoDetalhadoResposta();
-        if (this.pythonScriptPath == null) {
-            resposta.setErro("Serviço de processamento de linguagem não está inicializado.");
+        Traducao traducao = traduzir(question);
+        if (traducao.erro() != null) {
+            resposta.setErro(traducao.erro());
             return resposta;
         }
         try {
-            Map<String, Object> pyResult = executePythonScript(question);
-            if (pyResult.containsKey("erro")) {
-                resposta.setErro((String) pyResult.get("erro"));
-                return resposta;
-            }
-
-            String templateId = (String) pyResult.get("template_nome");
-            @SuppressWarnings("unchecked")
-            Map<String, String> placeholders = (Map<String, String>) pyResult.get("mapeamentos");
+            Query query = templateRegistry.preencher(traducao.templateId(), traducao.placeholders());
             
-            String templateContent = readTemplateContent(templateId);
-            String sparqlQuery = buildSparqlQuery(templateContent, placeholders);
-            
-            resposta.setSparqlQuery(sparqlQuery);
-            resposta.setTemplateId(templateId); // Adiciona o ID do template na resposta
+            resposta.setSparqlQuery(query.serialize());
+            resposta.setTemplateId(traducao.templateId()); // Adiciona o ID do template na resposta
+            cache.registrarConsultaGerada(resposta.getSparqlQuery());
             
+        } catch (IllegalArgumentException e) {
+            logger.warn("Valores extraídos pelo PLN são inválidos para o template: {}", e.getMessage());
+            resposta.setErro("Não foi possível montar a consulta: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Erro ao gerar consulta SPARQL: {}", e.getMessage(), e);
             resposta.setErro("Erro interno ao gerar a consulta SPARQL.");
         }
         return resposta;
     }
+
+    /** Resultado do PLN para uma pergunta: template e placeholders, ou a mensagem de erro. */
+    public record Traducao(String templateId, Map<String, String> placeholders, String erro) {
+
+        static Traducao falha(String erro) {
+            return new Traducao(null, null, erro);
+        }
+    }
+
+    /** Passa a pergunta pelo PLN (ou pelo cache de perguntas), sem montar a consulta. */
+    @SuppressWarnings("unchecked")
+    public Traducao traduzir(String question) {
+        try {
+            Map<String, Object> nlpResult = cache.getResultadoNlp(question);
+            if (nlpResult == null) {
+                nlpResult = nlpEngine.processar(question);
+                cache.putResultadoNlp(question, nlpResult);
+            }
+            if (nlpResult.containsKey("erro")) {
+                return Traducao.falha((String) nlpResult.get("erro"));
+            }
+            return new Traducao((String) nlpResult.get("template_nome"), (Map<String, String>) nlpResult.get("mapeamentos"), null);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Pergunta rejeitada pelo pool PLN: {}", e.getMessage());
+            return Traducao.falha(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Processamento PLN interrompido (tempo esgotado ou requisição cancelada).");
+            return Traducao.falha("Processamento da pergunta interrompido.");
+        } catch (Exception e) {
+            logger.error("Erro ao gerar consulta SPARQL: {}", e.getMessage(), e);
+            return Traducao.falha("Erro interno ao gerar a consulta SPARQL.");
+        }
+    }
+
+    /**
+     * {@link #traduzir(String)} na etapa de tradução, com prioridade baixa (lotes) e o limite de
+     * tempo da etapa de PLN.
+     */
+    public CompletableFuture<Traducao> traduzirAsync(String question, String cliente) {
+        if (cache.contemResultadoNlp(question)) {
+            return CompletableFuture.completedFuture(traduzir(question));
+        }
+        return escalonador.executar(EscalonadorPerguntas.Etapa.TRADUCAO, cliente, EscalonadorPerguntas.Prioridade.BAIXA,
+                timeoutNlpSegundos, () -> traduzir(question));
+    }
+
+    /** Templates cuja resposta é o código de negociação, e não um valor. */
+    private static final Set<String> TEMPLATES_TICKER = Set.of(
+            "Template_2A", "Template_3A", "Template_7A", "Template_7B", "Template_7C", "Template_7D", "Template_7E", "Template_7F");
+
+    /** Variável do SELECT que contém a resposta de cada template. */
+    static String variavelAlvo(String templateId) {
+        if (TEMPLATES_TICKER.contains(templateId)) {
+            return "ticker";
+        }
+        return "valor"; // Variável padrão
+    }
     
     /**
      * Executa uma consulta SPARQL e retorna os resultados.
@@ -112,12 +199,8 @@ public class QuestionProcessor {
         resposta.setSparqlQuery(sparqlQuery); // Repete a query na resposta por conveniência
 
         try {
-            String targetVariable = "valor"; // Variável padrão
-            if ("Template_2A".equals(templateId) || "Template_3A".equals(templateId)) {
-                targetVariable = "ticker";
-            }
-            
-            List<String> results = ontology.executeQuery(sparqlQuery, targetVariable);
+            String targetVariable = variavelAlvo(templateId);
+            List<String> results = consultarComCache(sparqlQuery, targetVariable, templateId);
 
             if (results == null) {
                 resposta.setErro("Erro na execução da consulta.");
@@ -133,69 +216,45 @@ public class QuestionProcessor {
         return resposta;
     }
 
-    private void copyResourceToTempDir(String resourceName, Path targetDir) throws IOException {
-        Resource resource = new ClassPathResource(resourceName);
-        if (!resource.exists()) {
-            throw new FileNotFoundException("Recurso Python essencial '" + resourceName + "' não encontrado no classpath.");
-        }
-        Path targetFile = targetDir.resolve(resourceName);
-        try (InputStream in = resource.getInputStream()) {
-            Files.copy(in, targetFile);
-        }
-    }
-
-    private Map<String, Object> executePythonScript(String question) throws IOException, InterruptedException {
-        ProcessBuilder pb = new ProcessBuilder("python3", this.pythonScriptPath.toAbsolutePath().toString(), question);
-        pb.directory(this.pythonResourcesDir.toFile());
-        
-        logger.info("Executando comando: {}", String.join(" ", pb.command()));
-        Process process = pb.start();
-
-        String stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))
-                .lines().collect(Collectors.joining("\n"));
-        String stderr = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))
-                .lines().collect(Collectors.joining("\n"));
-
-        boolean finished = process.waitFor(60, TimeUnit.SECONDS);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new InterruptedException("Processo Python demorou mais de 60 segundos para responder e foi finalizado.");
-        }
-        
-        if (!stderr.isEmpty()) {
-            logger.warn("Saída de erro do script Python (stderr):\n{}", stderr);
-        }
-
-        if (process.exitValue() != 0) {
-            throw new IOException("Script Python falhou com código de saída " + process.exitValue() + ". Stderr: " + stderr);
-        }
-
-        if (stdout.isBlank()) {
-            throw new IOException("Script Python não retornou nenhuma saída (stdout), embora tenha executado com sucesso.");
+    /**
+     * Template que gerou a consulta, ou {@code null} se o texto não saiu do /gerar_consulta ou o id
+     * não é de um template conhecido. O {@code templateId} vem do cliente no /executar_query e vira
+     * tag das métricas {@code sparql.consulta.*}: sem essa checagem, cada id inventado (ou SPARQL
+     * alterado com o id de um template) criaria novos medidores no Micrometer. O mesmo id escolhe a
+     * prioridade, o timeout e o máximo de linhas, que assim seguem a origem da consulta.
+     */
+    private String templateDeOrigem(String sparqlQuery, String templateId) {
+        if (templateId == null || templateRegistry.get(templateId).isEmpty() || !cache.isConsultaGerada(sparqlQuery)) {
+            return null;
         }
-        
-        logger.info("Saída (stdout) do script Python: {}", stdout);
-        return new ObjectMapper().readValue(stdout, new TypeReference<>() {});
+        return templateId;
     }
 
-    private String buildSparqlQuery(String templateContent, Map<String, String> placeholders) {
-        String query = templateContent;
-        if (placeholders != null) {
-            for (Map.Entry<String, String> entry : placeholders.entrySet()) {
-                query = query.replace(entry.getKey(), entry.getValue());
-            }
-        }
-        return query;
-    }
+    /**
+     * Procura o resultado no cache primeiro pelo texto recebido e, se não achar, pela forma
+     * canônica (query parseada e serializada pelo Jena), que é igual para textos que só diferem
+     * em espaços ou formatação. Devolve {@code null} em erro de sintaxe ou de execução.
+     */
+    private List<String> consultarComCache(String sparqlQuery, String targetVariable, String templateId) {
+        long versao = ontology.getVersao();
+        List<String> results = cache.getResultados(versao, sparqlQuery, targetVariable);
+        if (results != null) return results;
 
-    private String readTemplateContent(String templateId) throws IOException {
-        String path = "Templates/" + templateId + ".txt";
-        Resource resource = new ClassPathResource(path);
-        if (!resource.exists()) {
-            throw new FileNotFoundException("Template SPARQL não encontrado: " + path);
+        String origem = templateDeOrigem(sparqlQuery, templateId);
+        Query query;
+        try {
+            query = ontology.parsear(sparqlQuery, origem);
+        } catch (Exception e) {
+            logger.error("Erro de sintaxe na query SPARQL: {}", e.getMessage());
+            return null;
         }
-        try (InputStream in = resource.getInputStream()) {
-            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        String canonica = query.serialize();
+        results = cache.getResultados(versao, canonica, targetVariable);
+        if (results == null) {
+            results = ontology.executeQuery(query, targetVariable, origem);
+            cache.putResultados(versao, canonica, targetVariable, results);
         }
+        cache.putResultados(versao, sparqlQuery, targetVariable, results);
+        return results;
     }
-}
\ No newline at end of file
+}
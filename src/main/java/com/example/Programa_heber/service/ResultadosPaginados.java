@@ -0,0 +1,450 @@
+package com.example.Programa_heber.service;
+
+import com.example.Programa_heber.ontology.Ontology;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.RDFNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entrega o resultado de um SELECT em páginas, escrevendo as linhas direto do {@code ResultSet}
+ * do Jena na resposta HTTP, com todas as variáveis projetadas e valores tipados.
+ *
+ * Formatos:
+ * <ul>
+ *   <li>NDJSON: uma linha JSON por solução ({@code {"ticker":"PETR4","valor":38.5}}) e, no fim,
+ *   uma linha {@code {"fim":true,"linhas":N,"proximoCursor":"..."}};</li>
+ *   <li>SPARQL-JSON (application/sparql-results+json), com {@code "proximoCursor"} ao lado de
+ *   {@code "results"} quando houver mais páginas.</li>
+ * </ul>
+ * O cursor guarda a versão do grafo, o deslocamento e um hash da consulta. Se o grafo mudar entre
+ * duas páginas, o cursor deixa de valer, já que as linhas podem ter mudado de posição. Para a
+ * ordem das páginas ser estável, a consulta deve ter ORDER BY.
+ */
+@Service
+public class ResultadosPaginados {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultadosPaginados.class);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** A cada quantas linhas a saída é descarregada para o cliente (a primeira sai imediatamente). */
+    private static final int LINHAS_POR_FLUSH = 256;
+
+    private static final String CURSOR_EXPIRADO = "Os dados mudaram desde a primeira página; recomece a consulta sem cursor.";
+
+    public enum Formato { NDJSON, SPARQL_JSON }
+
+    /** Posição de uma página dentro do resultado de uma consulta, numa versão do grafo. */
+    public record Cursor(long versao, long deslocamento, int hashConsulta) {
+
+        String codificar() {
+            String texto = versao + ":" + deslocamento + ":" + Integer.toHexString(hashConsulta);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        static Cursor decodificar(String cursor) {
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+                if (partes.length != 3) throw new IllegalArgumentException();
+                Cursor c = new Cursor(Long.parseLong(partes[0]), Long.parseLong(partes[1]), Integer.parseUnsignedInt(partes[2], 16));
+                if (c.deslocamento() < 0) throw new IllegalArgumentException();
+                return c;
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cursor inválido.");
+            }
+        }
+    }
+
+    /** Uma página pronta para ser escrita: a consulta já com OFFSET/LIMIT da página. */
+    public record Pagina(Query query, String textoConsulta, long versao, long deslocamento, int tamanho, boolean podeHaverMais) {}
+
+    @Autowired
+    private Ontology ontology;
+
+    @Autowired
+    private EscalonadorPerguntas escalonador;
+
+    /** Limite de uma página na etapa de execução, espera na fila incluída. */
+    @Value("${pergunta.timeout.consulta-segundos:30}")
+    private long timeoutConsultaSegundos;
+
+    @Value("${consulta.pagina.tamanho-padrao:1000}")
+    private int tamanhoPadrao;
+
+    @Value("${consulta.pagina.tamanho-maximo:10000}")
+    private int tamanhoMaximo;
+
+    /**
+     * Valida a consulta e o cursor e calcula a janela da página. O LIMIT/OFFSET da própria
+     * consulta, se houver, delimita o resultado inteiro que está sendo paginado.
+     *
+     * @throws IllegalArgumentException se a consulta não for um SELECT válido, ou se o cursor ou o tamanho forem inválidos.
+     * @throws IllegalStateException se o cursor for de outra versão do grafo.
+     */
+    public Pagina preparar(String sparqlQuery, String cursor, Integer tamanhoPagina) {
+        Query original;
+        try {
+            original = QueryFactory.create(sparqlQuery);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Erro de sintaxe na query SPARQL: " + e.getMessage());
+        }
+        if (!original.isSelectType()) {
+            throw new IllegalArgumentException("Só consultas SELECT podem ser paginadas.");
+        }
+        int tamanho = tamanhoPagina == null ? tamanhoPadrao : tamanhoPagina;
+        if (tamanho < 1 || tamanho > tamanhoMaximo) {
+            throw new IllegalArgumentException("O tamanho da página deve estar entre 1 e " + tamanhoMaximo + ".");
+        }
+
+        String texto = original.serialize();
+        long versao = ontology.getVersao();
+        long deslocamento = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor c = Cursor.decodificar(cursor);
+            if (c.hashConsulta() != texto.hashCode()) {
+                throw new IllegalArgumentException("O cursor não pertence a esta consulta.");
+            }
+            if (c.versao() != versao) {
+                throw new IllegalStateException(CURSOR_EXPIRADO);
+            }
+            deslocamento = c.deslocamento();
+        }
+
+        long restante = original.hasLimit() ? Math.max(0, original.getLimit() - deslocamento) : Long.MAX_VALUE;
+        boolean podeHaverMais = restante > tamanho;
+        Query query = original.cloneQuery();
+        query.setOffset((original.hasOffset() ? original.getOffset() : 0) + deslocamento);
+        // Uma linha a mais só para saber se existe a próxima página.
+        query.setLimit(podeHaverMais ? tamanho + 1L : restante);
+        return new Pagina(query, texto, versao, deslocamento, tamanho, podeHaverMais);
+    }
+
+    /**
+     * Admite a página na etapa de execução do {@link EscalonadorPerguntas}, com prioridade baixa como
+     * todo SPARQL enviado pelo cliente, antes de qualquer byte da resposta. A consulta roda na vaga
+     * da etapa, então é ela que limita quantas páginas são calculadas ao mesmo tempo.
+     *
+     * @throws AdmissaoRecusadaException se a etapa ou a cota do cliente estiverem cheias.
+     */
+    public Transmissao admitir(Pagina pagina, Formato formato, String cliente) {
+        Transmissao transmissao = new Transmissao(pagina, formato);
+        transmissao.escrita = escalonador.executar(EscalonadorPerguntas.Etapa.EXECUCAO, cliente,
+                EscalonadorPerguntas.Prioridade.BAIXA, 0, transmissao::executar);
+        if (transmissao.escrita.isCompletedExceptionally()) {
+            Throwable causa = transmissao.escrita.handle((r, e) -> e).join();
+            throw causa instanceof AdmissaoRecusadaException recusa ? recusa
+                    : new AdmissaoRecusadaException("Servidor ocupado; tente novamente em instantes.", false, 1);
+        }
+        return transmissao;
+    }
+
+    /**
+     * Página admitida, à espera da saída da resposta. A tarefa na vaga da etapa escreve direto na
+     * saída, e {@link #escrever(OutputStream)}, chamado pelo Spring, só volta quando ela terminou:
+     * a saída nunca é usada depois que a resposta é encerrada.
+     *
+     * A tarefa roda sem limite no escalonador porque não pode ser interrompida no meio da escrita;
+     * a consulta é limitada pelo timeout do Jena. O limite {@code pergunta.timeout.consulta-segundos}
+     * vale para a espera na fila: estourado antes de a tarefa começar, ela sai da fila e a página
+     * responde só o erro.
+     */
+    public final class Transmissao {
+
+        private static final int AGUARDANDO = 0, ESCREVENDO = 1, ABANDONADA = 2;
+
+        private final Pagina pagina;
+        private final Formato formato;
+        private final AtomicInteger estado = new AtomicInteger(AGUARDANDO);
+        private final CompletableFuture<OutputStream> saida = new CompletableFuture<>();
+        private CompletableFuture<Void> escrita;
+
+        private Transmissao(Pagina pagina, Formato formato) {
+            this.pagina = pagina;
+            this.formato = formato;
+        }
+
+        public void escrever(OutputStream out) throws IOException {
+            saida.complete(out);
+            try {
+                try {
+                    escrita.get(timeoutConsultaSegundos, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    if (estado.compareAndSet(AGUARDANDO, ABANDONADA)) {
+                        escrita.cancel(false);
+                        logger.warn("Página abandonada após {} s na fila de execução.", timeoutConsultaSegundos);
+                        escreverErro(pagina, formato, out, "A consulta excedeu o tempo limite na fila de execução.");
+                        return;
+                    }
+                    escrita.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Transmissão da página interrompida.");
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause() instanceof UncheckedIOException io ? io.getCause() : e.getCause();
+                throw causa instanceof IOException io ? io : new IOException(causa);
+            }
+        }
+
+        private Void executar() {
+            if (!estado.compareAndSet(AGUARDANDO, ESCREVENDO)) return null;
+            try {
+                // O Spring entrega a saída logo depois que o controlador devolve a resposta.
+                ResultadosPaginados.this.escrever(pagina, formato, saida.get(timeoutConsultaSegundos, TimeUnit.SECONDS));
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Página cancelada antes de começar.");
+            } catch (ExecutionException | TimeoutException e) {
+                throw new CancellationException("A resposta não chegou a ser aberta.");
+            }
+        }
+    }
+
+    private static void escreverErro(Pagina pagina, Formato formato, OutputStream saida, String mensagem) throws IOException {
+        try (JsonGenerator json = JSON.createGenerator(saida, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+            (formato == Formato.NDJSON ? new EscritorNdjson(json, pagina) : new EscritorSparqlJson(json, pagina)).erro(mensagem);
+        }
+    }
+
+    public void escrever(Pagina pagina, Formato formato, OutputStream saida) throws IOException {
+        long inicio = System.nanoTime();
+        try (JsonGenerator json = JSON.createGenerator(saida, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+            Escritor escritor = formato == Formato.NDJSON ? new EscritorNdjson(json, pagina) : new EscritorSparqlJson(json, pagina);
+            try {
+                ontology.percorrer(pagina.query(), escritor);
+            } catch (RuntimeException e) {
+                // O status 200 já foi enviado; o erro vai no próprio corpo.
+                logger.warn("Consulta paginada interrompida: {}", e.getMessage());
+                escritor.erro(e instanceof QueryCancelledException ? "A consulta excedeu o tempo limite."
+                        : e instanceof IllegalStateException ? e.getMessage() : "Erro na execução da consulta.");
+                return;
+            }
+            escritor.fim();
+            logger.info("Página com {} linhas enviada em {} ms.", escritor.linhas, (System.nanoTime() - inicio) / 1_000_000);
+        }
+    }
+
+    private abstract static class Escritor implements Ontology.LeitorLinhas {
+        final JsonGenerator json;
+        final Pagina pagina;
+        List<String> variaveis;
+        boolean iniciado;
+        int linhas;
+        boolean temMais;
+        long versao;
+
+        Escritor(JsonGenerator json, Pagina pagina) {
+            this.json = json;
+            this.pagina = pagina;
+        }
+
+        @Override
+        public void inicio(long versao, List<String> variaveis) throws IOException {
+            // Uma ingestão pode ter publicado outra versão entre a validação do cursor e a execução.
+            if (pagina.deslocamento() > 0 && versao != pagina.versao()) {
+                throw new IllegalStateException(CURSOR_EXPIRADO);
+            }
+            this.versao = versao;
+            this.variaveis = variaveis;
+            abrir();
+            this.iniciado = true;
+        }
+
+        @Override
+        public boolean linha(QuerySolution solucao) throws IOException {
+            if (linhas == pagina.tamanho()) {
+                temMais = true;
+                return false;
+            }
+            escreverLinha(solucao);
+            if (linhas++ % LINHAS_POR_FLUSH == 0) json.flush();
+            return true;
+        }
+
+        /** Cursor da próxima página, ou {@code null} na última. */
+        String proximoCursor() {
+            if (!temMais || !pagina.podeHaverMais()) return null;
+            return new Cursor(versao, pagina.deslocamento() + linhas, pagina.textoConsulta().hashCode()).codificar();
+        }
+
+        abstract void abrir() throws IOException;
+
+        abstract void escreverLinha(QuerySolution solucao) throws IOException;
+
+        abstract void fim() throws IOException;
+
+        abstract void erro(String mensagem) throws IOException;
+    }
+
+    private static final class EscritorNdjson extends Escritor {
+
+        EscritorNdjson(JsonGenerator json, Pagina pagina) {
+            super(json, pagina);
+        }
+
+        @Override
+        void abrir() {
+        }
+
+        @Override
+        void escreverLinha(QuerySolution solucao) throws IOException {
+            json.writeStartObject();
+            for (String variavel : variaveis) {
+                RDFNode valor = solucao.get(variavel);
+                if (valor == null) continue;
+                json.writeFieldName(variavel);
+                escreverValorTipado(json, valor);
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        void fim() throws IOException {
+            json.writeStartObject();
+            json.writeBooleanField("fim", true);
+            json.writeNumberField("linhas", linhas);
+            String cursor = proximoCursor();
+            if (cursor != null) json.writeStringField("proximoCursor", cursor);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        void erro(String mensagem) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("erro", mensagem);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+    }
+
+    private static final class EscritorSparqlJson extends Escritor {
+
+        EscritorSparqlJson(JsonGenerator json, Pagina pagina) {
+            super(json, pagina);
+        }
+
+        @Override
+        void abrir() throws IOException {
+            json.writeStartObject();
+            json.writeObjectFieldStart("head");
+            json.writeArrayFieldStart("vars");
+            for (String variavel : variaveis) json.writeString(variavel);
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeObjectFieldStart("results");
+            json.writeArrayFieldStart("bindings");
+        }
+
+        @Override
+        void escreverLinha(QuerySolution solucao) throws IOException {
+            json.writeStartObject();
+            for (String variavel : variaveis) {
+                RDFNode valor = solucao.get(variavel);
+                if (valor == null) continue;
+                json.writeObjectFieldStart(variavel);
+                if (valor.isLiteral()) {
+                    Literal literal = valor.asLiteral();
+                    json.writeStringField("type", "literal");
+                    json.writeStringField("value", literal.getLexicalForm());
+                    if (!literal.getLanguage().isEmpty()) {
+                        json.writeStringField("xml:lang", literal.getLanguage());
+                    } else if (literal.getDatatypeURI() != null && !XSDDatatype.XSDstring.getURI().equals(literal.getDatatypeURI())) {
+                        json.writeStringField("datatype", literal.getDatatypeURI());
+                    }
+                } else if (valor.isAnon()) {
+                    json.writeStringField("type", "bnode");
+                    json.writeStringField("value", valor.asResource().getId().getLabelString());
+                } else {
+                    json.writeStringField("type", "uri");
+                    json.writeStringField("value", valor.asResource().getURI());
+                }
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+        }
+
+        @Override
+        void fim() throws IOException {
+            json.writeEndArray();
+            json.writeEndObject();
+            String cursor = proximoCursor();
+            if (cursor != null) json.writeStringField("proximoCursor", cursor);
+            json.writeEndObject();
+        }
+
+        @Override
+        void erro(String mensagem) throws IOException {
+            if (!iniciado) {
+                json.writeStartObject();
+            } else {
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeStringField("erro", mensagem);
+            json.writeEndObject();
+        }
+    }
+
+    /** Números e booleanos viram valores JSON nativos; o resto, a forma léxica ou a URI. */
+    private static void escreverValorTipado(JsonGenerator json, RDFNode valor) throws IOException {
+        if (!valor.isLiteral()) {
+            json.writeString(valor.isAnon() ? "_:" + valor.asResource().getId().getLabelString() : valor.asResource().getURI());
+            return;
+        }
+        Literal literal = valor.asLiteral();
+        Object java;
+        try {
+            java = literal.getValue();
+        } catch (Exception e) {
+            java = null; // literal mal formado para o tipo declarado
+        }
+        if (java instanceof BigDecimal d) {
+            json.writeNumber(d);
+        } else if (java instanceof BigInteger i) {
+            json.writeNumber(i);
+        } else if (java instanceof Integer || java instanceof Long || java instanceof Short || java instanceof Byte) {
+            json.writeNumber(((Number) java).longValue());
+        } else if (java instanceof Double || java instanceof Float) {
+            double d = ((Number) java).doubleValue();
+            if (Double.isFinite(d)) json.writeNumber(d); else json.writeString(literal.getLexicalForm());
+        } else if (java instanceof Boolean b) {
+            json.writeBoolean(b);
+        } else {
+            json.writeString(literal.getLexicalForm());
+        }
+    }
+}
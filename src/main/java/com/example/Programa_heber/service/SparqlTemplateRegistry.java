@@ -0,0 +1,167 @@
+package com.example.Programa_heber.service;
+
+import com.example.Programa_heber.ontology.Ontology;
+import jakarta.annotation.PostConstruct;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.syntax.syntaxtransform.QueryTransformOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache dos templates SPARQL de {@code Templates/*.txt}, lidos e parseados uma única vez na subida.
+ *
+ * Cada placeholder {@code #NOME#} do texto vira uma variável {@code ?ph_NOME} da query parseada.
+ * Na hora de responder, os valores vindos do PLN são convertidos em nós RDF tipados (literal
+ * xsd:date, IRI da ontologia, literal com idioma) e substituídos na árvore da query, sem
+ * concatenação de texto. Assim não há leitura de arquivo nem parse por requisição, e o texto
+ * vindo do PLN não consegue alterar a estrutura da consulta.
+ */
+@Component
+public class SparqlTemplateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SparqlTemplateRegistry.class);
+
+    private static final String TEMPLATES_PATTERN = "classpath*:Templates/*.txt";
+    private static final String PREFIXO_VARIAVEL = "ph_";
+    private static final Pattern PLACEHOLDER = Pattern.compile("#([A-Z][A-Z0-9_]*)#(?:@([a-zA-Z]+(?:-[a-zA-Z0-9]+)*))?");
+    private static final Pattern DATA_ISO = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+    private static final Pattern NOME_LOCAL = Pattern.compile("(?:b3:)?([A-Za-z][A-Za-z0-9_]*)");
+
+    /** Como o valor textual de um placeholder é convertido em nó RDF. */
+    enum TipoSlot { DATA, PROPRIEDADE, LITERAL }
+
+    record Slot(String placeholder, Var variavel, TipoSlot tipo, String idioma) {}
+
+    /** Template já parseado; {@link #query()} tem as variáveis {@code ?ph_*} ainda livres. */
+    public record TemplateCompilado(String id, Query query, List<Slot> slots) {}
+
+    private final Map<String, TemplateCompilado> templates = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        Resource[] recursos = new PathMatchingResourcePatternResolver().getResources(TEMPLATES_PATTERN);
+        for (Resource recurso : recursos) {
+            String nomeArquivo = Objects.requireNonNull(recurso.getFilename());
+            String id = nomeArquivo.substring(0, nomeArquivo.length() - ".txt".length());
+            try (InputStream in = recurso.getInputStream()) {
+                templates.put(id, compilar(id, new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            } catch (Exception e) {
+                logger.warn("Template '{}' ignorado: não foi possível compilá-lo ({}).", id, e.getMessage());
+            }
+        }
+        logger.info("{} templates SPARQL compilados: {}", templates.size(), templates.keySet());
+    }
+
+    public Optional<TemplateCompilado> get(String templateId) {
+        return Optional.ofNullable(templates.get(templateId));
+    }
+
+    public Collection<TemplateCompilado> getTemplates() {
+        return Collections.unmodifiableCollection(templates.values());
+    }
+
+    /**
+     * Devolve uma nova {@link Query} com os placeholders do template substituídos por nós tipados.
+     *
+     * @throws FileNotFoundException se o template não existe (ou não compilou).
+     * @throws IllegalArgumentException se faltar um placeholder ou algum valor for inválido para o tipo do slot.
+     */
+    public Query preencher(String templateId, Map<String, String> placeholders) throws FileNotFoundException {
+        TemplateCompilado template = templates.get(templateId);
+        if (template == null) {
+            throw new FileNotFoundException("Template SPARQL não encontrado: Templates/" + templateId + ".txt");
+        }
+        return QueryTransformOps.transform(template.query(), vincular(template, placeholders));
+    }
+
+    /**
+     * Converte os valores do PLN nos nós de cada variável {@code ?ph_*} do template, sem montar a
+     * query. Usado quando várias perguntas do mesmo template são respondidas por uma única consulta.
+     *
+     * @throws IllegalArgumentException se faltar um placeholder ou algum valor for inválido para o tipo do slot.
+     */
+    public Map<Var, Node> vincular(TemplateCompilado template, Map<String, String> placeholders) {
+        Map<Var, Node> substituicoes = new LinkedHashMap<>();
+        for (Slot slot : template.slots()) {
+            String valor = placeholders == null ? null : placeholders.get(slot.placeholder());
+            if (valor == null) {
+                throw new IllegalArgumentException("Placeholder obrigatório ausente para " + template.id() + ": " + slot.placeholder());
+            }
+            substituicoes.put(slot.variavel(), converter(slot, valor));
+        }
+        return substituicoes;
+    }
+
+    static TemplateCompilado compilar(String id, String texto) {
+        Map<String, Slot> slots = new LinkedHashMap<>();
+        Matcher m = PLACEHOLDER.matcher(texto);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            String nome = m.group(1);
+            String placeholder = "#" + nome + "#";
+            Slot slot = slots.computeIfAbsent(placeholder, ph -> new Slot(ph, Var.alloc(PREFIXO_VARIAVEL + nome), tipoDoPlaceholder(nome), m.group(2)));
+            m.appendReplacement(sb, Matcher.quoteReplacement("?" + slot.variavel().getVarName()));
+        }
+        m.appendTail(sb);
+        Query query = QueryFactory.create(sb.toString());
+        return new TemplateCompilado(id, query, List.copyOf(slots.values()));
+    }
+
+    private static TipoSlot tipoDoPlaceholder(String nome) {
+        return switch (nome) {
+            case "DATA" -> TipoSlot.DATA;
+            case "VALOR_DESEJADO" -> TipoSlot.PROPRIEDADE;
+            default -> TipoSlot.LITERAL;
+        };
+    }
+
+    /**
+     * Aceita tanto o formato SPARQL que o PLN produz hoje ({@code "2023-05-08"^^xsd:date},
+     * {@code b3:precoFechamento}, {@code "GERDAU S.A."}) quanto o valor puro.
+     */
+    private static Node converter(Slot slot, String valor) {
+        String v = valor.strip();
+        switch (slot.tipo()) {
+            case DATA -> {
+                Matcher m = DATA_ISO.matcher(v);
+                if (!m.find()) throw new IllegalArgumentException("Data inválida para " + slot.placeholder() + ": " + valor);
+                try {
+                    LocalDate.parse(m.group(1));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("Data inválida para " + slot.placeholder() + ": " + valor);
+                }
+                return NodeFactory.createLiteral(m.group(1), XSDDatatype.XSDdate);
+            }
+            case PROPRIEDADE -> {
+                Matcher m = NOME_LOCAL.matcher(v);
+                if (!m.matches()) throw new IllegalArgumentException("Propriedade inválida para " + slot.placeholder() + ": " + valor);
+                return NodeFactory.createURI(Ontology.ONT_PREFIX + m.group(1));
+            }
+            default -> {
+                String texto = v;
+                if (texto.length() >= 2 && texto.startsWith("\"") && texto.endsWith("\"")) {
+                    texto = texto.substring(1, texto.length() - 1).replace("\\\"", "\"");
+                }
+                return slot.idioma() != null ? NodeFactory.createLiteral(texto, slot.idioma()) : NodeFactory.createLiteral(texto);
+            }
+        }
+    }
+}
@@ -4,7 +4,10 @@ import json
 import os
 import logging
 import re
-from difflib import get_close_matches
+import math
+import heapq
+import unicodedata
+from collections import Counter, deque
 from datetime import datetime
 
 # --- 1. CONFIGURAÇÃO ---
@@ -27,16 +30,33 @@ def exit_with_json_error(message):
     print(json.dumps({"erro": message}, ensure_ascii=False))
     sys.exit(0) # Saímos com sucesso (0) pois o erro foi lógico, não de execução.
 
-def load_resource(filename, loader_func):
-    """Carrega um arquivo de recurso de forma segura."""
-    path = os.path.join(SCRIPT_DIR, filename)
+class ErroPln(Exception):
+    """Erro lógico de processamento (pergunta sem template, sem entidades essenciais ou recurso ilegível)."""
+    pass
+
+# Diretório opcional com versões externas dos arquivos de dados (nlp.dicionarios.dir, repassado pelo
+# PythonWorkerPool); o arquivo que não estiver nele vem do diretório do script.
+DIR_DICIONARIOS = os.environ.get("PLN_DICIONARIOS_DIR", "").strip()
+ARQUIVOS_DICIONARIO = ("empresa_nome_map.json", "setor_map.json", "resultado_similaridade.txt", "perguntas_de_interesse.txt")
+
+def caminho_recurso(filename):
+    """Caminho do arquivo de dados: a versão externa, se houver, ou a que acompanha o script."""
+    if DIR_DICIONARIOS:
+        externo = os.path.join(DIR_DICIONARIOS, filename)
+        if os.path.isfile(externo):
+            return externo
+    return os.path.join(SCRIPT_DIR, filename)
+
+def ler_recurso(filename, loader_func):
+    """Carrega um arquivo de recurso; levanta ErroPln se ele faltar ou não puder ser lido."""
+    path = caminho_recurso(filename)
     if not os.path.exists(path):
-        exit_with_json_error(f"Arquivo de recurso essencial não encontrado: {path}")
+        raise ErroPln(f"Arquivo de recurso essencial não encontrado: {path}")
     try:
         with open(path, 'r', encoding='utf-8') as f:
             return loader_func(f)
     except Exception as e:
-        exit_with_json_error(f"Erro ao carregar ou parsear o arquivo '{path}': {e}")
+        raise ErroPln(f"Erro ao carregar ou parsear o arquivo '{path}': {e}") from e
 
 def normalizar_texto(texto: str):
     """Função de normalização padrão para chaves de mapa e texto da pergunta."""
@@ -51,10 +71,6 @@ try:
 except OSError:
     exit_with_json_error("Modelo spaCy 'pt_core_news_sm' não encontrado. Verifique se foi baixado no ambiente.")
 
-# Carrega mapas de dados com chaves normalizadas
-empresa_nome_map = {normalizar_texto(k): v for k, v in load_resource("empresa_nome_map.json", json.load).items()}
-setor_map_global = {normalizar_texto(k): v for k, v in load_resource("setor_map.json", json.load).items()}
-
 def _load_sinonimos(f):
     sinonimos = {}
     for line in f:
@@ -63,35 +79,260 @@ def _load_sinonimos(f):
             if len(parts) == 2:
                 sinonimos[normalizar_texto(parts[0])] = parts[1]
     return sinonimos
-sinonimos_map = load_resource("resultado_similaridade.txt", _load_sinonimos)
 
 # --- 4. LÓGICA DE PROCESSAMENTO DE LINGUAGEM NATURAL ---
 
-def selecionar_template(pergunta: str) -> str | None:
-    """Compara a pergunta do usuário com uma lista de perguntas padrão para encontrar a melhor intenção/template."""
-    pergunta_norm = normalizar_texto(pergunta)
-    path_perguntas = os.path.join(SCRIPT_DIR, "perguntas_de_interesse.txt")
-    
+# Templates que recebem o setor da pergunta (#SETOR#).
+TEMPLATES_COM_SETOR = {"Template_3A", "Template_7A", "Template_7B", "Template_7C"}
+
+# --- Índice de templates ---
+# Cada pergunta de exemplo de perguntas_de_interesse.txt vira um vetor TF-IDF de trigramas de
+# caracteres; a seleção busca os exemplos de maior cosseno com a pergunta. O índice invertido guarda,
+# por trigrama e template, só os LIMITE_POR_TEMPLATE exemplos em que ele pesa mais, e só os
+# CANDIDATOS_POR_TEMPLATE melhores escores parciais de cada template têm o cosseno exato calculado:
+# o custo não cresce com o número de exemplos. Empresas, setores e tickers são tirados dos exemplos
+# e da pergunta antes, para que a intenção não dependa da entidade citada. Mesmo algoritmo do
+# IndiceTemplates do backend Java.
+LIMITE_POR_TEMPLATE = 16
+CANDIDATOS_POR_TEMPLATE = 4
+CONFIANCA_MINIMA = 0.35
+
+_TICKER_NORMALIZADO = re.compile(r'\b[a-z]{4}\d{1,2}\b')
+
+# --- Dicionário de entidades ---
+# Um único autômato Aho-Corasick com as chaves de empresas, setores e sinônimos de métricas: uma
+# passada sobre a pergunta encontra todas as ocorrências de todas as chaves, em vez de um teste
+# `chave in texto` por chave. Mesmo algoritmo do DicionarioEntidades do backend Java.
+EMPRESA, SETOR, METRICA = "empresa", "setor", "metrica"
+
+class DicionarioEntidades:
+    def __init__(self, empresas: dict, setores: dict, sinonimos: dict):
+        self.chaves, self.valores, self.categorias = [], [], []
+        self.filhos = [{}]
+        self.saidas = [[]]
+        for categoria, mapa in ((EMPRESA, empresas), (SETOR, setores), (METRICA, sinonimos)):
+            for chave, valor in mapa.items():
+                if chave:
+                    self._adicionar(chave, valor, categoria)
+
+        # Links de falha e de saída calculados em largura a partir da raiz.
+        n = len(self.filhos)
+        self.falha = [0] * n
+        self.ligacao_saida = [-1] * n
+        fila = deque(self.filhos[0].values())
+        while fila:
+            no = fila.popleft()
+            for ch, filho in self.filhos[no].items():
+                f = self.falha[no]
+                while f and ch not in self.filhos[f]:
+                    f = self.falha[f]
+                destino = self.filhos[f].get(ch, 0)
+                self.falha[filho] = destino if destino != filho else 0
+                falha = self.falha[filho]
+                self.ligacao_saida[filho] = falha if self.saidas[falha] else self.ligacao_saida[falha]
+                fila.append(filho)
+
+    def _adicionar(self, chave, valor, categoria):
+        no = 0
+        for ch in chave:
+            filho = self.filhos[no].get(ch)
+            if filho is None:
+                filho = len(self.filhos)
+                self.filhos[no][ch] = filho
+                self.filhos.append({})
+                self.saidas.append([])
+            no = filho
+        self.saidas[no].append(len(self.chaves))
+        self.chaves.append(chave)
+        self.valores.append(valor)
+        self.categorias.append(categoria)
+
+    def __len__(self):
+        return len(self.chaves)
+
+    def ocorrencias(self, texto: str):
+        """Todas as ocorrências (inclusive sobrepostas) como (inicio, fim, id), na ordem em que terminam."""
+        estado = 0
+        for i, ch in enumerate(texto):
+            while estado and ch not in self.filhos[estado]:
+                estado = self.falha[estado]
+            estado = self.filhos[estado].get(ch, 0)
+            no = estado
+            while no > 0:
+                for id_chave in self.saidas[no]:
+                    yield i + 1 - len(self.chaves[id_chave]), i + 1, id_chave
+                no = self.ligacao_saida[no]
+
+    def mais_longa_por_categoria(self, texto: str) -> dict:
+        """
+        Para cada categoria, o valor da chave mais longa contida no texto; em empate de tamanho vence a
+        chave que aparece primeiro no mapa de origem. É o resultado da antiga varredura das chaves
+        ordenadas por tamanho, obtido em uma só passada.
+        """
+        melhor = {}
+        for _, _, id_chave in self.ocorrencias(texto):
+            categoria = self.categorias[id_chave]
+            atual = melhor.get(categoria)
+            if atual is None or (len(self.chaves[id_chave]), -id_chave) > (len(self.chaves[atual]), -atual):
+                melhor[categoria] = id_chave
+        return {categoria: self.valores[id_chave] for categoria, id_chave in melhor.items()}
+
+    def sem_entidades(self, texto_norm: str) -> str:
+        """Texto normalizado sem as empresas, setores (palavras inteiras, as mais longas primeiro) e tickers que cita."""
+        entidades = sorted((inicio, -fim) for inicio, fim, id_chave in self.ocorrencias(texto_norm)
+                           if self.categorias[id_chave] != METRICA and _palavra_inteira(texto_norm, inicio, fim))
+        partes = []
+        fim_anterior = 0
+        for inicio, menos_fim in entidades:
+            if inicio < fim_anterior:
+                continue
+            partes.append(texto_norm[fim_anterior:inicio])
+            partes.append(' ')
+            fim_anterior = -menos_fim
+        partes.append(texto_norm[fim_anterior:])
+        return _TICKER_NORMALIZADO.sub(' ', ''.join(partes))
+
+def _palavra_inteira(texto: str, inicio: int, fim: int) -> bool:
+    return (inicio == 0 or not texto[inicio - 1].isalnum()) and (fim == len(texto) or not texto[fim].isalnum())
+
+def _trigramas(texto: str):
+    """Trigramas do texto sem acentos e pontuação, com dígitos como 0 e um espaço em cada ponta."""
+    preparado = [' ']
+    for c in unicodedata.normalize('NFD', texto.lower()):
+        if unicodedata.category(c) == 'Mn':
+            continue
+        normal = '0' if c.isdigit() else c if c.isalpha() else ' '
+        if normal == ' ' and preparado[-1] == ' ':
+            continue
+        preparado.append(normal)
+    if preparado[-1] != ' ':
+        preparado.append(' ')
+    t = ''.join(preparado)
+    return [t[i:i + 3] for i in range(len(t) - 2)]
+
+def _idf(documentos, df):
+    return math.log((documentos + 1.0) / (df + 1.0)) + 1
+
+class IndiceTemplates:
+    def __init__(self, template_por_pergunta: dict):
+        self.exemplos = list(template_por_pergunta.keys())
+        self.templates = list(template_por_pergunta.values())
+        n = len(self.exemplos)
+        frequencias = [Counter(_trigramas(p)) for p in self.exemplos]
+        df = Counter(t for tf in frequencias for t in tf)
+        self.idf = {t: _idf(n, d) for t, d in df.items()}
+        self.idf_desconhecido = _idf(n, 0)
+        self.vetores = []
+        listas = {t: [] for t in df}
+        for ex, tf in enumerate(frequencias):
+            pesos = {t: (1 + math.log(f)) * self.idf[t] for t, f in tf.items()}
+            norma = math.sqrt(sum(p * p for p in pesos.values())) or 1.0
+            pesos = {t: p / norma for t, p in pesos.items()}
+            self.vetores.append(pesos)
+            for t, p in pesos.items():
+                listas[t].append((p, ex))
+        self.postings = {}
+        for t, lista in listas.items():
+            por_template = Counter()
+            self.postings[t] = []
+            for p, ex in sorted(lista, key=lambda par: (-par[0], par[1])):
+                por_template[self.templates[ex]] += 1
+                if por_template[self.templates[ex]] <= LIMITE_POR_TEMPLATE:
+                    self.postings[t].append((p, ex))
+
+    def buscar(self, pergunta: str, k: int = 1):
+        """Os k templates mais próximos como (template, exemplo, confiança), do mais provável ao menos."""
+        tf = Counter(_trigramas(pergunta))
+        consulta = {t: (1 + math.log(f)) * self.idf.get(t, self.idf_desconhecido) for t, f in tf.items()}
+        norma = math.sqrt(sum(p * p for p in consulta.values()))
+        parciais = {}
+        for t, peso in consulta.items():
+            for peso_doc, ex in self.postings.get(t, ()):
+                parciais[ex] = parciais.get(ex, 0.0) + peso * peso_doc
+        if not parciais:
+            return []
+        por_template = {}
+        for ex in parciais:
+            por_template.setdefault(self.templates[ex], []).append(ex)
+        candidatos = [ex for exs in por_template.values()
+                      for ex in heapq.nlargest(CANDIDATOS_POR_TEMPLATE, exs, key=lambda e: (parciais[e], -e))]
+        melhores = {}
+        for ex in candidatos:
+            vetor = self.vetores[ex]
+            cosseno = sum(p * vetor.get(t, 0.0) for t, p in consulta.items()) / norma
+            template = self.templates[ex]
+            if template not in melhores or cosseno > melhores[template][2]:
+                melhores[template] = (template, self.exemplos[ex], min(1.0, cosseno))
+        return sorted(melhores.values(), key=lambda c: -c[2])[:k]
+
+def _carregar_perguntas_base(f):
     perguntas_base = {}
-    with open(path_perguntas, 'r', encoding='utf-8') as f:
-        for line in f:
-            if line.strip() and not line.startswith('#'):
-                parts = line.strip().split(';', 1)
-                if len(parts) == 2:
-                    # Remove placeholders como <data> para uma comparação mais precisa
-                    pergunta_sem_ph = re.sub(r'<[^>]+>', '', parts[1])
-                    perguntas_base[normalizar_texto(pergunta_sem_ph)] = parts[0].strip()
-    
-    melhores_matches = get_close_matches(pergunta_norm, perguntas_base.keys(), n=1, cutoff=0.6)
-    if melhores_matches:
-        template_nome = perguntas_base[melhores_matches[0]]
-        logging.info(f"Template selecionado: '{template_nome}' para a pergunta: '{pergunta}'")
+    for line in f:
+        if line.strip() and not line.startswith('#'):
+            parts = line.strip().split(';', 1)
+            if len(parts) == 2:
+                # Remove placeholders como <data> para uma comparação mais precisa
+                pergunta_sem_ph = re.sub(r'<[^>]+>', '', parts[1])
+                perguntas_base.setdefault(normalizar_texto(pergunta_sem_ph), parts[0].strip().lstrip('\ufeff'))
+    return perguntas_base
+
+class Recursos:
+    """Dicionário de entidades e índice de templates construídos a partir de uma versão dos arquivos de dados."""
+    def __init__(self):
+        empresas = {normalizar_texto(k): v for k, v in ler_recurso("empresa_nome_map.json", json.load).items()}
+        setores = {normalizar_texto(k): v for k, v in ler_recurso("setor_map.json", json.load).items()}
+        sinonimos = ler_recurso("resultado_similaridade.txt", _load_sinonimos)
+        self.dicionario = DicionarioEntidades(empresas, setores, sinonimos)
+        exemplos = {}
+        for pergunta, template in ler_recurso("perguntas_de_interesse.txt", _carregar_perguntas_base).items():
+            exemplos.setdefault(self.dicionario.sem_entidades(pergunta), template)
+        self.indice = IndiceTemplates(exemplos)
+
+_recursos = None
+_assinatura_recursos = None
+
+def _assinatura_arquivos():
+    return tuple((info.st_mtime_ns, info.st_size) for info in (os.stat(caminho_recurso(nome)) for nome in ARQUIVOS_DICIONARIO))
+
+def recursos() -> Recursos:
+    """
+    Versão atual do dicionário e do índice, reconstruída só se algum arquivo de dados mudou desde a
+    última pergunta. Se a reconstrução falhar (arquivo removido ou ilegível no meio de uma edição), a
+    versão anterior continua valendo até os arquivos mudarem de novo: um erro de edição não derruba o worker.
+    """
+    global _recursos, _assinatura_recursos
+    try:
+        assinatura = _assinatura_arquivos()
+        if _recursos is None or assinatura != _assinatura_recursos:
+            _assinatura_recursos = assinatura
+            _recursos = Recursos()
+            logging.info(f"Dicionário de entidades e índice de templates construídos: {len(_recursos.dicionario)} chaves e "
+                         f"{len(_recursos.indice.exemplos)} perguntas-base.")
+    except Exception as e:
+        if _recursos is None:
+            raise ErroPln(f"Dicionários de PLN indisponíveis: {e}") from e
+        logging.error(f"Falha ao recarregar os dicionários de PLN; mantendo a versão anterior: {e}")
+    return _recursos
+
+def selecionar_template(pergunta: str, atuais: Recursos) -> str | None:
+    """Busca no índice de templates a intenção mais próxima da pergunta do usuário."""
+    candidatos = atuais.indice.buscar(atuais.dicionario.sem_entidades(normalizar_texto(pergunta)), k=2)
+    if candidatos and candidatos[0][2] >= CONFIANCA_MINIMA:
+        template_nome, _, confianca = candidatos[0]
+        logging.info(f"Template selecionado: '{template_nome}' (confiança {confianca:.3f}, alternativas {candidatos[1:]}) para a pergunta: '{pergunta}'")
         return template_nome.replace(" ", "_") # Garante o formato com underscore
-    
-    logging.warning(f"Nenhum template encontrado para a pergunta: '{pergunta}'")
+
+    logging.warning(f"Nenhum template encontrado para a pergunta: '{pergunta}' (melhor: {candidatos[:1]})")
     return None
 
-def mapear_entidades(pergunta: str, template_id: str) -> dict:
+# Constrói o dicionário e o índice já na carga do módulo (no modo worker, antes da primeira pergunta).
+# Sem eles não há como responder, então aqui a falha ainda encerra o script.
+try:
+    recursos()
+except ErroPln as e:
+    exit_with_json_error(str(e))
+
+def mapear_entidades(pergunta: str, template_id: str, dicionario: DicionarioEntidades) -> dict:
     """Extrai entidades da pergunta e as formata para os placeholders da query SPARQL."""
     placeholders = {}
     texto_norm = normalizar_texto(pergunta)
@@ -111,12 +352,13 @@ def mapear_entidades(pergunta: str, template_id: str) -> dict:
             except ValueError:
                 continue
 
+    # Uma única passada do autômato resolve empresa, setor e métrica.
+    encontrados = dicionario.mais_longa_por_categoria(texto_norm)
+
     # 2. Mapear Valor Desejado (Métrica de Preço)
-    for sinonimo, prop_ontologia in sorted(sinonimos_map.items(), key=lambda item: len(item[0]), reverse=True):
-        if sinonimo in texto_norm:
-            placeholders["#VALOR_DESEJADO#"] = f'b3:{prop_ontologia}'
-            logging.info(f"Entidade #VALOR_DESEJADO# mapeada para: {placeholders['#VALOR_DESEJADO#']}")
-            break
+    if METRICA in encontrados:
+        placeholders["#VALOR_DESEJADO#"] = f'b3:{encontrados[METRICA]}'
+        logging.info(f"Entidade #VALOR_DESEJADO# mapeada para: {placeholders['#VALOR_DESEJADO#']}")
 
     # 3. Mapear Entidade (Empresa ou Ticker)
     entidade_encontrada = None
@@ -127,11 +369,9 @@ def mapear_entidades(pergunta: str, template_id: str) -> dict:
         logging.info(f"Entidade encontrada por Regex de Ticker: '{entidade_encontrada}'")
     else:
         # Se não for ticker, busca por nome no mapa
-        for nome_mapa, nome_canônico in sorted(empresa_nome_map.items(), key=lambda item: len(item[0]), reverse=True):
-            if nome_mapa in texto_norm:
-                entidade_encontrada = nome_canônico
-                logging.info(f"Entidade encontrada por Nome do Mapa: '{entidade_encontrada}' (chave: '{nome_mapa}')")
-                break
+        entidade_encontrada = encontrados.get(EMPRESA)
+        if entidade_encontrada:
+            logging.info(f"Entidade encontrada por Nome do Mapa: '{entidade_encontrada}'")
     
     if entidade_encontrada:
         # Escapa aspas no valor para evitar quebrar o JSON/SPARQL
@@ -140,53 +380,101 @@ def mapear_entidades(pergunta: str, template_id: str) -> dict:
         logging.info(f"Entidade #ENTIDADE_NOME# mapeada para: {placeholders['#ENTIDADE_NOME#']}")
     
     # 4. Mapear Setor
-    if template_id == "Template_3A":
-        for nome_mapa, nome_canônico in sorted(setor_map_global.items(), key=lambda item: len(item[0]), reverse=True):
-            if nome_mapa in texto_norm:
-                placeholders["#SETOR#"] = f'"{nome_canônico}"'
-                logging.info(f"Entidade #SETOR# mapeada para: {placeholders['#SETOR#']}")
-                break
+    if template_id in TEMPLATES_COM_SETOR and SETOR in encontrados:
+        placeholders["#SETOR#"] = f'"{encontrados[SETOR]}"'
+        logging.info(f"Entidade #SETOR# mapeada para: {placeholders['#SETOR#']}")
 
     return placeholders
 
 # --- 5. FUNÇÃO PRINCIPAL DE EXECUÇÃO ---
 
-def main(pergunta_usuario: str):
-    """Orquestra o processo de PLN e imprime o resultado JSON."""
+def processar_pergunta(pergunta_usuario: str) -> dict:
+    """Executa o PLN completo para uma pergunta e devolve o objeto de resposta (template + mapeamentos)."""
     logging.info(f"Processando a pergunta recebida do Java: '{pergunta_usuario}'")
     
-    template_id = selecionar_template(pergunta_usuario)
+    atuais = recursos()
+    template_id = selecionar_template(pergunta_usuario, atuais)
     if not template_id:
-        exit_with_json_error("Não foi possível determinar a intenção da pergunta (nenhum template compatível encontrado).")
-        return
+        raise ErroPln("Não foi possível determinar a intenção da pergunta (nenhum template compatível encontrado).")
 
-    placeholders = mapear_entidades(pergunta_usuario, template_id)
+    placeholders = mapear_entidades(pergunta_usuario, template_id, atuais.dicionario)
     
     # Validação final dos placeholders necessários
     ph_essenciais = {
         "Template_1A": ["#ENTIDADE_NOME#", "#DATA#", "#VALOR_DESEJADO#"],
         "Template_1B": ["#ENTIDADE_NOME#", "#DATA#", "#VALOR_DESEJADO#"],
         "Template_2A": ["#ENTIDADE_NOME#"],
-        "Template_3A": ["#SETOR#"]
+        "Template_3A": ["#SETOR#"],
+        "Template_6A": ["#ENTIDADE_NOME#", "#DATA#"],
+        "Template_7A": ["#SETOR#", "#DATA#"],
+        "Template_7B": ["#SETOR#", "#DATA#"],
+        "Template_7C": ["#SETOR#", "#DATA#"],
+        "Template_7D": ["#DATA#"],
+        "Template_7E": ["#DATA#"],
+        "Template_7F": ["#DATA#"]
     }
 
     if template_id in ph_essenciais:
         faltando = [ph for ph in ph_essenciais[template_id] if ph not in placeholders]
         if faltando:
-            exit_with_json_error(f"Não foi possível extrair todas as informações necessárias. Faltando: {', '.join(faltando)}")
-            return
+            raise ErroPln(f"Não foi possível extrair todas as informações necessárias. Faltando: {', '.join(faltando)}")
 
     # Se tudo correu bem, monta o objeto de resposta final
-    resposta_final = {
+    return {
         "template_nome": template_id,
         "mapeamentos": placeholders
     }
+
+def main(pergunta_usuario: str):
+    """Orquestra o processo de PLN e imprime o resultado JSON."""
+    try:
+        resposta_final = processar_pergunta(pergunta_usuario)
+    except ErroPln as e:
+        exit_with_json_error(str(e))
+        return
     
     # Imprime o JSON para stdout, que será capturado pelo processo Java
     print(json.dumps(resposta_final, ensure_ascii=False))
     logging.info("Processamento PLN concluído com sucesso. JSON enviado para stdout.")
 
+def servidor():
+    """
+    Modo worker persistente: lê uma requisição JSON por linha em stdin e responde uma linha JSON em stdout.
+    Requisições: {"id": 1, "pergunta": "..."} ou {"id": 2, "comando": "ping"}.
+    O modelo spaCy e os mapas já foram carregados no import, então cada pergunta custa apenas a inferência.
+    """
+    def responder(obj):
+        sys.stdout.write(json.dumps(obj, ensure_ascii=False) + "\n")
+        sys.stdout.flush()
+
+    responder({"status": "pronto", "pid": os.getpid()})
+    for linha in sys.stdin:
+        linha = linha.strip()
+        if not linha:
+            continue
+        req_id = None
+        try:
+            req = json.loads(linha)
+            req_id = req.get("id")
+            if req.get("comando") == "ping":
+                responder({"id": req_id, "status": "ok"})
+                continue
+            resposta = processar_pergunta(req.get("pergunta", ""))
+        except ErroPln as e:
+            logging.error(str(e))
+            resposta = {"erro": str(e)}
+        except Exception as e:
+            logging.exception("Falha inesperada ao processar requisição do worker.")
+            resposta = {"erro": f"Falha inesperada no worker PLN: {e}"}
+        resposta["id"] = req_id
+        responder(resposta)
+    logging.info("stdin encerrado; worker PLN finalizando.")
+
 if __name__ == "__main__":
+    if len(sys.argv) >= 2 and sys.argv[1] == "--servidor":
+        servidor()
+        sys.exit(0)
+
     if len(sys.argv) < 2:
         exit_with_json_error("Nenhum argumento de pergunta foi fornecido ao script Python.")
     
@@ -0,0 +1,126 @@
+package com.example.Programa_heber.nlp;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * O autômato deve encontrar exatamente as ocorrências que uma busca ingênua ({@code indexOf} de
+ * cada chave em cada posição) encontra, inclusive sobrepostas e de chaves que são prefixo ou
+ * sufixo de outras, e escolher a mesma chave mais longa por categoria.
+ */
+class DicionarioEntidadesTest {
+
+    private static final DicionarioEntidades.Categoria EMPRESA = DicionarioEntidades.Categoria.EMPRESA;
+    private static final DicionarioEntidades.Categoria SETOR = DicionarioEntidades.Categoria.SETOR;
+    private static final DicionarioEntidades.Categoria METRICA = DicionarioEntidades.Categoria.METRICA;
+
+    @Test
+    void ocorrenciasSobrepostasPrefixosESufixos() {
+        Map<String, String> empresas = mapa("vale", "VALE S.A.", "vale do rio doce", "VALE (ANTIGA)", "rio", "RIO S.A.");
+        Map<String, String> setores = mapa("mineracao", "Mineração", "doce", "Alimentos");
+        Map<String, String> sinonimos = mapa("preco", "precoFechamento", "preco de abertura", "precoAbertura");
+        DicionarioEntidades dicionario = DicionarioEntidades.construir(empresas, setores, sinonimos);
+        String texto = "preco de abertura da vale do rio doce, mineracao";
+
+        Assertions.assertThat(dicionario.tamanho()).isEqualTo(7);
+        Assertions.assertThat(dicionario.ocorrencias(texto)).extracting(DicionarioEntidades.Ocorrencia::chave)
+                .containsExactly("preco", "preco de abertura", "vale", "rio", "vale do rio doce", "doce", "mineracao");
+        Assertions.assertThat(dicionario.ocorrencias(texto)).containsExactlyInAnyOrderElementsOf(ingenuas(texto, empresas, setores, sinonimos));
+
+        Assertions.assertThat(dicionario.ocorrenciasMaisLongasSemSobreposicao(texto)).extracting(DicionarioEntidades.Ocorrencia::valor)
+                .containsExactly("precoAbertura", "VALE (ANTIGA)", "Mineração");
+        Assertions.assertThat(dicionario.maisLongaPorCategoria(texto))
+                .containsExactly(Map.entry(EMPRESA, "VALE (ANTIGA)"), Map.entry(SETOR, "Mineração"), Map.entry(METRICA, "precoAbertura"));
+    }
+
+    @Test
+    void empateDeTamanhoFicaComAChaveQueVemAntesNoMapa() {
+        DicionarioEntidades dicionario = DicionarioEntidades.construir(
+                mapa("itau", "ITAÚ UNIBANCO", "gol", "GOL S.A.", "bb", "BANCO DO BRASIL", "tim", "TIM S.A."),
+                Map.of(), Map.of());
+        Assertions.assertThat(dicionario.maisLongaPorCategoria("tim ou itau?")).containsEntry(EMPRESA, "ITAÚ UNIBANCO");
+        Assertions.assertThat(dicionario.maisLongaPorCategoria("tim ou gol?")).containsEntry(EMPRESA, "GOL S.A.");
+        Assertions.assertThat(dicionario.maisLongaPorCategoria("nenhuma")).isEmpty();
+    }
+
+    @Test
+    void mesmaChaveEmCategoriasDiferentesEChaveVaziaIgnorada() {
+        DicionarioEntidades dicionario = DicionarioEntidades.construir(
+                mapa("energia", "ENERGIA S.A.", "", "VAZIA"), mapa("energia", "Energia Elétrica"), Map.of());
+        Assertions.assertThat(dicionario.tamanho()).isEqualTo(2);
+        Assertions.assertThat(dicionario.ocorrencias("setor de energia")).extracting(DicionarioEntidades.Ocorrencia::categoria)
+                .containsExactly(EMPRESA, SETOR);
+        Assertions.assertThat(DicionarioEntidades.construir(Map.of(), Map.of(), Map.of()).ocorrencias("qualquer texto")).isEmpty();
+    }
+
+    @Test
+    void igualABuscaIngenuaEmDicionariosAleatorios() {
+        Random aleatorio = new Random(11);
+        for (int rodada = 0; rodada < 300; rodada++) {
+            List<Map<String, String>> mapas = new ArrayList<>();
+            for (int c = 0; c < 3; c++) {
+                Map<String, String> mapa = new LinkedHashMap<>();
+                int chaves = aleatorio.nextInt(8);
+                for (int k = 0; k < chaves; k++) mapa.put(texto(aleatorio, 1 + aleatorio.nextInt(5)), "v" + c + "_" + k);
+                mapas.add(mapa);
+            }
+            DicionarioEntidades dicionario = DicionarioEntidades.construir(mapas.get(0), mapas.get(1), mapas.get(2));
+            String texto = texto(aleatorio, aleatorio.nextInt(40));
+
+            List<DicionarioEntidades.Ocorrencia> obtidas = dicionario.ocorrencias(texto);
+            Assertions.assertThat(obtidas).as("'%s' com %s", texto, mapas)
+                    .containsExactlyInAnyOrderElementsOf(ingenuas(texto, mapas.get(0), mapas.get(1), mapas.get(2)));
+            Assertions.assertThat(obtidas).extracting(DicionarioEntidades.Ocorrencia::fim).isSorted();
+            Assertions.assertThat(dicionario.maisLongaPorCategoria(texto)).as("'%s' com %s", texto, mapas)
+                    .isEqualTo(maisLongaIngenua(texto, mapas));
+        }
+    }
+
+    private static List<DicionarioEntidades.Ocorrencia> ingenuas(String texto, Map<String, String> empresas,
+                                                             Map<String, String> setores, Map<String, String> sinonimos) {
+        List<DicionarioEntidades.Ocorrencia> ocorrencias = new ArrayList<>();
+        DicionarioEntidades.Categoria[] categorias = DicionarioEntidades.Categoria.values();
+        List<Map<String, String>> mapas = List.of(empresas, setores, sinonimos);
+        for (int c = 0; c < categorias.length; c++) {
+            for (Map.Entry<String, String> e : mapas.get(c).entrySet()) {
+                if (e.getKey().isEmpty()) continue;
+                for (int i = texto.indexOf(e.getKey()); i >= 0; i = texto.indexOf(e.getKey(), i + 1)) {
+                    ocorrencias.add(new DicionarioEntidades.Ocorrencia(i, i + e.getKey().length(), categorias[c], e.getKey(), e.getValue()));
+                }
+            }
+        }
+        return ocorrencias;
+    }
+
+    /** As chaves de cada categoria ordenadas por tamanho (estável), como a varredura que o autômato substituiu. */
+    private static Map<DicionarioEntidades.Categoria, String> maisLongaIngenua(String texto, List<Map<String, String>> mapas) {
+        Map<DicionarioEntidades.Categoria, String> resultado = new EnumMap<>(DicionarioEntidades.Categoria.class);
+        DicionarioEntidades.Categoria[] categorias = DicionarioEntidades.Categoria.values();
+        for (int c = 0; c < categorias.length; c++) {
+            List<String> chaves = new ArrayList<>(mapas.get(c).keySet());
+            chaves.sort(Comparator.comparingInt(String::length).reversed());
+            for (String chave : chaves) {
+                if (texto.contains(chave)) {
+                    resultado.put(categorias[c], mapas.get(c).get(chave));
+                    break;
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /** Texto sobre um alfabeto de três símbolos, para forçar sobreposições e links de falha profundos. */
+    private static String texto(Random aleatorio, int tamanho) {
+        StringBuilder sb = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) sb.append("ab ".charAt(aleatorio.nextInt(3)));
+        return sb.toString();
+    }
+
+    private static Map<String, String> mapa(String... pares) {
+        Map<String, String> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < pares.length; i += 2) mapa.put(pares[i], pares[i + 1]);
+        return mapa;
+    }
+}
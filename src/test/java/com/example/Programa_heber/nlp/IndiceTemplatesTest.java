@@ -0,0 +1,140 @@
+package com.example.Programa_heber.nlp;
+
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Com até {@value IndiceTemplates#LIMITE_POR_TEMPLATE} exemplos por template (o caso de
+ * perguntas_de_interesse.txt) a busca deve dar o mesmo cosseno TF-IDF que a comparação da pergunta
+ * com todos os exemplos; com mais exemplos, o corte por template não pode esconder os outros templates.
+ */
+class IndiceTemplatesTest {
+
+    private static final Offset<Double> PRECISAO_FLOAT = Offset.offset(1e-5);
+
+    private static Map<String, String> exemplos;
+    private static IndiceTemplates indice;
+
+    @BeforeAll
+    static void construir() throws IOException {
+        exemplos = new LinkedHashMap<>();
+        for (String linha : linhas("perguntas_de_interesse.txt")) {
+            String[] partes = linha.replace("\uFEFF", "").strip().split(";", 2);
+            if (partes.length == 2) exemplos.put(partes[1], partes[0]);
+        }
+        indice = IndiceTemplates.construir(exemplos);
+    }
+
+    @Test
+    void cadaExemploEncontraOProprioTemplate() {
+        Assertions.assertThat(indice.tamanho()).isEqualTo(exemplos.size());
+        exemplos.forEach((exemplo, template) -> Assertions.assertThat(indice.buscar(exemplo, 1)).singleElement()
+                .satisfies(c -> {
+                    Assertions.assertThat(c.template()).isEqualTo(template);
+                    Assertions.assertThat(c.exemplo()).isEqualTo(exemplo);
+                    Assertions.assertThat(c.confianca()).isCloseTo(1.0, PRECISAO_FLOAT);
+                }));
+    }
+
+    @Test
+    void mesmoCossenoQueAComparacaoComTodosOsExemplos() throws IOException {
+        for (String pergunta : linhas("nlp/perguntas.txt")) {
+            List<IndiceTemplates.Candidato> candidatos = indice.buscar(pergunta, 100);
+            Map<String, Double> esperado = cossenosPorTemplate(pergunta);
+            esperado.values().removeIf(c -> c == 0);
+            Assertions.assertThat(esperado).as(pergunta).isNotEmpty();
+            Assertions.assertThat(candidatos).extracting(IndiceTemplates.Candidato::template).as(pergunta)
+                    .containsExactlyInAnyOrderElementsOf(esperado.keySet());
+            Assertions.assertThat(candidatos).extracting(IndiceTemplates.Candidato::confianca).isSortedAccordingTo(Comparator.reverseOrder());
+            for (IndiceTemplates.Candidato c : candidatos) {
+                Assertions.assertThat(c.confianca()).as("%s em '%s'", c.template(), pergunta).isCloseTo(esperado.get(c.template()), PRECISAO_FLOAT);
+            }
+            Assertions.assertThat(indice.buscar(pergunta, 2)).hasSizeLessThanOrEqualTo(2)
+                    .isEqualTo(candidatos.subList(0, Math.min(2, candidatos.size())));
+        }
+    }
+
+    @Test
+    void acentosPontuacaoEDigitosNaoDiferenciam() {
+        Assertions.assertThat(IndiceTemplates.trigramas("Qual o PREÇO em 08/05/2023?"))
+                .isEqualTo(IndiceTemplates.trigramas("qual o preco em 01-12-1999"));
+        Assertions.assertThat(IndiceTemplates.trigramas("a")).hasSize(1);
+        Assertions.assertThat(IndiceTemplates.trigramas("")).isEmpty();
+        Assertions.assertThat(IndiceTemplates.trigramas("?!")).isEmpty();
+        Assertions.assertThat(indice.buscar("xyzw kkkk", 3)).isEmpty();
+        Assertions.assertThat(indice.buscar("", 3)).isEmpty();
+    }
+
+    @Test
+    void templateComMuitosExemplosNaoEscondeOsOutros() {
+        Map<String, String> desequilibrado = new LinkedHashMap<>();
+        for (int i = 0; i < 5 * IndiceTemplates.LIMITE_POR_TEMPLATE; i++) {
+            desequilibrado.put("qual o preco de fechamento da empresa numero " + Integer.toString(i, 26) + " no pregao", "Template_A");
+        }
+        desequilibrado.put("qual o preco de abertura da empresa no pregao", "Template_B");
+        IndiceTemplates desigual = IndiceTemplates.construir(desequilibrado);
+
+        Assertions.assertThat(desigual.buscar("qual o preco de abertura da empresa", 1))
+                .extracting(IndiceTemplates.Candidato::template).containsExactly("Template_B");
+        Assertions.assertThat(desigual.buscar("qual o preco de fechamento da empresa", 2))
+                .extracting(IndiceTemplates.Candidato::template).containsExactly("Template_A", "Template_B");
+    }
+
+    /** Maior cosseno TF-IDF da pergunta com os exemplos de cada template, comparando com todos. */
+    private static Map<String, Double> cossenosPorTemplate(String pergunta) {
+        List<Map<Long, Integer>> tfs = new ArrayList<>();
+        Map<Long, Integer> df = new HashMap<>();
+        for (String exemplo : exemplos.keySet()) {
+            Map<Long, Integer> tf = frequencias(exemplo);
+            tf.keySet().forEach(t -> df.merge(t, 1, Integer::sum));
+            tfs.add(tf);
+        }
+        int n = exemplos.size();
+        Map<Long, Double> consulta = pesos(frequencias(pergunta), df, n);
+        Map<String, Double> melhores = new HashMap<>();
+        int i = 0;
+        for (String template : exemplos.values()) {
+            Map<Long, Double> exemplo = pesos(tfs.get(i++), df, n);
+            double cosseno = 0;
+            for (Map.Entry<Long, Double> e : consulta.entrySet()) cosseno += e.getValue() * exemplo.getOrDefault(e.getKey(), 0.0);
+            melhores.merge(template, cosseno, Math::max);
+        }
+        return melhores;
+    }
+
+    private static Map<Long, Double> pesos(Map<Long, Integer> tf, Map<Long, Integer> df, int n) {
+        Map<Long, Double> pesos = new HashMap<>();
+        double norma = 0;
+        for (Map.Entry<Long, Integer> e : tf.entrySet()) {
+            double peso = (1 + Math.log(e.getValue())) * (Math.log((n + 1.0) / (df.getOrDefault(e.getKey(), 0) + 1.0)) + 1);
+            pesos.put(e.getKey(), peso);
+            norma += peso * peso;
+        }
+        double inverso = 1 / Math.sqrt(norma);
+        pesos.replaceAll((t, p) -> p * inverso);
+        return pesos;
+    }
+
+    private static Map<Long, Integer> frequencias(String texto) {
+        Map<Long, Integer> tf = new HashMap<>();
+        for (long trigrama : IndiceTemplates.trigramas(texto)) tf.merge(trigrama, 1, Integer::sum);
+        return tf;
+    }
+
+    private static List<String> linhas(String recurso) throws IOException {
+        try (InputStream in = new ClassPathResource(recurso).getInputStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().filter(linha -> !linha.isBlank()).toList();
+        }
+    }
+}
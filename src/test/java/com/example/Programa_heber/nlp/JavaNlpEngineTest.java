@@ -0,0 +1,136 @@
+package com.example.Programa_heber.nlp;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Paridade do backend Java com o pln_processor.py. As respostas de referência foram gravadas pelo
+ * próprio script (nlp/gravar_respostas.py sobre nlp/perguntas.txt): as perguntas de exemplo de cada
+ * template, variações com ticker, data curta e sinônimos, e os casos de erro (sem template, sem
+ * entidade, sem setor, data inexistente ou com separadores misturados).
+ */
+class JavaNlpEngineTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static JavaNlpEngine engine;
+
+    @BeforeAll
+    static void iniciar() throws IOException {
+        engine = novoEngine("indice", "");
+    }
+
+    static Stream<Arguments> respostasGravadas() throws IOException {
+        try (InputStream in = new ClassPathResource("nlp/respostas_pln_processor.jsonl").getInputStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().filter(linha -> !linha.isBlank()).map(JavaNlpEngineTest::caso).toList().stream();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("respostasGravadas")
+    void respondeComoOPlnProcessor(String pergunta, Map<String, Object> esperada) throws Exception {
+        Assertions.assertThat(engine.processar(pergunta)).isEqualTo(esperada);
+    }
+
+    @Test
+    void referenciaCobreAcertosEErros() throws IOException {
+        List<Map<String, Object>> respostas = respostasGravadas().map(a -> (Map<String, Object>) a.get()[1]).toList();
+        Assertions.assertThat(respostas).anySatisfy(r -> Assertions.assertThat(r).containsKeys("template_nome", "mapeamentos"));
+        Assertions.assertThat(respostas).anySatisfy(r -> Assertions.assertThat((String) r.get("erro")).startsWith("Não foi possível determinar a intenção"));
+        Assertions.assertThat(respostas).anySatisfy(r -> Assertions.assertThat((String) r.get("erro")).endsWith("Faltando: #DATA#"));
+        Assertions.assertThat(respostas).anySatisfy(r -> Assertions.assertThat((String) r.get("erro")).endsWith("Faltando: #SETOR#"));
+    }
+
+    @Test
+    void difflibSelecionaOTemplateDeCadaExemplo() throws IOException {
+        JavaNlpEngine difflib = novoEngine("difflib", "");
+        Assertions.assertThat(difflib.selecionarTemplate("Qual foi o preço de fechamento da ação da CSN em 08/05/2023?")).isEqualTo("Template_1A");
+        Assertions.assertThat(difflib.selecionarTemplate("Qual o código de negociação da ação da Gerdau?")).isEqualTo("Template_2A");
+        Assertions.assertThat(difflib.selecionarTemplate("Quais as cinco ações de maior percentual de baixa no pregão de 08/05/2023?")).isEqualTo("Template_7F");
+        Assertions.assertThat(difflib.selecionarTemplate("receita de bolo de chocolate")).isNull();
+    }
+
+    @Test
+    void recarregaDicionarioExternoEMantemOAnteriorSeEleQuebrar(@TempDir Path dir) throws IOException {
+        String pergunta = "Qual o código de negociação da Petrobras?";
+        Map<String, String> empresas = new LinkedHashMap<>();
+        empresas.put("petrobras", "PETRÓLEO BRASILEIRO S.A. PETROBRAS");
+        Path mapa = dir.resolve("empresa_nome_map.json");
+        JSON.writeValue(mapa.toFile(), empresas);
+        JavaNlpEngine externo = novoEngine("indice", dir.toString());
+        try {
+            Assertions.assertThat(externo.mapearEntidades(pergunta, "Template_2A"))
+                    .containsEntry("#ENTIDADE_NOME#", "\"PETRÓLEO BRASILEIRO S.A. PETROBRAS\"");
+
+            empresas.put("petrobras", "PETROBRAS (NOVO NOME)");
+            JSON.writeValue(mapa.toFile(), empresas);
+            ReflectionTestUtils.invokeMethod(externo, "recarregarSeAlterado");
+            Assertions.assertThat(externo.mapearEntidades(pergunta, "Template_2A"))
+                    .containsEntry("#ENTIDADE_NOME#", "\"PETROBRAS (NOVO NOME)\"");
+
+            Files.writeString(mapa, "{quebrado");
+            ReflectionTestUtils.invokeMethod(externo, "recarregarSeAlterado");
+            Assertions.assertThat(externo.mapearEntidades(pergunta, "Template_2A"))
+                    .containsEntry("#ENTIDADE_NOME#", "\"PETROBRAS (NOVO NOME)\"");
+        } finally {
+            externo.encerrar();
+        }
+    }
+
+    /** Uma pergunta de aquecimento que o PLN recusa deixaria de aquecer (e de treinar no AppCDS) a consulta. */
+    @Test
+    void perguntasDeAquecimentoSaoTraduzidas() throws Exception {
+        List<String> perguntas;
+        try (InputStream in = new ClassPathResource("perguntas_aquecimento.txt").getInputStream()) {
+            perguntas = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .map(String::strip).filter(l -> !l.isEmpty() && !l.startsWith("#")).toList();
+        }
+        Assertions.assertThat(perguntas).hasSize(9);
+        for (String pergunta : perguntas) {
+            Assertions.assertThat(engine.processar(pergunta)).as(pergunta).doesNotContainKey("erro").containsKeys("template_nome", "mapeamentos");
+        }
+    }
+
+    private static JavaNlpEngine novoEngine(String modoSelecao, String diretorioDicionarios) throws IOException {
+        JavaNlpEngine novo = new JavaNlpEngine();
+        ReflectionTestUtils.setField(novo, "diretorioDicionarios", diretorioDicionarios);
+        ReflectionTestUtils.setField(novo, "verificacaoSegundos", 3600L);
+        ReflectionTestUtils.setField(novo, "modoSelecao", modoSelecao);
+        ReflectionTestUtils.setField(novo, "confiancaMinima", 0.35);
+        novo.initialize();
+        return novo;
+    }
+
+    private static Arguments caso(String linha) {
+        try {
+            JsonNode caso = JSON.readTree(linha);
+            Map<String, Object> resposta = JSON.convertValue(caso.get("resposta"), new TypeReference<LinkedHashMap<String, Object>>() {});
+            return Arguments.of(caso.get("pergunta").asText(), resposta);
+        } catch (IOException e) {
+            throw new IllegalStateException("Linha inválida em respostas_pln_processor.jsonl: " + linha, e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.Programa_heber.nlp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Razões do porte do difflib contra as do próprio Python, gravadas por
+ * nlp/gravar_razoes_difflib.py: perguntas contra os exemplos de perguntas_de_interesse.txt, textos
+ * vazios, emojis (fora do BMP) e textos longos o bastante para ativar o "autojunk". Os valores são
+ * comparados exatamente, já que os dois lados fazem a mesma conta em double.
+ */
+class SequenceMatcherTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final List<JsonNode> razoes = new ArrayList<>();
+    private static final List<JsonNode> buscas = new ArrayList<>();
+    private static final List<String> exemplos = new ArrayList<>();
+
+    @BeforeAll
+    static void carregar() throws IOException {
+        for (String linha : linhas("nlp/razoes_difflib.jsonl")) {
+            JsonNode caso = JSON.readTree(linha);
+            (caso.has("palavra") ? buscas : razoes).add(caso);
+        }
+        for (String linha : linhas("perguntas_de_interesse.txt")) {
+            String[] partes = linha.replace("\uFEFF", "").strip().split(";", 2);
+            if (partes.length == 2) exemplos.add(partes[1]);
+        }
+    }
+
+    @Test
+    void razoesIguaisAsDoDifflib() {
+        Assertions.assertThat(razoes).hasSizeGreaterThan(200);
+        for (JsonNode caso : razoes) {
+            String a = caso.get("a").asText();
+            SequenceMatcher matcher = new SequenceMatcher(caso.get("b").asText());
+            int[] pontos = a.codePoints().toArray();
+            String descricao = a.length() > 60 ? a.substring(0, 60) + "..." : a;
+            Assertions.assertThat(matcher.ratio(pontos)).as("ratio de '%s'", descricao).isEqualTo(caso.get("ratio").asDouble());
+            Assertions.assertThat(matcher.quickRatio(pontos)).as("quick_ratio de '%s'", descricao).isEqualTo(caso.get("quick_ratio").asDouble());
+            Assertions.assertThat(matcher.realQuickRatio(pontos)).as("real_quick_ratio de '%s'", descricao).isEqualTo(caso.get("real_quick_ratio").asDouble());
+        }
+    }
+
+    @Test
+    void autojunkMudaARazaoComoNoPython() {
+        // Com b de 200 ou mais caracteres em um alfabeto de três símbolos, todos os símbolos são
+        // "populares" e quase nada casa; sem o autojunk as razões desses pares ficariam entre 0.2 e 0.45.
+        List<JsonNode> longos = razoes.stream()
+                .filter(c -> c.get("b").asText().length() >= 200 && c.get("b").asText().matches("[ab ]+"))
+                .toList();
+        Assertions.assertThat(longos).hasSize(3);
+        for (JsonNode caso : longos) {
+            double razao = new SequenceMatcher(caso.get("b").asText()).ratio(caso.get("a").asText().codePoints().toArray());
+            Assertions.assertThat(razao).isEqualTo(caso.get("ratio").asDouble()).isLessThan(0.05);
+        }
+    }
+
+    @Test
+    void melhorCorrespondenciaComoGetCloseMatches() {
+        Assertions.assertThat(exemplos).hasSize(17);
+        Assertions.assertThat(buscas).anySatisfy(c -> Assertions.assertThat(c.get("melhor").isNull()).isTrue());
+        for (JsonNode caso : buscas) {
+            String palavra = caso.get("palavra").asText();
+            double cutoff = caso.get("cutoff").asDouble();
+            String esperado = caso.get("melhor").isNull() ? null : caso.get("melhor").asText();
+            Assertions.assertThat(SequenceMatcher.melhorCorrespondencia(palavra, exemplos, cutoff))
+                    .as("'%s' com corte %s", palavra, cutoff)
+                    .isEqualTo(Optional.ofNullable(esperado));
+        }
+    }
+
+    private static List<String> linhas(String recurso) throws IOException {
+        try (InputStream in = new ClassPathResource(recurso).getInputStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().filter(linha -> !linha.isBlank()).toList();
+        }
+    }
+}
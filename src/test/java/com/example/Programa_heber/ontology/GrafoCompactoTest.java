@@ -0,0 +1,198 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * O {@link GrafoCompacto} deve devolver, para qualquer padrão, as mesmas triplas que o
+ * {@code GraphMem} de onde foi copiado. O {@code GraphMem} (e {@link Triple#matches(Triple)})
+ * compara literais por valor e o grafo compacto por termo, então a referência é o {@code find} do
+ * {@code GraphMem} filtrado por igualdade de termo.
+ */
+class GrafoCompactoTest {
+
+    private static final String NS = "http://example.org/";
+    private static final Node PRECO = NodeFactory.createURI(NS + "preco");
+
+    private static Graph origem;
+    private static GrafoCompacto compacto;
+
+    @BeforeAll
+    static void construir() throws IOException {
+        origem = grafoDeTeste();
+        compacto = GrafoCompacto.construir(origem, null);
+    }
+
+    @Test
+    void mesmoTamanhoETermosDoubleForaDoDicionario() {
+        Set<Node> termos = new HashSet<>();
+        origem.find().forEach(t -> termos.addAll(List.of(t.getSubject(), t.getPredicate(), t.getObject())));
+        Assertions.assertThat(compacto.size()).isEqualTo(origem.size());
+        Assertions.assertThat(compacto.quantidadeTermos()).isLessThan(termos.size());
+    }
+
+    @Test
+    void findIgualAoGraphMemNosOitoPadroes() {
+        for (Triple tripla : origem.find().toList()) {
+            for (int mascara = 0; mascara < 8; mascara++) {
+                Triple padrao = padrao(tripla, mascara);
+                Assertions.assertThat(encontrar(compacto, padrao)).as("padrão %s", padrao).isEqualTo(esperado(padrao));
+            }
+        }
+    }
+
+    @Test
+    void doublesNegativosZeroComSinalEEspeciais() {
+        for (double valor : new double[] {-1.5, -0.0, 0.0, -1e-300, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NaN, -123456.789}) {
+            Node literal = NodeFactory.createLiteralByValue(valor, XSDDatatype.XSDdouble);
+            Triple padrao = Triple.create(Node.ANY, PRECO, literal);
+            Assertions.assertThat(encontrar(compacto, padrao)).as("valor %s", valor).isEqualTo(esperado(padrao)).isNotEmpty();
+        }
+    }
+
+    @Test
+    void doubleNaoCanonicoMantemAFormaLexica() {
+        Node naoCanonico = NodeFactory.createLiteral("1.50E0", XSDDatatype.XSDdouble);
+        Node canonico = NodeFactory.createLiteralByValue(1.5, XSDDatatype.XSDdouble);
+        Node naoCanonicoSemExpoente = NodeFactory.createLiteral("2.50", XSDDatatype.XSDdouble);
+
+        Set<Triple> porNaoCanonico = encontrar(compacto, Triple.create(Node.ANY, PRECO, naoCanonico));
+        Assertions.assertThat(porNaoCanonico).hasSize(1)
+                .allSatisfy(t -> Assertions.assertThat(t.getObject().getLiteralLexicalForm()).isEqualTo("1.50E0"));
+        Assertions.assertThat(encontrar(compacto, Triple.create(Node.ANY, PRECO, canonico)))
+                .hasSize(1)
+                .allSatisfy(t -> Assertions.assertThat(t.getObject()).isEqualTo(canonico));
+        Assertions.assertThat(encontrar(compacto, Triple.create(Node.ANY, PRECO, naoCanonicoSemExpoente)))
+                .allSatisfy(t -> Assertions.assertThat(t.getObject().getLiteralLexicalForm()).isEqualTo("2.50"))
+                .hasSize(1);
+        // Por termo, "2.5" (forma canônica) não é "2.50", ainda que o GraphMem os considere o mesmo valor.
+        Assertions.assertThat(encontrar(compacto, Triple.create(Node.ANY, PRECO, NodeFactory.createLiteralByValue(2.5, XSDDatatype.XSDdouble)))).isEmpty();
+    }
+
+    @Test
+    void termosAusentesNaoCasam() {
+        Node ausente = NodeFactory.createURI(NS + "ausente");
+        Node doubleAusente = NodeFactory.createLiteralByValue(-999.25, XSDDatatype.XSDdouble);
+        Node literal = NodeFactory.createLiteral("ação");
+        Node sujeito = NodeFactory.createURI(NS + "s0");
+        List<Triple> padroes = List.of(
+                Triple.create(ausente, Node.ANY, Node.ANY),
+                Triple.create(Node.ANY, ausente, Node.ANY),
+                Triple.create(Node.ANY, Node.ANY, ausente),
+                Triple.create(Node.ANY, PRECO, doubleAusente),
+                Triple.create(sujeito, PRECO, doubleAusente),
+                Triple.create(literal, Node.ANY, Node.ANY),
+                Triple.create(Node.ANY, literal, Node.ANY),
+                Triple.create(NodeFactory.createLiteralByValue(1.5, XSDDatatype.XSDdouble), Node.ANY, Node.ANY));
+        for (Triple padrao : padroes) {
+            Assertions.assertThat(encontrar(compacto, padrao)).as("padrão %s", padrao).isEmpty();
+            Assertions.assertThat(compacto.contains(padrao)).isFalse();
+        }
+    }
+
+    @Test
+    void alocadorMapeadoDevolveOMesmoGrafoEApagaOArquivo(@TempDir Path dir) throws IOException {
+        GrafoCompacto mapeado = GrafoCompacto.construir(origem, dir);
+        try (Stream<Path> arquivos = Files.list(dir)) {
+            Assertions.assertThat(arquivos).isEmpty();
+        }
+        Assertions.assertThat(mapeado.tamanhoBytes()).isEqualTo(compacto.tamanhoBytes());
+        for (Triple tripla : origem.find().toList()) {
+            for (int mascara = 0; mascara < 8; mascara++) {
+                Triple padrao = padrao(tripla, mascara);
+                Assertions.assertThat(encontrar(mapeado, padrao)).as("padrão %s", padrao).isEqualTo(encontrar(compacto, padrao));
+            }
+        }
+    }
+
+    @Test
+    void grafoVazio() throws IOException {
+        GrafoCompacto vazio = GrafoCompacto.construir(GraphFactory.createGraphMem(), null);
+        Assertions.assertThat(vazio.size()).isZero();
+        Assertions.assertThat(vazio.find().toList()).isEmpty();
+        Assertions.assertThat(vazio.find(NodeFactory.createURI(NS + "s0"), Node.ANY, Node.ANY).toList()).isEmpty();
+    }
+
+    /** Bit 0 fixa o sujeito, bit 1 o predicado e bit 2 o objeto; os outros ficam ANY. */
+    private static Triple padrao(Triple t, int mascara) {
+        return Triple.create((mascara & 1) != 0 ? t.getSubject() : Node.ANY,
+                (mascara & 2) != 0 ? t.getPredicate() : Node.ANY,
+                (mascara & 4) != 0 ? t.getObject() : Node.ANY);
+    }
+
+    private static Set<Triple> encontrar(Graph grafo, Triple padrao) {
+        List<Triple> encontradas = grafo.find(padrao).toList();
+        Set<Triple> distintas = new HashSet<>(encontradas);
+        Assertions.assertThat(distintas).as("triplas repetidas para %s", padrao).hasSameSizeAs(encontradas);
+        return distintas;
+    }
+
+    private static Set<Triple> esperado(Triple padrao) {
+        return new HashSet<>(origem.find(padrao).filterKeep(t -> casaPorTermo(padrao, t)).toList());
+    }
+
+    private static boolean casaPorTermo(Triple padrao, Triple t) {
+        return casaPorTermo(padrao.getSubject(), t.getSubject())
+                && casaPorTermo(padrao.getPredicate(), t.getPredicate())
+                && casaPorTermo(padrao.getObject(), t.getObject());
+    }
+
+    private static boolean casaPorTermo(Node padrao, Node termo) {
+        return !padrao.isConcrete() || padrao.equals(termo);
+    }
+
+    /**
+     * Sujeitos URI e em branco, poucos predicados e objetos de todos os tipos: URIs, strings com e
+     * sem idioma, inteiros, datas e doubles canônicos (inclusive negativos, zero com sinal, infinitos
+     * e NaN) e não canônicos ("1.50E0", "2.50").
+     */
+    private static Graph grafoDeTeste() {
+        Random aleatorio = new Random(42);
+        List<Node> sujeitos = new ArrayList<>();
+        for (int i = 0; i < 30; i++) sujeitos.add(NodeFactory.createURI(NS + "s" + i));
+        for (int i = 0; i < 5; i++) sujeitos.add(NodeFactory.createBlankNode("b" + i));
+        List<Node> predicados = new ArrayList<>();
+        for (int i = 0; i < 4; i++) predicados.add(NodeFactory.createURI(NS + "p" + i));
+        predicados.add(PRECO);
+        List<Node> objetos = new ArrayList<>(sujeitos.subList(0, 10));
+        objetos.add(NodeFactory.createLiteral("ação"));
+        objetos.add(NodeFactory.createLiteral("ação", "pt"));
+        objetos.add(NodeFactory.createLiteralByValue(7, XSDDatatype.XSDinteger));
+        objetos.add(NodeFactory.createLiteral("2023-05-08", XSDDatatype.XSDdate));
+        for (int i = 0; i < 40; i++) {
+            objetos.add(NodeFactory.createLiteralByValue((aleatorio.nextDouble() - 0.5) * Math.pow(10, aleatorio.nextInt(12) - 4), XSDDatatype.XSDdouble));
+        }
+
+        Graph grafo = GraphFactory.createGraphMem();
+        for (int i = 0; i < 600; i++) {
+            grafo.add(Triple.create(sujeitos.get(aleatorio.nextInt(sujeitos.size())),
+                    predicados.get(aleatorio.nextInt(predicados.size())),
+                    objetos.get(aleatorio.nextInt(objetos.size()))));
+        }
+        double[] especiais = {-1.5, -0.0, 0.0, -1e-300, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NaN, -123456.789, 1.5};
+        for (int i = 0; i < especiais.length; i++) {
+            grafo.add(Triple.create(sujeitos.get(i), PRECO, NodeFactory.createLiteralByValue(especiais[i], XSDDatatype.XSDdouble)));
+        }
+        grafo.add(Triple.create(sujeitos.get(20), PRECO, NodeFactory.createLiteral("1.50E0", XSDDatatype.XSDdouble)));
+        grafo.add(Triple.create(sujeitos.get(21), PRECO, NodeFactory.createLiteral("2.50", XSDDatatype.XSDdouble)));
+        return grafo;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.Programa_heber.ontology;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A materialização da ontologiaB3.ttl com um pregão de teste (ontologia/pregao_teste.ttl) deve ser
+ * o fechamento do {@code InfModel} RDFS do Jena menos as triplas axiomáticas listadas no
+ * {@link MaterializadorRdfs}.
+ */
+class MaterializadorRdfsTest {
+
+    private static final String STOCK = "https://dcm.ffclrp.usp.br/lssb/stock-market-ontology#";
+    private static final String TESTE = "http://example.org/teste#";
+    private static final Node TYPE = RDF.type.asNode();
+
+    private static Model base;
+    private static Graph materializado;
+    private static int adicionadas;
+
+    @BeforeAll
+    static void materializar() {
+        base = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(base, "ontologiaB3.ttl");
+        RDFDataMgr.read(base, "ontologia/pregao_teste.ttl");
+        materializado = GraphFactory.createGraphMem();
+        GraphUtil.addInto(materializado, base.getGraph());
+        adicionadas = MaterializadorRdfs.doEsquema(base.getGraph()).materializar(materializado);
+    }
+
+    @Test
+    void igualAoFechamentoRdfsSemAxiomas() {
+        Set<Triple> fechamento = new HashSet<>(ModelFactory.createRDFSModel(base).getGraph().find().toList());
+        Set<Triple> obtido = new HashSet<>(materializado.find().toList());
+
+        Assertions.assertThat(fechamento).containsAll(obtido);
+        Assertions.assertThat(semAxiomas(obtido)).isEqualTo(semAxiomas(fechamento));
+        Assertions.assertThat(adicionadas).isEqualTo(materializado.size() - base.size()).isPositive();
+    }
+
+    @Test
+    void fechaSubclassesSubpropriedadesDominioEImagem() {
+        Node negociado = teste("TSTE3_20230508_Negociado");
+        Node empresa = teste("Empresa");
+        Assertions.assertThat(contem(empresa, TYPE, stock("Empresa_Capital_Aberto"))).isTrue();
+        Assertions.assertThat(contem(empresa, TYPE, stock("Empresa"))).isTrue();
+        Assertions.assertThat(contem(teste("TSTE3"), TYPE, stock("Valor_Mobiliario_Negociado"))).isTrue();
+        Assertions.assertThat(contem(teste("TSTE3_Code"), TYPE, stock("Codigo_Negociacao"))).isTrue();
+        Assertions.assertThat(contem(teste("Pregao_20230508"), TYPE, stock("Pregao"))).isTrue();
+        Assertions.assertThat(contem(negociado, TYPE, stock("Negociado_Em_Pregao"))).isTrue();
+        // codigoDeTeste ⊑ precoFechamentoAjustado ⊑ precoFechamento
+        Node menosTresQuartos = NodeFactory.createLiteral("-0.75", XSDDatatype.XSDdouble);
+        Assertions.assertThat(contem(negociado, teste("precoFechamentoAjustado"), menosTresQuartos)).isTrue();
+        Assertions.assertThat(contem(negociado, stock("precoFechamento"), menosTresQuartos)).isTrue();
+        Assertions.assertThat(contem(teste("codigoDeTeste"), RDFS.subPropertyOf.asNode(), stock("precoFechamento"))).isTrue();
+    }
+
+    @Test
+    void naoGeraAxiomasNemTiposDeLiterais() {
+        Assertions.assertThat(contem(teste("Empresa_de_Teste"), RDFS.subClassOf.asNode(), teste("Empresa_de_Teste"))).isFalse();
+        Assertions.assertThat(contem(teste("codigoDeTeste"), RDFS.subPropertyOf.asNode(), teste("codigoDeTeste"))).isFalse();
+        Assertions.assertThat(materializado.find().toList())
+                .noneSatisfy(t -> Assertions.assertThat(t.getSubject().isLiteral()).isTrue());
+    }
+
+    /**
+     * Sem as triplas com a forma das axiomáticas que o materializador não gera ({@code rdf:type
+     * rdfs:Resource}, {@code rdfs:subClassOf rdfs:Resource} e subclasse/subpropriedade reflexiva).
+     * Elas saem dos dois lados porque a ontologia também declara algumas, e aí o materializador as
+     * propaga como qualquer outra.
+     */
+    private static Set<Triple> semAxiomas(Set<Triple> triplas) {
+        Set<Triple> resultado = new HashSet<>();
+        for (Triple t : triplas) {
+            Node p = t.getPredicate(), o = t.getObject();
+            boolean recurso = (p.equals(TYPE) || p.equals(RDFS.subClassOf.asNode())) && o.equals(RDFS.Resource.asNode());
+            boolean reflexiva = (p.equals(RDFS.subClassOf.asNode()) || p.equals(RDFS.subPropertyOf.asNode())) && t.getSubject().equals(o);
+            if (!recurso && !reflexiva) resultado.add(t);
+        }
+        return resultado;
+    }
+
+    private static boolean contem(Node s, Node p, Node o) {
+        return materializado.contains(s, p, o);
+    }
+
+    private static Node stock(String local) {
+        return NodeFactory.createURI(STOCK + local);
+    }
+
+    private static Node teste(String local) {
+        return NodeFactory.createURI(TESTE + local);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.Programa_heber.ontology;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Leitura de pregões em CSV: separador ',' ou ';' (com vírgula decimal), aspas, BOM, linhas em
+ * branco e células vazias, com os números das linhas contados como no XLSX.
+ */
+class PlanilhaReaderTest {
+
+    @Test
+    void csvComVirgulaEAspas() throws IOException {
+        List<String> linhas = ler("cotacoes.csv", """
+                data,ticker,nome,fechamento
+                20230508,PETR4,"PETROBRAS, S.A.",25.41
+                20230508, VALE3 ,"VALE \"\"ON\"\"",-0.5
+                """);
+        Assertions.assertThat(linhas).containsExactly(
+                "0:[data, ticker, nome, fechamento]",
+                "1:[20230508, PETR4, PETROBRAS, S.A., 25.41]",
+                "2:[20230508, VALE3, VALE \"ON\", -0.5]");
+    }
+
+    @Test
+    void pontoEVirgulaConverteSoNumerosComVirgulaDecimal() throws IOException {
+        List<String> linhas = ler("B3.CSV", """
+                data;ticker;abertura;fechamento;obs
+                20230508;PETR4;25,10;-0,75;1,2,3
+                20230508;VALE3;"68,5";70;"texto, com vírgula"
+                """);
+        Assertions.assertThat(linhas).containsExactly(
+                "0:[data, ticker, abertura, fechamento, obs]",
+                "1:[20230508, PETR4, 25.10, -0.75, 1,2,3]",
+                "2:[20230508, VALE3, 68.5, 70, texto, com vírgula]");
+    }
+
+    @Test
+    void bomLinhasEmBrancoECelulasVazias() throws IOException {
+        List<String> linhas = ler("pregao.csv", "\uFEFFdata,ticker,fechamento\r\n\r\n20230508,,  \r\n   \r\n20230509,ITUB4,\"\"\r\n");
+        Assertions.assertThat(linhas).containsExactly(
+                "0:[data, ticker, fechamento]",
+                "2:[20230508, null, null]",
+                "4:[20230509, ITUB4, null]");
+        Assertions.assertThat(ler("vazio.csv", "")).isEmpty();
+    }
+
+    @Test
+    void erroDoHandlerInterrompeALeitura() {
+        List<Integer> lidas = new ArrayList<>();
+        Assertions.assertThatThrownBy(() -> PlanilhaReader.ler(entrada("a\nb\nc\n"), "x.csv", (numero, celulas) -> {
+            lidas.add(numero);
+            if (numero == 1) throw new IOException("linha ruim");
+        })).isInstanceOf(IOException.class).hasMessage("linha ruim");
+        Assertions.assertThat(lidas).containsExactly(0, 1);
+    }
+
+    private static List<String> ler(String nome, String conteudo) throws IOException {
+        List<String> linhas = new ArrayList<>();
+        PlanilhaReader.ler(entrada(conteudo), nome, (numero, celulas) -> linhas.add(numero + ":" + Arrays.toString(celulas)));
+        return linhas;
+    }
+
+    private static ByteArrayInputStream entrada(String conteudo) {
+        return new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.Programa_heber.ontology;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Ida e volta pelo formato binário das séries ({@code gravar}/{@code ler}): mesmos tickers, datas e
+ * células, bit a bit, inclusive as vazias (NaN e o marcador das colunas inteiras) e as derivadas.
+ */
+class SeriesPrecosTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2023, 5, 2);
+
+    @Test
+    void gravarELerDevolveAsMesmasCelulas() throws IOException {
+        SeriesPrecos original = seriesComLacunas();
+        SeriesPrecos lida = idaEVolta(original);
+
+        Assertions.assertThat(lida.quantidadeTickers()).isEqualTo(original.quantidadeTickers()).isEqualTo(6);
+        Assertions.assertThat(lida.quantidadeDatas()).isEqualTo(original.quantidadeDatas()).isEqualTo(8);
+        Assertions.assertThat(lida.tamanhoBytes()).isEqualTo(original.tamanhoBytes());
+        for (int t = 0; t < original.quantidadeTickers(); t++) {
+            Assertions.assertThat(lida.ticker(t)).isEqualTo(original.ticker(t));
+            Assertions.assertThat(lida.indiceTicker(original.ticker(t))).isEqualTo(t);
+        }
+        for (int d = 0; d < original.quantidadeDatas(); d++) {
+            Assertions.assertThat(lida.data(d)).isEqualTo(original.data(d));
+            for (SeriesPrecos.Coluna coluna : SeriesPrecos.Coluna.values()) {
+                double[] esperado = new double[original.quantidadeTickers()];
+                double[] obtido = new double[original.quantidadeTickers()];
+                original.pregao(coluna, d, esperado);
+                lida.pregao(coluna, d, obtido);
+                Assertions.assertThat(bits(obtido)).as("%s em %s", coluna, original.data(d)).isEqualTo(bits(esperado));
+                for (int t = 0; t < original.quantidadeTickers(); t++) {
+                    Assertions.assertThat(Double.doubleToRawLongBits(lida.valor(coluna, d, t)))
+                            .isEqualTo(Double.doubleToRawLongBits(original.valor(coluna, d, t)));
+                }
+            }
+            for (int t = 0; t < original.quantidadeTickers(); t++) {
+                Assertions.assertThat(Double.doubleToRawLongBits(lida.variacaoPercentual(d, t)))
+                        .isEqualTo(Double.doubleToRawLongBits(original.variacaoPercentual(d, t)));
+            }
+        }
+        Assertions.assertThat(lida.indiceTicker("AUSENTE")).isEqualTo(-1);
+        Assertions.assertThat(lida.indiceData(INICIO.minusDays(1))).isEqualTo(-1);
+    }
+
+    @Test
+    void valoresEspeciaisELacunasSobrevivem() throws IOException {
+        SeriesPrecos lida = idaEVolta(seriesComLacunas());
+        int pregao = lida.indiceData(INICIO);
+        int zero = lida.indiceTicker("ZERO3");
+        Assertions.assertThat(lida.valor(SeriesPrecos.Coluna.ABERTURA, pregao, zero)).isEqualTo(0.0);
+        Assertions.assertThat(Double.doubleToRawLongBits(lida.valor(SeriesPrecos.Coluna.FECHAMENTO, pregao, zero)))
+                .isEqualTo(Double.doubleToRawLongBits(-0.0));
+        Assertions.assertThat(lida.valor(SeriesPrecos.Coluna.VARIACAO_INTRADIARIA_PERCENTUAL, pregao, zero)).isNaN();
+        Assertions.assertThat(lida.valor(SeriesPrecos.Coluna.NEGOCIOS, pregao, zero)).isEqualTo((double) Long.MAX_VALUE / 2);
+
+        int lacuna = lida.indiceTicker("LACU3");
+        Assertions.assertThat(lida.valor(SeriesPrecos.Coluna.FECHAMENTO, pregao, lacuna)).isNaN();
+        Assertions.assertThat(lida.valor(SeriesPrecos.Coluna.NEGOCIOS, pregao, lacuna)).isNaN();
+        Assertions.assertThat(lida.valor(SeriesPrecos.Coluna.FECHAMENTO, pregao + 1, lacuna)).isEqualTo(12.5);
+        Assertions.assertThat(lida.valor(SeriesPrecos.Coluna.VARIACAO_INTRADIARIA_ABSOLUTA, pregao + 1, lacuna)).isEqualTo(2.5);
+    }
+
+    @Test
+    void serieVaziaEArquivoInvalido() throws IOException {
+        SeriesPrecos vazia = idaEVolta(SeriesPrecos.vazia());
+        Assertions.assertThat(vazia.quantidadeTickers()).isZero();
+        Assertions.assertThat(vazia.quantidadeDatas()).isZero();
+
+        byte[] bytes = gravar(seriesComLacunas());
+        Assertions.assertThatThrownBy(() -> SeriesPrecos.ler(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))))
+                .isInstanceOf(EOFException.class);
+        byte[] semMagico = bytes.clone();
+        semMagico[0] ^= 1;
+        Assertions.assertThatThrownBy(() -> SeriesPrecos.ler(new ByteArrayInputStream(semMagico)))
+                .isInstanceOf(IOException.class).hasMessageContaining("não é uma série de preços");
+    }
+
+    /**
+     * Oito pregões e seis tickers com valores aleatórios (inclusive negativos), um ticker só com
+     * zeros e -0.0 e outro que falta no primeiro pregão e só tem fechamento e abertura no segundo.
+     */
+    private static SeriesPrecos seriesComLacunas() {
+        Random aleatorio = new Random(5);
+        SeriesPrecos.Construtor construtor = new SeriesPrecos.Construtor();
+        for (String ticker : new String[] {"PETR4", "VALE3", "ITUB4", "BBDC4"}) {
+            for (int d = 0; d < 8; d++) {
+                if (aleatorio.nextInt(5) == 0) continue;
+                String[] celulas = new String[16];
+                for (int c = 8; c < 16; c++) celulas[c] = Double.toString((aleatorio.nextDouble() - 0.2) * 100);
+                celulas[13] = Integer.toString(aleatorio.nextInt(100_000));
+                construtor.adicionar(ticker, INICIO.plusDays(d), SeriesPrecos.valores(celulas));
+            }
+        }
+        String[] zeros = new String[16];
+        zeros[8] = "0";
+        zeros[12] = "-0.0";
+        zeros[13] = Long.toString(Long.MAX_VALUE / 2);
+        construtor.adicionar("ZERO3", INICIO, SeriesPrecos.valores(zeros));
+        String[] parcial = new String[16];
+        parcial[8] = "10";
+        parcial[12] = "12.5";
+        construtor.adicionar("LACU3", INICIO.plusDays(1), SeriesPrecos.valores(parcial));
+        return construtor.construir();
+    }
+
+    private static SeriesPrecos idaEVolta(SeriesPrecos series) throws IOException {
+        return SeriesPrecos.ler(new ByteArrayInputStream(gravar(series)));
+    }
+
+    private static byte[] gravar(SeriesPrecos series) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        series.gravar(saida);
+        return saida.toByteArray();
+    }
+
+    private static long[] bits(double[] valores) {
+        return Arrays.stream(valores).mapToLong(Double::doubleToRawLongBits).toArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.Programa_heber.service;
+
+import com.example.Programa_heber.model.ProcessamentoDetalhadoResposta;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Aquecimento na subida: as perguntas do arquivo, na ordem e sem os comentários, passam pelo
+ * {@link QuestionProcessor}; uma pergunta que falha não interrompe as outras, e com
+ * {@code sair=true} a aplicação encerra mesmo quando o aquecimento falha.
+ */
+class AquecimentoInicializacaoTest {
+
+    private final List<String> perguntadas = new ArrayList<>();
+    private int encerramentos;
+
+    @Test
+    void respondeAsPerguntasDoArquivoNaOrdem() {
+        aquecimento("perguntas_aquecimento.txt", false, pergunta -> CompletableFuture.completedFuture(new ProcessamentoDetalhadoResposta()))
+                .aoSubir(null);
+
+        Assertions.assertThat(perguntadas).hasSize(9).allSatisfy(p -> Assertions.assertThat(p).doesNotStartWith("#").isNotBlank());
+        Assertions.assertThat(perguntadas.get(0)).isEqualTo("Qual foi o preço de fechamento da ação da CSN em 08/05/2023?");
+        Assertions.assertThat(perguntadas.get(8)).isEqualTo("Quais as cinco ações de maior percentual de baixa no pregão de 05/05/2023?");
+        Assertions.assertThat(encerramentos).isZero();
+    }
+
+    @Test
+    void perguntaQueFalhaNaoInterrompeAsOutras() {
+        aquecimento("perguntas_aquecimento.txt", true, pergunta -> {
+            if (perguntadas.size() == 1) return CompletableFuture.failedFuture(new TimeoutException());
+            if (perguntadas.size() == 2) return CompletableFuture.failedFuture(new AdmissaoRecusadaException("cheia", false, 1));
+            ProcessamentoDetalhadoResposta resposta = new ProcessamentoDetalhadoResposta();
+            if (perguntadas.size() == 3) resposta.setErro("Nenhum template");
+            return CompletableFuture.completedFuture(resposta);
+        }).aoSubir(null);
+
+        Assertions.assertThat(perguntadas).hasSize(9);
+        Assertions.assertThat(encerramentos).isEqualTo(1);
+    }
+
+    @Test
+    void semArquivoNaoPerguntaNadaESairEncerraMesmoComFalha() {
+        aquecimento("", true, pergunta -> Assertions.fail("não devia perguntar")).aoSubir(null);
+        Assertions.assertThat(encerramentos).isZero();
+
+        aquecimento("aquecimento_inexistente.txt", true, pergunta -> Assertions.fail("não devia perguntar")).aoSubir(null);
+        Assertions.assertThat(perguntadas).isEmpty();
+        Assertions.assertThat(encerramentos).isEqualTo(1);
+    }
+
+    private AquecimentoInicializacao aquecimento(String arquivo, boolean sair, Respostas respostas) {
+        AquecimentoInicializacao aquecimento = new AquecimentoInicializacao() {
+            @Override
+            void encerrar() {
+                encerramentos++;
+            }
+        };
+        ReflectionTestUtils.setField(aquecimento, "arquivoPerguntas", arquivo);
+        ReflectionTestUtils.setField(aquecimento, "sair", sair);
+        ReflectionTestUtils.setField(aquecimento, "questionProcessor", new QuestionProcessor() {
+            @Override
+            public CompletableFuture<ProcessamentoDetalhadoResposta> processQuestion(String pergunta, String cliente) {
+                Assertions.assertThat(cliente).isEqualTo("aquecimento");
+                perguntadas.add(pergunta);
+                return respostas.para(pergunta);
+            }
+        });
+        return aquecimento;
+    }
+
+    private interface Respostas {
+        CompletableFuture<ProcessamentoDetalhadoResposta> para(String pergunta);
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.Programa_heber.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Fila justa e limites do {@link EscalonadorPerguntas}, sempre na etapa de execução e com as vagas
+ * ocupadas por tarefas que esperam um latch, para que a ordem e a ocupação sejam determinísticas.
+ */
+class EscalonadorPerguntasTest {
+
+    private static final EscalonadorPerguntas.Etapa EXECUCAO = EscalonadorPerguntas.Etapa.EXECUCAO;
+    private static final EscalonadorPerguntas.Prioridade ALTA = EscalonadorPerguntas.Prioridade.ALTA;
+    private static final EscalonadorPerguntas.Prioridade BAIXA = EscalonadorPerguntas.Prioridade.BAIXA;
+
+    private EscalonadorPerguntas escalonador;
+    private final CountDownLatch liberar = new CountDownLatch(1);
+
+    @AfterEach
+    void encerrar() {
+        liberar.countDown();
+        if (escalonador != null) escalonador.encerrar();
+    }
+
+    @Test
+    void clientesAtendidosEmRodizioEPrioridadeAltaAntes() throws Exception {
+        escalonador = novo(1, 16, 8);
+        ocupar(1, ALTA);
+        aguardar(() -> execucao().get("emExecucao").equals(1));
+        List<String> ordem = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        futures.add(registrar("a", BAIXA, "a-baixa", ordem));
+        for (String id : List.of("a1", "a2", "a3", "b1", "b2", "c1")) {
+            futures.add(registrar(id.substring(0, 1), ALTA, id, ordem));
+        }
+        liberar.countDown();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        Assertions.assertThat(ordem).containsExactly("a1", "b1", "c1", "a2", "b2", "a3", "a-baixa");
+    }
+
+    @Test
+    void cotaDoClienteDa429EEtapaCheia503ComRetryAfter() {
+        escalonador = novo(1, 4, 2);
+        ocupar(1, ALTA);
+        aguardar(() -> execucao().get("emExecucao").equals(1));
+        Assertions.assertThat(escalonador.executar(EXECUCAO, "a", ALTA, 0, () -> 1)).isNotDone();
+        Assertions.assertThat(escalonador.executar(EXECUCAO, "a", ALTA, 0, () -> 1)).isNotDone();
+
+        AdmissaoRecusadaException porCliente = recusa(escalonador.executar(EXECUCAO, "a", ALTA, 0, () -> 1));
+        Assertions.assertThat(porCliente.isPorCliente()).isTrue();
+
+        // Prioridade baixa só entra com a fila abaixo da metade (2 de 4).
+        AdmissaoRecusadaException baixa = recusa(escalonador.executar(EXECUCAO, "b", BAIXA, 0, () -> 1));
+        Assertions.assertThat(baixa.isPorCliente()).isFalse();
+
+        Assertions.assertThat(escalonador.executar(EXECUCAO, "b", ALTA, 0, () -> 1)).isNotDone();
+        Assertions.assertThat(escalonador.executar(EXECUCAO, "c", ALTA, 0, () -> 1)).isNotDone();
+        AdmissaoRecusadaException cheia = recusa(escalonador.executar(EXECUCAO, "d", ALTA, 0, () -> 1));
+        Assertions.assertThat(cheia.isPorCliente()).isFalse();
+        // Nenhuma tarefa terminou ainda: média inicial de 1 s, 4 na fila + esta, uma vaga.
+        Assertions.assertThat(cheia.getRetryAfterSegundos()).isEqualTo(5);
+        Assertions.assertThat(baixa.getRetryAfterSegundos()).isEqualTo(3);
+        Assertions.assertThat(execucao().get("naFila")).isEqualTo(4);
+    }
+
+    @Test
+    void tempoEsgotadoNaFilaTiraATarefaSemRodar() throws Exception {
+        escalonador = novo(1, 8, 8);
+        ocupar(1, ALTA);
+        aguardar(() -> execucao().get("emExecucao").equals(1));
+        CountDownLatch rodou = new CountDownLatch(1);
+        CompletableFuture<Integer> naFila = escalonador.executar(EXECUCAO, "a", ALTA, 1, () -> {
+            rodou.countDown();
+            return 1;
+        });
+
+        Assertions.assertThatThrownBy(() -> naFila.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        Assertions.assertThat(execucao()).containsEntry("naFila", 0).containsEntry("clientes", 1);
+        liberar.countDown();
+        aguardar(() -> execucao().get("emExecucao").equals(0));
+        Assertions.assertThat(rodou.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        Assertions.assertThat(execucao()).containsEntry("clientes", 0);
+    }
+
+    @Test
+    void tempoEsgotadoRodandoInterrompeELiberaAVaga() throws Exception {
+        escalonador = novo(1, 8, 8);
+        CompletableFuture<Boolean> interrompida = new CompletableFuture<>();
+        CompletableFuture<Object> rodando = escalonador.executar(EXECUCAO, "a", ALTA, 1, () -> {
+            try {
+                liberar.await();
+                interrompida.complete(false);
+            } catch (InterruptedException e) {
+                interrompida.complete(true);
+            }
+            return null;
+        });
+
+        Assertions.assertThatThrownBy(() -> rodando.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        Assertions.assertThat(interrompida.get(5, TimeUnit.SECONDS)).isTrue();
+        aguardar(() -> execucao().get("emExecucao").equals(0));
+        Assertions.assertThat(escalonador.executar(EXECUCAO, "a", ALTA, 0, () -> 7).get(5, TimeUnit.SECONDS)).isEqualTo(7);
+    }
+
+    @Test
+    void cancelarLiberaAVagaParaAProximaDaFila() throws Exception {
+        escalonador = novo(1, 8, 8);
+        CompletableFuture<Object> rodando = escalonador.executar(EXECUCAO, "a", ALTA, 0, () -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        aguardar(() -> execucao().get("emExecucao").equals(1));
+        CompletableFuture<Integer> proxima = escalonador.executar(EXECUCAO, "b", ALTA, 0, () -> 2);
+        Assertions.assertThat(proxima).isNotDone();
+
+        rodando.cancel(true);
+        Assertions.assertThat(proxima.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        aguardar(() -> execucao().get("emExecucao").equals(0) && execucao().get("clientes").equals(0));
+    }
+
+    @Test
+    void canceladaEntreSairDaFilaEComecarSoDevolveAVaga() throws Exception {
+        escalonador = novo(1, 8, 8);
+        List<Runnable> despachadas = new CopyOnWriteArrayList<>();
+        ThreadPoolExecutor retido = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable tarefa) {
+                despachadas.add(tarefa);
+            }
+        };
+        ReflectionTestUtils.setField(escalonador, "executor", retido);
+        CountDownLatch rodou = new CountDownLatch(1);
+
+        CompletableFuture<Integer> future = escalonador.executar(EXECUCAO, "a", ALTA, 0, () -> {
+            rodou.countDown();
+            return 1;
+        });
+        Assertions.assertThat(despachadas).hasSize(1);
+        Assertions.assertThat(execucao()).containsEntry("emExecucao", 1).containsEntry("naFila", 0);
+
+        future.cancel(true);
+        despachadas.get(0).run();
+
+        Assertions.assertThat(rodou.getCount()).isEqualTo(1);
+        Assertions.assertThat(execucao()).containsEntry("emExecucao", 0).containsEntry("clientes", 0);
+        retido.shutdownNow();
+    }
+
+    @Test
+    void prioridadeBaixaNuncaOcupaTodasAsVagas() throws Exception {
+        escalonador = novo(4, 16, 16);
+        ocupar(4, BAIXA);
+        aguardar(() -> execucao().get("prioridadeBaixaEmExecucao").equals(3));
+        Assertions.assertThat(execucao()).containsEntry("concorrenciaPrioridadeBaixa", 3).containsEntry("naFila", 1);
+
+        Assertions.assertThat(escalonador.executar(EXECUCAO, "alta", ALTA, 0, () -> 1).get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        Assertions.assertThat(execucao()).containsEntry("prioridadeBaixaEmExecucao", 3).containsEntry("naFila", 1);
+    }
+
+    private EscalonadorPerguntas novo(int concorrencia, int fila, int porCliente) {
+        EscalonadorPerguntas novo = new EscalonadorPerguntas();
+        ReflectionTestUtils.setField(novo, "concorrenciaTraducao", 1);
+        ReflectionTestUtils.setField(novo, "filaTraducao", fila);
+        ReflectionTestUtils.setField(novo, "concorrenciaExecucao", concorrencia);
+        ReflectionTestUtils.setField(novo, "filaExecucao", fila);
+        ReflectionTestUtils.setField(novo, "filaPorCliente", porCliente);
+        ReflectionTestUtils.setField(novo, "backendNlp", "java");
+        ReflectionTestUtils.setField(novo, "registroMetricas", new SimpleMeterRegistry());
+        novo.initialize();
+        return novo;
+    }
+
+    /** Tarefas de clientes próprios que só terminam quando o teste soltar o latch. */
+    private void ocupar(int quantas, EscalonadorPerguntas.Prioridade prioridade) {
+        for (int i = 0; i < quantas; i++) {
+            escalonador.executar(EXECUCAO, "ocupante-" + i, prioridade, 0, () -> {
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            });
+        }
+    }
+
+    private CompletableFuture<String> registrar(String cliente, EscalonadorPerguntas.Prioridade prioridade, String id, List<String> ordem) {
+        CompletableFuture<String> future = escalonador.executar(EXECUCAO, cliente, prioridade, 0, () -> {
+            ordem.add(id);
+            return id;
+        });
+        Assertions.assertThat(future).isNotDone();
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> execucao() {
+        return (Map<String, Object>) escalonador.estado().get("execucao");
+    }
+
+    private static AdmissaoRecusadaException recusa(CompletableFuture<?> future) {
+        Assertions.assertThat(future).isCompletedExceptionally();
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            return (AdmissaoRecusadaException) e.getCause();
+        }
+        throw new AssertionError("O future deveria ter sido recusado.");
+    }
+
+    private static void aguardar(BooleanSupplier condicao) {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicao.getAsBoolean()) {
+            if (System.nanoTime() > limite) throw new AssertionError("Condição não atingida em 5 s.");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.Programa_heber.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/** Codificação do {@link ResultadosPaginados.Cursor} devolvido como "proximoCursor" de cada página. */
+class ResultadosPaginadosTest {
+
+    @Test
+    void cursorIdaEVolta() {
+        for (ResultadosPaginados.Cursor cursor : List.of(
+                new ResultadosPaginados.Cursor(1, 0, 0),
+                new ResultadosPaginados.Cursor(42, 10_000, "SELECT * WHERE { ?s ?p ?o }".hashCode()),
+                new ResultadosPaginados.Cursor(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE),
+                new ResultadosPaginados.Cursor(7, 3, -1))) {
+            String codificado = cursor.codificar();
+            Assertions.assertThat(codificado).matches("[A-Za-z0-9_-]+");
+            Assertions.assertThat(ResultadosPaginados.Cursor.decodificar(codificado)).isEqualTo(cursor);
+        }
+    }
+
+    @Test
+    void cursorInvalidoERecusado() {
+        for (String invalido : List.of("", "%%%", base64("1:2"), base64("1:2:3:4"), base64("a:2:ff"), base64("1:-5:ff"),
+                base64("1:2:fffffffff"), base64("1:2:"), "Zm9v!")) {
+            Assertions.assertThatThrownBy(() -> ResultadosPaginados.Cursor.decodificar(invalido))
+                    .as(invalido).isInstanceOf(IllegalArgumentException.class).hasMessage("Cursor inválido.");
+        }
+    }
+
+    private static String base64(String texto) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.Programa_heber.service;
+
+import com.example.Programa_heber.ontology.Ontology;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.sparql.core.Var;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compilação dos placeholders {@code #NOME#} em variáveis {@code ?ph_NOME} e conversão dos valores
+ * do PLN em nós tipados, inclusive a recusa dos valores que não cabem no tipo do slot.
+ */
+class SparqlTemplateRegistryTest {
+
+    private static final String TEMPLATE = """
+            PREFIX b3: <https://dcm.ffclrp.usp.br/lssb/stock-market-ontology#>
+            PREFIX b3fn: <https://dcm.ffclrp.usp.br/lssb/stock-market-ontology/funcoes#>
+            SELECT ?valor WHERE {
+              ?empresa b3fn:rotulo #ENTIDADE_NOME#@pt .
+              ?pregao b3:ocorreEmData #DATA# .
+              ?negociado #VALOR_DESEJADO# ?valor .
+              ?outra b3fn:rotulo #ENTIDADE_NOME#@pt .
+              ?codigo b3:ticker #TICKER# .
+            }""";
+
+    private final SparqlTemplateRegistry.TemplateCompilado compilado = SparqlTemplateRegistry.compilar("Template_Teste", TEMPLATE);
+    private final SparqlTemplateRegistry registro = new SparqlTemplateRegistry();
+
+    @Test
+    void placeholdersViramVariaveisTipadasUmSlotPorNome() {
+        Assertions.assertThat(compilado.slots()).extracting(SparqlTemplateRegistry.Slot::placeholder)
+                .containsExactly("#ENTIDADE_NOME#", "#DATA#", "#VALOR_DESEJADO#", "#TICKER#");
+        Assertions.assertThat(compilado.slots()).extracting(SparqlTemplateRegistry.Slot::tipo).containsExactly(
+                SparqlTemplateRegistry.TipoSlot.LITERAL, SparqlTemplateRegistry.TipoSlot.DATA,
+                SparqlTemplateRegistry.TipoSlot.PROPRIEDADE, SparqlTemplateRegistry.TipoSlot.LITERAL);
+        Assertions.assertThat(compilado.slots()).extracting(SparqlTemplateRegistry.Slot::idioma).containsExactly("pt", null, null, null);
+        Assertions.assertThat(compilado.slots()).extracting(s -> s.variavel().getVarName())
+                .containsExactly("ph_ENTIDADE_NOME", "ph_DATA", "ph_VALOR_DESEJADO", "ph_TICKER");
+        Assertions.assertThat(compilado.query().serialize()).doesNotContain("#ENTIDADE_NOME#", "@pt", "#DATA#").contains("?ph_DATA");
+    }
+
+    @Test
+    void converteNoFormatoDoPlnEValorPuro() {
+        Map<Var, Node> doPln = registro.vincular(compilado, valores("\"GERDAU S.A.\"", "\"2023-05-08\"^^xsd:date", "b3:precoFechamento", "\"GOAU4\""));
+        Map<Var, Node> puros = registro.vincular(compilado, valores("GERDAU S.A.", "2023-05-08", "precoFechamento", "GOAU4"));
+
+        Assertions.assertThat(doPln).isEqualTo(puros).containsExactly(
+                Map.entry(Var.alloc("ph_ENTIDADE_NOME"), NodeFactory.createLiteral("GERDAU S.A.", "pt")),
+                Map.entry(Var.alloc("ph_DATA"), NodeFactory.createLiteral("2023-05-08", XSDDatatype.XSDdate)),
+                Map.entry(Var.alloc("ph_VALOR_DESEJADO"), NodeFactory.createURI(Ontology.ONT_PREFIX + "precoFechamento")),
+                Map.entry(Var.alloc("ph_TICKER"), NodeFactory.createLiteral("GOAU4")));
+    }
+
+    @Test
+    void textoDoPlnNaoAlteraAEstruturaDaConsulta() {
+        String injecao = "x\" . ?s ?p ?o } #";
+        Map<Var, Node> vinculos = registro.vincular(compilado, valores("\"A \\\"B\\\" C\"", "2023-05-08", "precoFechamento", injecao));
+        Assertions.assertThat(vinculos.get(Var.alloc("ph_ENTIDADE_NOME"))).isEqualTo(NodeFactory.createLiteral("A \"B\" C", "pt"));
+        Assertions.assertThat(vinculos.get(Var.alloc("ph_TICKER"))).isEqualTo(NodeFactory.createLiteral(injecao));
+    }
+
+    @Test
+    void recusaDatasEPropriedadesInvalidas() {
+        for (String data : List.of("08/05/2023", "2023-02-30", "2023-13-01", "amanhã", "")) {
+            Assertions.assertThatThrownBy(() -> registro.vincular(compilado, valores("GERDAU", data, "precoFechamento", "GOAU4")))
+                    .as(data).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Data inválida para #DATA#");
+        }
+        for (String propriedade : List.of("<http://example.org/p>", "rdf:type", "precoFechamento ?x", "b3:", "1preco")) {
+            Assertions.assertThatThrownBy(() -> registro.vincular(compilado, valores("GERDAU", "2023-05-08", propriedade, "GOAU4")))
+                    .as(propriedade).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Propriedade inválida para #VALOR_DESEJADO#");
+        }
+        Map<String, String> semTicker = valores("GERDAU", "2023-05-08", "precoFechamento", "GOAU4");
+        semTicker.remove("#TICKER#");
+        Assertions.assertThatThrownBy(() -> registro.vincular(compilado, semTicker))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("#TICKER#");
+        Assertions.assertThatThrownBy(() -> registro.vincular(compilado, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void compilaTodosOsTemplatesEPreencheSemVariaveisLivres() throws IOException {
+        registro.initialize();
+        Assertions.assertThat(registro.getTemplates()).extracting(SparqlTemplateRegistry.TemplateCompilado::id)
+                .contains("Template_1A", "Template_2A", "Template_4B", "Template_7F");
+
+        Query query = registro.preencher("Template_1A", Map.of("#ENTIDADE_NOME#", "\"CSN MINERAÇÃO S.A.\"",
+                "#DATA#", "\"2023-05-08\"^^xsd:date", "#VALOR_DESEJADO#", "b3:precoFechamento"));
+        Assertions.assertThat(query.serialize()).doesNotContain("?ph_").contains("\"CSN MINERAÇÃO S.A.\"@pt", "b3:precoFechamento");
+        Assertions.assertThat(registro.get("Template_1A").orElseThrow().query().serialize()).contains("?ph_DATA");
+        Assertions.assertThatThrownBy(() -> registro.preencher("Template_99Z", Map.of())).isInstanceOf(FileNotFoundException.class);
+    }
+
+    private static Map<String, String> valores(String entidade, String data, String propriedade, String ticker) {
+        Map<String, String> valores = new HashMap<>();
+        valores.put("#ENTIDADE_NOME#", entidade);
+        valores.put("#DATA#", data);
+        valores.put("#VALOR_DESEJADO#", propriedade);
+        valores.put("#TICKER#", ticker);
+        return valores;
+    }
+}
@@ -0,0 +1,46 @@
+"""
+Grava em razoes_difflib.jsonl as razões do difflib.SequenceMatcher do Python para pares de textos
+e o resultado de get_close_matches(n=1) para as perguntas de perguntas.txt, em dois tipos de linha:
+
+    {"a": ..., "b": ..., "ratio": ..., "quick_ratio": ..., "real_quick_ratio": ...}
+    {"palavra": ..., "cutoff": ..., "melhor": ... ou null}
+
+Esse arquivo é a referência do SequenceMatcherTest; regrave-o se os textos mudarem:
+
+    python3 src/test/resources/nlp/gravar_razoes_difflib.py
+"""
+import difflib
+import json
+import os
+import random
+
+AQUI = os.path.dirname(os.path.abspath(__file__))
+EXEMPLOS = os.path.join(AQUI, "..", "..", "..", "main", "resources", "perguntas_de_interesse.txt")
+
+perguntas = [linha.rstrip("\n") for linha in open(os.path.join(AQUI, "perguntas.txt"), encoding="utf-8") if linha.strip()]
+exemplos = [linha.strip().split(";", 1)[1] for linha in open(EXEMPLOS, encoding="utf-8-sig") if ";" in linha]
+
+# Casos de borda: vazios, code points fora do BMP, repetições e textos com 200 ou mais caracteres
+# (a heurística "autojunk" descarta os elementos populares de b).
+aleatorio = random.Random(7)
+longos = ["".join(aleatorio.choice("ab ") for _ in range(n)) for n in (199, 200, 450)]
+especiais = [
+    ("", ""), ("", "abc"), ("abc", ""), ("abc", "abc"),
+    ("ação 📈 em alta", "ação 📉 em baixa"), ("😀😀😀", "😀a😀"),
+    ("aaaaabbbbb", "ababababab"), ("qual o preço", "qual o preco"),
+    (longos[0], longos[1]), (longos[1], longos[2]), (longos[2], longos[1]),
+    (" ".join(exemplos), " ".join(reversed(exemplos))),
+]
+pares = [(p, e) for p in perguntas[::3] for e in exemplos] + especiais
+
+with open(os.path.join(AQUI, "razoes_difflib.jsonl"), "w", encoding="utf-8") as saida:
+    for a, b in pares:
+        m = difflib.SequenceMatcher(None, a, b)
+        saida.write(json.dumps({"a": a, "b": b, "ratio": m.ratio(), "quick_ratio": m.quick_ratio(),
+                                "real_quick_ratio": m.real_quick_ratio()}, ensure_ascii=False) + "\n")
+    for palavra in perguntas:
+        for cutoff in (0.3, 0.6):
+            melhor = difflib.get_close_matches(palavra, exemplos, n=1, cutoff=cutoff)
+            saida.write(json.dumps({"palavra": palavra, "cutoff": cutoff, "melhor": melhor[0] if melhor else None},
+                                   ensure_ascii=False) + "\n")
+print(f"{len(pares)} pares e {2 * len(perguntas)} buscas gravados.")
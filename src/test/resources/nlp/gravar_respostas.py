@@ -0,0 +1,32 @@
+"""
+Grava as respostas do pln_processor.py para cada pergunta de perguntas.txt em
+respostas_pln_processor.jsonl, uma linha {"pergunta": ..., "resposta": ...} por pergunta.
+Esse arquivo é a referência do JavaNlpEngineTest; regrave-o sempre que o script ou os mapas mudarem:
+
+    python3 src/test/resources/nlp/gravar_respostas.py
+"""
+import json
+import os
+import subprocess
+import sys
+
+AQUI = os.path.dirname(os.path.abspath(__file__))
+SCRIPT = os.path.join(AQUI, "..", "..", "..", "main", "resources", "pln_processor.py")
+
+perguntas = [linha.rstrip("\n") for linha in open(os.path.join(AQUI, "perguntas.txt"), encoding="utf-8") if linha.strip()]
+worker = subprocess.Popen([sys.executable, SCRIPT, "--servidor"], stdin=subprocess.PIPE, stdout=subprocess.PIPE,
+                          stderr=subprocess.DEVNULL, text=True, encoding="utf-8")
+pronto = json.loads(worker.stdout.readline())
+if pronto.get("status") != "pronto":
+    sys.exit(f"pln_processor.py não subiu: {pronto}")
+
+with open(os.path.join(AQUI, "respostas_pln_processor.jsonl"), "w", encoding="utf-8") as saida:
+    for i, pergunta in enumerate(perguntas):
+        worker.stdin.write(json.dumps({"id": i, "pergunta": pergunta}, ensure_ascii=False) + "\n")
+        worker.stdin.flush()
+        resposta = json.loads(worker.stdout.readline())
+        resposta.pop("id", None)
+        saida.write(json.dumps({"pergunta": pergunta, "resposta": resposta}, ensure_ascii=False) + "\n")
+worker.stdin.close()
+worker.wait()
+print(f"{len(perguntas)} respostas gravadas.")